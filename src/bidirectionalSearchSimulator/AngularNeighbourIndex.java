@@ -0,0 +1,457 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * AngularNeighbourIndex is a class that sorts the neighbours of each node of
+ * a network by bearing, i.e. by the direction of the line going from the node
+ * to the neighbour. It is used by the bidirectional linear search to find the
+ * neighbour that keeps a query going in the straightest line without looking
+ * at every neighbour of the current node.
+ * 
+ * The neighbours of each node are stored in the same layout as in
+ * CompactGraph: the neighbours of the node with index i are found between
+ * positions offsets[i] (inclusive) and offsets[i + 1] (exclusive), here in
+ * increasing bearing order for the nodes having at least MIN_INDEXED_DEGREE
+ * neighbours (shorter lists keep compact graph order, as they are always
+ * checked from end to end). Bearings are calculated once when the index is
+ * built, as pseudo-angles rather than with Math.atan2: the bearing of a
+ * direction is a value between 0 (inclusive) and 4 (exclusive), which grows
+ * with the angle measured counterclockwise from the positive x axis (one unit
+ * per quarter turn), so bearings can be compared and searched without any
+ * trigonometric function. The location of each neighbour is copied next to
+ * its bearing, so checking the neighbours of a node reads consecutive
+ * entries of a single array instead of looking up the location of each
+ * neighbour in the network structurer.
+ * 
+ * The index must be rebuilt if the links of the network or the location of a
+ * node change.
+ */
+public class AngularNeighbourIndex {
+    
+    private static final int MIN_INDEXED_DEGREE = 256;  // nodes with fewer
+    // neighbours than this are scanned from end to end, which is faster than
+    // narrowing the range of bearings when the list of entries is short
+    private static final int ENTRY_SIZE = 3;  // number of values kept for
+    // each neighbour in neighbourEntries
+    private static final double RANGE_MARGIN = 1e-6;  // widening of the
+    // scanned range of bearings, so that rounding errors never leave out a
+    // neighbour on its edge
+    
+    private final double[] xLocations;  // x location of each node, shared with
+    // the network structurer
+    private final double[] yLocations;  // y location of each node, shared with
+    // the network structurer
+    private final int[] offsets;        // start of the neighbour list of each
+    // node (see CompactGraph)
+    private final int[] sortedNeighbours;  // neighbour indices of all the
+    // nodes, sorted by bearing within the long neighbour lists
+    private final double[] neighbourEntries;  // bearing from each node to
+    // each of its neighbours (long neighbour lists only) followed by the x
+    // and y locations of the neighbour, in the same order as sortedNeighbours
+    // (ENTRY_SIZE values per neighbour)
+    private final double[] reaches;     // distance between each node and its
+    
+    // furthest neighbour (long neighbour lists only)
+    
+    /**
+     * Constructor. Builds the index from the compact graph and the node
+     * locations of a network.
+     * 
+     * @param pxLocations
+     *            x location of each node, indexed by node registry index
+     * @param pyLocations
+     *            y location of each node, indexed by node registry index
+     * @param pCompactGraph
+     *            compact graph of the network
+     */
+    public AngularNeighbourIndex(final double[] pxLocations,
+            final double[] pyLocations, final CompactGraph pCompactGraph) {
+        xLocations = pxLocations;
+        yLocations = pyLocations;
+        offsets = pCompactGraph.getOffsets();
+        
+        final int[] neighbours = pCompactGraph.getNeighbours();
+        final int nNodes = offsets.length - 1;
+        
+        sortedNeighbours = new int[neighbours.length];
+        neighbourEntries = new double[ENTRY_SIZE * neighbours.length];
+        reaches = new double[nNodes];
+        
+        for (int iNode = 0; iNode < nNodes; iNode++) {
+            final int firstNeighbour = offsets[iNode];
+            final int degree = offsets[iNode + 1] - firstNeighbour;
+            
+            /*
+             * Sorts long neighbour lists by bearing. Short neighbour lists
+             * are left in compact graph order.
+             */
+            final int[] order = (degree >= MIN_INDEXED_DEGREE) ?
+                    sortByBearing(iNode, neighbours) : null;
+            
+            for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+                final int position = firstNeighbour + iNeighbour;
+                final int neighbourIndex =
+                        neighbours[firstNeighbour +
+                                ((order == null) ? iNeighbour
+                                        : order[iNeighbour])];
+                
+                sortedNeighbours[position] = neighbourIndex;
+                neighbourEntries[ENTRY_SIZE * position + 1] =
+                        xLocations[neighbourIndex];
+                neighbourEntries[ENTRY_SIZE * position + 2] =
+                        yLocations[neighbourIndex];
+                
+                /*
+                 * Calculates the bearing of the neighbour and the distance of
+                 * the furthest neighbour.
+                 */
+                if (order != null) {
+                    final double dx =
+                            xLocations[neighbourIndex] - xLocations[iNode];
+                    final double dy =
+                            yLocations[neighbourIndex] - yLocations[iNode];
+                    
+                    neighbourEntries[ENTRY_SIZE * position] =
+                            calculateBearing(dx, dy);
+                    reaches[iNode] =
+                            Math.max(reaches[iNode],
+                                    Math.sqrt((dx * dx) + (dy * dy)));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sorts the neighbours of a node by bearing. The sort is stable, so
+     * neighbours with the same bearing stay in increasing index order.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @param neighbours
+     *            neighbour indices of all the nodes (see CompactGraph)
+     * @return the positions of the neighbours in the neighbour list of the
+     *         node, in increasing bearing order
+     */
+    private int[] sortByBearing(final int nodeIndex, final int[] neighbours) {
+        final int firstNeighbour = offsets[nodeIndex];
+        final int degree = offsets[nodeIndex + 1] - firstNeighbour;
+        final double[] nodeBearings = new double[degree];
+        final Integer[] order = new Integer[degree];
+        
+        for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+            final int neighbourIndex = neighbours[firstNeighbour + iNeighbour];
+            
+            nodeBearings[iNeighbour] =
+                    calculateBearing(xLocations[neighbourIndex] -
+                            xLocations[nodeIndex], yLocations[neighbourIndex] -
+                            yLocations[nodeIndex]);
+            order[iNeighbour] = iNeighbour;
+        }
+        
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer iNeighbour1,
+                    final Integer iNeighbour2) {
+                return Double.compare(nodeBearings[iNeighbour1],
+                        nodeBearings[iNeighbour2]);
+            }
+        });
+        
+        final int[] sortedPositions = new int[degree];
+        for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+            sortedPositions[iNeighbour] = order[iNeighbour];
+        }
+        
+        return sortedPositions;
+    }
+    
+    /**
+     * Finds the neighbour of the current node of a query such that the line
+     * connecting the source of the query with the neighbour follows a given
+     * direction most closely (see NetworkStructurer.calculateAlignment), out
+     * of the neighbours that are not the source and that are further away
+     * from the source than the current node. If several neighbours are
+     * equally aligned, the one with the smallest index is chosen, so the
+     * result is the same as checking every neighbour in compact graph order.
+     * 
+     * A neighbour can only be further away from the source than the current
+     * node if the angle between the line going from the current node to the
+     * neighbour and the line going from the source to the current node is
+     * less than a right angle, plus a small angle that depends on how far the
+     * neighbour is compared with the source. The neighbours pointing back
+     * towards the source are therefore skipped, by only checking the range
+     * of bearings around the bearing of the current node as seen from the
+     * source, whose ends are found by binary search. Short neighbour lists
+     * are checked from end to end instead.
+     * 
+     * @param sourceIndex
+     *            node registry index of the source of the query
+     * @param currentNodeIndex
+     *            node registry index of the current node of the query
+     * @param unitVector
+     *            the direction, as returned by
+     *            NetworkStructurer.calculateUnitVector
+     * @return the index of the chosen neighbour, -1 if no neighbour moves the
+     *         query away from the source
+     */
+    public int findStraightestNeighbour(final int sourceIndex,
+            final int currentNodeIndex, final double[] unitVector) {
+        final int firstNeighbour = offsets[currentNodeIndex];
+        final int endNeighbour = offsets[currentNodeIndex + 1];
+        final double dx =
+                xLocations[currentNodeIndex] - xLocations[sourceIndex];
+        final double dy =
+                yLocations[currentNodeIndex] - yLocations[sourceIndex];
+        final double squaredDistanceOfCurrentNode = (dx * dx) + (dy * dy);
+        
+        if ((endNeighbour - firstNeighbour < MIN_INDEXED_DEGREE) ||
+                (squaredDistanceOfCurrentNode == 0)) {
+            return sortedNeighbourAt(scanSlots(sourceIndex, unitVector,
+                    squaredDistanceOfCurrentNode, firstNeighbour,
+                    endNeighbour, -1));
+        }
+        
+        /*
+         * Calculates the range of bearings of the neighbours that can be
+         * further away from the source than the current node. A neighbour at
+         * distance r from the current node, itself at distance d from the
+         * source, must make an angle whose cosine is greater than -r / 2d
+         * with the line going away from the source. The ends of the range are
+         * the two directions making that angle, widened a little.
+         */
+        final double distanceOfCurrentNode =
+                Math.sqrt(squaredDistanceOfCurrentNode);
+        final double cosine =
+                -Math.min(1, (reaches[currentNodeIndex] /
+                        (2 * distanceOfCurrentNode)) + RANGE_MARGIN);
+        
+        if (cosine == -1) {
+            return sortedNeighbourAt(scanSlots(sourceIndex, unitVector,
+                    squaredDistanceOfCurrentNode, firstNeighbour,
+                    endNeighbour, -1));
+        }
+        
+        final double sine = Math.sqrt(1 - (cosine * cosine));
+        final double outwardx = dx / distanceOfCurrentNode;
+        final double outwardy = dy / distanceOfCurrentNode;
+        final double lowestBearing =
+                calculateBearing((outwardx * cosine) + (outwardy * sine),
+                        (outwardy * cosine) - (outwardx * sine));
+        final double highestBearing =
+                calculateBearing((outwardx * cosine) - (outwardy * sine),
+                        (outwardy * cosine) + (outwardx * sine));
+        
+        /*
+         * Checks the neighbours within the range, going counterclockwise from
+         * its lowest to its highest bearing, which is split in two if it
+         * crosses the bearing of 0.
+         */
+        if (lowestBearing <= highestBearing) {
+            return sortedNeighbourAt(scanBearings(sourceIndex, unitVector,
+                    squaredDistanceOfCurrentNode, firstNeighbour,
+                    endNeighbour, lowestBearing, highestBearing, -1));
+        }
+        
+        final int bestSlot =
+                scanBearings(sourceIndex, unitVector,
+                        squaredDistanceOfCurrentNode, firstNeighbour,
+                        endNeighbour, lowestBearing, 4, -1);
+        
+        return sortedNeighbourAt(scanBearings(sourceIndex, unitVector,
+                squaredDistanceOfCurrentNode, firstNeighbour, endNeighbour, 0,
+                highestBearing, bestSlot));
+    }
+    
+    /**
+     * Checks the neighbours of a node whose bearing is within a range.
+     * 
+     * @param sourceIndex
+     *            node registry index of the source of the query
+     * @param unitVector
+     *            the direction followed by the query
+     * @param squaredDistanceOfCurrentNode
+     *            squared distance between the source and the current node
+     * @param firstNeighbour
+     *            first position of the neighbour list of the node
+     * @param endNeighbour
+     *            position following the neighbour list of the node
+     * @param lowestBearing
+     *            lowest bearing of the range (inclusive)
+     * @param highestBearing
+     *            highest bearing of the range (inclusive)
+     * @param bestSlot
+     *            position of the best neighbour found so far, -1 if none
+     * @return the position of the best neighbour found, -1 if none
+     */
+    private int scanBearings(final int sourceIndex, final double[] unitVector,
+            final double squaredDistanceOfCurrentNode,
+            final int firstNeighbour, final int endNeighbour,
+            final double lowestBearing, final double highestBearing,
+            final int bestSlot) {
+        final int fromSlot =
+                findFirstSlot(firstNeighbour, endNeighbour, lowestBearing);
+        final int toSlot =
+                findFirstSlot(fromSlot, endNeighbour,
+                        Math.nextUp(highestBearing));
+        
+        return scanSlots(sourceIndex, unitVector, squaredDistanceOfCurrentNode,
+                fromSlot, toSlot, bestSlot);
+    }
+    
+    /**
+     * Checks a run of neighbours, in the same way as the bidirectional linear
+     * search checks every neighbour of the current node. The distances and
+     * alignments are calculated exactly as NetworkStructurer calculates them,
+     * so the same neighbour is chosen.
+     * 
+     * @param sourceIndex
+     *            node registry index of the source of the query
+     * @param unitVector
+     *            the direction followed by the query
+     * @param squaredDistanceOfCurrentNode
+     *            squared distance between the source and the current node
+     * @param fromSlot
+     *            first position to check (inclusive)
+     * @param toSlot
+     *            last position to check (exclusive)
+     * @param bestSlot
+     *            position of the best neighbour found so far, -1 if none
+     * @return the position of the best neighbour found, -1 if none
+     */
+    private int scanSlots(final int sourceIndex, final double[] unitVector,
+            final double squaredDistanceOfCurrentNode, final int fromSlot,
+            final int toSlot, final int bestSlot) {
+        final double sourcexLocation = xLocations[sourceIndex];
+        final double sourceyLocation = yLocations[sourceIndex];
+        int newBestSlot = bestSlot;
+        double largestAlignment = -2;  // below any possible alignment
+        
+        if (bestSlot != -1) {
+            largestAlignment = alignmentAt(bestSlot, sourceIndex, unitVector);
+        }
+        
+        for (int iSlot = fromSlot; iSlot < toSlot; iSlot++) {
+            final double dx =
+                    neighbourEntries[ENTRY_SIZE * iSlot + 1] - sourcexLocation;
+            final double dy =
+                    neighbourEntries[ENTRY_SIZE * iSlot + 2] - sourceyLocation;
+            final double squaredDistance = (dx * dx) + (dy * dy);
+            
+            if ((squaredDistance <= squaredDistanceOfCurrentNode) ||
+                    (sortedNeighbours[iSlot] == sourceIndex)) {
+                continue;
+            }
+            
+            final double dotProduct =
+                    (dx * unitVector[0]) + (dy * unitVector[1]);
+            final double alignment =
+                    (dotProduct * Math.abs(dotProduct)) / squaredDistance;
+            
+            /* Keeps the smallest index amongst equally aligned neighbours. */
+            if ((alignment > largestAlignment) ||
+                    ((alignment == largestAlignment) &&
+                            (sortedNeighbours[iSlot] <
+                                    sortedNeighbours[newBestSlot]))) {
+                largestAlignment = alignment;
+                newBestSlot = iSlot;
+            }
+        }
+        
+        return newBestSlot;
+    }
+    
+    /**
+     * Calculates the alignment of a neighbour, as in scanSlots.
+     * 
+     * @param iSlot
+     *            position of the neighbour
+     * @param sourceIndex
+     *            node registry index of the source of the query
+     * @param unitVector
+     *            the direction followed by the query
+     * @return the alignment of the line connecting the source with the
+     *         neighbour
+     */
+    private double alignmentAt(final int iSlot, final int sourceIndex,
+            final double[] unitVector) {
+        final double dx =
+                neighbourEntries[ENTRY_SIZE * iSlot + 1] -
+                        xLocations[sourceIndex];
+        final double dy =
+                neighbourEntries[ENTRY_SIZE * iSlot + 2] -
+                        yLocations[sourceIndex];
+        final double dotProduct = (dx * unitVector[0]) + (dy * unitVector[1]);
+        
+        return (dotProduct * Math.abs(dotProduct)) / ((dx * dx) + (dy * dy));
+    }
+    
+    /**
+     * Finds the first neighbour of a node whose bearing is not lower than a
+     * given bearing.
+     * 
+     * @param firstNeighbour
+     *            first position of the neighbour list of the node
+     * @param endNeighbour
+     *            position following the neighbour list of the node
+     * @param bearing
+     *            the bearing
+     * @return the position of the neighbour, endNeighbour if every bearing is
+     *         lower
+     */
+    private int findFirstSlot(final int firstNeighbour,
+            final int endNeighbour, final double bearing) {
+        int low = firstNeighbour;
+        int high = endNeighbour;
+        
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            
+            if (neighbourEntries[ENTRY_SIZE * middle] < bearing) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Calculates the bearing of a direction, as a pseudo-angle that grows by
+     * one for each quarter turn counterclockwise from the positive x axis.
+     * 
+     * @param dx
+     *            x component of the direction
+     * @param dy
+     *            y component of the direction
+     * @return the bearing, between 0 (inclusive) and 4 (exclusive), or 0 if
+     *         the direction is a zero vector
+     */
+    private static double calculateBearing(final double dx, final double dy) {
+        if ((dx == 0) && (dy == 0)) {
+            return 0;
+        }
+        
+        if (dy >= 0) {
+            return (dx >= 0) ? dy / (dx + dy) : 1 - (dx / (dy - dx));
+        }
+        else {
+            return (dx < 0) ? 2 - (dy / (-dx - dy)) : 3 + (dx / (dx - dy));
+        }
+    }
+    
+    /**
+     * Gets the neighbour at a position of the index.
+     * 
+     * @param iSlot
+     *            the position, -1 if there is none
+     * @return the index of the neighbour, -1 if there is none
+     */
+    private int sortedNeighbourAt(final int iSlot) {
+        return (iSlot == -1) ? -1 : sortedNeighbours[iSlot];
+    }
+    
+}
@@ -25,9 +25,35 @@ public class BarabasiAlbert extends Network {
     // a node is added to the network. Should be less than the number of initial
     // nodes of the network.
     private int nTotalLinks = 0;  // total number of links in the network
-    private double linkProbability;  // probability of generating a link between
+    private int[] linkEndpoints;  // node list positions of both end nodes of
+    // every link in the network. Each node appears once per link it has (i.e.
+    // as many times as its degree), so picking a uniformly random entry picks
+    // a node with a probability proportional to its degree.
+    private int nLinkEndpoints = 0;  // number of entries used in linkEndpoints
     
-    // two nodes
+    /**
+     * Constructor. The network is generated with its own randomly seeded
+     * generator.
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnNodes
+     *            total number of nodes in the network
+     * @param pnInitialNodes
+     *            number of nodes that the network contains initially
+     * @param pnLinksToAddAtEachStep
+     *            number of links to add each time
+     *            a node is added to the network. Should be less than the number
+     *            of initial
+     *            nodes of the network.
+     */
+    public BarabasiAlbert(final NetworkStructurer pNetworkStructurer,
+            final int pnNodes, final int pnInitialNodes,
+            final int pnLinksToAddAtEachStep) {
+        this(pNetworkStructurer, pnNodes, pnInitialNodes, pnLinksToAddAtEachStep,
+                new Xoshiro256StarStar());
+    }
     
     /**
      * Constructor.
@@ -44,11 +70,14 @@ public class BarabasiAlbert extends Network {
      *            a node is added to the network. Should be less than the number
      *            of initial
      *            nodes of the network.
+     * @param pRandomNumberGenerator
+     *            source of randomness used to generate this network
      */
     public BarabasiAlbert(final NetworkStructurer pNetworkStructurer,
             final int pnNodes, final int pnInitialNodes,
-            final int pnLinksToAddAtEachStep) {
-        super(pNetworkStructurer, pnNodes);
+            final int pnLinksToAddAtEachStep,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pNetworkStructurer, pnNodes, pRandomNumberGenerator);
         nInitialNodes = pnInitialNodes;
         nLinksToAddAtEachStep = pnLinksToAddAtEachStep;
     }
@@ -60,11 +89,12 @@ public class BarabasiAlbert extends Network {
     public void generateNodes() {
         for (int iNode = 0; iNode < nInitialNodes; iNode++) {
             /* Creates a node. */
-            networkStructurer.getNodeList().add(iNode, new Node(iNode));
+            networkStructurer.addNode(new Node(iNode));
             
             /* Generates and stores the node's location. */
-            networkStructurer.getNodeLocationMap().put(iNode,
-                    new double[] {Math.random(), Math.random()});
+            networkStructurer.setNodeLocation(iNode,
+                    randomNumberGenerator.nextDouble(),
+                    randomNumberGenerator.nextDouble());
         }
     }
     
@@ -89,16 +119,44 @@ public class BarabasiAlbert extends Network {
     /**
      * Generates the resulting Barabasi-Albert network by building on the
      * initial generated network.
+     * 
+     * Nodes are picked in proportion to their degree by drawing a random entry
+     * of linkEndpoints, which takes constant time, so growing the network
+     * takes time proportional to its number of links.
      */
     public void generateBAModel() {
+        /*
+         * Fills in the link endpoints of the initial network and makes room
+         * for the links added at each step.
+         */
+        final int nGrowthSteps = Math.max(0, nNodes - nInitialNodes);
+        linkEndpoints =
+                new int[(2 * nTotalLinks) +
+                        (2 * nGrowthSteps * nLinksToAddAtEachStep)];
+        
+        for (int iNode = 0; iNode < networkStructurer.getNodeList().size(); iNode++) {
+            final int degree =
+                    networkStructurer.getNodeList().get(iNode).degree();
+            
+            for (int iLink = 0; iLink < degree; iLink++) {
+                linkEndpoints[nLinkEndpoints++] = iNode;
+            }
+        }
+        
+        final int[] chosenNodes = new int[nLinksToAddAtEachStep];  // nodes
+        // the new node has been linked to during the current step
+        
         for (int iNode1 = nInitialNodes; iNode1 < nNodes; iNode1++) {
             /* Creates a node. */
             final Node aNewNode = new Node(iNode1);
-            networkStructurer.getNodeList().add(aNewNode);
+            networkStructurer.addNode(aNewNode);
+            final int newNodePosition =
+                    networkStructurer.getNodeList().size() - 1;
             
             /* Generates and stores the node's location. */
-            networkStructurer.getNodeLocationMap().put(iNode1,
-                    new double[] {Math.random(), Math.random()});
+            networkStructurer.setNodeLocation(iNode1,
+                    randomNumberGenerator.nextDouble(),
+                    randomNumberGenerator.nextDouble());
             
             /*
              * Attaches the new node to a predefined number of other nodes
@@ -122,29 +180,24 @@ public class BarabasiAlbert extends Network {
                 nLinksToAddAtEachStepCounter = nLinksToAddAtEachStep;
             }
             
-            int aRandomNodeID;
-            Node aRandomNode;
-            Link aNewLink;
+            int nChosenNodes = 0;
+            int aRandomNodePosition;
             
             while (nLinksToAddAtEachStepCounter > 0) {
-                /* Chooses a random node in the network. */
-                aRandomNodeID =
-                        (int) Math.floor(Math.random() *
-                                networkStructurer.getNodeList().size());
-                aRandomNode =
-                        networkStructurer.getNodeList().get(aRandomNodeID);
-                
                 /*
-                 * Checks that the total number of links in the network is greater
-                 * than zero to avoid a division by zero error. This could arise
-                 * if only one node is present.
+                 * Chooses a random node in the network in proportion to its
+                 * degree. If there are no links yet (which could arise if only
+                 * one node is present initially), any node can be chosen.
                  */
-                if (nTotalLinks > 0) {
-                    linkProbability =
-                            (double) aRandomNode.degree() / nTotalLinks;
+                if (nLinkEndpoints > 0) {
+                    aRandomNodePosition =
+                            linkEndpoints[randomNumberGenerator
+                                    .nextInt(nLinkEndpoints)];
                 }
                 else {
-                    linkProbability = 1;
+                    aRandomNodePosition =
+                            randomNumberGenerator.nextInt(networkStructurer
+                                    .getNodeList().size());
                 }
                 
                 /*
@@ -152,17 +205,28 @@ public class BarabasiAlbert extends Network {
                  *
                  * First, it makes sure that the link is not a self-link
                  * (i.e. a link that links the node that was just created back
-                 * to itself) and that the link does not already exist.
+                 * to itself) and that the link does not already exist. The new
+                 * node is only linked to the nodes chosen during this step, so
+                 * these are the only ones that need to be checked.
                  */
-                if ((Math.random() < linkProbability) &&
-                        (aNewNode.getNodeID() != aRandomNode.getNodeID()) &&
-                        (!aNewNode.isConnectedTo(aRandomNode))) {
-                    aNewLink =
-                            new Link(aNewNode.getNodeID(), aRandomNode
-                                    .getNodeID(), networkStructurer);
+                boolean isAlreadyChosen =
+                        (aRandomNodePosition == newNodePosition);
+                
+                for (int iChosenNode = 0; iChosenNode < nChosenNodes;
+                        iChosenNode++) {
+                    if (chosenNodes[iChosenNode] == aRandomNodePosition) {
+                        isAlreadyChosen = true;
+                    }
+                }
+                
+                if (!isAlreadyChosen) {
+                    new Link(aNewNode.getNodeID(), networkStructurer
+                            .getNodeList().get(aRandomNodePosition)
+                            .getNodeID(), networkStructurer);
                     
-                    aNewNode.addLinkToLinkSet(aNewLink);
-                    aRandomNode.addLinkToLinkSet(aNewLink);
+                    chosenNodes[nChosenNodes++] = aRandomNodePosition;
+                    linkEndpoints[nLinkEndpoints++] = newNodePosition;
+                    linkEndpoints[nLinkEndpoints++] = aRandomNodePosition;
                     
                     nTotalLinks++;
                     nLinksToAddAtEachStepCounter--;
@@ -0,0 +1,552 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * BatchedWalkEngine is a class that runs many independent random walk-based
+ * simulations (RandomWalk, BidirectionalSearchRW or
+ * RandomlyReplicatedRandomWalk, including their weighted versions) on the
+ * same network in lockstep. Each
+ * simulation is given a lane, and at each time step the engine moves the
+ * walkers of every lane still running in a single pass over the walkers.
+ * 
+ * The walkers of all the lanes are stored as columns of primitive arrays
+ * (lane, current node, TTL, query group, target, first hop, last hop), and
+ * the state of each lane (generator, visited nodes, flags, counters) is
+ * stored the same way by lane number. Replicated walkers are appended at the
+ * end of the columns, and the walkers of finished lanes are dropped from time
+ * to time, so the loop over the walkers stays flat and only touches running
+ * simulations.
+ * 
+ * The nodes visited by each query group of a lane are kept in a
+ * CopyOnWriteNodeSet, which only allocates the pages of the network in which
+ * the walkers of the lane went, at a bit per node. A lane therefore takes at
+ * most an eighth of a byte per node of the network, however many lanes the
+ * engine runs, rather than a stamp per node.
+ * 
+ * Each simulation is set up by its own search (which chooses, copies or
+ * restores its source and targets) and then loaded into a lane. The walkers of
+ * a lane move in query order and draw from the search's own generator exactly
+ * as propagateQueries does, so each simulation ends at the same step, for the
+ * same reason and with the same number of messages and visited nodes as when
+ * it is run on its own.
+ */
+public class BatchedWalkEngine {
+    
+    public static final int DEFAULT_N_LANES = 64;  // number of simulations
+    // run in lockstep by a batch task
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int RUNNING = 0;
+    private static final int ENDED = 1;
+    
+    private final CompactGraph compactGraph;  // network shared by the lanes
+    
+    /* Walker columns, indexed by walker number. */
+    private int nWalkers = 0;           // number of walkers in the columns
+    private int[] walkerLanes;          // lane of each walker
+    private int[] walkerNodes;          // node index where each walker resides
+    private int[] walkerTtls;           // time-to-live of each walker
+    private int[] walkerGroups;         // query group of each walker (0 or 1)
+    private int[] walkerTargets;        // node index of the target of each
+    // walker, -1 if it has none
+    private int[] walkerFlagsFirstHop;  // 1 until each walker has moved
+    private int[] walkerLastHops;       // node index of the last hop of the
+    // path of each walker, -1 if the path is empty
+    
+    /* Lane columns, indexed by lane number. */
+    private int nLanes = 0;             // number of lanes loaded
+    private int nRunningLanes = 0;      // number of lanes still running
+    private int[] laneStates;           // RUNNING or ENDED
+    private RandomNumberGenerator[] laneRandomNumberGenerators;  // generator
+    // of the search loaded in each lane
+    private CopyOnWriteNodeSet[] laneVisitedNodesSets;  // nodes visited by each
+    // query group of each lane, at index 2 * lane + query group
+    private int[] laneFlagsQueriesMeet;  // 1 if the lane ends when two query
+    // groups meet
+    private int[] laneFlagsNonBacktracking;  // 1 if the walkers of the lane
+    // avoid the last hop of their path
+    private NeighbourAliasTable[] laneNeighbourAliasTables;  // weights by
+    // which the walkers of each lane pick their next node, null to pick it
+    // uniformly
+    private double[] laneReplicationProbabilities;  // probability that a
+    // walker of the lane replicates after a hop, 0 if walkers never replicate
+    private int[] laneLiveWalkers;      // number of walkers of each lane whose
+    // TTL has not expired
+    private int[] laneFlagsTargetFound;  // 1 once a walker found a target
+    private int[] laneFlagsQueriesMet;  // 1 once two query groups met
+    private int[] laneMessages;         // number of messages of each lane
+    private SimulationResult[] laneResults;  // result of each ended lane
+    private int nSteps = 0;             // number of time steps run
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network searched by every lane
+     */
+    public BatchedWalkEngine(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        
+        walkerLanes = new int[DEFAULT_CAPACITY];
+        walkerNodes = new int[DEFAULT_CAPACITY];
+        walkerTtls = new int[DEFAULT_CAPACITY];
+        walkerGroups = new int[DEFAULT_CAPACITY];
+        walkerTargets = new int[DEFAULT_CAPACITY];
+        walkerFlagsFirstHop = new int[DEFAULT_CAPACITY];
+        walkerLastHops = new int[DEFAULT_CAPACITY];
+        
+        laneStates = new int[DEFAULT_CAPACITY];
+        laneRandomNumberGenerators =
+                new RandomNumberGenerator[DEFAULT_CAPACITY];
+        laneVisitedNodesSets = new CopyOnWriteNodeSet[2 * DEFAULT_CAPACITY];
+        laneFlagsQueriesMeet = new int[DEFAULT_CAPACITY];
+        laneFlagsNonBacktracking = new int[DEFAULT_CAPACITY];
+        laneNeighbourAliasTables = new NeighbourAliasTable[DEFAULT_CAPACITY];
+        laneReplicationProbabilities = new double[DEFAULT_CAPACITY];
+        laneLiveWalkers = new int[DEFAULT_CAPACITY];
+        laneFlagsTargetFound = new int[DEFAULT_CAPACITY];
+        laneFlagsQueriesMet = new int[DEFAULT_CAPACITY];
+        laneMessages = new int[DEFAULT_CAPACITY];
+        laneResults = new SimulationResult[DEFAULT_CAPACITY];
+    }
+    
+    /**
+     * Checks if a search can be loaded into a lane: it must be a random walk,
+     * a bidirectional random walk or a randomly replicated random walk on the
+     * network of the engine that has not been propagated yet, each of its
+     * queries must reside on a single node and have at most one target.
+     * 
+     * @param aSearch
+     *            the search to check
+     * @return true if the search can be loaded
+     */
+    public boolean canLoad(final Search aSearch) {
+        if (!((aSearch instanceof RandomWalk) ||
+                (aSearch instanceof BidirectionalSearchRW) ||
+                (aSearch instanceof RandomlyReplicatedRandomWalk))) {
+            return false;
+        }
+        
+        if ((aSearch.getNetworkStructurer().getCompactGraph() !=
+                compactGraph) || (aSearch.getnTotalTime() != 0)) {
+            return false;
+        }
+        
+        if ((aSearch.getNeighbourAliasTable() != null) &&
+                (aSearch.getNeighbourAliasTable().getCompactGraph() !=
+                compactGraph)) {
+            return false;
+        }
+        
+        final QueryStateTable queryStateTable = aSearch.getQueryStateTable();
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query aQuery = queryStateTable.getQuery(iQuery);
+            
+            if ((aQuery.getCurrentNodesSet().size() != 1) ||
+                    (aQuery.getTargetNodesSet().size() > 1)) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Loads a search into the next lane. The search can be released once it is
+     * loaded, as the lane keeps its own copy of the state of the search (apart
+     * from the generator, which it keeps drawing from).
+     * 
+     * @param aSearch
+     *            the search to load, which must pass canLoad
+     * @return the lane number of the search
+     */
+    public int load(final Search aSearch) {
+        if (!canLoad(aSearch)) {
+            throw new IllegalArgumentException(
+                    "The search cannot be run by a batched walk engine.");
+        }
+        
+        final int lane = nLanes++;
+        ensureLaneCapacity(nLanes);
+        
+        /* A search whose source has no neighbours ends right away. */
+        if (aSearch.getTerminationReason() != null) {
+            laneStates[lane] = ENDED;
+            laneResults[lane] =
+                    new SimulationResult(0, 0,
+                            aSearch.calculateNumberOfNodesVisited(),
+                            aSearch.getTerminationReason());
+            
+            return lane;
+        }
+        
+        laneStates[lane] = RUNNING;
+        nRunningLanes++;
+        laneRandomNumberGenerators[lane] = aSearch.getRandomNumberGenerator();
+        laneFlagsQueriesMeet[lane] =
+                (aSearch instanceof BidirectionalSearchRW) ? 1 : 0;
+        laneFlagsNonBacktracking[lane] = aSearch.getFlagNonBacktracking();
+        laneNeighbourAliasTables[lane] = aSearch.getNeighbourAliasTable();
+        
+        if (aSearch instanceof RandomlyReplicatedRandomWalk) {
+            /*
+             * The replication probability only depends on the number of
+             * replications of the query group, which is not updated during the
+             * search, so it is the same for every hop.
+             */
+            laneReplicationProbabilities[lane] =
+                    ((RandomlyReplicatedRandomWalk) aSearch)
+                            .calculatesReplicationProbability(aSearch
+                                    .getQueryStateTable().getQuery(0));
+        }
+        
+        /* Loads the queries as walkers, in query order. */
+        final QueryStateTable queryStateTable = aSearch.getQueryStateTable();
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query aQuery = queryStateTable.getQuery(iQuery);
+            final int queryGroup =
+                    Math.max(queryStateTable.getQueryGroupID(iQuery), 0);
+            
+            addWalker(lane, compactGraph.indexOf(aQuery.getCurrentNodesSet()
+                    .iterator().next()), queryStateTable.getTtl(iQuery),
+                    queryGroup, indexOfTarget(aQuery.getTargetNodesSet()),
+                    aQuery.isFirstHop() ? 1 : 0, -1);
+            
+            /* Copies the nodes already visited by the query. */
+            CopyOnWriteNodeSet visitedNodesSet =
+                    laneVisitedNodesSets[2 * lane + queryGroup];
+            
+            if (visitedNodesSet == null) {
+                visitedNodesSet = new CopyOnWriteNodeSet(compactGraph);
+                laneVisitedNodesSets[2 * lane + queryGroup] = visitedNodesSet;
+            }
+            
+            visitedNodesSet.addAll(aQuery.getVisitedNodesSet());
+        }
+        
+        return lane;
+    }
+    
+    /**
+     * Runs the lanes in lockstep until every simulation has ended.
+     */
+    public void run() {
+        while (nRunningLanes > 0) {
+            step();
+            
+            /* Drops the walkers of the ended lanes once most lanes ended. */
+            if (nRunningLanes * 2 < nLanes) {
+                removeEndedWalkers();
+            }
+        }
+    }
+    
+    /**
+     * Moves the walkers of every running lane by one time step, then checks
+     * the terminating conditions of each running lane.
+     */
+    private void step() {
+        /* Walkers created during this step only move from the next step. */
+        final int nWalkersAtStepStart = nWalkers;
+        
+        for (int iWalker = 0; iWalker < nWalkersAtStepStart; iWalker++) {
+            final int lane = walkerLanes[iWalker];
+            
+            if (laneStates[lane] != RUNNING) {
+                continue;
+            }
+            
+            /* The first hop of a walker starts a new path. */
+            if (walkerFlagsFirstHop[iWalker] == 1) {
+                walkerLastHops[iWalker] = -1;
+            }
+            
+            if (walkerTtls[iWalker] > 0) {
+                final RandomNumberGenerator randomNumberGenerator =
+                        laneRandomNumberGenerators[lane];
+                final int currentNode = walkerNodes[iWalker];
+                
+                /*
+                 * Picks a random neighbour of the current node (or stays on it
+                 * if it has no neighbours), avoiding the last hop of the
+                 * walker's path for non-backtracking lanes unless the node has
+                 * a single neighbour, and weighted by the alias table of the
+                 * lane if it has one.
+                 */
+                final int excludedNode =
+                        (laneFlagsNonBacktracking[lane] == 1)
+                                ? walkerLastHops[iWalker] : -1;
+                final NeighbourAliasTable neighbourAliasTable =
+                        laneNeighbourAliasTables[lane];
+                final int nextNode =
+                        (neighbourAliasTable != null) ? neighbourAliasTable
+                                .pickNeighbourIndex(currentNode, excludedNode,
+                                        randomNumberGenerator) : compactGraph
+                                .pickRandomNeighbourIndex(currentNode,
+                                        excludedNode, randomNumberGenerator);
+                
+                walkerNodes[iWalker] = nextNode;
+                
+                /* Checks if the neighbour is a target. */
+                if (nextNode == walkerTargets[iWalker]) {
+                    laneFlagsTargetFound[lane] = 1;
+                }
+                
+                /*
+                 * Checks if the neighbour was visited by the other query group
+                 * and marks it as visited.
+                 */
+                final int queryGroup = walkerGroups[iWalker];
+                
+                if ((laneFlagsQueriesMeet[lane] == 1) &&
+                        laneVisitedNodesSets[2 * lane + 1 - queryGroup]
+                                .containsIndex(nextNode)) {
+                    laneFlagsQueriesMet[lane] = 1;
+                }
+                
+                laneVisitedNodesSets[2 * lane + queryGroup].addIndex(nextNode);
+                walkerLastHops[iWalker] = currentNode;
+                
+                /* Decrements TTL and counts the message. */
+                if (--walkerTtls[iWalker] == 0) {
+                    laneLiveWalkers[lane]--;
+                }
+                
+                laneMessages[lane]++;
+                walkerFlagsFirstHop[iWalker] = 0;
+                
+                /* Checks to see if the walker should replicate itself. */
+                if ((laneReplicationProbabilities[lane] > 0) &&
+                        (randomNumberGenerator.nextDouble() <
+                                laneReplicationProbabilities[lane])) {
+                    replicateWalker(iWalker, nextNode);
+                }
+            }
+        }
+        
+        nSteps++;
+        
+        /* Checks the terminating conditions of each running lane. */
+        for (int lane = 0; lane < nLanes; lane++) {
+            if (laneStates[lane] != RUNNING) {
+                continue;
+            }
+            
+            if (laneFlagsTargetFound[lane] == 1) {
+                endLane(lane, TerminationReason.TARGET_FOUND);
+            }
+            else if (laneFlagsQueriesMet[lane] == 1) {
+                endLane(lane, TerminationReason.QUERIES_MET);
+            }
+            else if (laneLiveWalkers[lane] == 0) {
+                endLane(lane, TerminationReason.TTL_EXPIRED);
+            }
+        }
+    }
+    
+    /**
+     * Replicates a walker at the node it just reached. The TTL of the walker
+     * is split between the walker (which keeps the larger half) and its
+     * child, as RandomlyReplicatedRandomWalk.replicateQuery does. The child
+     * carries on the walk of its parent, starting with the same last hop.
+     * 
+     * @param iWalker
+     *            number of the walker to replicate
+     * @param nodeIndex
+     *            index of the node where the replication occurs
+     */
+    private void replicateWalker(final int iWalker, final int nodeIndex) {
+        final int lane = walkerLanes[iWalker];
+        final int parentTtl = walkerTtls[iWalker];
+        
+        walkerTtls[iWalker] = parentTtl - (parentTtl / 2);
+        addWalker(lane, nodeIndex, parentTtl / 2, walkerGroups[iWalker],
+                walkerTargets[iWalker], 0, walkerLastHops[iWalker]);
+    }
+    
+    /**
+     * Appends a walker at the end of the walker columns.
+     * 
+     * @param lane
+     *            lane of the walker
+     * @param nodeIndex
+     *            index of the node where the walker resides
+     * @param ttl
+     *            time-to-live of the walker
+     * @param queryGroup
+     *            query group of the walker
+     * @param targetIndex
+     *            index of the target of the walker, -1 if it has none
+     * @param flagFirstHop
+     *            1 if the walker has not moved yet
+     * @param lastHop
+     *            index of the last hop of the walker, -1 if it has none
+     */
+    private void addWalker(final int lane, final int nodeIndex, final int ttl,
+            final int queryGroup, final int targetIndex,
+            final int flagFirstHop, final int lastHop) {
+        if (nWalkers == walkerLanes.length) {
+            final int capacity = nWalkers * 2;
+            walkerLanes = Arrays.copyOf(walkerLanes, capacity);
+            walkerNodes = Arrays.copyOf(walkerNodes, capacity);
+            walkerTtls = Arrays.copyOf(walkerTtls, capacity);
+            walkerGroups = Arrays.copyOf(walkerGroups, capacity);
+            walkerTargets = Arrays.copyOf(walkerTargets, capacity);
+            walkerFlagsFirstHop = Arrays.copyOf(walkerFlagsFirstHop, capacity);
+            walkerLastHops = Arrays.copyOf(walkerLastHops, capacity);
+        }
+        
+        walkerLanes[nWalkers] = lane;
+        walkerNodes[nWalkers] = nodeIndex;
+        walkerTtls[nWalkers] = ttl;
+        walkerGroups[nWalkers] = queryGroup;
+        walkerTargets[nWalkers] = targetIndex;
+        walkerFlagsFirstHop[nWalkers] = flagFirstHop;
+        walkerLastHops[nWalkers] = lastHop;
+        nWalkers++;
+        
+        if (ttl > 0) {
+            laneLiveWalkers[lane]++;
+        }
+    }
+    
+    /**
+     * Removes the walkers of the ended lanes from the walker columns, keeping
+     * the other walkers in order.
+     */
+    private void removeEndedWalkers() {
+        int nKeptWalkers = 0;
+        
+        for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+            if (laneStates[walkerLanes[iWalker]] == RUNNING) {
+                walkerLanes[nKeptWalkers] = walkerLanes[iWalker];
+                walkerNodes[nKeptWalkers] = walkerNodes[iWalker];
+                walkerTtls[nKeptWalkers] = walkerTtls[iWalker];
+                walkerGroups[nKeptWalkers] = walkerGroups[iWalker];
+                walkerTargets[nKeptWalkers] = walkerTargets[iWalker];
+                walkerFlagsFirstHop[nKeptWalkers] =
+                        walkerFlagsFirstHop[iWalker];
+                walkerLastHops[nKeptWalkers] = walkerLastHops[iWalker];
+                nKeptWalkers++;
+            }
+        }
+        
+        nWalkers = nKeptWalkers;
+    }
+    
+    /**
+     * Ends a lane: records its result and drops its sets of visited nodes.
+     * 
+     * @param lane
+     *            the lane to end
+     * @param reason
+     *            the reason for which the simulation of the lane ended
+     */
+    private void endLane(final int lane, final TerminationReason reason) {
+        final CopyOnWriteNodeSet visitedNodesSet0 =
+                laneVisitedNodesSets[2 * lane];
+        final CopyOnWriteNodeSet visitedNodesSet1 =
+                laneVisitedNodesSets[2 * lane + 1];
+        
+        /* Counts the nodes visited by either query group. */
+        if (visitedNodesSet1 != null) {
+            visitedNodesSet0.addAll(visitedNodesSet1);
+            laneVisitedNodesSets[2 * lane + 1] = null;
+        }
+        
+        final int nNodesVisited = visitedNodesSet0.size();
+        laneVisitedNodesSets[2 * lane] = null;
+        
+        laneResults[lane] =
+                new SimulationResult(nSteps, laneMessages[lane], nNodesVisited,
+                        reason);
+        laneStates[lane] = ENDED;
+        laneRandomNumberGenerators[lane] = null;
+        laneNeighbourAliasTables[lane] = null;
+        nRunningLanes--;
+    }
+    
+    /**
+     * Makes room for a number of lanes in the lane columns.
+     * 
+     * @param capacity
+     *            number of lanes needed
+     */
+    private void ensureLaneCapacity(final int capacity) {
+        if (capacity <= laneStates.length) {
+            return;
+        }
+        
+        final int newCapacity = Math.max(capacity, laneStates.length * 2);
+        laneStates = Arrays.copyOf(laneStates, newCapacity);
+        laneRandomNumberGenerators =
+                Arrays.copyOf(laneRandomNumberGenerators, newCapacity);
+        laneVisitedNodesSets =
+                Arrays.copyOf(laneVisitedNodesSets, 2 * newCapacity);
+        laneFlagsQueriesMeet = Arrays.copyOf(laneFlagsQueriesMeet, newCapacity);
+        laneFlagsNonBacktracking =
+                Arrays.copyOf(laneFlagsNonBacktracking, newCapacity);
+        laneNeighbourAliasTables =
+                Arrays.copyOf(laneNeighbourAliasTables, newCapacity);
+        laneReplicationProbabilities =
+                Arrays.copyOf(laneReplicationProbabilities, newCapacity);
+        laneLiveWalkers = Arrays.copyOf(laneLiveWalkers, newCapacity);
+        laneFlagsTargetFound =
+                Arrays.copyOf(laneFlagsTargetFound, newCapacity);
+        laneFlagsQueriesMet = Arrays.copyOf(laneFlagsQueriesMet, newCapacity);
+        laneMessages = Arrays.copyOf(laneMessages, newCapacity);
+        laneResults = Arrays.copyOf(laneResults, newCapacity);
+    }
+    
+    /**
+     * Gets the compact graph index of the target of a query. A target that is
+     * not an instance of the network's nodes (e.g. a node read back from a
+     * file) is ignored, as target sets compare nodes by instance.
+     * 
+     * @param targetNodesSet
+     *            the set of targets of the query, with at most one node
+     * @return the index of the target, -1 if the query has none
+     */
+    private int indexOfTarget(final Set<Node> targetNodesSet) {
+        final Iterator<Node> itTargetNodes = targetNodesSet.iterator();
+        
+        if (!itTargetNodes.hasNext()) {
+            return -1;
+        }
+        
+        return compactGraph.indexOfInstance(itTargetNodes.next());
+    }
+    
+    /**
+     * Gets the result of the simulation loaded in a lane.
+     * 
+     * @param lane
+     *            the lane number
+     * @return the result of the simulation, null if it has not ended
+     */
+    public SimulationResult getResult(final int lane) {
+        return laneResults[lane];
+    }
+    
+    /**
+     * Getter for nLanes.
+     * 
+     * @return the nLanes
+     */
+    public int getnLanes() {
+        return nLanes;
+    }
+    
+    /**
+     * Getter for nSteps.
+     * 
+     * @return the nSteps
+     */
+    public int getnSteps() {
+        return nSteps;
+    }
+    
+}
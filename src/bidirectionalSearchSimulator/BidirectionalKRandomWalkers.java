@@ -0,0 +1,245 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Set;
+
+/**
+ * BidirectionalKRandomWalkers is a class that models the algorithm of
+ * searching using k random walkers sent in parallel from both the source and
+ * the target.
+ * 
+ * Each of the two queries launches k walkers, which move as in k random
+ * walkers (see KRandomWalkers): the TTL of each query is divided evenly
+ * between its walkers, and the walkers are kept in a WalkerArray instead of
+ * being queries of their own. As in a BDRW (see BidirectionalSearchRW), the
+ * search ends with a success as soon as a walker reaches the target of its
+ * query or a node visited by a walker of the other query, and with a failure
+ * once the TTL of every walker is reached. The TTL refers to the limit on the
+ * number of messages sent by the walkers of each query, independent of the
+ * search working in the other direction.
+ * 
+ * If the walkers avoid visited nodes, they only avoid the nodes visited by
+ * the walkers of their own query, so they keep spreading out towards the
+ * territory of the other query.
+ * 
+ * It is possible to have the walkers choose their next neighbour at random,
+ * excluding the node that sent them the query, by making the search
+ * non-backtracking (see Search.setFlagNonBacktracking).
+ */
+public class BidirectionalKRandomWalkers extends BidirectionalSearch {
+    
+    private static int nQueries = 2;  // number of queries to use in this search
+    private final WalkerArray[] walkerArrays;  // walkers of each query
+    private final int flagAvoidVisitedNodes;  // 1 if the walkers prefer the
+    
+    // nodes no walker of their query has visited, 0 otherwise
+    
+    /**
+     * Constructor. The search uses its own randomly seeded generator.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            BidirectionalKRandomWalkers
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value shared by the walkers of each query
+     * @param pnWalkers
+     *            number of walkers launched by each query
+     * @param pFlagAvoidVisitedNodes
+     *            1 if the walkers prefer the nodes no walker of their query
+     *            has visited, 0 otherwise
+     */
+    public BidirectionalKRandomWalkers(
+            final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final int pnWalkers, final int pFlagAvoidVisitedNodes) {
+        this(pSearchCoordinator, pNetworkStructurer, pttl, pnWalkers,
+                pFlagAvoidVisitedNodes, new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            BidirectionalKRandomWalkers
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value shared by the walkers of each query
+     * @param pnWalkers
+     *            number of walkers launched by each query
+     * @param pFlagAvoidVisitedNodes
+     *            1 if the walkers prefer the nodes no walker of their query
+     *            has visited, 0 otherwise
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public BidirectionalKRandomWalkers(
+            final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final int pnWalkers, final int pFlagAvoidVisitedNodes,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, nQueries,
+                pRandomNumberGenerator);
+        
+        walkerArrays = new WalkerArray[] {
+            new WalkerArray(compactGraph, pnWalkers),
+            new WalkerArray(compactGraph, pnWalkers)};
+        flagAvoidVisitedNodes = pFlagAvoidVisitedNodes;
+        
+        /* Adds query 0 to query group 0 and query 1 to query group 1. */
+        addQueryToGroup(queryStateTable.getQuery(0), 0);
+        addQueryToGroup(queryStateTable.getQuery(1), 1);
+        
+        queryStateTable.setTtl(0, pttl);
+        queryStateTable.setTtl(1, pttl);
+    }
+    
+    /**
+     * Propagates the search queries by one step: each walker whose TTL has
+     * not expired makes one hop.
+     */
+    @Override
+    public void propagateQueries() {
+        /* Does the following for each search query. */
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
+            final int queryGroupID = getQueryGroupID(currentQuery);
+            final WalkerArray walkerArray = walkerArrays[iQuery];
+            
+            /*
+             * Checks to see if this is the first hop of the query. If so,
+             * launches the walkers from the source (i.e. the current node).
+             */
+            if (currentQuery.isFirstHop()) {
+                walkerArray.launch(compactGraph.indexOf(currentQuery
+                        .getCurrentNodesSet().iterator().next()),
+                        queryStateTable.getTtl(iQuery));
+            }
+            
+            /* Checks that the TTL for the current query has not expired. */
+            if (queryStateTable.getTtl(iQuery) > 0) {
+                final Set<Node> currentNodesSetTemp =
+                        currentQuery.getNextNodesSet();  // stores the nodes on
+                // which the walkers reside after this propagation step
+                final Set<Node> visitedNodesSet =
+                        currentQuery.getVisitedNodesSet();
+                
+                for (int iWalker = 0; iWalker < walkerArray.getnWalkers(); iWalker++) {
+                    if (walkerArray.getWalkerTtl(iWalker) > 0) {
+                        /*
+                         * Picks a random neighbour of the walker's node,
+                         * steering away from the nodes visited by its own
+                         * query if the walkers avoid them.
+                         */
+                        final int nextNodeIndex =
+                                walkerArray.pickNextNode(iWalker,
+                                        randomNumberGenerator,
+                                        flagNonBacktracking,
+                                        (flagAvoidVisitedNodes == 1)
+                                                ? visitedNodesSet : null);
+                        walkerArray.moveWalker(iWalker, nextNodeIndex);
+                        
+                        final Node aRandomNeighbour =
+                                compactGraph.getNode(nextNodeIndex);
+                        
+                        /*
+                         * Checks if the neighbour is a target or was visited
+                         * by a walker of the other query group.
+                         */
+                        getRendezvousDetector().markArrival(currentQuery,
+                                aRandomNeighbour, queryGroupID);
+                        
+                        /* Adds the neighbour to the list of visited nodes. */
+                        visitedNodesSet.add(aRandomNeighbour);
+                        
+                        /* Decrements TTL. */
+                        queryStateTable.decrementTtl(iQuery);
+                        
+                        /*
+                         * Increments the total number of messages send since
+                         * the beginning of the search.
+                         */
+                        nTotalMessages++;
+                    }
+                    
+                    currentNodesSetTemp.add(compactGraph.getNode(walkerArray
+                            .getWalkerNode(iWalker)));
+                }
+                
+                /* Updates the query after it has made its first hop. */
+                if (currentQuery.isFirstHop()) {
+                    currentQuery.setFirstHop(false);
+                }
+                
+                /*
+                 * Updates the current node set with the temporary set created
+                 * locally.
+                 */
+                currentQuery.setCurrentNodesSet(currentNodesSetTemp);
+            }
+        }
+        
+        /*
+         * Increments the number of elapsed time steps since
+         * the beginning of the search.
+         */
+        nTotalTime++;
+        
+        /* Notifies the observers (e.g. the GUI) that a step was completed. */
+        notifyStepCompleted();
+    }
+    
+    /**
+     * Checks to see if the terminating conditions of the search have been
+     * reached.
+     * 
+     * @return 1 if terminating conditions have been met, 0 otherwise
+     */
+    @Override
+    public int checkTerminatingConditions() {
+        /*
+         * Checks if a walker found a target or reached a node visited by a
+         * walker of the other query group (i.e. the queries met). Both are
+         * detected by the rendezvous detector as the walkers propagate.
+         */
+        final TerminationReason rendezvous =
+                getRendezvousDetector().getRendezvous();
+        
+        if (rendezvous != null) {
+            return terminate(rendezvous);
+        }
+        
+        /* Ends the search if the TTL for all the queries has expired. */
+        if (queryStateTable.countExpiredTtls() ==
+                queryStateTable.getnQueries()) {
+            return terminate(TerminationReason.TTL_EXPIRED);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Getter for the number of walkers of each query.
+     * 
+     * @return the number of walkers launched by each query
+     */
+    public int getnWalkers() {
+        return walkerArrays[0].getnWalkers();
+    }
+    
+    /**
+     * Getter for flagAvoidVisitedNodes.
+     * 
+     * @return the flagAvoidVisitedNodes
+     */
+    public int getFlagAvoidVisitedNodes() {
+        return flagAvoidVisitedNodes;
+    }
+    
+}
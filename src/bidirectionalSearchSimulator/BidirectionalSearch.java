@@ -1,30 +1,13 @@
 package bidirectionalSearchSimulator;
 
-import java.util.HashMap;
-import java.util.Set;
-
 /**
  * BidirectionalSearch is an abstract class that models the general structure
  * of a network search algorithm.
  */
 public abstract class BidirectionalSearch extends Search {
     
-    protected HashMap<Integer, Set<Query>> queryGroupsMap;  // groups queries
-    
-    // based on integer values, with each group containing the set of queries belonging
-    // to that group. In a bidirectional search such as this one, there would be two
-    // "query groups," each group defined by their set of targets. E.g. query group 0
-    // would contain query 0 and query group 1 would contain query 1. Adding new
-    // queries to the search need to be added to a query group in order for their
-    // terminating conditions to be properly measured. E.g. If query 0 ends in deadlock
-    // and a new query is released as a successor to query 0, this query would need
-    // to be added to the query group that contained query 0, namely query group 0.
-    // All queries in the same group can be traced back to the same source node (it
-    // is possible that a query may replicate along the way, but the newly replicated
-    // query would still belong to the same query group).
-    
     /**
-     * Constructor.
+     * Constructor. The search uses its own randomly seeded generator.
      * 
      * @param pSearchCoordinator
      *            search coordinator that coordinates this search
@@ -36,47 +19,96 @@ public abstract class BidirectionalSearch extends Search {
      */
     public BidirectionalSearch(final SearchCoordinator pSearchCoordinator,
             final NetworkStructurer pNetworkStructurer, final int pnQueries) {
-        super(pSearchCoordinator, pNetworkStructurer, pnQueries);
-    }
-    
-    /**
-     * Gets the query group ID of which a query belongs to.
-     * 
-     * @param aQuery
-     *            the query whose group is requested
-     * @return the query group ID of the query or -1 if the query does not have
-     *         a group
-     */
-    public int getQueryGroupID(final Query aQuery) {
-        /* Iterates over the set of query groups. */
-        for (int iQueryGroup = 0; iQueryGroup < queryGroupsMap.size(); iQueryGroup++) {
-            final Set<Query> currentQuerySet = queryGroupsMap.get(iQueryGroup);
-            
-            if (currentQuerySet.contains(aQuery)) {
-                return iQueryGroup;
-            }
-        }
-        
-        return -1;
+        this(pSearchCoordinator, pNetworkStructurer, pnQueries,
+                new Xoshiro256StarStar());
     }
     
     /**
-     * Getter for queryGroupsMap.
+     * Constructor.
      * 
-     * @return the queryGroupsMap
+     * @param pSearchCoordinator
+     *            search coordinator that coordinates this search
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnQueries
+     *            number of queries used in this search
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
      */
-    public HashMap<Integer, Set<Query>> getQueryGroupsMap() {
-        return queryGroupsMap;
+    public BidirectionalSearch(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pnQueries,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, pnQueries,
+                pRandomNumberGenerator);
     }
     
     /**
-     * Setter for queryGroupsMap.
-     * 
-     * @param queryGroupsMap
-     *            the queryGroupsMap to set
+     * Chooses source and target nodes for each search query. The two queries
+     * search for each other: the source of each query is the target of the
+     * other.
      */
-    public void setQueryGroupsMap(
-            final HashMap<Integer, Set<Query>> queryGroupsMap) {
-        this.queryGroupsMap = queryGroupsMap;
+    @Override
+    public void chooseSourceAndTargets() {
+        /*
+         * Chooses the source and target for the first query.
+         */
+        final Query query1 = queryStateTable.getQuery(0);
+        
+        /* Generates source. */
+        int randomNodeID =
+                randomNumberGenerator.nextInt(networkStructurer
+                        .getNodeList().size());
+        final Node sourceNode = networkStructurer.getNodeByID(randomNodeID);
+        query1.setSourceNode(sourceNode);
+        
+        /* Checks to see if source has no neighbours. */
+        if (compactGraph.degree(sourceNode) == 0) {
+            terminate(TerminationReason.SOURCE_HAS_NO_NEIGHBOURS);
+        }
+        
+        /* Adds source to set of current nodes. */
+        query1.getCurrentNodesSet().add(sourceNode);
+        
+        /* Adds source to set of visited nodes. */
+        query1.getVisitedNodesSet().add(sourceNode);
+        
+        /* Generates target. Does not allow target and source to be the same. */
+        Node targetNode;
+        do {
+            randomNodeID =
+                    randomNumberGenerator.nextInt(networkStructurer
+                            .getNodeList().size());
+        } while (randomNodeID == sourceNode.getNodeID());
+        
+        targetNode = networkStructurer.getNodeByID(randomNodeID);
+        query1.getTargetNodesSet().add(targetNode);
+        
+        /*
+         * Chooses the source and target for the second query.
+         *
+         * The target of the first query becomes the source for the second,
+         * while the source of the first query becomes the target for the second
+         * (hence the reason for using "targetNode" in place of where one might
+         * normally expect to see "sourceNode."
+         */
+        final Query query2 = queryStateTable.getQuery(1);
+        
+        /* Generates source. */
+        query2.setSourceNode(targetNode);
+        
+        /* Checks to see if source has no neighbours. */
+        if (compactGraph.degree(targetNode) == 0) {
+            terminate(TerminationReason.SOURCE_HAS_NO_NEIGHBOURS);
+        }
+        
+        /* Adds source to set of current nodes. */
+        query2.getCurrentNodesSet().add(targetNode);
+        
+        /* Adds source to set of visited nodes. */
+        query2.getVisitedNodesSet().add(targetNode);
+        
+        /* Generates target. */
+        query2.getTargetNodesSet().add(sourceNode);
     }
 }
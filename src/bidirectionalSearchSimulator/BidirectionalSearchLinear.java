@@ -1,8 +1,5 @@
 package bidirectionalSearchSimulator;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -41,15 +38,9 @@ import java.util.Set;
 public class BidirectionalSearchLinear extends BidirectionalSearch {
     
     private static int nQueries = 2;  // number of queries to use in this search
-    private final HashMap<Integer, Integer> ttlMap;  // time-to-live values for each query
-    private final HashMap<Integer, double[]> sourceFirstHopDirectionMap; // direction
-    // of the vector connecting the source node to its first hop for each query
-    private final HashMap<Integer, Integer> flagWalkerDeadlockMap;  // signals deadlock
-    
-    // by a random walker for a given query
     
     /**
-     * Constructor.
+     * Constructor. The search uses its own randomly seeded generator.
      * 
      * @param pSearchCoordinator
      *            the search coordinator that created this instance of
@@ -65,108 +56,39 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
     public BidirectionalSearchLinear(
             final SearchCoordinator pSearchCoordinator,
             final NetworkStructurer pNetworkStructurer, final int pttl) {
-        super(pSearchCoordinator, pNetworkStructurer, nQueries);
-        
-        /*
-         * Initializes the query groups and adds query 0 to query group 0 and
-         * query 1 to query group 1.
-         */
-        queryGroupsMap = new HashMap<Integer, Set<Query>>();
-        
-        HashSet<Query> queriesToAddSet = new HashSet<Query>();
-        queriesToAddSet.add(searchQueriesMap.get(0));
-        queryGroupsMap.put(0, queriesToAddSet);
-        
-        queriesToAddSet = new HashSet<Query>();
-        queriesToAddSet.add(searchQueriesMap.get(1));
-        queryGroupsMap.put(1, queriesToAddSet);
-        
-        ttlMap = new HashMap<Integer, Integer>();
-        ttlMap.put(0, pttl);
-        ttlMap.put(1, pttl);
-        
-        sourceFirstHopDirectionMap = new HashMap<Integer, double[]>();
-        
-        /* Sets the walker deadlock flags */
-        flagWalkerDeadlockMap = new HashMap<Integer, Integer>();
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            flagWalkerDeadlockMap.put(iQuery, 0);
-        }
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                new Xoshiro256StarStar());
     }
     
     /**
-     * Chooses source and target nodes for each search query.
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            BidirectionalSearchLinear
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * 
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
      */
-    @Override
-    public void chooseSourceAndTargets() {
-        /*
-         * Chooses the source and target for the first query.
-         */
-        final Query query1 = searchQueriesMap.get(0);
-        
-        /* Generates source. */
-        int randomNodeID =
-                (int) Math.floor(Math.random() *
-                        networkStructurer.getNodeList().size());
-        final Node sourceNode = networkStructurer.getNodeByID(randomNodeID);
-        query1.setSourceNode(sourceNode);
-        
-        /* Checks to see if source has no neighbours. */
-        if (sourceNode.getLinksSet().size() == 0) {
-            final String noNeighboursQuery1String =
-                    "FAILURE. Source node for one of the queries has no neighbours.";
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "<html>" + noNeighboursQuery1String + "</html>");
-            searchCoordinator.setFlagSearchComplete(1);
-        }
-        
-        /* Adds source to set of current nodes. */
-        query1.getCurrentNodesSet().add(sourceNode);
-        
-        /* Adds source to set of visited nodes. */
-        query1.getVisitedNodesSet().add(sourceNode);
-        
-        /* Generates target. Does not allow target and source to be the same. */
-        Node targetNode;
-        do {
-            randomNodeID =
-                    (int) Math.floor(Math.random() *
-                            networkStructurer.getNodeList().size());
-        } while (randomNodeID == sourceNode.getNodeID());
-        
-        targetNode = networkStructurer.getNodeByID(randomNodeID);
-        query1.getTargetNodesSet().add(targetNode);
-        
-        /*
-         * Chooses the source and target for the second query.
-         *
-         * The target of the first query becomes the source for the second,
-         * while the source of the first query becomes the target for the second
-         * (hence the reason for using "targetNode" in place of where one might
-         * normally expect to see "sourceNode."
-         */
-        final Query query2 = searchQueriesMap.get(1);
-        
-        /* Generates source. */
-        query2.setSourceNode(targetNode);
-        
-        /* Checks to see if source has no neighbours. */
-        if (targetNode.getLinksSet().size() == 0) {
-            final String noNeighboursQuery2String =
-                    "FAILURE. Source node for one of the queries has no neighbours.";
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "<html>" + noNeighboursQuery2String + "</html>");
-            searchCoordinator.setFlagSearchComplete(1);
-        }
-        
-        /* Adds source to set of current nodes. */
-        query2.getCurrentNodesSet().add(targetNode);
+    public BidirectionalSearchLinear(
+            final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, nQueries,
+                pRandomNumberGenerator);
         
-        /* Adds source to set of visited nodes. */
-        query2.getVisitedNodesSet().add(targetNode);
+        /* Adds query 0 to query group 0 and query 1 to query group 1. */
+        addQueryToGroup(queryStateTable.getQuery(0), 0);
+        addQueryToGroup(queryStateTable.getQuery(1), 1);
         
-        /* Generates target. */
-        query2.getTargetNodesSet().add(sourceNode);
+        queryStateTable.setTtl(0, pttl);
+        queryStateTable.setTtl(1, pttl);
     }
     
     /**
@@ -182,47 +104,42 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
         Node querySourceNode;  // the source node for a given query
         Node aNeighbour;  // a neighbour of the current node for a given query to
         // which the query will be forwarded to
-        double directionOfSourceAndCurrentNeighbour;  //  the diretion of the line
-        // connecting the source node with the current neighbour
-        double differenceBetweenDirections;  // the absolute value of the
-        // difference between the direction of the line connecting the source node
-        // with the current neighbour and the line connecting the source node and
-        // its first hop
-        double smallestDifferenceBetweenDirections; // the smallest direction
-        // of the line connecting the source node and the current neighbour
+        int querySourceNodeIndex;  // node registry index of the source node
         Node theNeighbourWithSmallestDifference;  // the neighbour having the smallest
         // difference in directions between itself and the source compared with the
         // source and the first hop
+        final AngularNeighbourIndex angularNeighbourIndex =
+                networkStructurer.getAngularNeighbourIndex();  // neighbours of
+        // each node sorted by bearing
         
         /* Does the following for each search query. */
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
+            final int queryGroupID = getQueryGroupID(currentQuery);
             
-            currentNodesSetTemp = new HashSet<Node>();  // stores the set of
-            // nodes that receive the query during this propagation step and
-            // will become the current nodes for the next propagation step
+            currentNodesSetTemp = currentQuery.getNextNodesSet();  // stores the
+            // set of nodes that receive the query during this propagation step
+            // and will become the current nodes for the next propagation step
             
             /*
              * Checks to see if this is the first hop of the query. If so,
-             * initialize the previous hop structure.
+             * starts a new path.
              */
-            ArrayList<Integer> prevHopArrayList;
+            final PathLog pathLog = currentQuery.getPathLog();
             
             if (currentQuery.isFirstHop()) {
-                prevHopArrayList = new ArrayList<Integer>();
-                
-                currentQuery.getCurrentNodesPrevHopMap().put(-1,
-                        prevHopArrayList);
+                pathLog.clear();
             }
             
             /* Checks that the TTL for the current query has not expired. */
-            if (ttlMap.get(currentQuery.getQueryID()) > 0) {
+            if (queryStateTable.getTtl(currentQuery.getQueryID()) > 0) {
                 
                 /* Iterates over each node in the set of current nodes. */
                 final Iterator<Node> itCurrentNodes =
                         currentQuery.getCurrentNodesSet().iterator();
                 
-                querySourceNode = searchQueriesMap.get(iQuery).getSourceNode();
+                querySourceNode = queryStateTable.getQuery(iQuery).getSourceNode();
+                querySourceNodeIndex = compactGraph.indexOf(querySourceNode);
                 
                 while (itCurrentNodes.hasNext()) {
                     aCurrentNode = itCurrentNodes.next();
@@ -232,18 +149,17 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                     
                     /* Chooses a random neighbour for the first hop of the search
                      * and stores the direction of the link connecting the source
-                     * and this neighbour.
+                     * and this neighbour, as a unit vector.
                      */
                     if (currentQuery.isFirstHop()) {
-                        aNeighbour = querySourceNode.pickRandomNeighbour();
-                        
-                        directionOfSourceAndCurrentNeighbour =
-                                networkStructurer.calculateDirection(
-                                        querySourceNode, aNeighbour);
+                        aNeighbour =
+                                compactGraph.pickRandomNeighbour(querySourceNode,
+                                        randomNumberGenerator);
                         
-                        sourceFirstHopDirectionMap
-                                .put(iQuery,
-                                        new double[] {directionOfSourceAndCurrentNeighbour});
+                        queryStateTable.setFirstHopDirection(iQuery,
+                                networkStructurer.calculateUnitVector(
+                                        querySourceNodeIndex,
+                                        compactGraph.indexOf(aNeighbour)));
                         
                         currentQuery.setFirstHop(false);
                         
@@ -255,68 +171,31 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                      */
                     else {
                         /*
-                         * Iterates over the links of the current node, used to find
-                         * all of the node's neighbours.
+                         * Finds the neighbour whose line with the source
+                         * follows the direction of the first hop most closely
+                         * (i.e. has the largest alignment), using the index of
+                         * the neighbours of the current node sorted by bearing
+                         * instead of checking every neighbour.
+                         *
+                         * The source itself is never chosen, as it will result
+                         * in a direction of zero (which can skew the results
+                         * for the differences). We wish to be moving away from
+                         * the source node. Only neighbours that increase the
+                         * distance from the source node are considered, so as
+                         * to avoid backtracking closer to the source node.
                          */
-                        final Iterator<Link> itLinksSet =
-                                aCurrentNode.getLinksSet().iterator();
-                        Link aLink;
-                        
-                        smallestDifferenceBetweenDirections = 400;
-                        theNeighbourWithSmallestDifference = null;  // reinitializes
-                        // this to null, otherwise it could keep the value from
-                        // a previous query
+                        final int currentNodeIndex =
+                                compactGraph.indexOf(aCurrentNode);
+                        final int straightestNeighbourIndex =
+                                angularNeighbourIndex.findStraightestNeighbour(
+                                        querySourceNodeIndex, currentNodeIndex,
+                                        queryStateTable
+                                                .getFirstHopDirection(iQuery));
                         
-                        while (itLinksSet.hasNext()) {
-                            aLink = itLinksSet.next();
-                            
-                            /* Gets the neighbour connected by the link. */
-                            aNeighbour = aLink.connectedBy(aCurrentNode);
-                            
-                            /*
-                             * Calculates direction of the line connecting the source and
-                             * this neighbour.
-                             */
-                            directionOfSourceAndCurrentNeighbour =
-                                    networkStructurer.calculateDirection(
-                                            querySourceNode, aNeighbour);
-                            
-                            /*
-                             * Calculates the difference in directions of the line connecting
-                             * the source and the neighbour with the line connecting the
-                             * source and its first hop.
-                             */
-                            differenceBetweenDirections =
-                                    Math.abs(directionOfSourceAndCurrentNeighbour -
-                                            sourceFirstHopDirectionMap
-                                                    .get(iQuery)[0]);
-                            
-                            /* Checks to see if the difference in directions between this
-                             * neighbour and the source is smaller than all other previous
-                             * neighbours.
-                             *
-                             * Also checks that the source is not the current neighbour
-                             * as it will result in a direction of zero (which can skew
-                             * the results for the differences). We wish to be moving
-                             * away from the source node.
-                             *
-                             * Finally, it checks that the distance from the source
-                             * node increases by choosing this neighbour, so as to
-                             * avoid backtracking closer to the source node.
-                             */
-                            if ((differenceBetweenDirections < smallestDifferenceBetweenDirections) &&
-                                    (aNeighbour.getNodeID() != querySourceNode
-                                            .getNodeID()) &&
-                                    (networkStructurer
-                                            .calculateDistanceBetweenNodes(
-                                                    querySourceNode, aNeighbour) > networkStructurer
-                                            .calculateDistanceBetweenNodes(
-                                                    querySourceNode,
-                                                    aCurrentNode))) {
-                                smallestDifferenceBetweenDirections =
-                                        differenceBetweenDirections;
-                                theNeighbourWithSmallestDifference = aNeighbour;
-                            }
+                        theNeighbourWithSmallestDifference = null;
+                        if (straightestNeighbourIndex != -1) {
+                            theNeighbourWithSmallestDifference =
+                                    compactGraph.getNode(straightestNeighbourIndex);
                         }
                         
                         /* Checks that a new neighbour was chosen to propagate the
@@ -334,7 +213,7 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                          * flag (notifying of the deadlock).
                          */
                         else {
-                            flagWalkerDeadlockMap.put(iQuery, 1);
+                            queryStateTable.setFlagWalkerDeadlock(iQuery, 1);
                         }
                     }
                     
@@ -342,39 +221,31 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                      * Only propagates the query if the walker deadlock flag has not
                      * been raised.
                      */
-                    if (flagWalkerDeadlockMap.get(iQuery) == 0) {
+                    if (queryStateTable.getFlagWalkerDeadlock(iQuery) == 0) {
                         /*
                          * Forwards the query (i.e. the selected neighbour becomes a
                          * current node).
                          */
                         currentNodesSetTemp.add(aNeighbour);
                         
+                        /*
+                         * Checks if the neighbour is a target or was visited by a
+                         * query of another query group.
+                         */
+                        getRendezvousDetector().markArrival(currentQuery,
+                                aNeighbour, queryGroupID);
+                        
                         /* Adds the neighbour to the list of visited nodes. */
                         currentQuery.getVisitedNodesSet().add(aNeighbour);
                         
                         /*
-                         * Stores previous hop information.
-                         *
-                         * As the implementation of "currentNodesPrevHopMap"
-                         * differs for each search type, the following search
-                         * uses the following:
-                         *
-                         * Only the key "-1" is used to loop up the list of node IDs
-                         * that make up the path from the current node right back to the
-                         * source. The reason for using "-1" is to not confuse the
-                         * implementation that flooding uses, which uses current node IDs
-                         * to look up previous hop information. Newly visited nodes are
-                         * added to the front of this list.
+                         * Stores previous hop information: the current node is
+                         * added at the end of the path of the walker.
                          */
-                        prevHopArrayList =
-                                currentQuery.getCurrentNodesPrevHopMap()
-                                        .get(-1);
-                        prevHopArrayList.add(0, aCurrentNode.getNodeID());
-                        currentQuery.getCurrentNodesPrevHopMap().put(-1,
-                                prevHopArrayList);
+                        pathLog.append(aCurrentNode.getNodeID());
                         
                         /* Decrements TTL. */
-                        ttlMap.put(iQuery, ttlMap.get(iQuery) - 1);
+                        queryStateTable.decrementTtl(iQuery);
                         
                         /*
                          * Increments the total number of messages send since the
@@ -403,13 +274,8 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
          */
         nTotalTime++;
         
-        /* Updates the network panel and information display. */
-        searchCoordinator.getNetworkPanel().repaint();
-        searchCoordinator.getControlPanel().getInformationNumberOfTimeLabel()
-                .setText(Integer.toString(nTotalTime));
-        searchCoordinator.getControlPanel()
-                .getInformationNumberOfMessagesLabel().setText(
-                        Integer.toString(nTotalMessages));
+        /* Notifies the observers (e.g. the GUI) that a step was completed. */
+        notifyStepCompleted();
     }
     
     /**
@@ -428,93 +294,20 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
         // have had their TTL expire
         
         /*
-         * This next part may seem a bit complicated, but as the queries are grouped
-         * into query groups, based on their parent source (i.e. the source node
-         * that first sent out the queries) and their target node sets, the queries
-         * within a query group must be compared with the queries in other query
-         * groups to test for intersection of the queries. Only then can we know
-         * if two queries (from different query groups) have met and thus we can
-         * conclude the search as being a success.
+         * Checks if a query found a target or reached a node visited by a
+         * query of another query group (i.e. the queries met). Both are
+         * detected by the rendezvous detector as the queries propagate.
          */
+        final TerminationReason rendezvous =
+                getRendezvousDetector().getRendezvous();
         
-        /* Iterates over the set of query groups. */
-        for (int iQueryGroup = 0; iQueryGroup < queryGroupsMap.size(); iQueryGroup++) {
-            final Set<Query> currentQuerySet = queryGroupsMap.get(iQueryGroup);
-            
-            /* Iterates over the set of queries within the current query group. */
-            final Iterator<Query> itCurrentQueries = currentQuerySet.iterator();
-            Query aCurrentQuery;
-            
-            while (itCurrentQueries.hasNext()) {
-                aCurrentQuery = itCurrentQueries.next();
-                
-                /*
-                 * Checks if any of the current query's set of
-                 * current nodes are shared amongst the set of this
-                 * other query's target nodes (i.e. the current
-                 * query found a target).
-                 */
-                if (SetOperations.intersection(
-                        aCurrentQuery.getCurrentNodesSet(),
-                        aCurrentQuery.getTargetNodesSet()).size() != 0) {
-                    searchCoordinator.getControlPanel().getResultLabel()
-                            .setText("SUCCESS! Found a target node.");
-                    
-                    searchResult = 1;
-                    
-                    return 1;
-                }
-                
-                /* Iterates over the set of other query groups. */
-                for (int iAnotherQueryGroup = 0; iAnotherQueryGroup < queryGroupsMap
-                        .size(); iAnotherQueryGroup++) {
-                    /*
-                     * Checks that the other query group being considered is not
-                     * the current query group.
-                     */
-                    if (iAnotherQueryGroup != iQueryGroup) {
-                        final Set<Query> anotherQuerySet =
-                                queryGroupsMap.get(iAnotherQueryGroup);
-                        
-                        /*
-                         * Iterates over the set of queries within the other
-                         * query group.
-                         */
-                        final Iterator<Query> itOtherQueries =
-                                anotherQuerySet.iterator();
-                        Query anotherQuery;
-                        
-                        while (itOtherQueries.hasNext()) {
-                            anotherQuery = itOtherQueries.next();
-                            
-                            /*
-                             * Checks if any of the current query's set of
-                             * current nodes are shared amongst the set of this
-                             * other query's visited nodes (i.e. the current
-                             * query intersected with another query).
-                             */
-                            if (SetOperations.intersection(
-                                    aCurrentQuery.getCurrentNodesSet(),
-                                    anotherQuery.getVisitedNodesSet()).size() != 0) {
-                                searchCoordinator
-                                        .getControlPanel()
-                                        .getResultLabel()
-                                        .setText(
-                                                "SUCCESS! The two queries have met.");
-                                
-                                searchResult = 1;
-                                
-                                return 1;
-                            }
-                        }
-                    }
-                }
-            }
+        if (rendezvous != null) {
+            return terminate(rendezvous);
         }
         
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
             /* Checks if TTL has been reached for each query. */
-            if (ttlMap.get(iQuery) == 0) {
+            if (queryStateTable.getTtl(iQuery) == 0) {
                 expiredTTLQueryCounter++;
             }
             
@@ -522,7 +315,7 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
              * Checks if a flag has been raised to signal that a walker is
              * in deadlock.
              */
-            if (flagWalkerDeadlockMap.get(iQuery) == 1) {
+            if (queryStateTable.getFlagWalkerDeadlock(iQuery) == 1) {
                 /*
                 * Checks to see if the source should resend a search query if the
                 * previous one ended in deadlock. The new query remembers the
@@ -533,11 +326,11 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                     // to include just the source and continue propagating the
                     // query, but this seemed more proper (albeit more involved)
                     
-                    final Query oldQuery = searchQueriesMap.get(iQuery);
+                    final Query oldQuery = queryStateTable.getQuery(iQuery);
                     
                     /* Creates new query. */
-                    final int newQueryNumber = searchQueriesMap.size();
-                    final Query newQuery = new Query(this, newQueryNumber);
+                    final Query newQuery = createQuery();
+                    final int newQueryNumber = newQuery.getQueryID();
                     
                     /* Copies source node from old query. */
                     final Node oldQuerySourceNode = oldQuery.getSourceNode();
@@ -552,30 +345,21 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
                     newQuery.setTargetNodesSet(oldQueryTargetNodesSet);
                     
                     /* Copies previous hop information from old query. */
-                    final HashMap<Integer, ArrayList<Integer>> oldQueryCurrentNodesPrevHopMap =
-                            oldQuery.getCurrentNodesPrevHopMap();
-                    newQuery.setCurrentNodesPrevHopMap(oldQueryCurrentNodesPrevHopMap);
+                    newQuery.setPathLog(oldQuery.getPathLog());
                     
                     /* Updates TTL of new query (while giving it a 1 TTL penalty). */
-                    final int oldQueryttl = ttlMap.get(iQuery);
-                    ttlMap.put(newQueryNumber, oldQueryttl - 1);
+                    final int oldQueryttl = queryStateTable.getTtl(iQuery);
+                    queryStateTable.setTtl(newQueryNumber, oldQueryttl - 1);
                     
                     /* Updates the TTL of the old query. */
-                    ttlMap.put(iQuery, 0);
+                    queryStateTable.setTtl(iQuery, 0);
                     
                     /* Updates deadlock flag of old and new queries. */
-                    flagWalkerDeadlockMap.put(iQuery, 0);
-                    flagWalkerDeadlockMap.put(newQueryNumber, 0);
-                    
-                    /* Adds the query to the map of search queries. */
-                    searchQueriesMap.put(newQueryNumber, newQuery);
+                    queryStateTable.setFlagWalkerDeadlock(iQuery, 0);
+                    queryStateTable.setFlagWalkerDeadlock(newQueryNumber, 0);
                     
                     /* Adds the query to the map of query groups. */
-                    final int oldQueryGroupID = getQueryGroupID(oldQuery);
-                    final Set<Query> oldQuerySet =
-                            queryGroupsMap.get(oldQueryGroupID);
-                    oldQuerySet.add(newQuery);
-                    queryGroupsMap.put(oldQueryGroupID, oldQuerySet);
+                    addQueryToGroup(newQuery, getQueryGroupID(oldQuery));
                 }
                 /*
                  * Raises the query deadlock counter to allow for terminating
@@ -588,30 +372,16 @@ public class BidirectionalSearchLinear extends BidirectionalSearch {
         }
         
         /* If all queries have been killed due to deadlock, ends the search. */
-        if (flagWalkerDeadlockCounter == flagWalkerDeadlockMap.size()) {
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "FAILURE. All queries ended in deadlock.");
-            
-            return 1;
+        if (flagWalkerDeadlockCounter == queryStateTable.getnQueries()) {
+            return terminate(TerminationReason.ALL_QUERIES_DEADLOCKED);
         }
         
         /* If all queries have had their TTL expire, ends the search. */
-        if (expiredTTLQueryCounter == searchQueriesMap.size()) {
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "FAILURE. TTL expired.");
-            
-            return 1;
+        if (expiredTTLQueryCounter == queryStateTable.getnQueries()) {
+            return terminate(TerminationReason.TTL_EXPIRED);
         }
         
         return 0;
     }
     
-    /**
-     * Getter for ttlMap.
-     * 
-     * @return the ttlMap
-     */
-    public HashMap<Integer, Integer> getTtlMap() {
-        return ttlMap;
-    }
 }
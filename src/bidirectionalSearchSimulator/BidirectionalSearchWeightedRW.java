@@ -0,0 +1,78 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * BidirectionalSearchWeightedRW is a class that models the algorithm of
+ * searching using two weighted random walks, one originating from the source
+ * node and the other from the target.
+ * 
+ * The search ends in the same manner as a BDRW (see BidirectionalSearchRW),
+ * but each walker forwards its query to a neighbour chosen in proportion to a
+ * weight given to each neighbour instead of uniformly, as in a weighted random
+ * walk (see WeightedRandomWalk). On scale-free networks, favouring the
+ * neighbours of highest degree draws both walkers towards the hubs, where
+ * their paths are most likely to cross.
+ * 
+ * As with BidirectionalSearchRW, the walks can be made non-backtracking (see
+ * Search.setFlagNonBacktracking).
+ */
+public class BidirectionalSearchWeightedRW extends BidirectionalSearchRW {
+    
+    /**
+     * Constructor. The search uses its own randomly seeded generator.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            BidirectionalSearchWeightedRW
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pNeighbourAliasTable
+     *            weights by which the queries pick the neighbour they are
+     *            forwarded to, built on the compact graph of the network
+     */
+    public BidirectionalSearchWeightedRW(
+            final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final NeighbourAliasTable pNeighbourAliasTable) {
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                pNeighbourAliasTable, new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            BidirectionalSearchWeightedRW
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pNeighbourAliasTable
+     *            weights by which the queries pick the neighbour they are
+     *            forwarded to, built on the compact graph of the network
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public BidirectionalSearchWeightedRW(
+            final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final NeighbourAliasTable pNeighbourAliasTable,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, pttl,
+                pRandomNumberGenerator);
+        
+        if (pNeighbourAliasTable.getCompactGraph() != compactGraph) {
+            throw new IllegalArgumentException("The neighbour alias table " +
+                    "was not built for the network being searched.");
+        }
+        
+        neighbourAliasTable = pNeighbourAliasTable;
+    }
+    
+}
@@ -0,0 +1,374 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * CompactGraph is a class that stores the topology of a network in compressed
+ * sparse row (CSR) form. It is built once from the nodes and links generated
+ * by the network and is never modified afterwards.
+ * 
+ * Each node is given a dense index (its index in the node registry of the
+ * network structurer, which is also its position in the node list). The
+ * neighbours of the node with index i are stored in the neighbours array
+ * between positions offsets[i] (inclusive) and offsets[i + 1] (exclusive),
+ * sorted in increasing order. An undirected link therefore appears twice,
+ * once in the neighbour list of each of its nodes.
+ * 
+ * Compared with walking the set of links of a node, this gives the degree of
+ * a node in constant time and lets the search strategies access the n-th
+ * neighbour of a node directly by index, without iterating over a set or
+ * resolving the node at the other end of a link.
+ */
+public class CompactGraph {
+    
+    private final int nNodes;           // number of nodes in the graph
+    private final int[] offsets;        // start of the neighbour list of each
+    // node, with an extra entry at the end holding the total number of entries
+    private final int[] neighbours;     // neighbour indices of all the nodes,
+    // one list after the other
+    private final Node[] nodes;         // node instances, indexed by node index
+    private final int[] nodeIDs;        // node IDs, indexed by node index
+    private final NodeRegistry nodeRegistry;  // gives the index of each node
+    // from its ID
+    private final NodeSetPool nodeSetPool;  // node sets of this graph that
+    // are free to be reused by the searches
+    private final RendezvousDetectorPool rendezvousDetectorPool;  // rendezvous
+    
+    // detectors of this graph that are free to be reused by the searches
+    
+    /**
+     * Constructor. Builds the compact graph from the links of each node.
+     * 
+     * @param pNodeRegistry
+     *            registry of all nodes in the network, which gives each node
+     *            its index
+     */
+    public CompactGraph(final NodeRegistry pNodeRegistry) {
+        nodeRegistry = pNodeRegistry;
+        nNodes = pNodeRegistry.getnNodes();
+        nodeSetPool = new NodeSetPool(this);
+        rendezvousDetectorPool = new RendezvousDetectorPool(this);
+        nodes = new Node[nNodes];
+        nodeIDs = new int[nNodes];
+        for (int iNode = 0; iNode < nNodes; iNode++) {
+            nodes[iNode] = pNodeRegistry.getNode(iNode);
+            nodeIDs[iNode] = nodes[iNode].getNodeID();
+        }
+        
+        /* Counts the neighbours of each node to lay out the offsets. */
+        offsets = new int[nNodes + 1];
+        for (int iNode = 0; iNode < nNodes; iNode++) {
+            offsets[iNode + 1] =
+                    offsets[iNode] + nodes[iNode].getLinksSet().size();
+        }
+        
+        /* Fills in and sorts the neighbour list of each node. */
+        neighbours = new int[offsets[nNodes]];
+        for (int iNode = 0; iNode < nNodes; iNode++) {
+            int position = offsets[iNode];
+            
+            final Iterator<Link> itLinks =
+                    nodes[iNode].getLinksSet().iterator();
+            
+            while (itLinks.hasNext()) {
+                final Link aLink = itLinks.next();
+                final int neighbourID =
+                        (aLink.getSourceNodeID() == nodes[iNode].getNodeID()) ? aLink
+                                .getDestinationNodeID() : aLink
+                                .getSourceNodeID();
+                
+                neighbours[position++] = nodeRegistry.indexOfNodeID(neighbourID);
+            }
+            
+            Arrays.sort(neighbours, offsets[iNode], offsets[iNode + 1]);
+        }
+    }
+    
+    /**
+     * Calculates the degree of a node.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @return the degree of the node
+     */
+    public int degree(final int nodeIndex) {
+        return offsets[nodeIndex + 1] - offsets[nodeIndex];
+    }
+    
+    /**
+     * Gets a neighbour of a node by its position in the node's neighbour list.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @param iNeighbour
+     *            position of the neighbour in the neighbour list, between 0
+     *            and the degree of the node (exclusive)
+     * @return the index of the neighbour
+     */
+    public int neighbour(final int nodeIndex, final int iNeighbour) {
+        return neighbours[offsets[nodeIndex] + iNeighbour];
+    }
+    
+    /**
+     * Gets the index of a node.
+     * 
+     * @param aNode
+     *            the node whose index is requested
+     * @return the index of the node
+     */
+    public int indexOf(final Node aNode) {
+        return nodeRegistry.indexOfNodeID(aNode.getNodeID());
+    }
+    
+    /**
+     * Gets the index of a node by its ID, as recorded by a path log.
+     * 
+     * @param nodeID
+     *            ID of the node whose index is requested
+     * @return the index of the node, -1 if no node has that ID
+     */
+    public int indexOfNodeID(final int nodeID) {
+        return nodeRegistry.indexOfNodeID(nodeID);
+    }
+    
+    /**
+     * Gets the index of a node, or -1 if the node is not an instance of the
+     * network's nodes (e.g. a node read back from a file), as target sets
+     * compare nodes by instance.
+     * 
+     * @param aNode
+     *            the node whose index is requested
+     * @return the index of the node
+     */
+    public int indexOfInstance(final Node aNode) {
+        final int nodeIndex = nodeRegistry.indexOfNodeID(aNode.getNodeID());
+        
+        return ((nodeIndex >= 0) && (nodes[nodeIndex] == aNode)) ? nodeIndex
+                : -1;
+    }
+    
+    /**
+     * Gets the indices of a set of nodes, leaving out the nodes that are not
+     * instances of the network's nodes (see indexOfInstance).
+     * 
+     * @param aNodeSet
+     *            the set of nodes
+     * @return the indices of the nodes
+     */
+    public int[] indicesOf(final Set<Node> aNodeSet) {
+        final int[] nodeIndices = new int[aNodeSet.size()];
+        int nNodeIndices = 0;
+        
+        final Iterator<Node> itNodes = aNodeSet.iterator();
+        while (itNodes.hasNext()) {
+            final int nodeIndex = indexOfInstance(itNodes.next());
+            
+            if (nodeIndex >= 0) {
+                nodeIndices[nNodeIndices++] = nodeIndex;
+            }
+        }
+        
+        return (nNodeIndices == nodeIndices.length) ? nodeIndices
+                : Arrays.copyOf(nodeIndices, nNodeIndices);
+    }
+    
+    /**
+     * Gets the node instance at a given index.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @return the node at that index
+     */
+    public Node getNode(final int nodeIndex) {
+        return nodes[nodeIndex];
+    }
+    
+    /**
+     * Gets the ID of the node at a given index, without going through the
+     * node instance.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @return the ID of the node at that index
+     */
+    public int getNodeID(final int nodeIndex) {
+        return nodeIDs[nodeIndex];
+    }
+    
+    /**
+     * Calculates the degree of a node.
+     * 
+     * @param aNode
+     *            the node
+     * @return the degree of the node
+     */
+    public int degree(final Node aNode) {
+        return degree(indexOf(aNode));
+    }
+    
+    /**
+     * Gets a neighbour of a node by its position in the node's neighbour list.
+     * 
+     * @param aNode
+     *            the node
+     * @param iNeighbour
+     *            position of the neighbour in the neighbour list, between 0
+     *            and the degree of the node (exclusive)
+     * @return the neighbour
+     */
+    public Node getNeighbour(final Node aNode, final int iNeighbour) {
+        return nodes[neighbour(indexOf(aNode), iNeighbour)];
+    }
+    
+    /**
+     * Picks a random neighbour amongst the direct neighbours of a node. If the
+     * node has no neighbours, it simply returns the node itself (as does
+     * Node.pickRandomNeighbour).
+     * 
+     * @param aNode
+     *            the node whose neighbour is requested
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @return the randomly chosen neighbour
+     */
+    public Node pickRandomNeighbour(final Node aNode,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int nodeIndex = indexOf(aNode);
+        final int degree = degree(nodeIndex);
+        
+        if (degree == 0) {
+            return aNode;
+        }
+        
+        final int randomNeighbourPosition =
+                randomNumberGenerator.nextInt(degree);
+        
+        return nodes[neighbour(nodeIndex, randomNeighbourPosition)];
+    }
+    
+    /**
+     * Picks a random neighbour amongst the direct neighbours of a node, except
+     * for the node with a given ID, which is still picked if it is the only
+     * neighbour of the node (see pickRandomNeighbourIndex).
+     * 
+     * @param aNode
+     *            the node whose neighbour is requested
+     * @param excludedNodeID
+     *            ID of the neighbour to exclude, -1 to exclude none
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @return the randomly chosen neighbour
+     */
+    public Node pickRandomNeighbourExcept(final Node aNode,
+            final int excludedNodeID,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int excludedNodeIndex =
+                (excludedNodeID < 0) ? -1 : indexOfNodeID(excludedNodeID);
+        
+        return nodes[pickRandomNeighbourIndex(indexOf(aNode),
+                excludedNodeIndex, randomNumberGenerator)];
+    }
+    
+    /**
+     * Picks a random neighbour amongst the direct neighbours of a node, except
+     * for one of them, in a single draw: one of the first degree - 1 positions
+     * of the neighbour list is drawn, and if it holds the excluded neighbour,
+     * the last position stands in for it. Each other neighbour is therefore
+     * picked with the same probability, without drawing again. The excluded
+     * neighbour is still picked if it is the only neighbour of the node, so
+     * that a walker never gets stuck, and if the node has no neighbours, the
+     * node itself is returned.
+     * 
+     * The excluded node must be a neighbour of the node (e.g. the node the
+     * walker came from), or -1.
+     * 
+     * @param nodeIndex
+     *            index of the node whose neighbour is requested
+     * @param excludedNeighbourIndex
+     *            index of the neighbour to exclude, -1 to exclude none
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @return the index of the randomly chosen neighbour
+     */
+    public int pickRandomNeighbourIndex(final int nodeIndex,
+            final int excludedNeighbourIndex,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int firstNeighbour = offsets[nodeIndex];
+        final int degree = offsets[nodeIndex + 1] - firstNeighbour;
+        
+        if (degree == 0) {
+            return nodeIndex;
+        }
+        
+        if ((excludedNeighbourIndex < 0) || (degree == 1)) {
+            return neighbours[firstNeighbour +
+                    randomNumberGenerator.nextInt(degree)];
+        }
+        
+        final int neighbourIndex =
+                neighbours[firstNeighbour +
+                        randomNumberGenerator.nextInt(degree - 1)];
+        
+        return (neighbourIndex == excludedNeighbourIndex)
+                ? neighbours[firstNeighbour + degree - 1] : neighbourIndex;
+    }
+    
+    /**
+     * Getter for nNodes.
+     * 
+     * @return the nNodes
+     */
+    public int getnNodes() {
+        return nNodes;
+    }
+    
+    /**
+     * Getter for nodeSetPool.
+     * 
+     * @return the nodeSetPool
+     */
+    public NodeSetPool getNodeSetPool() {
+        return nodeSetPool;
+    }
+    
+    /**
+     * Getter for rendezvousDetectorPool.
+     * 
+     * @return the rendezvousDetectorPool
+     */
+    public RendezvousDetectorPool getRendezvousDetectorPool() {
+        return rendezvousDetectorPool;
+    }
+    
+    /**
+     * Calculates the total number of undirected links in the graph.
+     * 
+     * @return the number of links in the graph
+     */
+    public int calculateTotalNumberOfLinks() {
+        return neighbours.length / 2;
+    }
+    
+    /**
+     * Getter for offsets. The array is shared, not copied, and must not be
+     * modified.
+     * 
+     * @return the offsets
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+    
+    /**
+     * Getter for neighbours. The array is shared, not copied, and must not be
+     * modified.
+     * 
+     * @return the neighbours
+     */
+    public int[] getNeighbours() {
+        return neighbours;
+    }
+    
+}
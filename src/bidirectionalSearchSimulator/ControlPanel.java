@@ -44,9 +44,20 @@ public class ControlPanel extends JPanel {
     
     private String inputedSearch;
     private int inputedTTL;
+    private String inputedWeighting;  // weights by which the walkers of a
+    // weighted random walk pick their next node
+    private double inputedDegreeExponent;  // exponent of the degrees of the
+    // neighbours when the walkers favour high-degree neighbours
+    private int inputednWalkers;  // number of walkers launched by each query
+    // of a k random walkers search
+    private int inputedFlagAvoidVisitedNodes;  // 1 if the walkers of a k
+    // random walkers search prefer the nodes no walker has visited, 0
+    // otherwise
     
     private String inputedSimulationType;
     private int inputedBatchNumberOfSimulations;
+    private int[] inputedBatchTtls;  // TTLs swept by each search of a batch
+    // of all searches, null to use each search's own TTL
     private String inputedBatchSimulationType;
     
     private String inputedInitialSearchState;
@@ -85,35 +96,81 @@ public class ControlPanel extends JPanel {
     private final JLabel searchParameterLabel;
     private final JPanel searchParameterCardPanel;
     private final JPanel searchParameterFloodPanel;
+    private final JPanel searchParameterERFPanel;
     private final JPanel searchParameterRWPanel;
+    private final JPanel searchParameterWRWPanel;
     private final JPanel searchParameterRRRWPanel;
+    private final JPanel searchParameterKRWPanel;
     private final JPanel searchParameterBDRWPanel;
+    private final JPanel searchParameterBDWRWPanel;
     private final JPanel searchParameterBDRRRWPanel;
+    private final JPanel searchParameterBDKRWPanel;
     private final JPanel searchParameterBDLPanel;
     private final String searchFloodString = "Flooding";
+    private final String searchExpandingRingFloodString =
+            "Expanding ring flooding";
     private final String searchRWString = "Random walk";
+    private final String searchWeightedRWString = "Weighted random walk";
     private final String searchRRRWString = "Randomly replicated random walk";
+    private final String searchKRandomWalkersString = "K random walkers";
     private final String searchBidirectionalRWString =
             "Bidirectional random walk";
+    private final String searchBidirectionalWeightedRWString =
+            "Bidirectional weighted RW";
     private final String searchBidirectionalLinearString =
             "Bidirectional linear";
     private final String searchBidirectionalRRRWString = "Bidirectional RRRW";
+    private final String searchBidirectionalKRandomWalkersString =
+            "Bidirectional k random walkers";
     private final String searchParametersAlgorithmList[] = {searchFloodString,
-        searchRWString, searchRRRWString, searchBidirectionalRWString,
-        searchBidirectionalRRRWString, searchBidirectionalLinearString};
+        searchExpandingRingFloodString, searchRWString, searchWeightedRWString,
+        searchRRRWString, searchKRandomWalkersString,
+        searchBidirectionalRWString, searchBidirectionalWeightedRWString,
+        searchBidirectionalRRRWString, searchBidirectionalKRandomWalkersString,
+        searchBidirectionalLinearString};
+    private final String weightingDegreeString = "Degree bias";
+    private final String weightingLinkString = "Link weights";
+    private final String weightingTypeList[] = {weightingDegreeString,
+        weightingLinkString};
     private final JComboBox<String> searchParameterAlgorithmComboBox;
     private final JLabel searchParameterFLOODTTLLabel;
     private JTextField searchParameterFLOODTTLField;
+    private final JLabel searchParameterERFTTLLabel;
+    private JTextField searchParameterERFTTLField;
     private final JLabel searchParameterRWTTLLabel;
     private JTextField searchParameterRWTTLField;
+    private final JLabel searchParameterWRWTTLLabel;
+    private JTextField searchParameterWRWTTLField;
+    private final JComboBox<String> searchParameterWRWWeightingComboBox;
+    private JTextField searchParameterWRWDegreeExponentField;
     private final JLabel searchParameterRRRWTTLLabel;
     private JTextField searchParameterRRRWTTLField;
+    private final JLabel searchParameterKRWTTLLabel;
+    private JTextField searchParameterKRWTTLField;
+    private JTextField searchParameterKRWnWalkersField;
+    private final JCheckBox searchParameterKRWAvoidVisitedCheckBox;
     private final JLabel searchParameterBDRWTTLLabel;
     private JTextField searchParameterBDRWTTLField;
+    private final JLabel searchParameterBDWRWTTLLabel;
+    private JTextField searchParameterBDWRWTTLField;
+    private final JComboBox<String> searchParameterBDWRWWeightingComboBox;
+    private JTextField searchParameterBDWRWDegreeExponentField;
     private final JLabel searchParameterBDRRRWTTLLabel;
     private JTextField searchParameterBDRRRWTTLField;
+    private final JLabel searchParameterBDKRWTTLLabel;
+    private JTextField searchParameterBDKRWTTLField;
+    private JTextField searchParameterBDKRWnWalkersField;
+    private final JCheckBox searchParameterBDKRWAvoidVisitedCheckBox;
     private final JLabel searchParameterBDLTTLLabel;
     private JTextField searchParameterBDLTTLField;
+    private final int[] inputedFlagsNonBacktracking =
+            new int[searchParametersAlgorithmList.length];  // 1 for each
+    // search of searchParametersAlgorithmList whose walkers do not send a
+    // query straight back, 0 otherwise; set to the default of each random
+    // walk search when its checkbox is added
+    private final JCheckBox[] searchParameterNonBacktrackingCheckBoxes =
+            new JCheckBox[searchParametersAlgorithmList.length];  // checkbox
+    // of each random walk search, by position in searchParametersAlgorithmList
     
     private final JPanel simulationTypePanel;
     private final JLabel simulationTypeLabel;
@@ -141,6 +198,7 @@ public class ControlPanel extends JPanel {
     private JCheckBox simulationTypeBatchAllSearchCheckBox;
     private JCheckBox simulationTypeBatchAllSearchAndNetworksCheckBox;
     private JTextField simulationNumberofSimulationsField;
+    private JTextField simulationBatchTtlsField;
     private JCheckBox saveNetworkAndSearchCheckBox;
     private JCheckBox reloadNetworkAndSearchCheckBox;
     
@@ -182,6 +240,11 @@ public class ControlPanel extends JPanel {
         setPreferredSize(new Dimension(xDimControlPanel, yDimControlPanel));
 //        setBackground(Color.cyan);
         
+        inputedWeighting = weightingDegreeString;
+        inputedDegreeExponent = 1;
+        inputednWalkers = 16;
+        inputedFlagAvoidVisitedNodes = 0;
+        
         // FOR TEST PURPOSES ===========================================
         // SETS ALL THE IMPORTANT PARAMETERS NEEDED TO RUN A SEARCH ====
 //        inputedNetworkType = networkERGraphString;
@@ -377,8 +440,22 @@ public class ControlPanel extends JPanel {
         searchParameterFLOODTTLField.setText("5");
         searchParameterFloodPanel.add(searchParameterFLOODTTLField);
         
+        /* Search parameters card layout -- ERF panel. */
+        searchParameterERFPanel = new JPanel(new GridLayout(1, 2));
+        searchParameterCardPanel.add(searchParameterERFPanel,
+                searchExpandingRingFloodString);
+        
+        searchParameterERFTTLLabel =
+                new JLabel("<html>Largest TTL (1+):</html>",
+                        SwingConstants.CENTER);
+        searchParameterERFPanel.add(searchParameterERFTTLLabel);
+        
+        searchParameterERFTTLField = new JTextField(4);
+        searchParameterERFTTLField.setText("64");
+        searchParameterERFPanel.add(searchParameterERFTTLField);
+        
         /* Search parameters card layout -- RW panel. */
-        searchParameterRWPanel = new JPanel(new GridLayout(1, 2));
+        searchParameterRWPanel = new JPanel(new GridLayout(2, 2));
         searchParameterCardPanel.add(searchParameterRWPanel, searchRWString);
         
         searchParameterRWTTLLabel =
@@ -388,9 +465,37 @@ public class ControlPanel extends JPanel {
         searchParameterRWTTLField = new JTextField(4);
         searchParameterRWTTLField.setText("500");
         searchParameterRWPanel.add(searchParameterRWTTLField);
+        addNonBacktrackingCheckBox(searchParameterRWPanel, searchRWString);
+        
+        /* Search parameters card layout -- weighted RW panel. */
+        searchParameterWRWPanel = new JPanel(new GridLayout(4, 2));
+        searchParameterCardPanel.add(searchParameterWRWPanel,
+                searchWeightedRWString);
+        
+        searchParameterWRWTTLLabel =
+                new JLabel("<html>TTL (1+):</html>", SwingConstants.CENTER);
+        searchParameterWRWPanel.add(searchParameterWRWTTLLabel);
+        
+        searchParameterWRWTTLField = new JTextField(4);
+        searchParameterWRWTTLField.setText("500");
+        searchParameterWRWPanel.add(searchParameterWRWTTLField);
+        
+        searchParameterWRWPanel.add(new JLabel("<html>Weighting:</html>",
+                SwingConstants.CENTER));
+        searchParameterWRWWeightingComboBox =
+                new JComboBox<String>(weightingTypeList);
+        searchParameterWRWPanel.add(searchParameterWRWWeightingComboBox);
+        
+        searchParameterWRWPanel.add(new JLabel(
+                "<html>Degree exponent:</html>", SwingConstants.CENTER));
+        searchParameterWRWDegreeExponentField = new JTextField(4);
+        searchParameterWRWDegreeExponentField.setText("1");
+        searchParameterWRWPanel.add(searchParameterWRWDegreeExponentField);
+        addNonBacktrackingCheckBox(searchParameterWRWPanel,
+                searchWeightedRWString);
         
         /* Search parameters card layout -- RRRW panel. */
-        searchParameterRRRWPanel = new JPanel(new GridLayout(1, 2));
+        searchParameterRRRWPanel = new JPanel(new GridLayout(2, 2));
         searchParameterCardPanel
                 .add(searchParameterRRRWPanel, searchRRRWString);
         
@@ -401,9 +506,38 @@ public class ControlPanel extends JPanel {
         searchParameterRRRWTTLField = new JTextField(4);
         searchParameterRRRWTTLField.setText("500");
         searchParameterRRRWPanel.add(searchParameterRRRWTTLField);
+        addNonBacktrackingCheckBox(searchParameterRRRWPanel, searchRRRWString);
+        
+        /* Search parameters card layout -- KRW panel. */
+        searchParameterKRWPanel = new JPanel(new GridLayout(4, 2));
+        searchParameterCardPanel.add(searchParameterKRWPanel,
+                searchKRandomWalkersString);
+        
+        searchParameterKRWTTLLabel =
+                new JLabel("<html>TTL (1+):</html>", SwingConstants.CENTER);
+        searchParameterKRWPanel.add(searchParameterKRWTTLLabel);
+        
+        searchParameterKRWTTLField = new JTextField(4);
+        searchParameterKRWTTLField.setText("500");
+        searchParameterKRWPanel.add(searchParameterKRWTTLField);
+        
+        searchParameterKRWPanel.add(new JLabel("<html>Walkers (1+):</html>",
+                SwingConstants.CENTER));
+        searchParameterKRWnWalkersField = new JTextField(4);
+        searchParameterKRWnWalkersField.setText("16");
+        searchParameterKRWPanel.add(searchParameterKRWnWalkersField);
+        
+        searchParameterKRWPanel.add(new JLabel("<html>Avoid visited:</html>",
+                SwingConstants.CENTER));
+        searchParameterKRWAvoidVisitedCheckBox = new JCheckBox();
+        searchParameterKRWAvoidVisitedCheckBox
+                .setToolTipText("Prefer the nodes no walker has visited yet");
+        searchParameterKRWPanel.add(searchParameterKRWAvoidVisitedCheckBox);
+        addNonBacktrackingCheckBox(searchParameterKRWPanel,
+                searchKRandomWalkersString);
         
         /* Search parameters card layout -- BDRW panel. */
-        searchParameterBDRWPanel = new JPanel(new GridLayout(1, 2));
+        searchParameterBDRWPanel = new JPanel(new GridLayout(2, 2));
         searchParameterCardPanel.add(searchParameterBDRWPanel,
                 searchBidirectionalRWString);
         
@@ -414,9 +548,38 @@ public class ControlPanel extends JPanel {
         searchParameterBDRWTTLField = new JTextField(4);
         searchParameterBDRWTTLField.setText("500");
         searchParameterBDRWPanel.add(searchParameterBDRWTTLField);
+        addNonBacktrackingCheckBox(searchParameterBDRWPanel,
+                searchBidirectionalRWString);
+        
+        /* Search parameters card layout -- bidirectional weighted RW panel. */
+        searchParameterBDWRWPanel = new JPanel(new GridLayout(4, 2));
+        searchParameterCardPanel.add(searchParameterBDWRWPanel,
+                searchBidirectionalWeightedRWString);
+        
+        searchParameterBDWRWTTLLabel =
+                new JLabel("<html>TTL (1+):</html>", SwingConstants.CENTER);
+        searchParameterBDWRWPanel.add(searchParameterBDWRWTTLLabel);
+        
+        searchParameterBDWRWTTLField = new JTextField(4);
+        searchParameterBDWRWTTLField.setText("500");
+        searchParameterBDWRWPanel.add(searchParameterBDWRWTTLField);
+        
+        searchParameterBDWRWPanel.add(new JLabel("<html>Weighting:</html>",
+                SwingConstants.CENTER));
+        searchParameterBDWRWWeightingComboBox =
+                new JComboBox<String>(weightingTypeList);
+        searchParameterBDWRWPanel.add(searchParameterBDWRWWeightingComboBox);
+        
+        searchParameterBDWRWPanel.add(new JLabel(
+                "<html>Degree exponent:</html>", SwingConstants.CENTER));
+        searchParameterBDWRWDegreeExponentField = new JTextField(4);
+        searchParameterBDWRWDegreeExponentField.setText("1");
+        searchParameterBDWRWPanel.add(searchParameterBDWRWDegreeExponentField);
+        addNonBacktrackingCheckBox(searchParameterBDWRWPanel,
+                searchBidirectionalWeightedRWString);
         
         /* Search parameters card layout -- BDRRRW panel. */
-        searchParameterBDRRRWPanel = new JPanel(new GridLayout(1, 2));
+        searchParameterBDRRRWPanel = new JPanel(new GridLayout(2, 2));
         searchParameterCardPanel.add(searchParameterBDRRRWPanel,
                 searchBidirectionalRRRWString);
         
@@ -427,6 +590,36 @@ public class ControlPanel extends JPanel {
         searchParameterBDRRRWTTLField = new JTextField(4);
         searchParameterBDRRRWTTLField.setText("500");
         searchParameterBDRRRWPanel.add(searchParameterBDRRRWTTLField);
+        addNonBacktrackingCheckBox(searchParameterBDRRRWPanel,
+                searchBidirectionalRRRWString);
+        
+        /* Search parameters card layout -- BDKRW panel. */
+        searchParameterBDKRWPanel = new JPanel(new GridLayout(4, 2));
+        searchParameterCardPanel.add(searchParameterBDKRWPanel,
+                searchBidirectionalKRandomWalkersString);
+        
+        searchParameterBDKRWTTLLabel =
+                new JLabel("<html>TTL (1+):</html>", SwingConstants.CENTER);
+        searchParameterBDKRWPanel.add(searchParameterBDKRWTTLLabel);
+        
+        searchParameterBDKRWTTLField = new JTextField(4);
+        searchParameterBDKRWTTLField.setText("500");
+        searchParameterBDKRWPanel.add(searchParameterBDKRWTTLField);
+        
+        searchParameterBDKRWPanel.add(new JLabel("<html>Walkers (1+):</html>",
+                SwingConstants.CENTER));
+        searchParameterBDKRWnWalkersField = new JTextField(4);
+        searchParameterBDKRWnWalkersField.setText("16");
+        searchParameterBDKRWPanel.add(searchParameterBDKRWnWalkersField);
+        
+        searchParameterBDKRWPanel.add(new JLabel("<html>Avoid visited:</html>",
+                SwingConstants.CENTER));
+        searchParameterBDKRWAvoidVisitedCheckBox = new JCheckBox();
+        searchParameterBDKRWAvoidVisitedCheckBox
+                .setToolTipText("Prefer the nodes no walker has visited yet");
+        searchParameterBDKRWPanel.add(searchParameterBDKRWAvoidVisitedCheckBox);
+        addNonBacktrackingCheckBox(searchParameterBDKRWPanel,
+                searchBidirectionalKRandomWalkersString);
         
         /* Search parameters card layout -- BDL panel. */
         searchParameterBDLPanel = new JPanel(new GridLayout(1, 2));
@@ -479,6 +672,7 @@ public class ControlPanel extends JPanel {
                             .setEnabled(false);
                     
                     simulationNumberofSimulationsField.setEnabled(false);
+                    simulationBatchTtlsField.setEnabled(false);
                 }
                 else {
                     if (!simulationTypeAutomatedCheckBox.isSelected() &&
@@ -508,6 +702,7 @@ public class ControlPanel extends JPanel {
                             .setEnabled(false);
                     
                     simulationNumberofSimulationsField.setEnabled(false);
+                    simulationBatchTtlsField.setEnabled(false);
                 }
                 else {
                     if (!simulationTypeInteractiveCheckBox.isSelected() &&
@@ -538,6 +733,7 @@ public class ControlPanel extends JPanel {
                             .setEnabled(true);
                     
                     simulationNumberofSimulationsField.setEnabled(true);
+                    simulationBatchTtlsField.setEnabled(true);
                     
                 }
                 else {
@@ -596,6 +792,19 @@ public class ControlPanel extends JPanel {
         simulationTypeGridBagPanel.add(simulationNumberofSimulationsField,
                 gridBagConstraintsSimulationType);
         
+        /* TTLs swept by each search of a batch of all searches. */
+        simulationBatchTtlsField = new JTextField(0);
+        simulationBatchTtlsField.setText("");
+        simulationBatchTtlsField.setEnabled(false);
+        simulationBatchTtlsField
+                .setToolTipText("TTLs run by each search with \"do each search\", separated by commas (leave empty for each search's own TTL)");
+        gridBagConstraintsSimulationType.fill = GridBagConstraints.HORIZONTAL;
+        gridBagConstraintsSimulationType.gridx = 0;
+        gridBagConstraintsSimulationType.gridy = 2;
+        gridBagConstraintsSimulationType.gridwidth = 3;
+        simulationTypeGridBagPanel.add(simulationBatchTtlsField,
+                gridBagConstraintsSimulationType);
+        
         /* Batch all search and networks checkbox. */
         simulationTypeBatchAllSearchAndNetworksCheckBox =
                 new JCheckBox("Batch (do all networks and search)", false);
@@ -621,7 +830,7 @@ public class ControlPanel extends JPanel {
                 });
         gridBagConstraintsSimulationType.fill = GridBagConstraints.HORIZONTAL;
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 2;
+        gridBagConstraintsSimulationType.gridy = 3;
         gridBagConstraintsSimulationType.gridwidth = 3;
         simulationTypeGridBagPanel.add(
                 simulationTypeBatchAllSearchAndNetworksCheckBox,
@@ -631,7 +840,7 @@ public class ControlPanel extends JPanel {
         JLabel lineSeparator = new JLabel("_________________");
         gridBagConstraintsSimulationType.fill = GridBagConstraints.HORIZONTAL;
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 3;
+        gridBagConstraintsSimulationType.gridy = 4;
         gridBagConstraintsSimulationType.gridwidth = 3;
         gridBagConstraintsSimulationType.insets = new Insets(0, 50, 13, 0);
         simulationTypeGridBagPanel.add(lineSeparator,
@@ -642,7 +851,7 @@ public class ControlPanel extends JPanel {
         networkInformationField.setText("networkInformation.ser");
         networkInformationField.setEnabled(false);
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 4;
+        gridBagConstraintsSimulationType.gridy = 5;
         gridBagConstraintsSimulationType.gridwidth = 3;
         gridBagConstraintsSimulationType.insets = new Insets(0, 0, 0, 0);
         simulationTypeGridBagPanel.add(networkInformationField,
@@ -652,7 +861,7 @@ public class ControlPanel extends JPanel {
         searchConditionsField.setText("searchConditions.ser");
         searchConditionsField.setEnabled(false);
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 5;
+        gridBagConstraintsSimulationType.gridy = 6;
         gridBagConstraintsSimulationType.gridwidth = 3;
         simulationTypeGridBagPanel.add(searchConditionsField,
                 gridBagConstraintsSimulationType);
@@ -678,7 +887,7 @@ public class ControlPanel extends JPanel {
         });
         gridBagConstraintsSimulationType.fill = GridBagConstraints.HORIZONTAL;
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 6;
+        gridBagConstraintsSimulationType.gridy = 7;
         simulationTypeGridBagPanel.add(saveNetworkAndSearchCheckBox,
                 gridBagConstraintsSimulationType);
         
@@ -708,7 +917,7 @@ public class ControlPanel extends JPanel {
         });
         gridBagConstraintsSimulationType.fill = GridBagConstraints.HORIZONTAL;
         gridBagConstraintsSimulationType.gridx = 0;
-        gridBagConstraintsSimulationType.gridy = 7;
+        gridBagConstraintsSimulationType.gridy = 8;
         simulationTypeGridBagPanel.add(reloadNetworkAndSearchCheckBox,
                 gridBagConstraintsSimulationType);
         
@@ -789,39 +998,76 @@ public class ControlPanel extends JPanel {
                                             .getText());
                         }
                         
-                        /* Search algorithm: flood/RW/RRRW/BDRW/BDRRRW/BDL
-                         * and parameters. */
+                        /* Search algorithm: flood/ERF/RW/WRW/RRRW/KRW/
+                         * BDRW/BDWRW/BDRRRW/BDKRW/BDL and parameters. */
                         inputedSearch =
                                 (String) searchParameterAlgorithmComboBox
                                         .getSelectedItem();
+                        readNonBacktrackingCheckBoxes();
                         
                         if (inputedSearch.equals(searchFloodString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterFLOODTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchExpandingRingFloodString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterERFTTLField
+                                            .getText());
+                        }
                         else if (inputedSearch.equals(searchRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch.equals(searchWeightedRWString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterWRWTTLField
+                                            .getText());
+                            readWeighting(searchParameterWRWWeightingComboBox,
+                                    searchParameterWRWDegreeExponentField);
+                        }
                         else if (inputedSearch.equals(searchRRRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterRRRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch.equals(searchKRandomWalkersString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterKRWTTLField
+                                            .getText());
+                            readWalkers(searchParameterKRWnWalkersField,
+                                    searchParameterKRWAvoidVisitedCheckBox);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterBDRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchBidirectionalWeightedRWString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterBDWRWTTLField
+                                            .getText());
+                            readWeighting(searchParameterBDWRWWeightingComboBox,
+                                    searchParameterBDWRWDegreeExponentField);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalRRRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterBDRRRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchBidirectionalKRandomWalkersString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterBDKRWTTLField
+                                            .getText());
+                            readWalkers(searchParameterBDKRWnWalkersField,
+                                    searchParameterBDKRWAvoidVisitedCheckBox);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalLinearString)) {
                             inputedTTL =
@@ -842,6 +1088,9 @@ public class ControlPanel extends JPanel {
                             inputedBatchNumberOfSimulations =
                                     Integer.parseInt(simulationNumberofSimulationsField
                                             .getText());
+                            inputedBatchTtls =
+                                    parseTtls(simulationBatchTtlsField
+                                            .getText());
                             
                             inputedBatchSimulationType =
                                     batchSimulationDifferentNetworkDifferentSearchString;
@@ -854,7 +1103,8 @@ public class ControlPanel extends JPanel {
                             }
                             else if (simulationTypeBatchAllSearchCheckBox
                                     .isSelected()) {
-                                searchCoordinator.doSearchBatchAllStrategies();
+                                searchCoordinator
+                                        .doSearchBatchAllStrategies(inputedBatchTtls);
                             }
                             else if (simulationTypeBatchAllSearchAndNetworksCheckBox
                                     .isSelected()) {
@@ -882,39 +1132,76 @@ public class ControlPanel extends JPanel {
                     
                     @Override
                     public void actionPerformed(final ActionEvent e) {
-                        /* Search algorithm: flood/RW/RRRW/BDRW/BDRRRW/BDL
-                         * and parameters. */
+                        /* Search algorithm: flood/ERF/RW/WRW/RRRW/KRW/
+                         * BDRW/BDWRW/BDRRRW/BDKRW/BDL and parameters. */
                         inputedSearch =
                                 (String) searchParameterAlgorithmComboBox
                                         .getSelectedItem();
+                        readNonBacktrackingCheckBoxes();
                         
                         if (inputedSearch.equals(searchFloodString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterFLOODTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchExpandingRingFloodString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterERFTTLField
+                                            .getText());
+                        }
                         else if (inputedSearch.equals(searchRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch.equals(searchWeightedRWString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterWRWTTLField
+                                            .getText());
+                            readWeighting(searchParameterWRWWeightingComboBox,
+                                    searchParameterWRWDegreeExponentField);
+                        }
                         else if (inputedSearch.equals(searchRRRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterRRRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch.equals(searchKRandomWalkersString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterKRWTTLField
+                                            .getText());
+                            readWalkers(searchParameterKRWnWalkersField,
+                                    searchParameterKRWAvoidVisitedCheckBox);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterBDRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchBidirectionalWeightedRWString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterBDWRWTTLField
+                                            .getText());
+                            readWeighting(searchParameterBDWRWWeightingComboBox,
+                                    searchParameterBDWRWDegreeExponentField);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalRRRWString)) {
                             inputedTTL =
                                     Integer.parseInt(searchParameterBDRRRWTTLField
                                             .getText());
                         }
+                        else if (inputedSearch
+                                .equals(searchBidirectionalKRandomWalkersString)) {
+                            inputedTTL =
+                                    Integer.parseInt(searchParameterBDKRWTTLField
+                                            .getText());
+                            readWalkers(searchParameterBDKRWnWalkersField,
+                                    searchParameterBDKRWAvoidVisitedCheckBox);
+                        }
                         else if (inputedSearch
                                 .equals(searchBidirectionalLinearString)) {
                             inputedTTL =
@@ -935,6 +1222,9 @@ public class ControlPanel extends JPanel {
                             inputedBatchNumberOfSimulations =
                                     Integer.parseInt(simulationNumberofSimulationsField
                                             .getText());
+                            inputedBatchTtls =
+                                    parseTtls(simulationBatchTtlsField
+                                            .getText());
                             
                             inputedBatchSimulationType =
                                     batchSimulationSameNetworkDifferentSearchString;
@@ -947,7 +1237,8 @@ public class ControlPanel extends JPanel {
                             }
                             else if (simulationTypeBatchAllSearchCheckBox
                                     .isSelected()) {
-                                searchCoordinator.doSearchBatchAllStrategies();
+                                searchCoordinator
+                                        .doSearchBatchAllStrategies(inputedBatchTtls);
                             }
                             else if (simulationTypeBatchAllSearchAndNetworksCheckBox
                                     .isSelected()) {
@@ -996,37 +1287,74 @@ public class ControlPanel extends JPanel {
             
             @Override
             public void actionPerformed(final ActionEvent e) {
-                /* Search algorithm: flood/RW/RRRW/BDRW/BDRRRW/BDL
-                 * and parameters. */
+                /* Search algorithm: flood/ERF/RW/WRW/RRRW/KRW/
+                 * BDRW/BDWRW/BDRRRW/BDKRW/BDL and parameters. */
                 inputedSearch =
                         (String) searchParameterAlgorithmComboBox
                                 .getSelectedItem();
+                readNonBacktrackingCheckBoxes();
                 
                 if (inputedSearch.equals(searchFloodString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterFLOODTTLField
                                     .getText());
                 }
+                else if (inputedSearch
+                        .equals(searchExpandingRingFloodString)) {
+                    inputedTTL =
+                            Integer.parseInt(searchParameterERFTTLField
+                                    .getText());
+                }
                 else if (inputedSearch.equals(searchRWString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterRWTTLField
                                     .getText());
                 }
+                else if (inputedSearch.equals(searchWeightedRWString)) {
+                    inputedTTL =
+                            Integer.parseInt(searchParameterWRWTTLField
+                                    .getText());
+                    readWeighting(searchParameterWRWWeightingComboBox,
+                            searchParameterWRWDegreeExponentField);
+                }
                 else if (inputedSearch.equals(searchRRRWString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterRRRWTTLField
                                     .getText());
                 }
+                else if (inputedSearch.equals(searchKRandomWalkersString)) {
+                    inputedTTL =
+                            Integer.parseInt(searchParameterKRWTTLField
+                                    .getText());
+                    readWalkers(searchParameterKRWnWalkersField,
+                            searchParameterKRWAvoidVisitedCheckBox);
+                }
                 else if (inputedSearch.equals(searchBidirectionalRWString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterBDRWTTLField
                                     .getText());
                 }
+                else if (inputedSearch
+                        .equals(searchBidirectionalWeightedRWString)) {
+                    inputedTTL =
+                            Integer.parseInt(searchParameterBDWRWTTLField
+                                    .getText());
+                    readWeighting(searchParameterBDWRWWeightingComboBox,
+                            searchParameterBDWRWDegreeExponentField);
+                }
                 else if (inputedSearch.equals(searchBidirectionalRRRWString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterBDRRRWTTLField
                                     .getText());
                 }
+                else if (inputedSearch
+                        .equals(searchBidirectionalKRandomWalkersString)) {
+                    inputedTTL =
+                            Integer.parseInt(searchParameterBDKRWTTLField
+                                    .getText());
+                    readWalkers(searchParameterBDKRWnWalkersField,
+                            searchParameterBDKRWAvoidVisitedCheckBox);
+                }
                 else if (inputedSearch.equals(searchBidirectionalLinearString)) {
                     inputedTTL =
                             Integer.parseInt(searchParameterBDLTTLField
@@ -1046,6 +1374,8 @@ public class ControlPanel extends JPanel {
                     inputedBatchNumberOfSimulations =
                             Integer.parseInt(simulationNumberofSimulationsField
                                     .getText());
+                    inputedBatchTtls =
+                            parseTtls(simulationBatchTtlsField.getText());
                     
                     inputedBatchSimulationType =
                             batchSimulationSameNetworkSameSearchString;
@@ -1061,7 +1391,8 @@ public class ControlPanel extends JPanel {
                                 .doSearchBatchAllNetworksAndStrategies();
                     }
                     else if (simulationTypeBatchAllSearchCheckBox.isSelected()) {
-                        searchCoordinator.doSearchBatchAllStrategies();
+                        searchCoordinator
+                                .doSearchBatchAllStrategies(inputedBatchTtls);
                     }
                 }
                 
@@ -1211,6 +1542,97 @@ public class ControlPanel extends JPanel {
                 GridBagConstraints.HORIZONTAL;
     }
     
+    /**
+     * Adds a checkbox to the parameters panel of a random walk search that
+     * makes its walkers non-backtracking, selected if they are by default.
+     * The walkers of the replicated random walks (RRRW and BD-RRRW) are
+     * non-backtracking by default, those of the other searches are not.
+     * 
+     * @param aSearchParameterPanel
+     *            the parameters panel of the search
+     * @param aSearchString
+     *            the search, as in searchParametersAlgorithmList
+     */
+    private void addNonBacktrackingCheckBox(final JPanel aSearchParameterPanel,
+            final String aSearchString) {
+        final int iSearch = indexOfSearch(aSearchString);
+        inputedFlagsNonBacktracking[iSearch] =
+                (aSearchString.equals(searchRRRWString) || aSearchString
+                        .equals(searchBidirectionalRRRWString)) ? 1 : 0;
+        final JCheckBox nonBacktrackingCheckBox =
+                new JCheckBox("", inputedFlagsNonBacktracking[iSearch] == 1);
+        nonBacktrackingCheckBox
+                .setToolTipText("Never send a query back to its last hop");
+        
+        aSearchParameterPanel.add(new JLabel(
+                "<html>Non-backtracking:</html>", SwingConstants.CENTER));
+        aSearchParameterPanel.add(nonBacktrackingCheckBox);
+        searchParameterNonBacktrackingCheckBoxes[iSearch] =
+                nonBacktrackingCheckBox;
+    }
+    
+    /**
+     * Reads the non-backtracking checkbox of each random walk search.
+     */
+    private void readNonBacktrackingCheckBoxes() {
+        for (int iSearch = 0; iSearch < searchParametersAlgorithmList.length; iSearch++) {
+            if (searchParameterNonBacktrackingCheckBoxes[iSearch] != null) {
+                inputedFlagsNonBacktracking[iSearch] =
+                        searchParameterNonBacktrackingCheckBoxes[iSearch]
+                                .isSelected() ? 1 : 0;
+            }
+        }
+    }
+    
+    /**
+     * Reads the weighting of a weighted random walk search from its
+     * parameters panel.
+     * 
+     * @param aWeightingComboBox
+     *            the weighting combobox of the search
+     * @param aDegreeExponentField
+     *            the degree exponent field of the search
+     */
+    private void readWeighting(final JComboBox<String> aWeightingComboBox,
+            final JTextField aDegreeExponentField) {
+        inputedWeighting = (String) aWeightingComboBox.getSelectedItem();
+        inputedDegreeExponent =
+                Double.parseDouble(aDegreeExponentField.getText());
+    }
+    
+    /**
+     * Reads the walkers of a k random walkers search from its parameters
+     * panel.
+     * 
+     * @param anWalkersField
+     *            the number of walkers field of the search
+     * @param anAvoidVisitedCheckBox
+     *            the avoid visited checkbox of the search
+     */
+    private void readWalkers(final JTextField anWalkersField,
+            final JCheckBox anAvoidVisitedCheckBox) {
+        inputednWalkers = Integer.parseInt(anWalkersField.getText());
+        inputedFlagAvoidVisitedNodes =
+                anAvoidVisitedCheckBox.isSelected() ? 1 : 0;
+    }
+    
+    /**
+     * Gets the position of a search in searchParametersAlgorithmList.
+     * 
+     * @param aSearchString
+     *            the search
+     * @return the position of the search, -1 if it is not in the list
+     */
+    private int indexOfSearch(final String aSearchString) {
+        for (int iSearch = 0; iSearch < searchParametersAlgorithmList.length; iSearch++) {
+            if (searchParametersAlgorithmList[iSearch].equals(aSearchString)) {
+                return iSearch;
+            }
+        }
+        
+        return -1;
+    }
+    
     /**
      * Resets the various labels to their initial states.
      */
@@ -1286,6 +1708,113 @@ public class ControlPanel extends JPanel {
         inputedTTL = inputtedTTL;
     }
     
+    /**
+     * Getter for the non-backtracking flag of the inputed search.
+     * 
+     * @return 1 if the walkers of the inputed search do not send a query
+     *         straight back, 0 otherwise
+     */
+    public int getInputedFlagNonBacktracking() {
+        final int iSearch = indexOfSearch(inputedSearch);
+        
+        return (iSearch == -1) ? 0 : inputedFlagsNonBacktracking[iSearch];
+    }
+    
+    /**
+     * Setter for the non-backtracking flag of the inputed search.
+     * 
+     * @param inputedFlagNonBacktracking
+     *            1 if the walkers of the inputed search do not send a query
+     *            straight back, 0 otherwise
+     */
+    public void setInputedFlagNonBacktracking(
+            final int inputedFlagNonBacktracking) {
+        final int iSearch = indexOfSearch(inputedSearch);
+        
+        if (iSearch == -1) {
+            throw new IllegalStateException("Unknown search: " + inputedSearch);
+        }
+        
+        inputedFlagsNonBacktracking[iSearch] = inputedFlagNonBacktracking;
+    }
+    
+    /**
+     * Getter for inputedWeighting.
+     * 
+     * @return the inputedWeighting
+     */
+    public String getInputedWeighting() {
+        return inputedWeighting;
+    }
+    
+    /**
+     * Setter for inputedWeighting.
+     * 
+     * @param inputedWeighting
+     *            the inputedWeighting to set
+     */
+    public void setInputedWeighting(final String inputedWeighting) {
+        this.inputedWeighting = inputedWeighting;
+    }
+    
+    /**
+     * Getter for inputedDegreeExponent.
+     * 
+     * @return the inputedDegreeExponent
+     */
+    public double getInputedDegreeExponent() {
+        return inputedDegreeExponent;
+    }
+    
+    /**
+     * Setter for inputedDegreeExponent.
+     * 
+     * @param inputedDegreeExponent
+     *            the inputedDegreeExponent to set
+     */
+    public void setInputedDegreeExponent(final double inputedDegreeExponent) {
+        this.inputedDegreeExponent = inputedDegreeExponent;
+    }
+    
+    /**
+     * Getter for inputednWalkers.
+     * 
+     * @return the inputednWalkers
+     */
+    public int getInputednWalkers() {
+        return inputednWalkers;
+    }
+    
+    /**
+     * Setter for inputednWalkers.
+     * 
+     * @param inputednWalkers
+     *            the inputednWalkers to set
+     */
+    public void setInputednWalkers(final int inputednWalkers) {
+        this.inputednWalkers = inputednWalkers;
+    }
+    
+    /**
+     * Getter for inputedFlagAvoidVisitedNodes.
+     * 
+     * @return the inputedFlagAvoidVisitedNodes
+     */
+    public int getInputedFlagAvoidVisitedNodes() {
+        return inputedFlagAvoidVisitedNodes;
+    }
+    
+    /**
+     * Setter for inputedFlagAvoidVisitedNodes.
+     * 
+     * @param inputedFlagAvoidVisitedNodes
+     *            the inputedFlagAvoidVisitedNodes to set
+     */
+    public void setInputedFlagAvoidVisitedNodes(
+            final int inputedFlagAvoidVisitedNodes) {
+        this.inputedFlagAvoidVisitedNodes = inputedFlagAvoidVisitedNodes;
+    }
+    
     /**
      * Getter for inputedLinkDensity.
      * 
@@ -1322,6 +1851,37 @@ public class ControlPanel extends JPanel {
         return inputedBatchNumberOfSimulations;
     }
     
+    /**
+     * Getter for inputedBatchTtls.
+     * 
+     * @return the inputedBatchTtls
+     */
+    public int[] getInputedBatchTtls() {
+        return inputedBatchTtls;
+    }
+    
+    /**
+     * Parses a list of TTLs separated by commas.
+     * 
+     * @param ttlsText
+     *            the list of TTLs
+     * @return the TTLs, or null if the list is empty
+     */
+    private static int[] parseTtls(final String ttlsText) {
+        if (ttlsText.trim().isEmpty()) {
+            return null;
+        }
+        
+        final String[] ttlStrings = ttlsText.split(",");
+        final int[] ttls = new int[ttlStrings.length];
+        
+        for (int iTtl = 0; iTtl < ttlStrings.length; iTtl++) {
+            ttls[iTtl] = Integer.parseInt(ttlStrings[iTtl].trim());
+        }
+        
+        return ttls;
+    }
+    
     /**
      * Getter for inputedBatchSimulationType.
      * 
@@ -1376,6 +1936,15 @@ public class ControlPanel extends JPanel {
         return searchFloodString;
     }
     
+    /**
+     * Getter for searchExpandingRingFloodString.
+     * 
+     * @return the searchExpandingRingFloodString
+     */
+    public String getSearchExpandingRingFloodString() {
+        return searchExpandingRingFloodString;
+    }
+    
     /**
      * Getter for searchRWString.
      * 
@@ -1385,6 +1954,15 @@ public class ControlPanel extends JPanel {
         return searchRWString;
     }
     
+    /**
+     * Getter for searchWeightedRWString.
+     * 
+     * @return the searchWeightedRWString
+     */
+    public String getSearchWeightedRWString() {
+        return searchWeightedRWString;
+    }
+    
     /**
      * Getter for searchRRRWString.
      * 
@@ -1394,6 +1972,15 @@ public class ControlPanel extends JPanel {
         return searchRRRWString;
     }
     
+    /**
+     * Getter for searchKRandomWalkersString.
+     * 
+     * @return the searchKRandomWalkersString
+     */
+    public String getSearchKRandomWalkersString() {
+        return searchKRandomWalkersString;
+    }
+    
     /**
      * Getter for searchBidirectionalRWString.
      * 
@@ -1403,6 +1990,15 @@ public class ControlPanel extends JPanel {
         return searchBidirectionalRWString;
     }
     
+    /**
+     * Getter for searchBidirectionalWeightedRWString.
+     * 
+     * @return the searchBidirectionalWeightedRWString
+     */
+    public String getSearchBidirectionalWeightedRWString() {
+        return searchBidirectionalWeightedRWString;
+    }
+    
     /**
      * Getter for searchBidirectionalLinearString.
      * 
@@ -1421,6 +2017,15 @@ public class ControlPanel extends JPanel {
         return searchBidirectionalRRRWString;
     }
     
+    /**
+     * Getter for searchBidirectionalKRandomWalkersString.
+     * 
+     * @return the searchBidirectionalKRandomWalkersString
+     */
+    public String getSearchBidirectionalKRandomWalkersString() {
+        return searchBidirectionalKRandomWalkersString;
+    }
+    
     /**
      * Getter for searchParametersAlgorithmList.
      * 
@@ -1430,6 +2035,24 @@ public class ControlPanel extends JPanel {
         return searchParametersAlgorithmList;
     }
     
+    /**
+     * Getter for weightingDegreeString.
+     * 
+     * @return the weightingDegreeString
+     */
+    public String getWeightingDegreeString() {
+        return weightingDegreeString;
+    }
+    
+    /**
+     * Getter for weightingLinkString.
+     * 
+     * @return the weightingLinkString
+     */
+    public String getWeightingLinkString() {
+        return weightingLinkString;
+    }
+    
     /**
      * Getter for simulationBatchString.
      * 
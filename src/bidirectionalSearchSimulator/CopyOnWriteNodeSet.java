@@ -0,0 +1,378 @@
+package bidirectionalSearchSimulator;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * CopyOnWriteNodeSet is a class that models a set of nodes of a network that
+ * can be forked cheaply, so that the replicas of a query (see
+ * RandomlyReplicatedRandomWalk.replicateQuery) each get their own set of
+ * visited nodes without copying the set of the query they were replicated
+ * from.
+ * 
+ * The set is a bitset of the compact graph indices of its members, split into
+ * pages of PAGE_SIZE nodes, and pages without members are not allocated. A
+ * fork only copies the table of pages: the pages themselves are shared by the
+ * two sets until one of them adds a node to a shared page, which first copies
+ * that page. A set therefore only takes memory for the pages in which it
+ * visited new nodes since it was forked.
+ * 
+ * Adding a set of the same network shares the pages the set does not have
+ * yet and skips the pages both sets share, so the union of the visited nodes
+ * of many replicas mostly reads the pages in which they differ.
+ * 
+ * As with StampedNodeSet, nodes are compared by their node ID (through their
+ * compact graph index) rather than by instance. The members are iterated in
+ * order of node index.
+ */
+public class CopyOnWriteNodeSet extends AbstractSet<Node> {
+    
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;  // number of nodes
+    // of a page
+    private static final int WORDS_PER_PAGE = PAGE_SIZE >>> 6;
+    
+    private final CompactGraph compactGraph;  // gives the index of each node
+    private final long[][] pages;       // bits of the members, by page, null
+    // for the pages without members
+    private final int[] flagsPageOwned;  // 1 for the pages only this set
+    // holds, which it may change in place, 0 for the pages it shares
+    private int size = 0;               // number of nodes in the set
+    
+    /**
+     * Constructor. Creates an empty set.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network to which the nodes belong
+     */
+    public CopyOnWriteNodeSet(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        
+        final int nPages = (pCompactGraph.getnNodes() + PAGE_SIZE - 1) >>>
+                PAGE_SHIFT;
+        pages = new long[nPages][];
+        flagsPageOwned = new int[nPages];
+    }
+    
+    /**
+     * Constructor used by fork.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network to which the nodes belong
+     * @param pPages
+     *            pages of the set, all shared
+     * @param pSize
+     *            number of nodes in the set
+     */
+    private CopyOnWriteNodeSet(final CompactGraph pCompactGraph,
+            final long[][] pPages, final int pSize) {
+        compactGraph = pCompactGraph;
+        pages = pPages;
+        flagsPageOwned = new int[pPages.length];
+        size = pSize;
+    }
+    
+    /**
+     * Creates a set with the same members, sharing the pages of this set.
+     * Both sets copy a shared page before changing it, so each can then be
+     * changed without affecting the other.
+     * 
+     * @return the new set
+     */
+    public CopyOnWriteNodeSet fork() {
+        final CopyOnWriteNodeSet aNodeSet =
+                new CopyOnWriteNodeSet(compactGraph, pages.clone(), size);
+        Arrays.fill(flagsPageOwned, 0);
+        
+        return aNodeSet;
+    }
+    
+    /**
+     * Adds a node to the set.
+     * 
+     * @param aNode
+     *            the node to add
+     * @return true if the node was not already in the set
+     */
+    @Override
+    public boolean add(final Node aNode) {
+        return addIndex(compactGraph.indexOf(aNode));
+    }
+    
+    /**
+     * Adds a node to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to add
+     * @return true if the node was not already in the set
+     */
+    public boolean addIndex(final int nodeIndex) {
+        if (containsIndex(nodeIndex)) {
+            return false;
+        }
+        
+        final long[] page = getOwnedPage(nodeIndex >>> PAGE_SHIFT);
+        page[(nodeIndex & (PAGE_SIZE - 1)) >>> 6] |= 1L << nodeIndex;
+        size++;
+        
+        return true;
+    }
+    
+    /**
+     * Adds the nodes of a collection to the set. The pages of a set of the
+     * same network are added a page at a time, and the pages this set does
+     * not have yet are shared rather than copied.
+     * 
+     * @param aCollection
+     *            the nodes to add
+     * @return true if the set changed
+     */
+    @Override
+    public boolean addAll(final Collection<? extends Node> aCollection) {
+        if (!(aCollection instanceof CopyOnWriteNodeSet) ||
+                (((CopyOnWriteNodeSet) aCollection).compactGraph !=
+                compactGraph)) {
+            return super.addAll(aCollection);
+        }
+        
+        final CopyOnWriteNodeSet addedNodeSet =
+                (CopyOnWriteNodeSet) aCollection;
+        final long[][] addedPages = addedNodeSet.pages;
+        final int sizeBefore = size;
+        
+        for (int iPage = 0; iPage < pages.length; iPage++) {
+            final long[] addedPage = addedPages[iPage];
+            
+            if ((addedPage == null) || (addedPage == pages[iPage])) {
+                continue;
+            }
+            
+            /* A page shared this way is no longer owned by either set. */
+            if (pages[iPage] == null) {
+                pages[iPage] = addedPage;
+                flagsPageOwned[iPage] = 0;
+                addedNodeSet.flagsPageOwned[iPage] = 0;
+                size += countMembers(addedPage);
+                continue;
+            }
+            
+            /* Only copies the page if the other page has new members. */
+            for (int iWord = 0; iWord < WORDS_PER_PAGE; iWord++) {
+                final long newBits = addedPage[iWord] & ~pages[iPage][iWord];
+                
+                if (newBits != 0) {
+                    getOwnedPage(iPage)[iWord] |= newBits;
+                    size += Long.bitCount(newBits);
+                }
+            }
+        }
+        
+        return size != sizeBefore;
+    }
+    
+    /**
+     * Checks if a node belongs to the set.
+     * 
+     * @param anObject
+     *            the node to look for
+     * @return true if the node is in the set
+     */
+    @Override
+    public boolean contains(final Object anObject) {
+        if (!(anObject instanceof Node)) {
+            return false;
+        }
+        
+        return containsIndex(compactGraph.indexOf((Node) anObject));
+    }
+    
+    /**
+     * Checks if a node belongs to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to look for, -1 for a node that is not
+     *            part of the network
+     * @return true if the node is in the set
+     */
+    public boolean containsIndex(final int nodeIndex) {
+        if (nodeIndex < 0) {
+            return false;
+        }
+        
+        final long[] page = pages[nodeIndex >>> PAGE_SHIFT];
+        
+        return (page != null) &&
+                ((page[(nodeIndex & (PAGE_SIZE - 1)) >>> 6] &
+                (1L << nodeIndex)) != 0);
+    }
+    
+    /**
+     * Removes a node from the set.
+     * 
+     * @param anObject
+     *            the node to remove
+     * @return true if the node was in the set
+     */
+    @Override
+    public boolean remove(final Object anObject) {
+        if (!contains(anObject)) {
+            return false;
+        }
+        
+        removeIndex(compactGraph.indexOf((Node) anObject));
+        
+        return true;
+    }
+    
+    /**
+     * Removes a node that belongs to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to remove
+     */
+    private void removeIndex(final int nodeIndex) {
+        final long[] page = getOwnedPage(nodeIndex >>> PAGE_SHIFT);
+        page[(nodeIndex & (PAGE_SIZE - 1)) >>> 6] &= ~(1L << nodeIndex);
+        size--;
+    }
+    
+    /**
+     * Empties the set. The pages are dropped rather than cleared, as other
+     * sets may share them.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(pages, null);
+        Arrays.fill(flagsPageOwned, 0);
+        size = 0;
+    }
+    
+    /**
+     * Getter for size.
+     * 
+     * @return the number of nodes in the set
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Iterates over the nodes of the set, in order of node index.
+     * 
+     * @return an iterator over the nodes of the set
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private int nextNodeIndex = findMember(0);
+            private int lastNodeIndex = -1;
+            
+            @Override
+            public boolean hasNext() {
+                return nextNodeIndex >= 0;
+            }
+            
+            @Override
+            public Node next() {
+                if (nextNodeIndex < 0) {
+                    throw new NoSuchElementException();
+                }
+                
+                lastNodeIndex = nextNodeIndex;
+                nextNodeIndex = findMember(lastNodeIndex + 1);
+                
+                return compactGraph.getNode(lastNodeIndex);
+            }
+            
+            @Override
+            public void remove() {
+                if (lastNodeIndex == -1) {
+                    throw new IllegalStateException();
+                }
+                
+                removeIndex(lastNodeIndex);
+                lastNodeIndex = -1;
+            }
+        };
+    }
+    
+    /**
+     * Finds the first member of the set from a node index on.
+     * 
+     * @param fromNodeIndex
+     *            index of the first node to look at
+     * @return the index of the member, -1 if there is none
+     */
+    private int findMember(final int fromNodeIndex) {
+        int iPage = fromNodeIndex >>> PAGE_SHIFT;
+        int iWord = (fromNodeIndex & (PAGE_SIZE - 1)) >>> 6;
+        
+        if (iPage >= pages.length) {
+            return -1;
+        }
+        
+        long word = (pages[iPage] != null)
+                ? pages[iPage][iWord] & (-1L << fromNodeIndex) : 0;
+        
+        while (word == 0) {
+            iWord++;
+            
+            if ((iWord == WORDS_PER_PAGE) || (pages[iPage] == null)) {
+                iWord = 0;
+                
+                do {
+                    iPage++;
+                } while ((iPage < pages.length) && (pages[iPage] == null));
+                
+                if (iPage == pages.length) {
+                    return -1;
+                }
+            }
+            
+            word = pages[iPage][iWord];
+        }
+        
+        return (iPage << PAGE_SHIFT) + (iWord << 6) +
+                Long.numberOfTrailingZeros(word);
+    }
+    
+    /**
+     * Gets a page that this set may change in place, allocating it if it
+     * does not exist yet, or copying it if it is shared.
+     * 
+     * @param iPage
+     *            index of the page
+     * @return the page
+     */
+    private long[] getOwnedPage(final int iPage) {
+        if (flagsPageOwned[iPage] == 0) {
+            pages[iPage] = (pages[iPage] == null) ? new long[WORDS_PER_PAGE]
+                    : pages[iPage].clone();
+            flagsPageOwned[iPage] = 1;
+        }
+        
+        return pages[iPage];
+    }
+    
+    /**
+     * Counts the members of a page.
+     * 
+     * @param page
+     *            the page
+     * @return the number of bits set in the page
+     */
+    private static int countMembers(final long[] page) {
+        int nMembers = 0;
+        
+        for (int iWord = 0; iWord < WORDS_PER_PAGE; iWord++) {
+            nMembers += Long.bitCount(page[iWord]);
+        }
+        
+        return nMembers;
+    }
+    
+}
@@ -1,6 +1,5 @@
 package bidirectionalSearchSimulator;
 
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -18,7 +17,8 @@ public class ErdosRenyi extends Network {
     // between two nodes
     
     /**
-     * Constructor.
+     * Constructor. The network is generated with its own randomly seeded
+     * generator.
      * 
      * @param pNetworkStructurer
      *            network structurer containing node information used by this
@@ -30,7 +30,27 @@ public class ErdosRenyi extends Network {
      */
     public ErdosRenyi(final NetworkStructurer pNetworkStructurer,
             final int pnNodes, final double pLinkProbability) {
-        super(pNetworkStructurer, pnNodes);
+        this(pNetworkStructurer, pnNodes, pLinkProbability,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnNodes
+     *            total number of nodes in the network
+     * @param pLinkProbability
+     *            probability that a link is generated between two nodes
+     * @param pRandomNumberGenerator
+     *            source of randomness used to generate this network
+     */
+    public ErdosRenyi(final NetworkStructurer pNetworkStructurer,
+            final int pnNodes, final double pLinkProbability,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pNetworkStructurer, pnNodes, pRandomNumberGenerator);
         linkProbability = pLinkProbability;
     }
     
@@ -41,44 +61,77 @@ public class ErdosRenyi extends Network {
     public void generateNodes() {
         for (int iNode = 0; iNode < nNodes; iNode++) {
             /* Creates a node. */
-            networkStructurer.getNodeList().add(new Node(iNode));
+            networkStructurer.addNode(new Node(iNode));
             
             /* Generates and stores the node's location. */
-            networkStructurer.getNodeLocationMap().put(iNode,
-                    new double[] {Math.random(), Math.random()});
+            networkStructurer.setNodeLocation(iNode,
+                    randomNumberGenerator.nextDouble(),
+                    randomNumberGenerator.nextDouble());
         }
     }
     
     /**
      * Generates the links for this network. Each link is generated
      * independently of the others based on the link probability.
+     * 
+     * Rather than drawing a random number for every pair of nodes, the pairs
+     * are walked in order and a geometrically distributed number of pairs is
+     * skipped between two links (Batagelj and Brandes, "Efficient generation
+     * of large random networks", 2005). This only does work for the links that
+     * are actually generated, so it runs in O(n + m) instead of O(n^2).
      */
     @Override
     public void generateLinks() {
-        List<Node> nodeList = networkStructurer.getNodeList();
-        final Iterator<Node> it1 = nodeList.iterator();
+        final List<Node> nodeList = networkStructurer.getNodeList();
+        final int nListedNodes = nodeList.size();
+        
+        // Earlier versions of this method examined each pair of nodes twice
+        // (i.e. 'node A and node B' as well as 'node B and node A') with half
+        // the link probability each time, and only linked the pair on the
+        // first success. A pair was therefore linked with probability
+        // 1 - (1 - p/2)^2, which is used here so that the generated networks
+        // keep the same distribution. Each examination succeeded for certain
+        // once p/2 reached 1, so p/2 is capped at 1 (any p above 2 gives a
+        // complete network, as before).
+        final double examinationLinkProbability =
+                Math.min(linkProbability * 0.5, 1);
+        final double pairLinkProbability =
+                1 - ((1 - examinationLinkProbability) *
+                        (1 - examinationLinkProbability));
         
-        while (it1.hasNext()) {
-            Node node1 = it1.next();
-            Iterator<Node> it2 = nodeList.iterator();
+        if (pairLinkProbability <= 0) {
+            return;
+        }
+        
+        final double logOfNoLinkProbability = Math.log(1 - pairLinkProbability);
+        
+        /*
+         * Walks the pairs (iNode1, iNode2) with iNode2 < iNode1 in order.
+         * Each pair is visited at most once, so no node is linked to itself
+         * and no two nodes are linked twice.
+         */
+        int iNode1 = 1;
+        long iNode2 = -1;
+        
+        while (iNode1 < nListedNodes) {
+            /*
+             * Number of pairs without a link before the next link, capped at
+             * the total number of pairs to avoid overflowing.
+             */
+            final double nSkippedPairs =
+                    Math.min(Math.floor(Math.log(1 - randomNumberGenerator
+                            .nextDouble()) / logOfNoLinkProbability),
+                            (double) nListedNodes * nListedNodes);
+            iNode2 += 1 + (long) nSkippedPairs;
+            
+            while ((iNode2 >= iNode1) && (iNode1 < nListedNodes)) {
+                iNode2 -= iNode1;
+                iNode1++;
+            }
             
-            while (it2.hasNext()) {
-                Node node2 = it2.next();
-                
-                // Since this method examines each pair of nodes twice (i.e.
-                // 'node A and node B' as well as 'node B and node A'), it
-                // effectively doubles the probability of generating a link. To
-                // compensate, we divide the link probability in half.
-                //
-                // Also check that we aren't connecting a node to itself and
-                // that node1 isn't already connected to node2 (as node1 to
-                // node2 and node2 to node1 are the same link and should not
-                // be connected twice).
-                if (Math.random() < linkProbability * 0.5 && node1 != node2 &&
-                        !node1.isConnectedTo(node2)) {
-                    new Link(node1.getNodeID(), node2.getNodeID(),
-                            networkStructurer);
-                }
+            if (iNode1 < nListedNodes) {
+                new Link(nodeList.get((int) iNode2).getNodeID(), nodeList.get(
+                        iNode1).getNodeID(), networkStructurer);
             }
         }
     }
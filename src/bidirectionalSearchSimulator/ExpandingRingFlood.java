@@ -0,0 +1,231 @@
+package bidirectionalSearchSimulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ExpandingRingFlood is a class that models the algorithm of searching using
+ * an expanding ring, i.e. floods of growing TTL (iterative deepening).
+ * 
+ * In an expanding ring search, the source floods the network with a TTL of 1,
+ * as in a regular flood (see Flood). If this first ring does not reach the
+ * target node, the source floods the network again with a TTL of 2, then 4,
+ * and so on, doubling the TTL of each ring until a ring finds the target. The
+ * TTL of the search caps the TTL of the rings: the search ends with a failure
+ * once the ring with the TTL of the search has not found the target, or once
+ * a ring has not reached any new node at its edge, as a larger ring would not
+ * reach any more nodes either.
+ * 
+ * Each ring floods the network the same way from the same source, so the
+ * search does not flood it again from scratch: it keeps the levels of the
+ * flood already reached and only floods the levels that the new ring adds.
+ * The messages and time steps of each ring that ends without finding the
+ * target are still counted, as if the ring were sent again from the source:
+ * when a ring ends, the messages passed and the time steps taken so far are
+ * added once more to those of the search.
+ */
+public class ExpandingRingFlood extends Flood {
+    
+    private final int largestRingTtl;  // TTL of the search
+    private int ringTtl;                // TTL of the ring being sent
+    private int nLevels = 0;            // number of levels of the flood reached
+    private int nFloodMessages = 0;     // number of messages passed by the
+    // flood since it left the source, i.e. by the ring being sent
+    private int flagNewNodesReached = 0;  // 1 if the last level of the flood
+    
+    // reached nodes it had not reached before, 0 otherwise
+    
+    /**
+     * Constructor. The search uses its own randomly seeded generator.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            ExpandingRingFlood
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value of the largest ring
+     */
+    public ExpandingRingFlood(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl) {
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            ExpandingRingFlood
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value of the largest ring
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public ExpandingRingFlood(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, pttl,
+                pRandomNumberGenerator);
+        
+        largestRingTtl = pttl;
+        ringTtl = Math.min(1, pttl);
+    }
+    
+    /**
+     * Gets the TTL of the ring sent after a ring, which is twice its TTL, up
+     * to the TTL of the search.
+     * 
+     * @param ringTtl
+     *            the TTL of the ring
+     * @param ttl
+     *            the TTL of the search, i.e. of the largest ring
+     * @return the TTL of the next ring
+     */
+    public static int getNextRingTtl(final int ringTtl, final int ttl) {
+        return (ringTtl > (ttl / 2)) ? ttl : 2 * ringTtl;
+    }
+    
+    /**
+     * Propagates the search queries by one step, i.e. floods the next level of
+     * the network.
+     */
+    @Override
+    public void propagateQueries() {
+        final Query aQuery = queryStateTable.getQuery(0);
+        final int nVisitedNodesBefore = aQuery.getVisitedNodesSet().size();
+        final int nTotalMessagesBefore = nTotalMessages;
+        
+        super.propagateQueries();
+        
+        nLevels++;
+        nFloodMessages += nTotalMessages - nTotalMessagesBefore;
+        flagNewNodesReached =
+                (aQuery.getVisitedNodesSet().size() > nVisitedNodesBefore) ? 1
+                        : 0;
+    }
+    
+    /**
+     * Reveals if the queries of the search move the same way whatever the
+     * targets and the TTL of the search, which they do not, as the rings
+     * sent again depend on them.
+     * 
+     * @return false
+     */
+    @Override
+    public boolean isFirstPassageSearch() {
+        return false;
+    }
+    
+    /**
+     * Runs the search with a flood kernel if no observer follows the search.
+     * The kernel floods the network once, exactly as propagateQueries does,
+     * as far as the largest ring, recording the messages passed by the end of
+     * each level. The flood ends where the last ring of the search ends: at
+     * the level at which it reaches a target or at which it dies out, or once
+     * the TTL of the search has expired. The rings sent before the last one
+     * are then counted from the recorded levels.
+     * 
+     * @return true if the search was run until it ended, false if it must be
+     *         run step by step
+     */
+    @Override
+    public boolean runToTermination() {
+        final Query aQuery = queryStateTable.getQuery(0);
+        final int ttl = queryStateTable.getTtl(0);
+        
+        if (!searchObserversList.isEmpty() || (terminationReason != null) ||
+                !aQuery.isFirstHop() || (ttl != largestRingTtl)) {
+            return false;
+        }
+        
+        final ForkJoinPool forkJoinPool =
+                ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool()
+                        : ForkJoinPool.commonPool();
+        final FloodKernel floodKernel =
+                new FloodKernel(compactGraph, forkJoinPool);
+        floodKernel.recordLevels();
+        final TerminationReason reason =
+                floodKernel.run(queryStateTable, 0, propagatedNodesSet);
+        
+        if (reason == null) {
+            return false;
+        }
+        
+        /* Finds the last ring, the first one to go as far as the flood. */
+        int lastRingTtl = Math.min(1, ttl);
+        while (lastRingTtl < floodKernel.getnLevelsFlooded()) {
+            lastRingTtl = getNextRingTtl(lastRingTtl, ttl);
+        }
+        
+        /*
+         * The last ring ends when its TTL expires if the flood died out
+         * within it, rather than when the TTL of the search expires.
+         */
+        final int nLastRingSteps =
+                Math.min(floodKernel.getnSteps(), lastRingTtl);
+        queryStateTable.setTtl(0, ttl - nLastRingSteps);
+        nTotalTime += nLastRingSteps;
+        nTotalMessages += floodKernel.getnMessages();
+        
+        /* Counts the rings sent before the last one. */
+        for (int aRingTtl = 1; aRingTtl < lastRingTtl; aRingTtl =
+                getNextRingTtl(aRingTtl, ttl)) {
+            nTotalTime += aRingTtl;
+            nTotalMessages += floodKernel.getnMessagesAtLevel(aRingTtl);
+        }
+        
+        ringTtl = lastRingTtl;
+        nLevels = nLastRingSteps;
+        terminate(reason);
+        
+        return true;
+    }
+    
+    /**
+     * Checks to see if the terminating conditions of the search have been
+     * reached. When a ring ends without finding the target, the next ring is
+     * sent from the source: the levels already reached are counted again,
+     * and the flood goes on from the last one.
+     * 
+     * @return 1 if terminating conditions have been met, 0 otherwise
+     */
+    @Override
+    public int checkTerminatingConditions() {
+        /* Checks if the ring found a target or if the largest ring ended. */
+        if (super.checkTerminatingConditions() == 1) {
+            return 1;
+        }
+        
+        if (nLevels == ringTtl) {
+            /* A larger ring would not reach any new node. */
+            if (flagNewNodesReached == 0) {
+                return terminate(TerminationReason.TTL_EXPIRED);
+            }
+            
+            /* Sends the next ring, which first goes through the same levels. */
+            nTotalTime += ringTtl;
+            nTotalMessages += nFloodMessages;
+            ringTtl = getNextRingTtl(ringTtl, largestRingTtl);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Getter for ringTtl.
+     * 
+     * @return the TTL of the ring being sent
+     */
+    public int getRingTtl() {
+        return ringTtl;
+    }
+    
+}
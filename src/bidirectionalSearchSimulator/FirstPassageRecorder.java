@@ -0,0 +1,271 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * FirstPassageRecorder is a class that records, while a search runs, the time
+ * step at which its queries first reach each node of the network, along with
+ * the number of messages passed and of nodes visited at the end of each time
+ * step. It follows the search as a search observer (see
+ * Search.startFirstPassageRecording).
+ * 
+ * The queries of a flood or of a random walk move the same way whatever the
+ * targets and the TTL of the search: the targets and the TTL only decide when
+ * the search ends. The search being recorded therefore has its targets taken
+ * away, so that it runs until its TTL expires, and a single run gives the
+ * result the search would have had with any target and any TTL up to the TTL
+ * of the run. With the targets the search was given, the result is the one
+ * the search would have had if it had been run with that TTL.
+ */
+public class FirstPassageRecorder implements SearchObserver {
+    
+    private static final int NOT_REACHED = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private final CompactGraph compactGraph;  // network being searched
+    private final int[] firstPassageTimes;  // time step at which a query first
+    // reached each node, by node index, NOT_REACHED if no query did
+    private final int[] flagsInitiallyVisited;  // 1 for the nodes visited
+    // before the first time step (i.e. the sources), 0 otherwise
+    private final Set<Node> targetNodesSet;  // targets the search was given
+    private final int initialTtl;       // sum of the TTLs of the queries
+    // before the first time step
+    private int[] nMessagesAtTime = new int[DEFAULT_CAPACITY];  // number of
+    // messages passed by the end of each time step
+    private int[] nNodesVisitedAtTime = new int[DEFAULT_CAPACITY];  // number
+    // of nodes visited by the end of each time step
+    private int[] ttlUsedAtTime = new int[DEFAULT_CAPACITY];  // part of the
+    // TTL used by the end of each time step
+    private int nTimeSteps = 0;         // number of time steps recorded
+    private int nNodesReachedLater = 0;  // number of nodes not initially
+    // visited that a query reached
+    private TerminationReason terminationReason = null;  // reason for which
+    
+    // the search being recorded ended, null while it is running
+    
+    /**
+     * Constructor. Records the state of the search before its first time step
+     * and takes its targets away.
+     * 
+     * @param aSearch
+     *            the search to record, which must not have made a step yet
+     */
+    public FirstPassageRecorder(final Search aSearch) {
+        compactGraph = aSearch.getNetworkStructurer().getCompactGraph();
+        firstPassageTimes = new int[compactGraph.getnNodes()];
+        flagsInitiallyVisited = new int[compactGraph.getnNodes()];
+        targetNodesSet = new HashSet<Node>();
+        Arrays.fill(firstPassageTimes, NOT_REACHED);
+        
+        final QueryStateTable queryStateTable = aSearch.getQueryStateTable();
+        int ttlSum = 0;
+        
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query aQuery = queryStateTable.getQuery(iQuery);
+            
+            final Iterator<Node> itVisitedNodes =
+                    aQuery.getVisitedNodesSet().iterator();
+            while (itVisitedNodes.hasNext()) {
+                final int nodeIndex =
+                        compactGraph.indexOfInstance(itVisitedNodes.next());
+                
+                if (nodeIndex >= 0) {
+                    flagsInitiallyVisited[nodeIndex] = 1;
+                }
+            }
+            
+            targetNodesSet.addAll(aQuery.getTargetNodesSet());
+            aQuery.getTargetNodesSet().clear();
+            ttlSum += queryStateTable.getTtl(iQuery);
+        }
+        
+        initialTtl = ttlSum;
+        nMessagesAtTime[0] = aSearch.getnTotalMessages();
+        nNodesVisitedAtTime[0] = aSearch.calculateNumberOfNodesVisited();
+        ttlUsedAtTime[0] = 0;
+        nTimeSteps = 1;
+        terminationReason = aSearch.getTerminationReason();
+    }
+    
+    /**
+     * Records the nodes reached by the queries during the step, and the
+     * number of messages passed and of nodes visited by the end of it.
+     * 
+     * @param aSearch
+     *            the search that completed a step
+     */
+    @Override
+    public void stepCompleted(final Search aSearch) {
+        final int time = aSearch.getnTotalTime();
+        final QueryStateTable queryStateTable = aSearch.getQueryStateTable();
+        int ttlSum = 0;
+        
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Iterator<Node> itCurrentNodes =
+                    queryStateTable.getQuery(iQuery).getCurrentNodesSet()
+                            .iterator();
+            
+            while (itCurrentNodes.hasNext()) {
+                final int nodeIndex =
+                        compactGraph.indexOfInstance(itCurrentNodes.next());
+                
+                if ((nodeIndex >= 0) &&
+                        (firstPassageTimes[nodeIndex] == NOT_REACHED)) {
+                    firstPassageTimes[nodeIndex] = time;
+                    
+                    if (flagsInitiallyVisited[nodeIndex] == 0) {
+                        nNodesReachedLater++;
+                    }
+                }
+            }
+            
+            ttlSum += queryStateTable.getTtl(iQuery);
+        }
+        
+        if (time >= nMessagesAtTime.length) {
+            final int newCapacity =
+                    Math.max(time + 1, 2 * nMessagesAtTime.length);
+            nMessagesAtTime = Arrays.copyOf(nMessagesAtTime, newCapacity);
+            nNodesVisitedAtTime =
+                    Arrays.copyOf(nNodesVisitedAtTime, newCapacity);
+            ttlUsedAtTime = Arrays.copyOf(ttlUsedAtTime, newCapacity);
+        }
+        
+        nMessagesAtTime[time] = aSearch.getnTotalMessages();
+        nNodesVisitedAtTime[time] = nNodesVisitedAtTime[0] + nNodesReachedLater;
+        ttlUsedAtTime[time] = initialTtl - ttlSum;
+        nTimeSteps = time + 1;
+    }
+    
+    /**
+     * Records the reason for which the search ended.
+     * 
+     * @param aSearch
+     *            the search that ended
+     * @param reason
+     *            the reason for which the search ended
+     */
+    @Override
+    public void searchTerminated(final Search aSearch,
+            final TerminationReason reason) {
+        terminationReason = reason;
+    }
+    
+    /**
+     * Gets the result the search would have had with the targets it was given
+     * and a given TTL.
+     * 
+     * @param ttl
+     *            the TTL, at most the TTL used by the recorded run
+     * @return the result of the search
+     */
+    public SimulationResult getResult(final int ttl) {
+        return getResult(targetNodesSet, ttl);
+    }
+    
+    /**
+     * Gets the result the search would have had with a given set of targets
+     * and a given TTL. The search ends at the first time step at which a query
+     * reaches one of the targets, or at the time step at which the TTL
+     * expires.
+     * 
+     * @param aTargetNodesSet
+     *            the targets
+     * @param ttl
+     *            the TTL, at most the TTL used by the recorded run
+     * @return the result of the search
+     */
+    public SimulationResult getResult(final Set<Node> aTargetNodesSet,
+            final int ttl) {
+        /* A search that ended before its first step ends the same way. */
+        if (nTimeSteps == 1) {
+            return new SimulationResult(0, nMessagesAtTime[0],
+                    nNodesVisitedAtTime[0], terminationReason);
+        }
+        
+        if (ttl > getRecordedTtl()) {
+            throw new IllegalArgumentException("The TTL " + ttl +
+                    " is greater than the TTL used by the recorded run: " +
+                    getRecordedTtl());
+        }
+        
+        /* Finds the time step at which the TTL expires. */
+        int expiryTime = 1;
+        while (ttlUsedAtTime[expiryTime] < ttl) {
+            expiryTime++;
+        }
+        
+        /* Finds the first time step at which a target is reached. */
+        int targetTime = NOT_REACHED;
+        
+        final Iterator<Node> itTargetNodes = aTargetNodesSet.iterator();
+        while (itTargetNodes.hasNext()) {
+            final int nodeIndex =
+                    compactGraph.indexOfInstance(itTargetNodes.next());
+            
+            if ((nodeIndex >= 0) &&
+                    (firstPassageTimes[nodeIndex] != NOT_REACHED) &&
+                    ((targetTime == NOT_REACHED) ||
+                    (firstPassageTimes[nodeIndex] < targetTime))) {
+                targetTime = firstPassageTimes[nodeIndex];
+            }
+        }
+        
+        if ((targetTime != NOT_REACHED) && (targetTime <= expiryTime)) {
+            return new SimulationResult(targetTime,
+                    nMessagesAtTime[targetTime],
+                    nNodesVisitedAtTime[targetTime],
+                    TerminationReason.TARGET_FOUND);
+        }
+        
+        return new SimulationResult(expiryTime, nMessagesAtTime[expiryTime],
+                nNodesVisitedAtTime[expiryTime],
+                TerminationReason.TTL_EXPIRED);
+    }
+    
+    /**
+     * Gets the time step at which the queries first reached a node.
+     * 
+     * @param aNode
+     *            the node
+     * @return the time step, or -1 if no query reached the node
+     */
+    public int getFirstPassageTime(final Node aNode) {
+        final int nodeIndex = compactGraph.indexOfInstance(aNode);
+        
+        return (nodeIndex >= 0) ? firstPassageTimes[nodeIndex] : NOT_REACHED;
+    }
+    
+    /**
+     * Gets the largest TTL for which the recorded run gives a result, which
+     * is the part of the TTL used by the end of the last recorded time step.
+     * 
+     * @return the largest TTL for which the recording gives a result
+     */
+    public int getRecordedTtl() {
+        return ttlUsedAtTime[nTimeSteps - 1];
+    }
+    
+    /**
+     * Getter for targetNodesSet.
+     * 
+     * @return the targets the search was given
+     */
+    public Set<Node> getTargetNodesSet() {
+        return targetNodesSet;
+    }
+    
+    /**
+     * Getter for terminationReason.
+     * 
+     * @return the reason for which the recorded run ended, null while it is
+     *         running
+     */
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+    
+}
@@ -2,9 +2,10 @@ package bidirectionalSearchSimulator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Flood is a class that models the flooding search algorithm.
@@ -20,15 +21,12 @@ import java.util.Set;
 public class Flood extends Search {
     
     private static int nQueries = 1;  // number of queries to use in this search
-    private HashMap<Integer, Integer> ttlMap;  // time-to-live values for each query
-    private HashMap<Integer, Integer> hasPropagatedQuery;  // values indicating
+    protected final Set<Node> propagatedNodesSet;  // nodes that have
     
-    // whether or not a node has participated in the flood by propagating the
-    // search query. The node ID is used to lookup the value; a value of 1 indicates 
-    // that the node has already propagated the search query
+    // participated in the flood by propagating the search query
     
     /**
-     * Constructor.
+     * Constructor. The search uses its own randomly seeded generator.
      * 
      * @param pSearchCoordinator
      *            the search coordinator that created this instance of
@@ -42,19 +40,41 @@ public class Flood extends Search {
      */
     public Flood(final SearchCoordinator pSearchCoordinator,
             final NetworkStructurer pNetworkStructurer, final int pttl) {
-        super(pSearchCoordinator, pNetworkStructurer, nQueries);
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            Flood
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public Flood(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, nQueries,
+                pRandomNumberGenerator);
         
         /*
          * Sets the TTL for each query to the TTL specified in the control panel
          * by the user. This can be changed at a later date to permit varying
          * TTL values.
          */
-        ttlMap = new HashMap<Integer, Integer>();
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            ttlMap.put(iQuery, pttl);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            queryStateTable.setTtl(iQuery, pttl);
         }
         
-        hasPropagatedQuery = new HashMap<Integer, Integer>();
+        propagatedNodesSet = acquireNodeSet();
     }
     
     /**
@@ -66,21 +86,15 @@ public class Flood extends Search {
         // while the "old" set of current nodes are being added to the
         // set of visited nodes
         
-        Set<Node> visitedNodesSetTemp; // stores the set of current nodes
-        // that become "visited" once they propagate the query to all their
-        // neighbours
-        
         /* Does the following for each search query. */
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
             
-            currentNodesSetTemp = new HashSet<Node>();  // uses a temporary
-            // set as changing a set while iterating over it can cause
-            // problems
-            visitedNodesSetTemp = new HashSet<Node>();  // uses a temporary
-            // set so that all the neighbours can be marked as visited only 
-            // after one time step has passed, instead of incrementally within
-            // one time step, which would cause problems
+            currentNodesSetTemp = currentQuery.getNextNodesSet();  // uses a
+            // separate set as changing a set while iterating over it can cause
+            // problems. The nodes it receives are only marked as visited once
+            // the time step has passed, instead of incrementally within one
+            // time step, which would cause problems
             
             final HashMap<Integer, ArrayList<Integer>> currentNodesPrevHopMapTemp =
                     new HashMap<Integer, ArrayList<Integer>>();
@@ -103,18 +117,21 @@ public class Flood extends Search {
                  * Checks that the current node has not already propagated 
                  * the query.
                  */
-                if (!hasPropagatedQuery.containsKey(aCurrentNode.getNodeID())) {
+                if (!propagatedNodesSet.contains(aCurrentNode)) {
                     /*
-                     * Iterates over the links of the current node to find
-                     * all of the node's neighbours.
+                     * Iterates over the neighbours of the current node, in
+                     * the order of their compact graph index.
                      */
-                    final Iterator<Link> itLinksSet =
-                            aCurrentNode.getLinksSet().iterator();
-                    Link aLink;
+                    final int currentNodeIndex =
+                            compactGraph.indexOf(aCurrentNode);
+                    final int currentNodeDegree =
+                            compactGraph.degree(currentNodeIndex);
                     
-                    while (itLinksSet.hasNext()) {
-                        aLink = itLinksSet.next();
-                        final Node aNeighbour = aLink.connectedBy(aCurrentNode);
+                    for (int iNeighbour = 0; iNeighbour < currentNodeDegree;
+                            iNeighbour++) {
+                        final Node aNeighbour =
+                                compactGraph.getNode(compactGraph.neighbour(
+                                        currentNodeIndex, iNeighbour));
                         
                         /*
                          * The reason for checking if the query is doing its
@@ -141,11 +158,8 @@ public class Flood extends Search {
                              */
                             currentNodesSetTemp.add(aNeighbour);
                             
-                            /* Adds the current neighbour to the set of visited nodes. */
-                            visitedNodesSetTemp.add(aNeighbour);
-                            
                             /* Marks the current node as having propagated the query. */
-                            hasPropagatedQuery.put(aCurrentNode.getNodeID(), 1);
+                            propagatedNodesSet.add(aCurrentNode);
                             
                             /*
                              * Stores previous hop information.
@@ -193,13 +207,13 @@ public class Flood extends Search {
              * Updates the query's structures with the temporary ones created
              * locally.
              */
+            currentQuery.getVisitedNodesSet().addAll(currentNodesSetTemp);
             currentQuery.setCurrentNodesSet(currentNodesSetTemp);
-            currentQuery.getVisitedNodesSet().addAll(visitedNodesSetTemp);
             currentQuery.getCurrentNodesPrevHopMap().putAll(
                     currentNodesPrevHopMapTemp);
             
             /*  Decrements TTL. */
-            ttlMap.put(iQuery, ttlMap.get(iQuery) - 1);
+            queryStateTable.decrementTtl(iQuery);
             
             /* Updates the query after it has made its first hop. */
             if (currentQuery.isFirstHop()) {
@@ -213,13 +227,55 @@ public class Flood extends Search {
          */
         nTotalTime++;
         
-        /* Updates the network panel and information display. */
-        searchCoordinator.getNetworkPanel().repaint();
-        searchCoordinator.getControlPanel().getInformationNumberOfTimeLabel()
-                .setText(Integer.toString(nTotalTime));
-        searchCoordinator.getControlPanel()
-                .getInformationNumberOfMessagesLabel().setText(
-                        Integer.toString(nTotalMessages));
+        /* Notifies the observers (e.g. the GUI) that a step was completed. */
+        notifyStepCompleted();
+    }
+    
+    /**
+     * Reveals if the queries of the search move the same way whatever the
+     * targets and the TTL of the search, which they do, as they only decide
+     * when the search ends.
+     * 
+     * @return true
+     */
+    @Override
+    public boolean isFirstPassageSearch() {
+        return true;
+    }
+    
+    /**
+     * Runs the flood with a flood kernel, which floods the network exactly as
+     * propagateQueries does, if no observer follows the search. The time steps
+     * of large floods are split across the threads of the fork-join pool
+     * running the search (e.g. the pool of a batch), or of the common pool if
+     * the search is not run by a pool.
+     * 
+     * @return true if the search was run until it ended, false if it must be
+     *         run step by step
+     */
+    @Override
+    public boolean runToTermination() {
+        if (!searchObserversList.isEmpty() || (terminationReason != null)) {
+            return false;
+        }
+        
+        final ForkJoinPool forkJoinPool =
+                ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool()
+                        : ForkJoinPool.commonPool();
+        final FloodKernel floodKernel =
+                new FloodKernel(compactGraph, forkJoinPool);
+        final TerminationReason reason =
+                floodKernel.run(queryStateTable, 0, propagatedNodesSet);
+        
+        if (reason == null) {
+            return false;
+        }
+        
+        nTotalTime += floodKernel.getnSteps();
+        nTotalMessages += floodKernel.getnMessages();
+        terminate(reason);
+        
+        return true;
     }
     
     /**
@@ -233,8 +289,8 @@ public class Flood extends Search {
         int expiredTTLQueryCounter = 0;  // keeps count of how many queries
         // have had their TTL expire
         
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
             
             /* Checks if any of the current nodes belong to the set of target nodes. */
             final Iterator<Node> itCurrentNodes =
@@ -245,40 +301,24 @@ public class Flood extends Search {
                 aCurrentNode = itCurrentNodes.next();
                 
                 if (currentQuery.getTargetNodesSet().contains(aCurrentNode)) {
-                    searchCoordinator.getControlPanel().getResultLabel()
-                            .setText("SUCCESS! Found a target node.");
-                    
-                    searchResult = 1;
-                    
-                    return 1;
+                    return terminate(TerminationReason.TARGET_FOUND);
                 }
             }
             
             /* Checks if TTL has been reached for each query. */
-            if (ttlMap.get(iQuery) == 0) {
+            if (queryStateTable.getTtl(iQuery) == 0) {
                 expiredTTLQueryCounter++;
             }
         }
         
         /* Ends the search if the TTL for all the queries has expired. */
-        if (expiredTTLQueryCounter == searchQueriesMap.size()) {
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "FAILURE. TTL expired.");
-            
-            return 1;
+        if (expiredTTLQueryCounter == queryStateTable.getnQueries()) {
+            return terminate(TerminationReason.TTL_EXPIRED);
         }
         
         return 0;
         
     }
     
-    /**
-     * Getter for ttlMap.
-     * 
-     * @return the ttlMap
-     */
-    public HashMap<Integer, Integer> getTtlMap() {
-        return ttlMap;
-    }
     
 }
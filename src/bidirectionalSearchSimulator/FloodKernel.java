@@ -0,0 +1,1012 @@
+package bidirectionalSearchSimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * FloodKernel is a class that runs the query of a flood until the search
+ * ends, one level of the flood at a time, over the compact graph of the
+ * network.
+ * 
+ * The flood is the same as the one of Flood.propagateQueries: a current node
+ * that has not propagated the query yet sends it to each of its neighbours,
+ * except for the neighbours that sent it the query during the previous time
+ * step, and becomes a propagated node if it sent at least one message. Every
+ * delivery is counted as a message, including the deliveries to nodes that
+ * had already received the query, so the kernel ends the search at the same
+ * step, for the same reason and with the same number of messages and visited
+ * nodes.
+ * 
+ * Since a node that propagates the query sends it to all of its neighbours
+ * but the ones that sent it the query, the previous hops of a node are exactly
+ * its neighbours that sent the query during the previous time step, and the
+ * number of messages it sends is its degree minus the number of those
+ * neighbours. The kernel therefore keeps the senders of the current and
+ * previous time steps, the propagated nodes and the visited nodes as bitsets,
+ * and the number of previous hops of each node of the frontier (the current
+ * nodes that have not propagated the query) in an int array, instead of the
+ * map of previous hops.
+ * 
+ * The frontier of the next time step is found in one of two directions,
+ * whichever reads the fewest neighbours. Top-down, the senders go through
+ * their neighbours and count themselves as previous hops of the neighbours
+ * that have not propagated the query. Bottom-up, each node that has not
+ * propagated the query counts its neighbours that are senders. On networks
+ * with hubs, the senders soon have more neighbours than the nodes left, and
+ * going bottom-up only reads the neighbours of those nodes.
+ * 
+ * When a time step reads enough neighbours, its phases are split into chunks
+ * run by the fork-join pool given to the kernel. Each chunk writes the nodes
+ * it keeps in its own part of the arrays, and its message count in its own
+ * counter, and the chunks are then put together in chunk order. Top-down, the
+ * chunks claim the nodes of the next frontier by setting their bit with an
+ * atomic operation, and the previous hops of the claimed nodes are counted
+ * afterwards, bottom-up. The message count, the visited nodes and the nodes
+ * of the frontier only depend on the network, so the result of the search
+ * does not depend on the number of threads.
+ * 
+ * As with RandomWalkKernel, nothing is notified between steps, so the kernel
+ * is only used for searches that no observer (e.g. the GUI) follows. Once the
+ * search has ended, the state of the query (current nodes, visited nodes, TTL
+ * and the previous hops of the current nodes) and the set of propagated nodes
+ * are written back, so the search looks as if it had been run step by step.
+ * 
+ * The kernel also builds the flood trees kept by FloodTreeCache, by running a
+ * flood without targets and recording the level at which each node first
+ * receives the query.
+ */
+public class FloodKernel {
+    
+    private static final int PARALLEL_THRESHOLD = 1 << 16;  // number of
+    // neighbours a phase must read to be split into chunks
+    private static final int MIN_CHUNK_SIZE = 1 << 12;  // number of
+    // neighbours read by a chunk, at least
+    private static final int COUNTER_STRIDE = 8;  // spacing of the counters
+    // of the chunks, so that each chunk counts on its own cache line
+    private static final int SEND = 0;
+    private static final int EXPAND_TOP_DOWN = 1;
+    private static final int CLAIM_TOP_DOWN = 2;
+    private static final int COUNT_PREV_HOPS = 3;
+    private static final int EXPAND_BOTTOM_UP = 4;
+    
+    private final CompactGraph compactGraph;  // network being searched
+    private final int nNodes;           // number of nodes in the network
+    private final int[] offsets;        // start of the neighbour list of each
+    // node (see CompactGraph)
+    private final int[] neighbours;     // neighbour indices of all the nodes
+    private final ForkJoinPool forkJoinPool;  // threads running the chunks of
+    // a time step, null to run the flood on the calling thread only
+    private final int maxChunks;        // largest number of chunks of a
+    // phase, 1 if the flood is run on the calling thread only
+    private int nSteps = 0;             // number of time steps run
+    private int nLevelsFlooded = 0;     // number of levels flooded by the
+    // last flood run, which may be fewer than its time steps
+    private int nMessages = 0;          // number of messages passed during
+    // the steps run by the kernel
+    private int flagTargetFound = 0;    // 1 if a target received the query
+    private int currentLevel = 0;       // level of the flood being run
+    private long unpropagatedDegree = 0;  // number of neighbours of the
+    // nodes that have not propagated the query
+    private int[] firstPassageLevels = null;  // level at which each node first
+    // received the query, only kept while a flood tree is built
+    private int[] nMessagesAtLevel = null;  // number of messages passed by the
+    // end of each level, only kept while a flood tree is built or if the
+    // levels of the floods run are recorded (see recordLevels)
+    
+    /*
+     * Senders of the previous and current time steps with their bitsets,
+     * nodes that have propagated the query and nodes that have received it.
+     */
+    private int[] previousSenders;
+    private AtomicLongArray previousSenderBits;
+    private int nPreviousSenders;
+    private int[] senders;
+    private AtomicLongArray senderBits;
+    private int nSenders;
+    private AtomicLongArray propagatedBits;
+    private AtomicLongArray visitedBits;
+    
+    /*
+     * Frontier of the current and next time steps, with the number of
+     * previous hops of each node of the frontier (0 for the other nodes), and
+     * the nodes of the next frontier claimed by the chunks.
+     */
+    private int[] frontier;
+    private int nFrontier;
+    private int[] nextFrontier;
+    private int nNextFrontier;
+    private int[] nPrevHops;
+    private AtomicLongArray claimedBits;
+    
+    /*
+     * Nodes that have not propagated the query, only listed once the flood
+     * first goes bottom-up.
+     */
+    private int[] unpropagatedNodes;
+    private int nUnpropagatedNodes;
+    
+    /*
+     * Bounds of the chunks of the current phase and what each chunk found.
+     */
+    private final int[] chunkBounds;
+    private int nPlannedChunks;
+    private final int[] chunkCounts;
+    private final int[] chunkNewCounts;
+    private final long[] chunkCounters;
+    private final int[][] chunkFrontiers;
+    
+    /**
+     * Constructor. The flood is run on the calling thread only.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     */
+    public FloodKernel(final CompactGraph pCompactGraph) {
+        this(pCompactGraph, null);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     * @param pForkJoinPool
+     *            threads running the chunks of a time step, null to run the
+     *            flood on the calling thread only
+     */
+    public FloodKernel(final CompactGraph pCompactGraph,
+            final ForkJoinPool pForkJoinPool) {
+        compactGraph = pCompactGraph;
+        nNodes = pCompactGraph.getnNodes();
+        offsets = pCompactGraph.getOffsets();
+        neighbours = pCompactGraph.getNeighbours();
+        forkJoinPool = pForkJoinPool;
+        maxChunks = ((pForkJoinPool == null) ||
+                (pForkJoinPool.getParallelism() == 1)) ? 1
+                : 4 * pForkJoinPool.getParallelism();
+        
+        chunkBounds = new int[maxChunks + 1];
+        chunkCounts = new int[maxChunks];
+        chunkNewCounts = new int[maxChunks];
+        chunkCounters = new long[maxChunks * COUNTER_STRIDE];
+        chunkFrontiers = new int[maxChunks][];
+    }
+    
+    /**
+     * Runs a flood until its query reaches one of its targets or until its TTL
+     * has expired.
+     * 
+     * The kernel can only run a flood that has not made its first hop yet,
+     * that has a single current node (its source) and a TTL greater than 0,
+     * whose set of current nodes is a SparseNodeSet and whose other sets of
+     * nodes are StampedNodeSets of the network being searched. Other floods
+     * are left untouched.
+     * 
+     * @param queryStateTable
+     *            queries of the search, with their TTL
+     * @param iQuery
+     *            index of the query of the flood
+     * @param propagatedNodesSet
+     *            nodes that have propagated the query
+     * @return the reason for which the search ended, or null if the kernel
+     *         cannot run the search
+     */
+    public TerminationReason run(final QueryStateTable queryStateTable,
+            final int iQuery, final Set<Node> propagatedNodesSet) {
+        final Query aQuery = queryStateTable.getQuery(iQuery);
+        int ttl = queryStateTable.getTtl(iQuery);
+        
+        /* Checks that the kernel can run the search. */
+        if (!aQuery.isFirstHop() || (ttl <= 0) ||
+                !isStampedSet(aQuery.getVisitedNodesSet()) ||
+                !isSparseSet(aQuery.getCurrentNodesSet()) ||
+                !isStampedSet(propagatedNodesSet) ||
+                (aQuery.getCurrentNodesSet().size() != 1) ||
+                !propagatedNodesSet.isEmpty()) {
+            return null;
+        }
+        
+        final int[] targetIndices =
+                compactGraph.indicesOf(aQuery.getTargetNodesSet());
+        
+        startFlood(((SparseNodeSet) aQuery.getCurrentNodesSet())
+                .getMemberIndex(0));
+        final int nLevels = floodLevels(targetIndices, ttl);
+        nLevelsFlooded = nLevels;
+        ttl -= nLevels;
+        nSteps += nLevels;
+        
+        /*
+         * Once the frontier is empty, the flood sends no more messages and
+         * the remaining time steps leave no current nodes.
+         */
+        final int flagFloodDied = ((flagTargetFound == 0) && (ttl > 0)) ? 1
+                : 0;
+        
+        if (flagFloodDied == 1) {
+            nSteps += ttl;
+            ttl = 0;
+        }
+        
+        /*
+         * Writes the state of the flood back into the query. The senders are
+         * sorted first, so that the current nodes are added in the same order
+         * whatever the number of threads.
+         */
+        final SparseNodeSet currentNodesSet =
+                (SparseNodeSet) aQuery.getCurrentNodesSet();
+        final HashMap<Integer, ArrayList<Integer>> currentNodesPrevHopMap =
+                aQuery.getCurrentNodesPrevHopMap();
+        currentNodesSet.clear();
+        
+        if (flagFloodDied == 0) {
+            Arrays.sort(senders, 0, nSenders);
+            
+            for (int iSender = 0; iSender < nSenders; iSender++) {
+                final int currentNode = senders[iSender];
+                final int lastNeighbour = offsets[currentNode + 1];
+                
+                for (int iNeighbour = offsets[currentNode]; iNeighbour < lastNeighbour; iNeighbour++) {
+                    final int aNeighbour = neighbours[iNeighbour];
+                    
+                    if (!isBitSet(previousSenderBits, aNeighbour)) {
+                        currentNodesSet.addIndex(aNeighbour);
+                    }
+                }
+            }
+            
+            for (int iMember = 0; iMember < currentNodesSet.size(); iMember++) {
+                final int aNode = currentNodesSet.getMemberIndex(iMember);
+                final ArrayList<Integer> prevHopArrayList =
+                        new ArrayList<Integer>();
+                final int lastNeighbour = offsets[aNode + 1];
+                
+                for (int iNeighbour = offsets[aNode]; iNeighbour < lastNeighbour; iNeighbour++) {
+                    if (isBitSet(senderBits, neighbours[iNeighbour])) {
+                        prevHopArrayList.add(compactGraph
+                                .getNodeID(neighbours[iNeighbour]));
+                    }
+                }
+                
+                currentNodesPrevHopMap.put(compactGraph.getNodeID(aNode),
+                        prevHopArrayList);
+            }
+        }
+        
+        addMembers(visitedBits, (StampedNodeSet) aQuery.getVisitedNodesSet());
+        addMembers(propagatedBits, (StampedNodeSet) propagatedNodesSet);
+        
+        queryStateTable.setTtl(iQuery, ttl);
+        aQuery.setFirstHop(false);
+        
+        if (flagTargetFound == 1) {
+            return TerminationReason.TARGET_FOUND;
+        }
+        
+        return TerminationReason.TTL_EXPIRED;
+    }
+    
+    /**
+     * Builds the flood tree of a source, i.e. the level at which a flood from
+     * the source first reaches each node, by running the flood without
+     * targets until it dies out or for a number of levels, whichever comes
+     * first.
+     * 
+     * @param sourceIndex
+     *            index of the source of the flood
+     * @param maxLevels
+     *            largest number of levels to run, greater than 0
+     * @return the flood tree of the source
+     */
+    public FloodTree buildFloodTree(final int sourceIndex,
+            final int maxLevels) {
+        firstPassageLevels = new int[nNodes];
+        Arrays.fill(firstPassageLevels, FloodTree.NOT_REACHED);
+        nMessagesAtLevel = new int[16];
+        final int nMessagesBefore = nMessages;
+        
+        startFlood(sourceIndex);
+        final int nLevels = floodLevels(new int[0], maxLevels);
+        nSteps += nLevels;
+        
+        for (int level = 1; level <= nLevels; level++) {
+            nMessagesAtLevel[level] -= nMessagesBefore;
+        }
+        
+        final FloodTree aFloodTree =
+                new FloodTree(sourceIndex, firstPassageLevels,
+                        Arrays.copyOf(nMessagesAtLevel, nLevels + 1), nLevels,
+                        (nFrontier == 0) ? 1 : 0);
+        firstPassageLevels = null;
+        nMessagesAtLevel = null;
+        
+        return aFloodTree;
+    }
+    
+    /**
+     * Sets up the flood of a query that has not left its source yet.
+     * 
+     * @param sourceIndex
+     *            index of the source of the flood
+     */
+    private void startFlood(final int sourceIndex) {
+        final int nWords = (nNodes + 63) >>> 6;
+        
+        previousSenders = new int[nNodes];
+        previousSenderBits = new AtomicLongArray(nWords);
+        nPreviousSenders = 0;
+        senders = new int[nNodes];
+        senderBits = new AtomicLongArray(nWords);
+        nSenders = 0;
+        propagatedBits = new AtomicLongArray(nWords);
+        visitedBits = new AtomicLongArray(nWords);
+        
+        frontier = new int[nNodes];
+        nextFrontier = new int[nNodes];
+        nPrevHops = new int[nNodes];
+        claimedBits = new AtomicLongArray(nWords);
+        frontier[0] = sourceIndex;
+        nFrontier = 1;
+        
+        unpropagatedNodes = null;
+        nUnpropagatedNodes = 0;
+        unpropagatedDegree = offsets[nNodes];
+    }
+    
+    /**
+     * Floods the network one level (i.e. one time step) at a time, until a
+     * target receives the query, until the frontier is empty or for a number
+     * of levels, whichever comes first.
+     * 
+     * @param targetIndices
+     *            indices of the targets of the query
+     * @param maxLevels
+     *            largest number of levels to run
+     * @return the number of levels run
+     */
+    private int floodLevels(final int[] targetIndices, final int maxLevels) {
+        int nLevels = 0;
+        flagTargetFound = 0;
+        
+        do {
+            currentLevel = nLevels + 1;
+            
+            /* The senders of the current time step become the previous ones. */
+            for (int iSender = 0; iSender < nPreviousSenders; iSender++) {
+                clearBit(previousSenderBits, previousSenders[iSender]);
+            }
+            
+            final int[] sendersTemp = previousSenders;
+            previousSenders = senders;
+            senders = sendersTemp;
+            nPreviousSenders = nSenders;
+            
+            final AtomicLongArray senderBitsTemp = previousSenderBits;
+            previousSenderBits = senderBits;
+            senderBits = senderBitsTemp;
+            
+            /*
+             * Each node of the frontier sends the query to its neighbours
+             * that are not previous hops.
+             */
+            planChunks(null, nFrontier, nFrontier);
+            final int nChunks = runChunks(SEND);
+            long sendersDegree = 0;
+            nSenders = 0;
+            
+            for (int iChunk = 0; iChunk < nChunks; iChunk++) {
+                nSenders +=
+                        gather(senders, chunkBounds[iChunk], nSenders,
+                                chunkCounts[iChunk]);
+                nMessages += (int) chunkCounters[iChunk * COUNTER_STRIDE];
+                sendersDegree += chunkCounters[iChunk * COUNTER_STRIDE + 1];
+            }
+            
+            unpropagatedDegree -= sendersDegree;
+            
+            /*
+             * Finds the nodes that receive the query and have not propagated
+             * it, which make up the next frontier.
+             */
+            if (sendersDegree <= unpropagatedDegree) {
+                expandTopDown(sendersDegree);
+            }
+            else {
+                expandBottomUp(unpropagatedDegree);
+            }
+            
+            final int[] frontierTemp = frontier;
+            frontier = nextFrontier;
+            nextFrontier = frontierTemp;
+            nFrontier = nNextFrontier;
+            
+            /* Checks if a target received the query. */
+            for (int iTarget = 0; iTarget < targetIndices.length; iTarget++) {
+                if (receivesQuery(targetIndices[iTarget])) {
+                    flagTargetFound = 1;
+                }
+            }
+            
+            nLevels++;
+            
+            if (nMessagesAtLevel != null) {
+                recordLevel(nLevels);
+            }
+        } while ((flagTargetFound == 0) && (nLevels < maxLevels) &&
+                (nFrontier > 0));
+        
+        return nLevels;
+    }
+    
+    /**
+     * Makes the kernel record the number of messages passed by the end of
+     * each level of the flood it runs next (see getnMessagesAtLevel).
+     */
+    public void recordLevels() {
+        nMessagesAtLevel = new int[16];
+    }
+    
+    /**
+     * Records the number of messages passed by the end of a level of a flood
+     * tree being built or of a flood whose levels are recorded.
+     * 
+     * @param level
+     *            the level
+     */
+    private void recordLevel(final int level) {
+        if (level >= nMessagesAtLevel.length) {
+            nMessagesAtLevel =
+                    Arrays.copyOf(nMessagesAtLevel,
+                            2 * nMessagesAtLevel.length);
+        }
+        
+        nMessagesAtLevel[level] = nMessages;
+    }
+    
+    /**
+     * Marks a node that receives the query as visited. If a flood tree is
+     * being built, the level is recorded the first time the node receives the
+     * query, by the chunk that set its bit.
+     * 
+     * @param aNode
+     *            index of the node
+     */
+    private void markVisited(final int aNode) {
+        if (setBit(visitedBits, aNode) && (firstPassageLevels != null)) {
+            firstPassageLevels[aNode] = currentLevel;
+        }
+    }
+    
+    /**
+     * Finds the next frontier top-down, from the senders. On a single chunk,
+     * the senders count themselves as previous hops of their neighbours as
+     * they go. On several chunks, the chunks claim the nodes of the next
+     * frontier, whose previous hops are then counted.
+     * 
+     * @param sendersDegree
+     *            number of neighbours of the senders
+     */
+    private void expandTopDown(final long sendersDegree) {
+        planChunks(senders, nSenders, sendersDegree);
+        
+        if (nPlannedChunks == 1) {
+            runChunks(EXPAND_TOP_DOWN);
+            nNextFrontier = chunkCounts[0];
+            return;
+        }
+        
+        final int nChunks = runChunks(CLAIM_TOP_DOWN);
+        nNextFrontier = 0;
+        
+        for (int iChunk = 0; iChunk < nChunks; iChunk++) {
+            System.arraycopy(chunkFrontiers[iChunk], 0, nextFrontier,
+                    nNextFrontier, chunkCounts[iChunk]);
+            nNextFrontier += chunkCounts[iChunk];
+        }
+        
+        planChunks(null, nNextFrontier, sendersDegree);
+        runChunks(COUNT_PREV_HOPS);
+    }
+    
+    /**
+     * Finds the next frontier bottom-up, from the nodes that have not
+     * propagated the query, which are listed the first time.
+     * 
+     * @param unpropagatedDegree
+     *            number of neighbours of the nodes that have not propagated
+     *            the query
+     */
+    private void expandBottomUp(final long unpropagatedDegree) {
+        if (unpropagatedNodes == null) {
+            unpropagatedNodes = new int[nNodes];
+            
+            for (int aNode = 0; aNode < nNodes; aNode++) {
+                if (!isBitSet(propagatedBits, aNode)) {
+                    unpropagatedNodes[nUnpropagatedNodes++] = aNode;
+                }
+            }
+        }
+        
+        planChunks(null, nUnpropagatedNodes, unpropagatedDegree);
+        final int nChunks = runChunks(EXPAND_BOTTOM_UP);
+        int nStillUnpropagatedNodes = 0;
+        nNextFrontier = 0;
+        
+        for (int iChunk = 0; iChunk < nChunks; iChunk++) {
+            nStillUnpropagatedNodes +=
+                    gather(unpropagatedNodes, chunkBounds[iChunk],
+                            nStillUnpropagatedNodes, chunkCounts[iChunk]);
+            nNextFrontier +=
+                    gather(nextFrontier, chunkBounds[iChunk], nNextFrontier,
+                            chunkNewCounts[iChunk]);
+        }
+        
+        nUnpropagatedNodes = nStillUnpropagatedNodes;
+    }
+    
+    /**
+     * Runs one chunk of a phase of a time step, over the items between two
+     * bounds. The nodes a chunk keeps are written from the first bound of the
+     * chunk on (or in its own frontier when claiming nodes top-down), and its
+     * counts in its own counters.
+     * 
+     * @param phase
+     *            the phase to run
+     * @param iChunk
+     *            index of the chunk
+     * @param firstItem
+     *            index of the first item of the chunk
+     * @param endItem
+     *            index following the last item of the chunk
+     */
+    private void runChunk(final int phase, final int iChunk,
+            final int firstItem, final int endItem) {
+        int nKeptNodes = 0;
+        int nNewNodes = 0;
+        
+        switch (phase) {
+            case SEND:
+                long nChunkMessages = 0;
+                long chunkSendersDegree = 0;
+                
+                for (int iFrontier = firstItem; iFrontier < endItem; iFrontier++) {
+                    final int currentNode = frontier[iFrontier];
+                    final int degree =
+                            offsets[currentNode + 1] - offsets[currentNode];
+                    final int nSent = degree - nPrevHops[currentNode];
+                    nPrevHops[currentNode] = 0;
+                    
+                    if (nSent > 0) {
+                        senders[firstItem + nKeptNodes++] = currentNode;
+                        setBit(senderBits, currentNode);
+                        setBit(propagatedBits, currentNode);
+                        nChunkMessages += nSent;
+                        chunkSendersDegree += degree;
+                    }
+                }
+                
+                chunkCounters[iChunk * COUNTER_STRIDE] = nChunkMessages;
+                chunkCounters[iChunk * COUNTER_STRIDE + 1] =
+                        chunkSendersDegree;
+                break;
+            
+            case EXPAND_TOP_DOWN:
+                for (int iSender = firstItem; iSender < endItem; iSender++) {
+                    final int currentNode = senders[iSender];
+                    final int lastNeighbour = offsets[currentNode + 1];
+                    
+                    for (int iNeighbour = offsets[currentNode]; iNeighbour < lastNeighbour; iNeighbour++) {
+                        final int aNeighbour = neighbours[iNeighbour];
+                        
+                        if (!isBitSet(previousSenderBits, aNeighbour)) {
+                            markVisited(aNeighbour);
+                            
+                            if (!isBitSet(propagatedBits, aNeighbour) &&
+                                    (nPrevHops[aNeighbour]++ == 0)) {
+                                nextFrontier[firstItem + nKeptNodes++] =
+                                        aNeighbour;
+                            }
+                        }
+                    }
+                }
+                break;
+            
+            case CLAIM_TOP_DOWN:
+                int[] chunkFrontier = chunkFrontiers[iChunk];
+                if (chunkFrontier == null) {
+                    chunkFrontier = new int[MIN_CHUNK_SIZE];
+                }
+                
+                for (int iSender = firstItem; iSender < endItem; iSender++) {
+                    final int currentNode = senders[iSender];
+                    final int lastNeighbour = offsets[currentNode + 1];
+                    
+                    for (int iNeighbour = offsets[currentNode]; iNeighbour < lastNeighbour; iNeighbour++) {
+                        final int aNeighbour = neighbours[iNeighbour];
+                        
+                        if (!isBitSet(previousSenderBits, aNeighbour)) {
+                            markVisited(aNeighbour);
+                            
+                            if (!isBitSet(propagatedBits, aNeighbour) &&
+                                    setBit(claimedBits, aNeighbour)) {
+                                if (nKeptNodes == chunkFrontier.length) {
+                                    chunkFrontier =
+                                            Arrays.copyOf(chunkFrontier,
+                                                    2 * nKeptNodes);
+                                }
+                                
+                                chunkFrontier[nKeptNodes++] = aNeighbour;
+                            }
+                        }
+                    }
+                }
+                
+                chunkFrontiers[iChunk] = chunkFrontier;
+                break;
+            
+            case COUNT_PREV_HOPS:
+                for (int iFrontier = firstItem; iFrontier < endItem; iFrontier++) {
+                    final int aNode = nextFrontier[iFrontier];
+                    nPrevHops[aNode] = countSenderNeighbours(aNode);
+                    clearBit(claimedBits, aNode);
+                }
+                break;
+            
+            case EXPAND_BOTTOM_UP:
+                for (int iNode = firstItem; iNode < endItem; iNode++) {
+                    final int aNode = unpropagatedNodes[iNode];
+                    
+                    if (!isBitSet(propagatedBits, aNode)) {
+                        unpropagatedNodes[firstItem + nKeptNodes++] = aNode;
+                        
+                        final int nNodePrevHops = countSenderNeighbours(aNode);
+                        
+                        if (nNodePrevHops > 0) {
+                            nPrevHops[aNode] = nNodePrevHops;
+                            nextFrontier[firstItem + nNewNodes++] = aNode;
+                            markVisited(aNode);
+                        }
+                    }
+                }
+                break;
+            
+            default:
+                break;
+        }
+        
+        chunkCounts[iChunk] = nKeptNodes;
+        chunkNewCounts[iChunk] = nNewNodes;
+    }
+    
+    /**
+     * Splits the items of a phase into chunks. A phase is only split if it
+     * reads enough neighbours and if the kernel has a pool with several
+     * threads. Items that are senders are split so that each chunk reads
+     * about the same number of neighbours, as hubs would otherwise leave a
+     * few chunks with most of the work; other items are split evenly.
+     * 
+     * @param weightedItems
+     *            the senders to split by number of neighbours, or null to
+     *            split the items evenly
+     * @param nItems
+     *            number of items
+     * @param nReads
+     *            number of neighbours read by the phase
+     */
+    private void planChunks(final int[] weightedItems, final int nItems,
+            final long nReads) {
+        int nChunks = 1;
+        
+        if ((maxChunks > 1) && (nReads >= PARALLEL_THRESHOLD)) {
+            nChunks = (int) Math.min(Math.min(maxChunks,
+                    nReads / MIN_CHUNK_SIZE), Math.max(1, nItems));
+        }
+        
+        chunkBounds[0] = 0;
+        int iChunk = 1;
+        
+        if ((weightedItems != null) && (nChunks > 1)) {
+            long nChunkReads = 0;
+            
+            for (int iItem = 0; (iItem < nItems) && (iChunk < nChunks); iItem++) {
+                final int aNode = weightedItems[iItem];
+                nChunkReads += offsets[aNode + 1] - offsets[aNode];
+                
+                if (nChunkReads * nChunks >= nReads * iChunk) {
+                    chunkBounds[iChunk++] = iItem + 1;
+                }
+            }
+        }
+        else {
+            for (; iChunk < nChunks; iChunk++) {
+                chunkBounds[iChunk] = (int) ((long) nItems * iChunk / nChunks);
+            }
+        }
+        
+        for (; iChunk <= nChunks; iChunk++) {
+            chunkBounds[iChunk] = nItems;
+        }
+        
+        nPlannedChunks = nChunks;
+    }
+    
+    /**
+     * Runs a phase over the chunks planned by planChunks, in the fork-join
+     * pool if there are several chunks.
+     * 
+     * @param phase
+     *            the phase to run
+     * @return the number of chunks
+     */
+    private int runChunks(final int phase) {
+        final int nChunks = nPlannedChunks;
+        
+        if (nChunks == 1) {
+            runChunk(phase, 0, chunkBounds[0], chunkBounds[1]);
+            return 1;
+        }
+        
+        final List<RecursiveAction> chunksList =
+                new ArrayList<RecursiveAction>(nChunks);
+        
+        for (int iChunk = 0; iChunk < nChunks; iChunk++) {
+            final int chunk = iChunk;
+            final int firstItem = chunkBounds[iChunk];
+            final int endItem = chunkBounds[iChunk + 1];
+            
+            chunksList.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+                
+                @Override
+                protected void compute() {
+                    runChunk(phase, chunk, firstItem, endItem);
+                }
+            });
+        }
+        
+        /*
+         * A flood run by a thread of the pool (e.g. in a batch) lets the
+         * chunks be taken by the other threads while it runs its own.
+         */
+        if (ForkJoinTask.getPool() == forkJoinPool) {
+            ForkJoinTask.invokeAll(chunksList);
+        }
+        else {
+            forkJoinPool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+                
+                @Override
+                protected void compute() {
+                    invokeAll(chunksList);
+                }
+            });
+        }
+        
+        return nChunks;
+    }
+    
+    /**
+     * Moves the nodes kept by a chunk, written from the first bound of the
+     * chunk on, right after the nodes kept by the previous chunks.
+     * 
+     * @param nodes
+     *            array holding the nodes
+     * @param firstItem
+     *            index of the first item of the chunk
+     * @param nGatheredNodes
+     *            number of nodes kept by the previous chunks
+     * @param nChunkNodes
+     *            number of nodes kept by the chunk
+     * @return the number of nodes kept by the chunk
+     */
+    private int gather(final int[] nodes, final int firstItem,
+            final int nGatheredNodes, final int nChunkNodes) {
+        if (firstItem != nGatheredNodes) {
+            System.arraycopy(nodes, firstItem, nodes, nGatheredNodes,
+                    nChunkNodes);
+        }
+        
+        return nChunkNodes;
+    }
+    
+    /**
+     * Counts the neighbours of a node that sent the query during the last
+     * time step, i.e. its previous hops.
+     * 
+     * @param aNode
+     *            index of the node
+     * @return the number of neighbours of the node that are senders
+     */
+    private int countSenderNeighbours(final int aNode) {
+        final int lastNeighbour = offsets[aNode + 1];
+        int nSenderNeighbours = 0;
+        
+        for (int iNeighbour = offsets[aNode]; iNeighbour < lastNeighbour; iNeighbour++) {
+            if (isBitSet(senderBits, neighbours[iNeighbour])) {
+                nSenderNeighbours++;
+            }
+        }
+        
+        return nSenderNeighbours;
+    }
+    
+    /**
+     * Checks if a node received the query during the last time step. A node
+     * that has not propagated the query received it if it is part of the next
+     * frontier, while a node that has propagated the query (i.e. the source)
+     * received it if one of its neighbours sent it and it did not send it to
+     * that neighbour during the previous time step.
+     * 
+     * @param aNode
+     *            index of the node
+     * @return true if the node received the query
+     */
+    private boolean receivesQuery(final int aNode) {
+        if (!isBitSet(propagatedBits, aNode)) {
+            return nPrevHops[aNode] > 0;
+        }
+        
+        if (isBitSet(previousSenderBits, aNode)) {
+            return false;
+        }
+        
+        return countSenderNeighbours(aNode) > 0;
+    }
+    
+    /**
+     * Adds the nodes whose bit is set in a bitset to a set of nodes, in order
+     * of node index.
+     * 
+     * @param bits
+     *            the bitset
+     * @param aNodeSet
+     *            the set to add the nodes to
+     */
+    private void addMembers(final AtomicLongArray bits,
+            final StampedNodeSet aNodeSet) {
+        for (int iWord = 0; iWord < bits.length(); iWord++) {
+            long word = bits.get(iWord);
+            
+            while (word != 0) {
+                aNodeSet.addIndex((iWord << 6) +
+                        Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+    
+    /**
+     * Checks if the bit of a node is set in a bitset.
+     * 
+     * @param bits
+     *            the bitset
+     * @param nodeIndex
+     *            index of the node
+     * @return true if the bit of the node is set
+     */
+    private static boolean isBitSet(final AtomicLongArray bits,
+            final int nodeIndex) {
+        return (bits.get(nodeIndex >>> 6) & (1L << nodeIndex)) != 0;
+    }
+    
+    /**
+     * Sets the bit of a node in a bitset. The bit is set atomically, as the
+     * chunks of a phase may set bits of the same word.
+     * 
+     * @param bits
+     *            the bitset
+     * @param nodeIndex
+     *            index of the node
+     * @return true if the bit was not set before
+     */
+    private static boolean setBit(final AtomicLongArray bits,
+            final int nodeIndex) {
+        final int iWord = nodeIndex >>> 6;
+        final long mask = 1L << nodeIndex;
+        long word;
+        
+        do {
+            word = bits.get(iWord);
+            
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(iWord, word, word | mask));
+        
+        return true;
+    }
+    
+    /**
+     * Clears the bit of a node in a bitset, atomically.
+     * 
+     * @param bits
+     *            the bitset
+     * @param nodeIndex
+     *            index of the node
+     */
+    private static void clearBit(final AtomicLongArray bits,
+            final int nodeIndex) {
+        final int iWord = nodeIndex >>> 6;
+        final long mask = 1L << nodeIndex;
+        long word;
+        
+        do {
+            word = bits.get(iWord);
+        } while (!bits.compareAndSet(iWord, word, word & ~mask));
+    }
+    
+    /**
+     * Checks if a set of nodes is a stamped set of the network being searched.
+     * 
+     * @param aNodeSet
+     *            the set to check
+     * @return true if the kernel can use the stamps of the set
+     */
+    private boolean isStampedSet(final Set<Node> aNodeSet) {
+        return (aNodeSet instanceof StampedNodeSet) &&
+                (((StampedNodeSet) aNodeSet).getCompactGraph() == compactGraph);
+    }
+    
+    /**
+     * Checks if a set of current nodes is a sparse set of the network being
+     * searched.
+     * 
+     * @param aNodeSet
+     *            the set to check
+     * @return true if the kernel can use the node indices of the set
+     */
+    private boolean isSparseSet(final Set<Node> aNodeSet) {
+        return (aNodeSet instanceof SparseNodeSet) &&
+                (((SparseNodeSet) aNodeSet).getCompactGraph() == compactGraph);
+    }
+    
+    /**
+     * Getter for nSteps.
+     * 
+     * @return the number of time steps run by the kernel
+     */
+    public int getnSteps() {
+        return nSteps;
+    }
+    
+    /**
+     * Getter for nLevelsFlooded.
+     * 
+     * @return the number of levels flooded by the last flood run, fewer than
+     *         its time steps if the flood died out before its TTL expired
+     */
+    public int getnLevelsFlooded() {
+        return nLevelsFlooded;
+    }
+    
+    /**
+     * Gets the number of messages passed by the kernel by the end of a level
+     * of the last flood run, if its levels were recorded (see recordLevels).
+     * Once the flood has died out, it passes no more messages.
+     * 
+     * @param level
+     *            the level
+     * @return the number of messages
+     */
+    public int getnMessagesAtLevel(final int level) {
+        return nMessagesAtLevel[Math.min(level, nLevelsFlooded)];
+    }
+    
+    /**
+     * Getter for nMessages.
+     * 
+     * @return the number of messages passed during the steps run by the
+     *         kernel
+     */
+    public int getnMessages() {
+        return nMessages;
+    }
+    
+}
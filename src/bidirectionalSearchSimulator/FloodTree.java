@@ -0,0 +1,276 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * FloodTree is a class that holds the breadth-first levels of a flood from a
+ * source, i.e. the time step at which a flood from the source first reaches
+ * each node of the network, along with the number of messages passed and of
+ * nodes reached by the end of each time step. It is built by a flood kernel
+ * (see FloodKernel.buildFloodTree) and kept by a flood tree cache.
+ * 
+ * A flood moves the same way whatever its targets and its TTL, which only
+ * decide when it ends, so the tree of a source gives the result of any flood
+ * from that source in constant time per target: the flood ends at the first
+ * level at which it reaches a target, or when its TTL expires. Once the flood
+ * has died out, it sends no more messages and reaches no more nodes.
+ * 
+ * The tree also gives the result of an expanding ring search from the source
+ * (see ExpandingRingFlood), whose rings are floods of growing TTL from the
+ * same source, and thus share the levels of the tree.
+ */
+public class FloodTree {
+    
+    public static final int NOT_REACHED = -1;
+    
+    private final int sourceIndex;      // index of the source of the flood
+    private final int[] firstPassageLevels;  // level at which the flood first
+    // reached each node, by node index, NOT_REACHED if it did not
+    private final int[] nMessagesAtLevel;  // number of messages passed by the
+    // end of each level
+    private final int[] nNodesReachedAtLevel;  // number of nodes reached by
+    // the end of each level
+    private final int nLevels;          // number of levels of the tree
+    private final int flagDiedOut;      // 1 if the flood died out within the
+    
+    // levels of the tree, 0 if it was still running after the last one
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSourceIndex
+     *            index of the source of the flood
+     * @param pFirstPassageLevels
+     *            level at which the flood first reached each node, by node
+     *            index
+     * @param pnMessagesAtLevel
+     *            number of messages passed by the end of each level, from
+     *            level 0 to the last level of the tree
+     * @param pnLevels
+     *            number of levels of the tree
+     * @param pFlagDiedOut
+     *            1 if the flood died out within the levels of the tree
+     */
+    public FloodTree(final int pSourceIndex, final int[] pFirstPassageLevels,
+            final int[] pnMessagesAtLevel, final int pnLevels,
+            final int pFlagDiedOut) {
+        sourceIndex = pSourceIndex;
+        firstPassageLevels = pFirstPassageLevels;
+        nMessagesAtLevel = pnMessagesAtLevel;
+        nLevels = pnLevels;
+        flagDiedOut = pFlagDiedOut;
+        
+        /* Counts the nodes reached at each level, then adds them up. */
+        nNodesReachedAtLevel = new int[pnLevels + 1];
+        
+        for (int nodeIndex = 0; nodeIndex < pFirstPassageLevels.length; nodeIndex++) {
+            if (pFirstPassageLevels[nodeIndex] != NOT_REACHED) {
+                nNodesReachedAtLevel[pFirstPassageLevels[nodeIndex]]++;
+            }
+        }
+        
+        for (int level = 1; level <= pnLevels; level++) {
+            nNodesReachedAtLevel[level] += nNodesReachedAtLevel[level - 1];
+        }
+    }
+    
+    /**
+     * Checks if the tree gives the result of a flood with a given TTL, which
+     * is the case if the flood died out within the levels of the tree or if
+     * the TTL does not go past them.
+     * 
+     * @param ttl
+     *            the TTL
+     * @return true if the tree gives the result of the flood
+     */
+    public boolean canAnswer(final int ttl) {
+        return (flagDiedOut == 1) || (ttl <= nLevels);
+    }
+    
+    /**
+     * Gets the result of a flood from the source of the tree with given
+     * targets and TTL.
+     * 
+     * @param targetIndices
+     *            indices of the targets of the flood
+     * @param ttl
+     *            the TTL of the flood
+     * @param flagSourceVisited
+     *            1 if the source counts as visited before the first time step
+     * @return the result of the flood
+     */
+    public SimulationResult getResult(final int[] targetIndices,
+            final int ttl, final int flagSourceVisited) {
+        if (!canAnswer(ttl)) {
+            throw new IllegalArgumentException("The TTL " + ttl +
+                    " goes past the " + nLevels + " levels of the flood tree");
+        }
+        
+        final int targetLevel = getTargetLevel(targetIndices);
+        final int time;
+        final TerminationReason reason;
+        
+        if ((targetLevel != NOT_REACHED) && (targetLevel <= ttl)) {
+            time = targetLevel;
+            reason = TerminationReason.TARGET_FOUND;
+        }
+        else {
+            time = ttl;
+            reason = TerminationReason.TTL_EXPIRED;
+        }
+        
+        final int level = Math.min(time, nLevels);
+        int nNodesVisited = nNodesReachedAtLevel[level];
+        
+        /* A source visited before the first time step counts from the start. */
+        if ((flagSourceVisited == 1) &&
+                ((firstPassageLevels[sourceIndex] == NOT_REACHED) ||
+                (firstPassageLevels[sourceIndex] > level))) {
+            nNodesVisited++;
+        }
+        
+        return new SimulationResult(time, nMessagesAtLevel[level],
+                nNodesVisited, reason);
+    }
+    
+    /**
+     * Gets the result of an expanding ring search from the source of the tree
+     * with given targets and TTL (see ExpandingRingFlood). The messages and
+     * time steps of each ring that ends without reaching a target are added
+     * to those of the last ring, as if each ring were sent again from the
+     * source.
+     * 
+     * @param targetIndices
+     *            indices of the targets of the search
+     * @param ttl
+     *            the TTL of the largest ring
+     * @param flagSourceVisited
+     *            1 if the source counts as visited before the first time step
+     * @return the result of the search
+     */
+    public SimulationResult getExpandingRingResult(final int[] targetIndices,
+            final int ttl, final int flagSourceVisited) {
+        final int lastRingTtl = getLastRingTtl(targetIndices, ttl);
+        final SimulationResult lastRingResult =
+                getResult(targetIndices, lastRingTtl, flagSourceVisited);
+        int nResentTime = 0;
+        int nResentMessages = 0;
+        
+        for (int ringTtl = 1; ringTtl < lastRingTtl; ringTtl =
+                ExpandingRingFlood.getNextRingTtl(ringTtl, ttl)) {
+            nResentTime += ringTtl;
+            nResentMessages += getnMessagesAtLevel(ringTtl);
+        }
+        
+        return new SimulationResult(
+                lastRingResult.getnTotalTime() + nResentTime,
+                lastRingResult.getnTotalMessages() + nResentMessages,
+                lastRingResult.getnNodesVisited(),
+                lastRingResult.getTerminationReason());
+    }
+    
+    /**
+     * Gets the TTL of the last ring of an expanding ring search from the
+     * source of the tree, i.e. of the first ring that reaches a target, that
+     * has the TTL of the search or that does not reach any new node at its
+     * edge (see ExpandingRingFlood).
+     * 
+     * @param targetIndices
+     *            indices of the targets of the search
+     * @param ttl
+     *            the TTL of the largest ring
+     * @return the TTL of the last ring
+     */
+    public int getLastRingTtl(final int[] targetIndices, final int ttl) {
+        if (!canAnswer(ttl)) {
+            throw new IllegalArgumentException("The TTL " + ttl +
+                    " goes past the " + nLevels + " levels of the flood tree");
+        }
+        
+        final int targetLevel = getTargetLevel(targetIndices);
+        int ringTtl = Math.min(1, ttl);
+        
+        while ((ringTtl < ttl) &&
+                ((targetLevel == NOT_REACHED) || (targetLevel > ringTtl)) &&
+                reachesNewNodes(ringTtl)) {
+            ringTtl = ExpandingRingFlood.getNextRingTtl(ringTtl, ttl);
+        }
+        
+        return ringTtl;
+    }
+    
+    /**
+     * Gets the first level at which the flood reaches one of the targets.
+     * 
+     * @param targetIndices
+     *            indices of the targets
+     * @return the level, or NOT_REACHED if the flood reaches no target within
+     *         the levels of the tree
+     */
+    private int getTargetLevel(final int[] targetIndices) {
+        int targetLevel = NOT_REACHED;
+        
+        for (int iTarget = 0; iTarget < targetIndices.length; iTarget++) {
+            final int level = firstPassageLevels[targetIndices[iTarget]];
+            
+            if ((level != NOT_REACHED) &&
+                    ((targetLevel == NOT_REACHED) || (level < targetLevel))) {
+                targetLevel = level;
+            }
+        }
+        
+        return targetLevel;
+    }
+    
+    /**
+     * Checks if the flood reaches nodes it had not reached before at a level,
+     * which it no longer does once it has died out.
+     * 
+     * @param level
+     *            the level, at least 1
+     * @return true if the flood reaches new nodes at the level
+     */
+    private boolean reachesNewNodes(final int level) {
+        return (level <= nLevels) &&
+                (nNodesReachedAtLevel[level] > nNodesReachedAtLevel[level - 1]);
+    }
+    
+    /**
+     * Gets the number of messages passed by the end of a level, which no
+     * longer grows once the flood has died out.
+     * 
+     * @param level
+     *            the level
+     * @return the number of messages
+     */
+    public int getnMessagesAtLevel(final int level) {
+        return nMessagesAtLevel[Math.min(level, nLevels)];
+    }
+    
+    /**
+     * Gets the number of ints held by the tree, which is what a flood tree
+     * cache counts against its capacity.
+     * 
+     * @return the size of the tree
+     */
+    public long getSize() {
+        return firstPassageLevels.length + 2L * (nLevels + 1);
+    }
+    
+    /**
+     * Getter for sourceIndex.
+     * 
+     * @return the index of the source of the flood
+     */
+    public int getSourceIndex() {
+        return sourceIndex;
+    }
+    
+    /**
+     * Getter for nLevels.
+     * 
+     * @return the number of levels of the tree
+     */
+    public int getnLevels() {
+        return nLevels;
+    }
+    
+}
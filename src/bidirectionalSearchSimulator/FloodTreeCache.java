@@ -0,0 +1,204 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * FloodTreeCache is a class that keeps the flood trees of the sources of the
+ * floods run on a network, so that the floods of a batch that start from a
+ * source already flooded are answered from its tree instead of being run
+ * again (see FloodTree). Flooding is deterministic as long as the network
+ * topology remains constant, so each network structurer has its own cache,
+ * which is dropped with its compact graph.
+ * 
+ * The tree of a source is only built the second time a flood starts from it,
+ * as building a tree runs the flood until its TTL expires instead of until it
+ * reaches its target. The trees are evicted in least recently used order once
+ * they hold more than the capacity of the cache.
+ * 
+ * The trees also answer the expanding ring searches of a batch (see
+ * ExpandingRingFlood), whose rings are floods from the same source.
+ * 
+ * The cache is shared by the threads running a batch. A tree is built outside
+ * the lock, so two threads may build the tree of the same source at the same
+ * time, which gives the same tree.
+ */
+public class FloodTreeCache {
+    
+    public static final long DEFAULT_CAPACITY = 1L << 24;  // number of ints
+    // the trees of a cache may hold, i.e. 64 MB
+    
+    private final CompactGraph compactGraph;  // network being searched
+    private final long capacity;        // number of ints the trees may hold
+    private final LinkedHashMap<Integer, FloodTree> floodTreesMap =
+            new LinkedHashMap<Integer, FloodTree>(16, 0.75f, true);  // trees
+    // by source index, in least recently used order
+    private final long[] seenSourceBits;  // bit of each source a flood has
+    // started from
+    private long size = 0;              // number of ints held by the trees
+    private int nHits = 0;              // number of floods answered from a
+    
+    // tree
+    
+    /**
+     * Constructor. The cache has the default capacity.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     */
+    public FloodTreeCache(final CompactGraph pCompactGraph) {
+        this(pCompactGraph, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     * @param pCapacity
+     *            number of ints the trees of the cache may hold
+     */
+    public FloodTreeCache(final CompactGraph pCompactGraph,
+            final long pCapacity) {
+        compactGraph = pCompactGraph;
+        capacity = pCapacity;
+        seenSourceBits = new long[(pCompactGraph.getnNodes() + 63) >>> 6];
+    }
+    
+    /**
+     * Gets the result of a flood, or of an expanding ring search, from the
+     * tree of its source. The search is left untouched, so it must not be run
+     * afterwards.
+     * 
+     * Only a flood of the network of the cache that no observer follows, that
+     * has not made a step yet, that has a single current node (its source) and
+     * a TTL greater than 0, and whose only visited node, if any, is its source
+     * can be answered. The first flood from a source is not answered, but
+     * marks the source as seen.
+     * 
+     * @param aSearch
+     *            the search
+     * @return the result of the search, or null if it must be run
+     */
+    public SimulationResult getResult(final Search aSearch) {
+        if (!(aSearch instanceof Flood) ||
+                !aSearch.searchObserversList.isEmpty() ||
+                (aSearch.getTerminationReason() != null) ||
+                (aSearch.getnTotalTime() > 0) ||
+                (aSearch.getNetworkStructurer().getCompactGraph() !=
+                compactGraph) ||
+                (aSearch.getQueryStateTable().getnQueries() != 1)) {
+            return null;
+        }
+        
+        final Query aQuery = aSearch.getQueryStateTable().getQuery(0);
+        final int ttl = aSearch.getQueryStateTable().getTtl(0);
+        
+        if (!aQuery.isFirstHop() || (ttl <= 0) ||
+                (aQuery.getCurrentNodesSet().size() != 1) ||
+                (aQuery.getVisitedNodesSet().size() > 1)) {
+            return null;
+        }
+        
+        final Node sourceNode = aQuery.getCurrentNodesSet().iterator().next();
+        final int sourceIndex = compactGraph.indexOfInstance(sourceNode);
+        
+        if ((sourceIndex < 0) || ((aQuery.getVisitedNodesSet().size() == 1) &&
+                !aQuery.getVisitedNodesSet().contains(sourceNode))) {
+            return null;
+        }
+        
+        final int[] targetIndices =
+                compactGraph.indicesOf(aQuery.getTargetNodesSet());
+        final int flagSourceVisited =
+                aQuery.getVisitedNodesSet().isEmpty() ? 0 : 1;
+        
+        FloodTree aFloodTree;
+        
+        synchronized (this) {
+            final long mask = 1L << sourceIndex;
+            
+            if ((seenSourceBits[sourceIndex >>> 6] & mask) == 0) {
+                seenSourceBits[sourceIndex >>> 6] |= mask;
+                return null;
+            }
+            
+            aFloodTree = floodTreesMap.get(sourceIndex);
+        }
+        
+        /* Builds the tree, or a deeper one if the TTL goes past its levels. */
+        if ((aFloodTree == null) || !aFloodTree.canAnswer(ttl)) {
+            final ForkJoinPool forkJoinPool =
+                    ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool()
+                            : ForkJoinPool.commonPool();
+            
+            aFloodTree =
+                    new FloodKernel(compactGraph, forkJoinPool)
+                            .buildFloodTree(sourceIndex, ttl);
+            put(aFloodTree);
+        }
+        
+        synchronized (this) {
+            nHits++;
+        }
+        
+        if (aSearch instanceof ExpandingRingFlood) {
+            return aFloodTree.getExpandingRingResult(targetIndices, ttl,
+                    flagSourceVisited);
+        }
+        
+        return aFloodTree.getResult(targetIndices, ttl, flagSourceVisited);
+    }
+    
+    /**
+     * Adds a tree to the cache, in place of the tree of the same source if
+     * there is one, then evicts the least recently used trees until the trees
+     * fit in the capacity of the cache. The tree added is never evicted.
+     * 
+     * @param aFloodTree
+     *            the tree to add
+     */
+    private synchronized void put(final FloodTree aFloodTree) {
+        final FloodTree replacedFloodTree =
+                floodTreesMap.put(aFloodTree.getSourceIndex(), aFloodTree);
+        
+        if (replacedFloodTree != null) {
+            size -= replacedFloodTree.getSize();
+        }
+        
+        size += aFloodTree.getSize();
+        
+        final Iterator<Map.Entry<Integer, FloodTree>> itFloodTrees =
+                floodTreesMap.entrySet().iterator();
+        while ((size > capacity) && itFloodTrees.hasNext()) {
+            final FloodTree aCachedFloodTree = itFloodTrees.next().getValue();
+            
+            if (aCachedFloodTree != aFloodTree) {
+                size -= aCachedFloodTree.getSize();
+                itFloodTrees.remove();
+            }
+        }
+    }
+    
+    /**
+     * Getter for nHits.
+     * 
+     * @return the number of floods answered from a tree
+     */
+    public synchronized int getnHits() {
+        return nHits;
+    }
+    
+    /**
+     * Getter for size.
+     * 
+     * @return the number of ints held by the trees of the cache
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+    
+}
@@ -0,0 +1,227 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Set;
+
+/**
+ * KRandomWalkers is a class that models the algorithm of searching using k
+ * random walkers sent in parallel from the source.
+ * 
+ * In k random walkers (k-RW), the source launches k walkers at once, and at
+ * each time step every walker forwards the query to a randomly chosen
+ * neighbour, as in a regular RW. The TTL refers to the limit on the combined
+ * number of messages sent by all the walkers, as for RRRW: it is divided
+ * evenly between the walkers when they are launched, so k walkers send as
+ * many messages as a single walker with the same TTL, in k times fewer time
+ * steps. The search ends with a success if one of the walkers finds the target
+ * node, or with a failure once the TTL of every walker is reached.
+ * 
+ * The walkers are not queries of their own: they are kept in a WalkerArray
+ * and share the single query of the search, whose visited nodes are those
+ * visited by any walker. If the walkers avoid visited nodes, each walker picks
+ * a neighbour that no walker has visited yet whenever there is one, so the
+ * walkers spread out instead of covering each other's territory.
+ * 
+ * It is possible to have the walkers choose their next neighbour at random,
+ * excluding the node that sent them the query, by making the search
+ * non-backtracking (see Search.setFlagNonBacktracking).
+ */
+public class KRandomWalkers extends Search {
+    
+    private static int nQueries = 1;  // number of queries to use in this search
+    private final WalkerArray[] walkerArrays;  // walkers of each query
+    private final int flagAvoidVisitedNodes;  // 1 if the walkers prefer the
+    // nodes no walker of their query has visited, 0 otherwise
+    
+    /**
+     * Constructor. The search uses its own randomly seeded generator.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            KRandomWalkers
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value shared by the walkers
+     * @param pnWalkers
+     *            number of walkers launched from the source
+     * @param pFlagAvoidVisitedNodes
+     *            1 if the walkers prefer the nodes no walker has visited, 0
+     *            otherwise
+     */
+    public KRandomWalkers(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final int pnWalkers, final int pFlagAvoidVisitedNodes) {
+        this(pSearchCoordinator, pNetworkStructurer, pttl, pnWalkers,
+                pFlagAvoidVisitedNodes, new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            KRandomWalkers
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value shared by the walkers
+     * @param pnWalkers
+     *            number of walkers launched from the source
+     * @param pFlagAvoidVisitedNodes
+     *            1 if the walkers prefer the nodes no walker has visited, 0
+     *            otherwise
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public KRandomWalkers(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final int pnWalkers, final int pFlagAvoidVisitedNodes,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, nQueries,
+                pRandomNumberGenerator);
+        
+        walkerArrays = new WalkerArray[] {
+            new WalkerArray(compactGraph, pnWalkers)};
+        flagAvoidVisitedNodes = pFlagAvoidVisitedNodes;
+        
+        queryStateTable.setTtl(0, pttl);
+    }
+    
+    /**
+     * Propagates the search queries by one step: each walker whose TTL has
+     * not expired makes one hop.
+     */
+    @Override
+    public void propagateQueries() {
+        /* Does the following for each search query. */
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
+            final WalkerArray walkerArray = walkerArrays[iQuery];
+            
+            /*
+             * Checks to see if this is the first hop of the query. If so,
+             * launches the walkers from the source (i.e. the current node).
+             */
+            if (currentQuery.isFirstHop()) {
+                walkerArray.launch(compactGraph.indexOf(currentQuery
+                        .getCurrentNodesSet().iterator().next()),
+                        queryStateTable.getTtl(iQuery));
+            }
+            
+            /* Checks that the TTL for the current query has not expired. */
+            if (queryStateTable.getTtl(iQuery) > 0) {
+                final Set<Node> currentNodesSetTemp =
+                        currentQuery.getNextNodesSet();  // stores the nodes on
+                // which the walkers reside after this propagation step
+                final Set<Node> visitedNodesSet =
+                        currentQuery.getVisitedNodesSet();
+                
+                for (int iWalker = 0; iWalker < walkerArray.getnWalkers(); iWalker++) {
+                    if (walkerArray.getWalkerTtl(iWalker) > 0) {
+                        /*
+                         * Picks a random neighbour of the walker's node,
+                         * steering away from the visited nodes if the walkers
+                         * avoid them.
+                         */
+                        final int nextNodeIndex =
+                                walkerArray.pickNextNode(iWalker,
+                                        randomNumberGenerator,
+                                        flagNonBacktracking,
+                                        (flagAvoidVisitedNodes == 1)
+                                                ? visitedNodesSet : null);
+                        walkerArray.moveWalker(iWalker, nextNodeIndex);
+                        
+                        final Node aRandomNeighbour =
+                                compactGraph.getNode(nextNodeIndex);
+                        
+                        /* Checks if the neighbour is a target. */
+                        getRendezvousDetector().markArrival(currentQuery,
+                                aRandomNeighbour, 0);
+                        
+                        /* Adds the neighbour to the list of visited nodes. */
+                        visitedNodesSet.add(aRandomNeighbour);
+                        
+                        /* Decrements TTL. */
+                        queryStateTable.decrementTtl(iQuery);
+                        
+                        /*
+                         * Increments the total number of messages send since
+                         * the beginning of the search.
+                         */
+                        nTotalMessages++;
+                    }
+                    
+                    currentNodesSetTemp.add(compactGraph.getNode(walkerArray
+                            .getWalkerNode(iWalker)));
+                }
+                
+                /* Updates the query after it has made its first hop. */
+                if (currentQuery.isFirstHop()) {
+                    currentQuery.setFirstHop(false);
+                }
+                
+                /*
+                 * Updates the current node set with the temporary set created
+                 * locally.
+                 */
+                currentQuery.setCurrentNodesSet(currentNodesSetTemp);
+            }
+        }
+        
+        /*
+         * Increments the number of elapsed time steps since
+         * the beginning of the search.
+         */
+        nTotalTime++;
+        
+        /* Notifies the observers (e.g. the GUI) that a step was completed. */
+        notifyStepCompleted();
+    }
+    
+    /**
+     * Checks to see if the terminating conditions of the search have been
+     * reached.
+     * 
+     * @return 1 if terminating conditions have been met, 0 otherwise
+     */
+    @Override
+    public int checkTerminatingConditions() {
+        /* Checks if a walker found the target. */
+        final TerminationReason rendezvous =
+                getRendezvousDetector().getRendezvous();
+        
+        if (rendezvous != null) {
+            return terminate(rendezvous);
+        }
+        
+        /* Ends the search if the TTL of every walker has expired. */
+        if (queryStateTable.getTtl(0) == 0) {
+            return terminate(TerminationReason.TTL_EXPIRED);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Getter for the number of walkers of each query.
+     * 
+     * @return the number of walkers launched from the source
+     */
+    public int getnWalkers() {
+        return walkerArrays[0].getnWalkers();
+    }
+    
+    /**
+     * Getter for flagAvoidVisitedNodes.
+     * 
+     * @return the flagAvoidVisitedNodes
+     */
+    public int getFlagAvoidVisitedNodes() {
+        return flagAvoidVisitedNodes;
+    }
+    
+}
@@ -1,5 +1,7 @@
 package bidirectionalSearchSimulator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -36,6 +38,9 @@ public class Link implements Serializable {
     private final int destinationNodeID;   // ID of node at the destination end of the link
     
     private LinkType linkType;       // this link's type
+    private double weight = 1;       // weight of the link, used by the
+    // weighted random walks to prefer some links over others (see
+    // NetworkStructurer.getLinkWeightAliasTable)
     
     /**
      * Constructor which uses two nodes to define a link.
@@ -115,6 +120,31 @@ public class Link implements Serializable {
         this.linkType = linkType;
     }
     
+    /**
+     * Getter for weight.
+     * 
+     * @return the weight
+     */
+    public double getWeight() {
+        return weight;
+    }
+    
+    /**
+     * Setter for weight. The weighted random walks only see the new weight
+     * once the compact graph of the network is rebuilt (see
+     * NetworkStructurer.buildCompactGraph).
+     * 
+     * @param weight
+     *            the weight to set, greater than 0
+     */
+    public void setWeight(final double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Invalid link weight " + weight);
+        }
+        
+        this.weight = weight;
+    }
+    
     /**
      * Getter for networkStructurer.
      * 
@@ -142,6 +172,26 @@ public class Link implements Serializable {
         return destinationNodeID;
     }
     
+    /**
+     * Restores the link. Links saved before links had a weight are read back
+     * with a weight of 1.
+     * 
+     * @param in
+     *            the stream to read from
+     * @throws IOException
+     *             if the link could not be read
+     * @throws ClassNotFoundException
+     *             if a class of the saved link could not be found
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        
+        if (weight == 0) {
+            weight = 1;
+        }
+    }
+    
 //    /**
 //     * Getter for nodeSourceID.
 //     *
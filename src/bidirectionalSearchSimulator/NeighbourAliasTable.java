@@ -0,0 +1,323 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+
+/**
+ * NeighbourAliasTable is a class that lets a walker pick a neighbour of a node
+ * in proportion to a weight given to each neighbour, rather than uniformly. It
+ * is used by the weighted random walks (see WeightedRandomWalk and
+ * BidirectionalSearchWeightedRW), whose walkers favour, for instance, the
+ * neighbours of highest degree.
+ * 
+ * The weights are laid out as the neighbours of CompactGraph: the weights of
+ * the neighbours of the node with index i are found between positions
+ * offsets[i] (inclusive) and offsets[i + 1] (exclusive). An alias table is
+ * built for each node when the table is created (Vose's method), so a
+ * neighbour is picked in constant time with two random numbers: one picks a
+ * position of the neighbour list uniformly, and the other decides between the
+ * neighbour at that position and its alias.
+ * 
+ * Excluding the node the walker came from (see Search.setFlagNonBacktracking)
+ * does not need a table per excluded neighbour. The neighbour is first picked
+ * from the alias table, and only if the excluded neighbour was picked, it is
+ * picked again from the cumulative weights of the node, leaving out the weight
+ * of the excluded neighbour, by binary search. Each other neighbour j is
+ * therefore picked with probability w(j) / (W - w(excluded)), where W is the
+ * sum of the weights of the node, and a neighbour is never picked more than
+ * twice.
+ * 
+ * The table must be rebuilt if the links of the network or their weights
+ * change.
+ */
+public class NeighbourAliasTable {
+    
+    private final CompactGraph compactGraph;  // network whose neighbours are
+    // weighted
+    private final int[] offsets;        // start of the neighbour list of each
+    // node (see CompactGraph)
+    private final int[] neighbours;     // neighbour indices of all the nodes
+    private final double[] probabilities;  // probability of keeping the
+    // neighbour at each position rather than its alias
+    private final int[] aliases;        // position of the alias of the
+    // neighbour at each position, relative to the start of the neighbour list
+    private final double[] cumulativeWeights;  // sum of the weights of the
+    // neighbours of the node up to each position (inclusive)
+    private final String description;  // weighting of the neighbours, as
+    
+    // printed in the batch results
+    
+    /**
+     * Constructor. Builds the alias table of each node.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network
+     * @param pWeights
+     *            weight of the neighbour at each position of the neighbour
+     *            lists of the compact graph, none of which may be negative,
+     *            and which must not all be zero for a node with neighbours
+     * @param pDescription
+     *            weighting of the neighbours, as printed in the batch
+     *            results
+     */
+    public NeighbourAliasTable(final CompactGraph pCompactGraph,
+            final double[] pWeights, final String pDescription) {
+        compactGraph = pCompactGraph;
+        offsets = pCompactGraph.getOffsets();
+        neighbours = pCompactGraph.getNeighbours();
+        description = pDescription;
+        
+        if (pWeights.length != neighbours.length) {
+            throw new IllegalArgumentException("Expected " +
+                    neighbours.length + " neighbour weights, got " +
+                    pWeights.length);
+        }
+        
+        probabilities = new double[neighbours.length];
+        aliases = new int[neighbours.length];
+        cumulativeWeights = new double[neighbours.length];
+        
+        /* Positions of the neighbours below and above the mean weight. */
+        int maxDegree = 0;
+        for (int nodeIndex = 0; nodeIndex < pCompactGraph.getnNodes(); nodeIndex++) {
+            maxDegree = Math.max(maxDegree, pCompactGraph.degree(nodeIndex));
+        }
+        
+        final int[] smallPositions = new int[maxDegree];
+        final int[] largePositions = new int[maxDegree];
+        
+        for (int nodeIndex = 0; nodeIndex < pCompactGraph.getnNodes(); nodeIndex++) {
+            buildNodeTable(nodeIndex, pWeights, smallPositions, largePositions);
+        }
+    }
+    
+    /**
+     * Builds the alias table and the cumulative weights of a node.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @param weights
+     *            weight of the neighbour at each position of the neighbour
+     *            lists
+     * @param smallPositions
+     *            scratch space for at least as many positions as the degree
+     *            of the node
+     * @param largePositions
+     *            scratch space for at least as many positions as the degree
+     *            of the node
+     */
+    private void buildNodeTable(final int nodeIndex, final double[] weights,
+            final int[] smallPositions, final int[] largePositions) {
+        final int firstNeighbour = offsets[nodeIndex];
+        final int degree = offsets[nodeIndex + 1] - firstNeighbour;
+        
+        if (degree == 0) {
+            return;
+        }
+        
+        double totalWeight = 0;
+        for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+            final double weight = weights[firstNeighbour + iNeighbour];
+            
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight " + weight +
+                        " for a neighbour of node " +
+                        compactGraph.getNodeID(nodeIndex));
+            }
+            
+            totalWeight += weight;
+            cumulativeWeights[firstNeighbour + iNeighbour] = totalWeight;
+        }
+        
+        if (!(totalWeight > 0)) {
+            throw new IllegalArgumentException("The neighbours of node " +
+                    compactGraph.getNodeID(nodeIndex) + " have no weight");
+        }
+        
+        /*
+         * Scales the weights so that their mean is 1, then pairs each
+         * neighbour below the mean with one above it.
+         */
+        int nSmall = 0;
+        int nLarge = 0;
+        
+        for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+            final double scaledWeight =
+                    (weights[firstNeighbour + iNeighbour] * degree) /
+                            totalWeight;
+            
+            probabilities[firstNeighbour + iNeighbour] = scaledWeight;
+            
+            if (scaledWeight < 1) {
+                smallPositions[nSmall++] = iNeighbour;
+            }
+            else {
+                largePositions[nLarge++] = iNeighbour;
+            }
+        }
+        
+        while ((nSmall > 0) && (nLarge > 0)) {
+            final int smallPosition = smallPositions[--nSmall];
+            final int largePosition = largePositions[nLarge - 1];
+            
+            aliases[firstNeighbour + smallPosition] = largePosition;
+            probabilities[firstNeighbour + largePosition] +=
+                    probabilities[firstNeighbour + smallPosition] - 1;
+            
+            if (probabilities[firstNeighbour + largePosition] < 1) {
+                nLarge--;
+                smallPositions[nSmall++] = largePosition;
+            }
+        }
+        
+        /* What is left only differs from 1 by rounding errors. */
+        while (nLarge > 0) {
+            probabilities[firstNeighbour + largePositions[--nLarge]] = 1;
+        }
+        
+        while (nSmall > 0) {
+            probabilities[firstNeighbour + smallPositions[--nSmall]] = 1;
+        }
+    }
+    
+    /**
+     * Picks a random neighbour of a node in proportion to the weights of its
+     * neighbours, except for one of them, which is still picked if it is the
+     * only neighbour of the node. If the node has no neighbours, the node
+     * itself is returned.
+     * 
+     * The excluded node must be a neighbour of the node (e.g. the node the
+     * walker came from), or -1.
+     * 
+     * @param nodeIndex
+     *            index of the node whose neighbour is requested
+     * @param excludedNeighbourIndex
+     *            index of the neighbour to exclude, -1 to exclude none
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @return the index of the randomly chosen neighbour
+     */
+    public int pickNeighbourIndex(final int nodeIndex,
+            final int excludedNeighbourIndex,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int firstNeighbour = offsets[nodeIndex];
+        final int degree = offsets[nodeIndex + 1] - firstNeighbour;
+        
+        if (degree == 0) {
+            return nodeIndex;
+        }
+        
+        /* Picks a position, then keeps it or takes its alias. */
+        int position = firstNeighbour + randomNumberGenerator.nextInt(degree);
+        
+        if (randomNumberGenerator.nextDouble() >= probabilities[position]) {
+            position = firstNeighbour + aliases[position];
+        }
+        
+        if ((neighbours[position] != excludedNeighbourIndex) || (degree == 1)) {
+            return neighbours[position];
+        }
+        
+        return neighbours[pickPositionExcept(firstNeighbour, degree, position,
+                randomNumberGenerator)];
+    }
+    
+    /**
+     * Picks a position of the neighbour list of a node from its cumulative
+     * weights, leaving out the weight of one position.
+     * 
+     * @param firstNeighbour
+     *            start of the neighbour list of the node
+     * @param degree
+     *            degree of the node, at least 2
+     * @param excludedPosition
+     *            position to leave out
+     * @param randomNumberGenerator
+     *            generator used to pick the position
+     * @return the picked position, or the excluded position if no other
+     *         position has a weight
+     */
+    private int pickPositionExcept(final int firstNeighbour, final int degree,
+            final int excludedPosition,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int lastNeighbour = firstNeighbour + degree - 1;
+        final double weightBefore =
+                (excludedPosition == firstNeighbour) ? 0
+                        : cumulativeWeights[excludedPosition - 1];
+        final double excludedWeight =
+                cumulativeWeights[excludedPosition] - weightBefore;
+        final double remainingWeight =
+                cumulativeWeights[lastNeighbour] - excludedWeight;
+        
+        /* Keeps the excluded position if no other position has a weight. */
+        if (!(remainingWeight > 0)) {
+            return excludedPosition;
+        }
+        
+        /* Draws a weight, then skips the weight of the excluded position. */
+        double weight = randomNumberGenerator.nextDouble() * remainingWeight;
+        
+        if (weight >= weightBefore) {
+            weight += excludedWeight;
+        }
+        
+        /* Finds the first position whose cumulative weight exceeds it. */
+        int position =
+                Arrays.binarySearch(cumulativeWeights, firstNeighbour,
+                        lastNeighbour + 1, weight);
+        position = (position >= 0) ? position + 1 : -position - 1;
+        
+        /* Rounding errors may still land on the edges. */
+        if (position > lastNeighbour) {
+            position = lastNeighbour;
+        }
+        
+        if (position == excludedPosition) {
+            position = (position < lastNeighbour) ? position + 1 : position - 1;
+        }
+        
+        return position;
+    }
+    
+    /**
+     * Picks a random neighbour of a node in proportion to the weights of its
+     * neighbours, except for the node with a given ID (see
+     * pickNeighbourIndex).
+     * 
+     * @param aNode
+     *            the node whose neighbour is requested
+     * @param excludedNodeID
+     *            ID of the neighbour to exclude, -1 to exclude none
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @return the randomly chosen neighbour
+     */
+    public Node pickNeighbourExcept(final Node aNode, final int excludedNodeID,
+            final RandomNumberGenerator randomNumberGenerator) {
+        final int excludedNodeIndex =
+                (excludedNodeID < 0) ? -1
+                        : compactGraph.indexOfNodeID(excludedNodeID);
+        
+        return compactGraph.getNode(pickNeighbourIndex(
+                compactGraph.indexOf(aNode), excludedNodeIndex,
+                randomNumberGenerator));
+    }
+    
+    /**
+     * Getter for compactGraph.
+     * 
+     * @return the compactGraph
+     */
+    public CompactGraph getCompactGraph() {
+        return compactGraph;
+    }
+    
+    /**
+     * Getter for description.
+     * 
+     * @return the weighting of the neighbours, as printed in the batch results
+     */
+    public String getDescription() {
+        return description;
+    }
+    
+}
@@ -9,9 +9,13 @@ public abstract class Network {
     
     protected NetworkStructurer networkStructurer;
     protected int nNodes;  // total number of nodes in the network
+    protected RandomNumberGenerator randomNumberGenerator;  // source of
+    
+    // randomness used to place the nodes and generate the links
     
     /**
-     * Constructor.
+     * Constructor. The network is generated with its own randomly seeded
+     * generator.
      * 
      * @param pNetworkStructurer
      *            network structurer containing node information used by this
@@ -20,8 +24,25 @@ public abstract class Network {
      *            total number of nodes in the network
      */
     public Network(final NetworkStructurer pNetworkStructurer, final int pnNodes) {
+        this(pNetworkStructurer, pnNodes, new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnNodes
+     *            total number of nodes in the network
+     * @param pRandomNumberGenerator
+     *            source of randomness used to generate this network
+     */
+    public Network(final NetworkStructurer pNetworkStructurer,
+            final int pnNodes, final RandomNumberGenerator pRandomNumberGenerator) {
         networkStructurer = pNetworkStructurer;
         nNodes = pnNodes;
+        randomNumberGenerator = pRandomNumberGenerator;
     }
     
     /**
@@ -37,4 +58,22 @@ public abstract class Network {
      */
     public abstract void generateLinks();
     
+    /**
+     * Getter for networkStructurer.
+     * 
+     * @return the networkStructurer
+     */
+    public NetworkStructurer getNetworkStructurer() {
+        return networkStructurer;
+    }
+    
+    /**
+     * Getter for randomNumberGenerator.
+     * 
+     * @return the randomNumberGenerator
+     */
+    public RandomNumberGenerator getRandomNumberGenerator() {
+        return randomNumberGenerator;
+    }
+    
 }
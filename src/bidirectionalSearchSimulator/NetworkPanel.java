@@ -83,28 +83,21 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                 while (itLink.hasNext()) {
                     aCurrentLink = itLink.next();
                     
-                    g.drawLine(
-                            (int) Math
-                                    .round((networkStructurer
-                                            .getNodeLocationMap().get(
-                                                    aCurrentLink
-                                                            .getSourceNodeID())[0] * xDim)),
-                            (int) Math
-                                    .round((networkStructurer
-                                            .getNodeLocationMap().get(
-                                                    aCurrentLink
-                                                            .getSourceNodeID())[1] * yDim)),
-                            (int) Math
-                                    .round((networkStructurer
-                                            .getNodeLocationMap()
-                                            .get(aCurrentLink
-                                                    .getDestinationNodeID())[0] * xDim)),
-                            (int) Math
-                                    .round((networkStructurer
-                                            .getNodeLocationMap()
-                                            .get(aCurrentLink
-                                                    .getDestinationNodeID())[1]) *
-                                            yDim));
+                    final Node linkSourceNode =
+                            networkStructurer.getNodeByID(aCurrentLink
+                                    .getSourceNodeID());
+                    final Node linkDestinationNode =
+                            networkStructurer.getNodeByID(aCurrentLink
+                                    .getDestinationNodeID());
+                    
+                    g.drawLine((int) Math.round(networkStructurer
+                            .getxLocation(linkSourceNode) * xDim), (int) Math
+                            .round(networkStructurer
+                                    .getyLocation(linkSourceNode) * yDim),
+                            (int) Math.round(networkStructurer
+                                    .getxLocation(linkDestinationNode) * xDim),
+                            (int) Math.round(networkStructurer
+                                    .getyLocation(linkDestinationNode) * yDim));
                 }
             }
             
@@ -122,20 +115,20 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                 aCurrentNode = itNode.next();
                 
                 g.fillOval(((int) Math
-                        .round((networkStructurer.getNodeLocationMap().get(
-                                aCurrentNode.getNodeID())[0] * xDim) -
+                        .round((networkStructurer
+                                .getxLocation(aCurrentNode) * xDim) -
                                 (nodeSize / 2))), ((int) Math
-                        .round((networkStructurer.getNodeLocationMap().get(
-                                aCurrentNode.getNodeID())[1] * yDim) -
+                        .round((networkStructurer
+                                .getyLocation(aCurrentNode) * yDim) -
                                 (nodeSize / 2))), nodeSize, nodeSize);
                 
                 /* Draws node IDs next to each node. */
 //                g.drawString(Integer.toString(aCurrentNode.getNodeID()),
-//                    (int) Math.round((networkStructurer.getNodeLocationMap()
-//                        .get(aCurrentNode.getNodeID())[0] * xDim) -
+//                    (int) Math.round((networkStructurer
+//                        .getxLocation(aCurrentNode) * xDim) -
 //                        (nodeSize / 2)), (int) Math
-//                        .round((networkStructurer.getNodeLocationMap().get(
-//                            aCurrentNode.getNodeID())[1] * yDim) -
+//                        .round((networkStructurer
+//                            .getyLocation(aCurrentNode) * yDim) -
 //                            (nodeSize / 2)));
             }
             
@@ -146,9 +139,9 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
              * follow). The same goes for source and target nodes on top of
              * regular nodes.
              */
-            for (int iQuery = 0; iQuery < search.getSearchQueriesMap().size(); iQuery++) {
+            for (int iQuery = 0; iQuery < search.getQueryStateTable().getnQueries(); iQuery++) {
                 final Query currentQuery =
-                        search.getSearchQueriesMap().get(iQuery);
+                        search.getQueryStateTable().getQuery(iQuery);
                 
                 /*
                  * =============================================================
@@ -166,18 +159,18 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                     aVisitedNode = itVisitedNodes.next();
                     
                     g.fillOval(((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    aVisitedNode.getNodeID())[0] * xDim) -
+                            .round((networkStructurer
+                                    .getxLocation(aVisitedNode) * xDim) -
                                     (nodeSize / 2))), ((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    aVisitedNode.getNodeID())[1] * yDim) -
+                            .round((networkStructurer
+                                    .getyLocation(aVisitedNode) * yDim) -
                                     (nodeSize / 2))), nodeSize, nodeSize);
                 }
             }
             
-            for (int iQuery = 0; iQuery < search.getSearchQueriesMap().size(); iQuery++) {
+            for (int iQuery = 0; iQuery < search.getQueryStateTable().getnQueries(); iQuery++) {
                 final Query currentQuery =
-                        search.getSearchQueriesMap().get(iQuery);
+                        search.getQueryStateTable().getQuery(iQuery);
                 
                 /*
                  * Only draws source and target nodes for the first two queries.
@@ -198,11 +191,11 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                     final Node sourceNode = currentQuery.getSourceNode();
                     
                     g.fillOval(((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    sourceNode.getNodeID())[0] * xDim) -
+                            .round((networkStructurer
+                                    .getxLocation(sourceNode) * xDim) -
                                     (nodeSize2 / 2))), ((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    sourceNode.getNodeID())[1] * yDim) -
+                            .round((networkStructurer
+                                    .getyLocation(sourceNode) * yDim) -
                                     (nodeSize2 / 2))), nodeSize2 +
                             Math.round(nodeSize2 / 2), nodeSize2 +
                             Math.round(nodeSize2 / 2));
@@ -223,15 +216,11 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                         g.fillOval(
                                 ((int) Math
                                         .round((networkStructurer
-                                                .getNodeLocationMap().get(
-                                                        aCurrentNode
-                                                                .getNodeID())[0] * xDim) -
+                                                .getxLocation(aCurrentNode) * xDim) -
                                                 (nodeSize2 / 2))),
                                 ((int) Math
                                         .round((networkStructurer
-                                                .getNodeLocationMap().get(
-                                                        aCurrentNode
-                                                                .getNodeID())[1] * yDim) -
+                                                .getyLocation(aCurrentNode) * yDim) -
                                                 (nodeSize2 / 2))), nodeSize2 +
                                         Math.round(nodeSize2 / 2), nodeSize2 +
                                         Math.round(nodeSize2 / 2));
@@ -239,9 +228,9 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                 }
             }
             
-            for (int iQuery = 0; iQuery < search.getSearchQueriesMap().size(); iQuery++) {
+            for (int iQuery = 0; iQuery < search.getQueryStateTable().getnQueries(); iQuery++) {
                 final Query currentQuery =
-                        search.getSearchQueriesMap().get(iQuery);
+                        search.getQueryStateTable().getQuery(iQuery);
                 /*
                  * =============================================================
                  * Draws current nodes.
@@ -256,11 +245,11 @@ public class NetworkPanel extends JPanel implements KeyListener, MouseListener {
                     aCurrentNode = itCurrentNodes.next();
                     
                     g.fillOval(((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    aCurrentNode.getNodeID())[0] * xDim) -
+                            .round((networkStructurer
+                                    .getxLocation(aCurrentNode) * xDim) -
                                     (nodeSize / 2))), ((int) Math
-                            .round((networkStructurer.getNodeLocationMap().get(
-                                    aCurrentNode.getNodeID())[1] * yDim) -
+                            .round((networkStructurer
+                                    .getyLocation(aCurrentNode) * yDim) -
                                     (nodeSize / 2))), nodeSize2, nodeSize2);
                 }
             }
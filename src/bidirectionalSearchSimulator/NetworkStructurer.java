@@ -1,6 +1,10 @@
 package bidirectionalSearchSimulator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -21,11 +25,44 @@ public class NetworkStructurer implements java.io.Serializable {
     private final transient SearchCoordinator searchCoordinator;
     private final int nNodes; // number of nodes in the network 
     private final List<Node> nodeList; // list of all nodes in this network
-    private final HashMap<Integer, double[]> nodeLocationMap; // locations of
+    private HashMap<Integer, double[]> nodeLocationMap; // locations of all
+    // the nodes in this network. Lookup uses node ID as key, array of double
+    // for x and y locations (at locations 0 and 1 of the array, respectively).
+    //
+    // This map is only filled in while the network structurer is being saved
+    // to or restored from a file, so that saved networks keep the same format.
+    // The rest of the time, locations are kept in xLocations and yLocations.
+    private long[] externalIDs; // external ID of each node, indexed by
+    // position in nodeList. Like nodeLocationMap, this is only filled in while
+    // the network structurer is being saved to or restored from a file; the
+    // rest of the time, external IDs are kept in nodeRegistry. Networks saved
+    // before external IDs existed restore with null here, and their nodes use
+    // their IDs as their external IDs.
+    private transient double[] xLocations; // x location of each node, indexed
+    // by node registry index
+    private transient double[] yLocations; // y location of each node, indexed
+    // by node registry index
+    private transient NodeRegistry nodeRegistry; // constant time lookup of
+    // the nodes in nodeList by ID and by external ID, rebuilt (keeping the
+    // external IDs already registered) whenever it falls out of step
+    private transient SpatialGrid spatialGrid; // grid index of the node
+    // locations, rebuilt whenever a location changes
+    private transient CompactGraph compactGraph; // compressed sparse row
+    // form of the links of the network, built once the links are generated
+    private transient AngularNeighbourIndex angularNeighbourIndex; // the
+    // neighbours of each node sorted by bearing, rebuilt whenever a location
+    // or the compact graph changes
+    private transient FloodTreeCache floodTreeCache; // flood trees of the
+    // sources flooded on the network, dropped when the compact graph changes
+    private transient NeighbourAliasTable degreeBiasAliasTable; // picks the
+    // neighbours of each node in proportion to a power of their degree,
+    // dropped when the compact graph changes
+    private transient double degreeBiasExponent; // exponent of the degrees
+    // in degreeBiasAliasTable
+    private transient NeighbourAliasTable linkWeightAliasTable; // picks the
     
-    // all the nodes in this network. Lookup uses node ID as key, array of
-    // double for x and y locations (at locations 0 and 1 of the array,
-    // respectively).
+    // neighbours of each node in proportion to the weights of their links,
+    // dropped when the compact graph changes
     
     /**
      * Constructor.
@@ -36,30 +73,68 @@ public class NetworkStructurer implements java.io.Serializable {
         searchCoordinator = pSearchCoordinator;
         nNodes = pnNodes;
         nodeList = new ArrayList<Node>(pnNodes);
-        nodeLocationMap = new HashMap<Integer, double[]>(pnNodes);
+        xLocations = new double[pnNodes];
+        yLocations = new double[pnNodes];
     }
     
     /**
-     * Gets a node by its ID.
+     * Adds a node to the network, using its ID as its external ID.
+     * 
+     * @param aNode
+     *            the node to add
+     */
+    public void addNode(final Node aNode) {
+        addNode(aNode, aNode.getNodeID());
+    }
+    
+    /**
+     * Adds a node to the network under an external ID (e.g. the identifier
+     * the node had in an imported topology).
      * 
-     * Doesn't feel like a very efficient way of doing things, however, but a
-     * HashMap would also result in linear time?
+     * @param aNode
+     *            the node to add
+     * @param externalID
+     *            the external ID of the node
+     */
+    public synchronized void addNode(final Node aNode, final long externalID) {
+        getNodeRegistry().register(aNode, externalID);
+        nodeList.add(aNode);
+    }
+    
+    /**
+     * Gets a node by its ID.
      * 
      * @param nodeID
      *            id of requested node
      * @return node matching the inputed nodeID, null if no such node exists
      */
     public Node getNodeByID(final int nodeID) {
-        final Iterator<Node> it = nodeList.iterator();
-        
-        while (it.hasNext()) {
-            final Node currentNode = it.next();
-            if (currentNode.getNodeID() == nodeID) {
-                return currentNode;
-            }
-        }
+        return getNodeRegistry().getNodeByID(nodeID);
+    }
+    
+    /**
+     * Gets a node by its external ID.
+     * 
+     * @param externalID
+     *            external ID of requested node
+     * @return node matching the external ID, null if no such node exists
+     */
+    public Node getNodeByExternalID(final long externalID) {
+        return getNodeRegistry().getNodeByExternalID(externalID);
+    }
+    
+    /**
+     * Gets the external ID of a node.
+     * 
+     * @param aNode
+     *            the node
+     * @return the external ID of the node
+     */
+    public long getExternalID(final Node aNode) {
+        final NodeRegistry aNodeRegistry = getNodeRegistry();
         
-        return null;
+        return aNodeRegistry.getExternalID(aNodeRegistry
+                .indexOfNodeID(aNode.getNodeID()));
     }
     
     /**
@@ -116,59 +191,394 @@ public class NetworkStructurer implements java.io.Serializable {
     }
     
     /**
-     * Calculates the distance between two points.
+     * Sets the location of a node.
+     * 
+     * @param nodeID
+     *            ID of the node
+     * @param xLocation
+     *            x location of the node, between 0 and 1
+     * @param yLocation
+     *            y location of the node, between 0 and 1
+     */
+    public synchronized void setNodeLocation(final int nodeID,
+            final double xLocation, final double yLocation) {
+        final int nodeIndex = getNodeRegistry().indexOfNodeID(nodeID);
+        
+        if (nodeIndex >= xLocations.length) {
+            final int newLength = Math.max(nodeIndex + 1, xLocations.length * 2);
+            xLocations = Arrays.copyOf(xLocations, newLength);
+            yLocations = Arrays.copyOf(yLocations, newLength);
+        }
+        
+        xLocations[nodeIndex] = xLocation;
+        yLocations[nodeIndex] = yLocation;
+        spatialGrid = null;
+        angularNeighbourIndex = null;
+    }
+    
+    /**
+     * Gets the x location of a node.
+     * 
+     * @param aNode
+     *            the node
+     * @return the x location of the node
+     */
+    public double getxLocation(final Node aNode) {
+        return xLocations[getNodeRegistry().indexOfNodeID(aNode.getNodeID())];
+    }
+    
+    /**
+     * Gets the y location of a node.
+     * 
+     * @param aNode
+     *            the node
+     * @return the y location of the node
+     */
+    public double getyLocation(final Node aNode) {
+        return yLocations[getNodeRegistry().indexOfNodeID(aNode.getNodeID())];
+    }
+    
+    /**
+     * Calculates the squared distance between two nodes. Comparing squared
+     * distances gives the same result as comparing distances without having
+     * to take any square roots.
      * 
-     * @param x1
-     *            first point's x-coordinate
-     * @param y1
-     *            first point's y-coordinate
-     * @param x2
-     *            second point's x-coordinate
-     * @param y2
-     *            second point's x-coordinate
-     * @return the distance between the two points
+     * @param nodeIndex1
+     *            node registry index of the first node
+     * @param nodeIndex2
+     *            node registry index of the second node
+     * @return the squared distance between the two nodes
+     */
+    public double calculateSquaredDistance(final int nodeIndex1,
+            final int nodeIndex2) {
+        final double dx = xLocations[nodeIndex1] - xLocations[nodeIndex2];
+        final double dy = yLocations[nodeIndex1] - yLocations[nodeIndex2];
+        
+        return (dx * dx) + (dy * dy);
+    }
+    
+    /**
+     * Calculates the squared distance between two nodes.
+     * 
+     * @param node1
+     *            the first node
+     * @param node2
+     *            the second node
+     * @return the squared distance between the two nodes
+     */
+    public double calculateSquaredDistanceBetweenNodes(final Node node1,
+            final Node node2) {
+        return calculateSquaredDistance(
+                getNodeRegistry().indexOfNodeID(node1.getNodeID()),
+                getNodeRegistry().indexOfNodeID(node2.getNodeID()));
+    }
+    
+    /**
+     * Calculates the distance between two nodes.
+     * 
+     * @param node1
+     *            the first node
+     * @param node2
+     *            the second node
+     * @return the distance between the two nodes
      */
     public double calculateDistanceBetweenNodes(final Node node1,
             final Node node2) {
-        final double xNode1 = nodeLocationMap.get(node1.getNodeID())[0];
-        final double yNode1 = nodeLocationMap.get(node1.getNodeID())[1];
-        final double xNode2 = nodeLocationMap.get(node2.getNodeID())[0];
-        final double yNode2 = nodeLocationMap.get(node2.getNodeID())[1];
+        return Math.sqrt(calculateSquaredDistanceBetweenNodes(node1, node2));
+    }
+    
+    /**
+     * Calculates the unit vector pointing from one node to another. Storing
+     * this vector once lets directions be compared later with a dot product
+     * instead of an angle.
+     * 
+     * @param sourceIndex
+     *            node registry index of the node at the source end of the
+     *            vector
+     * @param destinationIndex
+     *            node registry index of the node at the destination end of the
+     *            vector
+     * @return the x and y components of the unit vector (at locations 0 and 1
+     *         of the array, respectively), or a zero vector if both nodes are
+     *         at the same location
+     */
+    public double[] calculateUnitVector(final int sourceIndex,
+            final int destinationIndex) {
+        final double dx = xLocations[destinationIndex] - xLocations[sourceIndex];
+        final double dy = yLocations[destinationIndex] - yLocations[sourceIndex];
+        final double length = Math.sqrt((dx * dx) + (dy * dy));
         
-        return Math.sqrt(Math.pow(xNode1 - xNode2, 2) +
-                Math.pow(yNode1 - yNode2, 2));
+        if (length == 0) {
+            return new double[] {0, 0};
+        }
+        
+        return new double[] {dx / length, dy / length};
     }
     
     /**
-     * Calculates the direction of the line connecting two nodes.
+     * Calculates how closely the line connecting two nodes follows a given
+     * direction. The value is cos(a) * |cos(a)|, where a is the angle between
+     * the line and the direction, obtained from a dot product without any
+     * square root or trigonometric function. It ranges from -1 (opposite
+     * direction) to 1 (same direction), and a larger value always means a
+     * smaller angle, so it can be used directly to compare candidate nodes.
      * 
-     * @param sourceNode
-     *            node at the source end of the direction vector
-     * @param destinationNode
-     *            node at the destination end of the direction vector
-     * @return the direction of the vector (in degrees)
+     * @param sourceIndex
+     *            node registry index of the node at the source end of the line
+     * @param destinationIndex
+     *            node registry index of the node at the destination end of the
+     *            line
+     * @param unitVector
+     *            the direction, as returned by calculateUnitVector
+     * @return the alignment of the line with the direction, or -1 if both
+     *         nodes are at the same location
      */
-    public double calculateDirection(final Node sourceNode,
-            final Node destinationNode) {
-        final double xSourceNode =
-                nodeLocationMap.get(sourceNode.getNodeID())[0];
-        final double ySourceNode =
-                nodeLocationMap.get(sourceNode.getNodeID())[1];
-        final double xDestinationNode =
-                nodeLocationMap.get(destinationNode.getNodeID())[0];
-        final double yDestinationNode =
-                nodeLocationMap.get(destinationNode.getNodeID())[1];
+    public double calculateAlignment(final int sourceIndex,
+            final int destinationIndex, final double[] unitVector) {
+        final double dx = xLocations[destinationIndex] - xLocations[sourceIndex];
+        final double dy = yLocations[destinationIndex] - yLocations[sourceIndex];
+        final double squaredLength = (dx * dx) + (dy * dy);
+        
+        if (squaredLength == 0) {
+            return -1;
+        }
         
-        double direction =
-                Math.toDegrees(Math.atan2(xDestinationNode - xSourceNode,
-                        yDestinationNode - ySourceNode));
+        final double dotProduct = (dx * unitVector[0]) + (dy * unitVector[1]);
         
-        /* Makes the scale 0 - 360 degrees instead of -180 to +180. */
-        if (direction < 0) {
-            direction += 360;
+        return (dotProduct * Math.abs(dotProduct)) / squaredLength;
+    }
+    
+    /**
+     * Builds the spatial grid index of the node locations.
+     * 
+     * @param minimumCellSize
+     *            smallest permitted width and height of a cell (e.g. the
+     *            connection radius of a random geometric graph)
+     * @return the newly built spatial grid
+     */
+    public synchronized SpatialGrid buildSpatialGrid(
+            final double minimumCellSize) {
+        spatialGrid =
+                new SpatialGrid(xLocations, yLocations, nodeList.size(),
+                        minimumCellSize);
+        
+        return spatialGrid;
+    }
+    
+    /**
+     * Gets the spatial grid index of the node locations, building it first if
+     * it does not exist yet (e.g. after the network was restored from a file or
+     * a location was changed). A grid built here has cells of about one node
+     * each.
+     * 
+     * @return the spatialGrid
+     */
+    public synchronized SpatialGrid getSpatialGrid() {
+        if (spatialGrid == null) {
+            buildSpatialGrid(0);
         }
         
-        return direction;
+        return spatialGrid;
+    }
+    
+    /**
+     * Finds the node closest to a point.
+     * 
+     * @param x
+     *            x coordinate of the point
+     * @param y
+     *            y coordinate of the point
+     * @return the closest node, null if the network has no nodes
+     */
+    public Node findNearestNode(final double x, final double y) {
+        final int nodeIndex = getSpatialGrid().findNearestNode(x, y);
+        
+        return (nodeIndex == -1) ? null : getNodeRegistry().getNode(nodeIndex);
+    }
+    
+    /**
+     * Finds the nodes whose distance to a point is less than a radius.
+     * 
+     * @param x
+     *            x coordinate of the point
+     * @param y
+     *            y coordinate of the point
+     * @param radius
+     *            the radius
+     * @return the list of nodes found
+     */
+    public List<Node> findNodesWithinRadius(final double x, final double y,
+            final double radius) {
+        final int[] nodeIndices =
+                getSpatialGrid().findNodesWithinRadius(x, y, radius);
+        final List<Node> nodesFound = new ArrayList<Node>(nodeIndices.length);
+        
+        for (int iNode = 0; iNode < nodeIndices.length; iNode++) {
+            nodesFound.add(getNodeRegistry().getNode(nodeIndices[iNode]));
+        }
+        
+        return nodesFound;
+    }
+    
+    /**
+     * Builds the compressed sparse row form of the network from the links of
+     * each node. This must be called again if the links of the network change.
+     * 
+     * @return the newly built compact graph
+     */
+    public synchronized CompactGraph buildCompactGraph() {
+        compactGraph = new CompactGraph(getNodeRegistry());
+        angularNeighbourIndex = null;
+        floodTreeCache = null;
+        degreeBiasAliasTable = null;
+        linkWeightAliasTable = null;
+        
+        return compactGraph;
+    }
+    
+    /**
+     * Gets the node registry of the network. It is rebuilt from nodeList if it
+     * does not exist yet or if nodes were added to nodeList directly. The
+     * nodes that were already registered keep their external IDs, and the
+     * others use their IDs.
+     * 
+     * @return the nodeRegistry
+     */
+    public synchronized NodeRegistry getNodeRegistry() {
+        if ((nodeRegistry == null) ||
+                (nodeRegistry.getnNodes() != nodeList.size())) {
+            nodeRegistry =
+                    new NodeRegistry(nodeList, (nodeRegistry == null) ? null
+                            : nodeRegistry.copyExternalIDs());
+        }
+        
+        return nodeRegistry;
+    }
+    
+    /**
+     * Gets the compressed sparse row form of the network, building it first if
+     * it does not exist yet (e.g. after the network was restored from a file).
+     * 
+     * @return the compactGraph
+     */
+    public synchronized CompactGraph getCompactGraph() {
+        if (compactGraph == null) {
+            buildCompactGraph();
+        }
+        
+        return compactGraph;
+    }
+    
+    /**
+     * Gets the index of the neighbours of each node sorted by bearing,
+     * building it first if it does not exist yet (e.g. after the network was
+     * restored from a file or a location was changed).
+     * 
+     * @return the angularNeighbourIndex
+     */
+    public synchronized AngularNeighbourIndex getAngularNeighbourIndex() {
+        if (angularNeighbourIndex == null) {
+            angularNeighbourIndex =
+                    new AngularNeighbourIndex(xLocations, yLocations,
+                            getCompactGraph());
+        }
+        
+        return angularNeighbourIndex;
+    }
+    
+    /**
+     * Gets the cache of the flood trees of the sources flooded on the network,
+     * creating it first if it does not exist yet.
+     * 
+     * @return the floodTreeCache
+     */
+    public synchronized FloodTreeCache getFloodTreeCache() {
+        if (floodTreeCache == null) {
+            floodTreeCache = new FloodTreeCache(getCompactGraph());
+        }
+        
+        return floodTreeCache;
+    }
+    
+    /**
+     * Gets the alias table that picks the neighbours of each node in
+     * proportion to their degree raised to a given exponent, building it first
+     * if it does not exist yet or was built for another exponent. An exponent
+     * of 0 picks the neighbours uniformly, and a positive exponent favours the
+     * hubs of the network.
+     * 
+     * @param exponent
+     *            exponent of the degrees
+     * @return the degreeBiasAliasTable
+     */
+    public synchronized NeighbourAliasTable getDegreeBiasAliasTable(
+            final double exponent) {
+        if (Double.isNaN(exponent) || Double.isInfinite(exponent)) {
+            throw new IllegalArgumentException("Invalid degree exponent " +
+                    exponent);
+        }
+        
+        if ((degreeBiasAliasTable == null) ||
+                (degreeBiasExponent != exponent)) {
+            final CompactGraph aCompactGraph = getCompactGraph();
+            final int[] neighbours = aCompactGraph.getNeighbours();
+            final double[] weights = new double[neighbours.length];
+            
+            for (int position = 0; position < neighbours.length; position++) {
+                weights[position] =
+                        Math.pow(aCompactGraph.degree(neighbours[position]),
+                                exponent);
+            }
+            
+            degreeBiasAliasTable =
+                    new NeighbourAliasTable(aCompactGraph, weights, "degree^" +
+                            exponent);
+            degreeBiasExponent = exponent;
+        }
+        
+        return degreeBiasAliasTable;
+    }
+    
+    /**
+     * Gets the alias table that picks the neighbours of each node in
+     * proportion to the weights of the links leading to them, building it
+     * first if it does not exist yet. A neighbour reached by several links
+     * gets the sum of their weights.
+     * 
+     * @return the linkWeightAliasTable
+     */
+    public synchronized NeighbourAliasTable getLinkWeightAliasTable() {
+        if (linkWeightAliasTable == null) {
+            final CompactGraph aCompactGraph = getCompactGraph();
+            final int[] offsets = aCompactGraph.getOffsets();
+            final int[] neighbours = aCompactGraph.getNeighbours();
+            final double[] weights = new double[neighbours.length];
+            
+            for (int nodeIndex = 0; nodeIndex < aCompactGraph.getnNodes(); nodeIndex++) {
+                final Node aNode = aCompactGraph.getNode(nodeIndex);
+                
+                final Iterator<Link> itLinks = aNode.getLinksSet().iterator();
+                while (itLinks.hasNext()) {
+                    final Link aLink = itLinks.next();
+                    final int neighbourID =
+                            (aLink.getSourceNodeID() == aNode.getNodeID()) ? aLink
+                                    .getDestinationNodeID() : aLink
+                                    .getSourceNodeID();
+                    final int position =
+                            Arrays.binarySearch(neighbours, offsets[nodeIndex],
+                                    offsets[nodeIndex + 1],
+                                    aCompactGraph.indexOfNodeID(neighbourID));
+                    
+                    weights[position] += aLink.getWeight();
+                }
+            }
+            
+            linkWeightAliasTable =
+                    new NeighbourAliasTable(aCompactGraph, weights,
+                            "link weights");
+        }
+        
+        return linkWeightAliasTable;
     }
     
     /**
@@ -199,12 +609,79 @@ public class NetworkStructurer implements java.io.Serializable {
     }
     
     /**
-     * Getter for nodeLocationMap.
+     * Getter for xLocations. The array is shared, not copied, and is indexed
+     * by node registry index.
+     * 
+     * @return the xLocations
+     */
+    public double[] getxLocations() {
+        return xLocations;
+    }
+    
+    /**
+     * Getter for yLocations. The array is shared, not copied, and is indexed
+     * by node registry index.
      * 
-     * @return the nodeLocationMap
+     * @return the yLocations
      */
-    public HashMap<Integer, double[]> getNodeLocationMap() {
-        return nodeLocationMap;
+    public double[] getyLocations() {
+        return yLocations;
+    }
+    
+    /**
+     * Saves the network structurer, writing the node locations as
+     * nodeLocationMap and the external IDs of the nodes as externalIDs.
+     * 
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if the network structurer could not be written
+     */
+    private synchronized void writeObject(final ObjectOutputStream out)
+            throws IOException {
+        nodeLocationMap = new HashMap<Integer, double[]>(nodeList.size());
+        
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            nodeLocationMap.put(nodeList.get(iNode).getNodeID(), new double[] {
+                    xLocations[iNode], yLocations[iNode]});
+        }
+        externalIDs = getNodeRegistry().copyExternalIDs();
+        
+        out.defaultWriteObject();
+        nodeLocationMap = null;
+        externalIDs = null;
+    }
+    
+    /**
+     * Restores the network structurer, reading the node locations from
+     * nodeLocationMap and registering the nodes under the external IDs read
+     * from externalIDs.
+     * 
+     * @param in
+     *            the stream to read from
+     * @throws IOException
+     *             if the network structurer could not be read
+     * @throws ClassNotFoundException
+     *             if a class of the saved network could not be found
+     */
+    private void readObject(final ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        
+        xLocations = new double[nodeList.size()];
+        yLocations = new double[nodeList.size()];
+        
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            final double[] location =
+                    nodeLocationMap.get(nodeList.get(iNode).getNodeID());
+            xLocations[iNode] = location[0];
+            yLocations[iNode] = location[1];
+        }
+        
+        nodeLocationMap = null;
+        
+        nodeRegistry = new NodeRegistry(nodeList, externalIDs);
+        externalIDs = null;
     }
     
 }
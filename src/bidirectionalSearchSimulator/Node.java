@@ -57,15 +57,18 @@ public class Node implements Serializable {
      * Picks a random neighbour amongst the direct neighbours of this node. If
      * the node has no neighbours, it simply returns itself.
      * 
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
      * @return the randomly chosen neighbour or null
      */
-    public Node pickRandomNeighbour() {
+    public Node pickRandomNeighbour(
+            final RandomNumberGenerator randomNumberGenerator) {
         if (linkSet.size() == 0) {
             return this;
         }
         
         final int randomLinkPosition =
-                (int) (Math.floor(Math.random() * linkSet.size()));
+                randomNumberGenerator.nextInt(linkSet.size());
         int linkPositionCounter = 0;
         
         /* Iterates over each link in the set of links belonging to this node. */
@@ -0,0 +1,322 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NodeRegistry is a class that resolves node identifiers into node instances
+ * in constant time. Each registered node is given a dense index (the order in
+ * which it was registered, which is also its position in the node list of the
+ * network structurer).
+ * 
+ * Nodes are known by two identifiers, each with its own mapping to the dense
+ * indices:
+ * 
+ * - the node ID, which the links and the searches use. The networks generated
+ * by this simulator number their nodes 0, 1, 2, ... so node IDs are mapped to
+ * dense indices with a plain array indexed by node ID.
+ * 
+ * - the external ID, a 64-bit identifier which by default is the node's ID
+ * but which can be anything (e.g. the sparse identifiers of a topology
+ * imported from elsewhere). External IDs are mapped to dense indices with an
+ * open addressing hash table of primitive longs, so no boxing happens during
+ * lookups.
+ */
+public class NodeRegistry {
+    
+    private static final int EMPTY_SLOT = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private Node[] nodes;               // registered nodes, indexed by dense index
+    private long[] externalIDs;         // external ID of each registered node,
+    // indexed by dense index
+    private int nNodes = 0;             // number of registered nodes
+    private int[] indicesByNodeID;      // dense index of each node, indexed
+    // by node ID, EMPTY_SLOT for an unused node ID
+    private long[] hashKeys;            // external IDs stored in the hash table
+    private int[] hashValues;           // dense indices stored in the hash
+    // table, EMPTY_SLOT for an unused slot
+    private int hashMask;               // hash table capacity minus one
+    
+    /**
+     * Constructor.
+     * 
+     * @param pExpectedNodes
+     *            number of nodes expected to be registered, used to size the
+     *            tables
+     */
+    public NodeRegistry(final int pExpectedNodes) {
+        final int capacity = Math.max(pExpectedNodes, DEFAULT_CAPACITY);
+        nodes = new Node[capacity];
+        externalIDs = new long[capacity];
+        indicesByNodeID = new int[capacity];
+        Arrays.fill(indicesByNodeID, EMPTY_SLOT);
+        allocateHashTable(capacity);
+    }
+    
+    /**
+     * Constructor which registers every node of a list, in order, using each
+     * node's ID as its external ID.
+     * 
+     * @param nodeList
+     *            list of nodes to register
+     */
+    public NodeRegistry(final List<Node> nodeList) {
+        this(nodeList, null);
+    }
+    
+    /**
+     * Constructor which registers every node of a list, in order, under the
+     * external IDs given for them.
+     * 
+     * @param nodeList
+     *            list of nodes to register
+     * @param pExternalIDs
+     *            external ID of each node, indexed by position in the list.
+     *            The nodes beyond the end of this array (or all the nodes, if
+     *            it is null) use their ID as their external ID.
+     */
+    public NodeRegistry(final List<Node> nodeList, final long[] pExternalIDs) {
+        this(nodeList.size());
+        
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            final Node aNode = nodeList.get(iNode);
+            
+            if ((pExternalIDs != null) && (iNode < pExternalIDs.length)) {
+                register(aNode, pExternalIDs[iNode]);
+            }
+            else {
+                register(aNode);
+            }
+        }
+    }
+    
+    /**
+     * Registers a node using its ID as its external ID.
+     * 
+     * @param aNode
+     *            the node to register
+     * @return the dense index given to the node
+     */
+    public int register(final Node aNode) {
+        return register(aNode, aNode.getNodeID());
+    }
+    
+    /**
+     * Registers a node under an external ID.
+     * 
+     * @param aNode
+     *            the node to register
+     * @param externalID
+     *            the external ID of the node
+     * @return the dense index given to the node
+     */
+    public int register(final Node aNode, final long externalID) {
+        final int nodeID = aNode.getNodeID();
+        
+        if (nodeID < 0) {
+            throw new IllegalArgumentException("Node IDs must not be negative.");
+        }
+        
+        if (indexOfNodeID(nodeID) != EMPTY_SLOT) {
+            throw new IllegalArgumentException("A node with ID " + nodeID +
+                    " is already registered.");
+        }
+        
+        if (indexOfExternalID(externalID) != EMPTY_SLOT) {
+            throw new IllegalArgumentException("A node with external ID " +
+                    externalID + " is already registered.");
+        }
+        
+        if (nNodes == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nNodes * 2);
+            externalIDs = Arrays.copyOf(externalIDs, nNodes * 2);
+        }
+        
+        if (nodeID >= indicesByNodeID.length) {
+            final int oldLength = indicesByNodeID.length;
+            indicesByNodeID =
+                    Arrays.copyOf(indicesByNodeID,
+                            Math.max(nodeID + 1, oldLength * 2));
+            Arrays.fill(indicesByNodeID, oldLength, indicesByNodeID.length,
+                    EMPTY_SLOT);
+        }
+        
+        /* Keeps the hash table at most half full. */
+        if ((nNodes + 1) * 2 > hashKeys.length) {
+            allocateHashTable(hashKeys.length);
+            for (int iNode = 0; iNode < nNodes; iNode++) {
+                insertIntoHashTable(externalIDs[iNode], iNode);
+            }
+        }
+        
+        final int nodeIndex = nNodes;
+        nodes[nodeIndex] = aNode;
+        externalIDs[nodeIndex] = externalID;
+        indicesByNodeID[nodeID] = nodeIndex;
+        insertIntoHashTable(externalID, nodeIndex);
+        nNodes++;
+        
+        return nodeIndex;
+    }
+    
+    /**
+     * Gets the dense index of the node with a given ID.
+     * 
+     * @param nodeID
+     *            ID of the requested node
+     * @return the dense index of the node, -1 if no such node exists
+     */
+    public int indexOfNodeID(final int nodeID) {
+        if ((nodeID < 0) || (nodeID >= indicesByNodeID.length)) {
+            return EMPTY_SLOT;
+        }
+        
+        return indicesByNodeID[nodeID];
+    }
+    
+    /**
+     * Gets the dense index of the node with a given external ID.
+     * 
+     * @param externalID
+     *            external ID of the requested node
+     * @return the dense index of the node, -1 if no such node exists
+     */
+    public int indexOfExternalID(final long externalID) {
+        int slot = hash(externalID) & hashMask;
+        
+        while (hashValues[slot] != EMPTY_SLOT) {
+            if (hashKeys[slot] == externalID) {
+                return hashValues[slot];
+            }
+            
+            slot = (slot + 1) & hashMask;
+        }
+        
+        return EMPTY_SLOT;
+    }
+    
+    /**
+     * Gets the node with a given external ID.
+     * 
+     * @param externalID
+     *            external ID of the requested node
+     * @return the node, null if no such node exists
+     */
+    public Node getNodeByExternalID(final long externalID) {
+        final int nodeIndex = indexOfExternalID(externalID);
+        
+        return (nodeIndex == EMPTY_SLOT) ? null : nodes[nodeIndex];
+    }
+    
+    /**
+     * Gets the node with a given ID.
+     * 
+     * @param nodeID
+     *            ID of the requested node
+     * @return the node, null if no such node exists
+     */
+    public Node getNodeByID(final int nodeID) {
+        final int nodeIndex = indexOfNodeID(nodeID);
+        
+        return (nodeIndex == EMPTY_SLOT) ? null : nodes[nodeIndex];
+    }
+    
+    /**
+     * Gets the node at a given dense index.
+     * 
+     * @param nodeIndex
+     *            dense index of the node
+     * @return the node at that index
+     */
+    public Node getNode(final int nodeIndex) {
+        return nodes[nodeIndex];
+    }
+    
+    /**
+     * Gets the external ID of the node at a given dense index.
+     * 
+     * @param nodeIndex
+     *            dense index of the node
+     * @return the external ID of the node
+     */
+    public long getExternalID(final int nodeIndex) {
+        return externalIDs[nodeIndex];
+    }
+    
+    /**
+     * Copies the external IDs of the registered nodes.
+     * 
+     * @return the external ID of each registered node, indexed by dense index
+     */
+    public long[] copyExternalIDs() {
+        return Arrays.copyOf(externalIDs, nNodes);
+    }
+    
+    /**
+     * Getter for nNodes.
+     * 
+     * @return the nNodes
+     */
+    public int getnNodes() {
+        return nNodes;
+    }
+    
+    /**
+     * Allocates an empty hash table large enough to hold a number of entries
+     * while staying at most half full.
+     * 
+     * @param nEntries
+     *            number of entries the table must be able to hold
+     */
+    private void allocateHashTable(final int nEntries) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < nEntries * 2) {
+            capacity *= 2;
+        }
+        
+        hashKeys = new long[capacity];
+        hashValues = new int[capacity];
+        Arrays.fill(hashValues, EMPTY_SLOT);
+        hashMask = capacity - 1;
+    }
+    
+    /**
+     * Inserts an entry in the hash table using linear probing.
+     * 
+     * @param externalID
+     *            key of the entry
+     * @param nodeIndex
+     *            value of the entry
+     */
+    private void insertIntoHashTable(final long externalID, final int nodeIndex) {
+        int slot = hash(externalID) & hashMask;
+        
+        while (hashValues[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & hashMask;
+        }
+        
+        hashKeys[slot] = externalID;
+        hashValues[slot] = nodeIndex;
+    }
+    
+    /**
+     * Mixes the bits of an external ID so that sequential or strided IDs are
+     * spread over the hash table (finalizer of the 64-bit MurmurHash3).
+     * 
+     * @param externalID
+     *            the external ID to hash
+     * @return the hash of the external ID
+     */
+    private static int hash(final long externalID) {
+        long h = externalID;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        
+        return (int) h;
+    }
+    
+}
@@ -0,0 +1,92 @@
+package bidirectionalSearchSimulator;
+
+import java.util.ArrayDeque;
+
+/**
+ * NodeSetPool is a class that keeps the node sets of a network that are no
+ * longer used, so that the next searches run on the same network can reuse
+ * them instead of allocating new ones. Each StampedNodeSet holds a stamp per
+ * node of the network, so allocating one for every query of every simulation
+ * would otherwise cost as much as the search itself on small TTLs.
+ * 
+ * The pool is shared by all the searches run on the network, including the
+ * searches of a batch run in parallel, so taking and returning sets is
+ * synchronized.
+ * 
+ * The free sets of the pool hold at most MAX_FREE_STAMPS stamps between them,
+ * so that the sets left over by a batch of many queries on a large network
+ * are not kept for the lifetime of the network: a set returned to a full pool
+ * is dropped.
+ */
+public class NodeSetPool {
+    
+    private static final int MAX_FREE_STAMPS = 1 << 22;  // largest number of
+    // stamps held by the free sets of the pool
+    
+    private final CompactGraph compactGraph;  // network whose nodes the sets
+    // hold
+    private final int maxFreeNodeSets;  // largest number of free sets kept
+    private final ArrayDeque<StampedNodeSet> freeNodeSetsDeque;  // sets
+    
+    // returned to the pool and ready to be reused
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network whose nodes the sets hold
+     */
+    public NodeSetPool(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        maxFreeNodeSets =
+                Math.max(1, MAX_FREE_STAMPS /
+                        Math.max(1, pCompactGraph.getnNodes()));
+        freeNodeSetsDeque = new ArrayDeque<StampedNodeSet>();
+    }
+    
+    /**
+     * Takes an empty set from the pool, creating a new one if the pool is
+     * empty.
+     * 
+     * @return an empty set
+     */
+    public synchronized StampedNodeSet acquire() {
+        final StampedNodeSet aNodeSet = freeNodeSetsDeque.pollFirst();
+        
+        return (aNodeSet != null) ? aNodeSet : new StampedNodeSet(compactGraph);
+    }
+    
+    /**
+     * Returns a set to the pool, unless the pool is full. The set is emptied
+     * and must not be used by the caller afterwards.
+     * 
+     * @param aNodeSet
+     *            the set to return
+     */
+    public synchronized void release(final StampedNodeSet aNodeSet) {
+        aNodeSet.clear();
+        
+        if (freeNodeSetsDeque.size() < maxFreeNodeSets) {
+            freeNodeSetsDeque.addFirst(aNodeSet);
+        }
+    }
+    
+    /**
+     * Gets the number of sets waiting to be reused.
+     * 
+     * @return the number of free sets
+     */
+    public synchronized int getnFreeNodeSets() {
+        return freeNodeSetsDeque.size();
+    }
+    
+    /**
+     * Getter for maxFreeNodeSets.
+     * 
+     * @return the largest number of free sets kept by the pool
+     */
+    public int getMaxFreeNodeSets() {
+        return maxFreeNodeSets;
+    }
+    
+}
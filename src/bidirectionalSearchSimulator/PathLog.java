@@ -0,0 +1,334 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+
+/**
+ * PathLog is a class that records the path followed by a walker, as the list
+ * of the node IDs of the nodes from which it hopped, in the order of the hops.
+ * Adding a hop and looking up the last hop (e.g. to avoid sending the query
+ * straight back to the node it came from) take constant time, whatever the
+ * length of the path.
+ * 
+ * A path log can also be bounded to a window of the last hops, for searches
+ * that do not need the whole history of the walker. The hops are then kept in
+ * a circular buffer, and the oldest hop is dropped when a new one is added to
+ * a full window.
+ * 
+ * A path log can be forked, e.g. when a query is replicated, so that each copy
+ * goes on with the path walked so far and then records its own hops. Forking
+ * an unbounded path log freezes the hops it holds into a prefix log, shared
+ * by both copies, and each copy records its next hops in a new array, so that
+ * forking takes constant time and the copies only take memory for their new
+ * hops. A bounded path log is copied, as it holds at most its window of hops.
+ */
+public class PathLog {
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private final int windowSize;       // maximum number of hops kept, 0 if
+    // the whole path is kept
+    private int[] hops;                 // node IDs of the hops (circular
+    // buffer when the path log is bounded)
+    private int start = 0;              // position of the oldest kept hop
+    private int size = 0;               // number of hops kept
+    private int nHops = 0;              // number of hops added since the
+    // path log was created or last cleared
+    private PathLog prefixLog = null;   // frozen log holding the first hops of
+    // the path, shared with the logs forked from the same log, null if none
+    private int nPrefixHops = 0;        // number of hops held by the prefix
+    
+    // log, which come before the hops held by this log
+    
+    /**
+     * Constructor. Creates an empty path log that keeps the whole path.
+     */
+    public PathLog() {
+        this(0);
+    }
+    
+    /**
+     * Constructor. Creates an empty path log.
+     * 
+     * @param pWindowSize
+     *            maximum number of hops kept, 0 to keep the whole path
+     */
+    public PathLog(final int pWindowSize) {
+        if (pWindowSize < 0) {
+            throw new IllegalArgumentException("The window size of a path " +
+                    "log cannot be negative: " + pWindowSize);
+        }
+        
+        windowSize = pWindowSize;
+        hops = new int[(pWindowSize > 0) ? pWindowSize : DEFAULT_CAPACITY];
+    }
+    
+    /**
+     * Constructor. Creates an unbounded path log holding given hops, used to
+     * freeze the hops of a path log that is forked.
+     * 
+     * @param pHops
+     *            node IDs of the hops following the hops of the prefix log
+     * @param pSize
+     *            number of hops of the path
+     * @param pPrefixLog
+     *            log holding the first hops of the path, null if none
+     * @param pnPrefixHops
+     *            number of hops held by the prefix log
+     */
+    private PathLog(final int[] pHops, final int pSize,
+            final PathLog pPrefixLog, final int pnPrefixHops) {
+        windowSize = 0;
+        hops = pHops;
+        size = pSize;
+        prefixLog = pPrefixLog;
+        nPrefixHops = pnPrefixHops;
+    }
+    
+    /**
+     * Creates a path log holding the same path, which then records its hops
+     * independently of this path log.
+     * 
+     * @return the new path log
+     */
+    public PathLog fork() {
+        final PathLog aPathLog = new PathLog(windowSize);
+        
+        if (windowSize > 0) {
+            for (int iHop = 0; iHop < size; iHop++) {
+                aPathLog.hops[iHop] = hopAt(iHop);
+            }
+        }
+        else if (size > 0) {
+            /* Freezes the hops added since the last fork, if any. */
+            if (size > nPrefixHops) {
+                prefixLog = new PathLog(hops, size, prefixLog, nPrefixHops);
+                nPrefixHops = size;
+                hops = new int[DEFAULT_CAPACITY];
+            }
+            
+            aPathLog.prefixLog = prefixLog;
+            aPathLog.nPrefixHops = nPrefixHops;
+        }
+        
+        aPathLog.size = size;
+        aPathLog.nHops = nHops;
+        
+        return aPathLog;
+    }
+    
+    /**
+     * Adds a hop at the end of the path, dropping the oldest hop if the window
+     * is full.
+     * 
+     * @param nodeID
+     *            ID of the node from which the walker hopped
+     */
+    public void append(final int nodeID) {
+        if (windowSize > 0) {
+            if (size < hops.length) {
+                hops[(start + size) % hops.length] = nodeID;
+                size++;
+            }
+            else {
+                hops[start] = nodeID;
+                start = (start + 1) % hops.length;
+            }
+        }
+        else {
+            final int nOwnHops = size - nPrefixHops;
+            
+            if (nOwnHops == hops.length) {
+                hops = Arrays.copyOf(hops, nOwnHops * 2);
+            }
+            
+            hops[nOwnHops] = nodeID;
+            size++;
+        }
+        
+        nHops++;
+    }
+    
+    /**
+     * Checks if no hop has been added to the path.
+     * 
+     * @return true if the path is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Gets the last hop of the path.
+     * 
+     * @return the ID of the node from which the walker last hopped, -1 if the
+     *         path is empty
+     */
+    public int getLastHop() {
+        return (size > 0) ? getHop(0) : -1;
+    }
+    
+    /**
+     * Gets a hop of the path, counting back from the last hop.
+     * 
+     * @param nHopsBack
+     *            number of hops between the requested hop and the last hop
+     *            (0 for the last hop), less than the number of kept hops
+     * @return the ID of the node of the requested hop
+     */
+    public int getHop(final int nHopsBack) {
+        if ((nHopsBack < 0) || (nHopsBack >= size)) {
+            throw new IndexOutOfBoundsException("Hop " + nHopsBack +
+                    " is not kept by a path log holding " + size + " hops.");
+        }
+        
+        return hopAt(size - 1 - nHopsBack);
+    }
+    
+    /**
+     * Gets a hop of the path, counting from the oldest kept hop.
+     * 
+     * @param iHop
+     *            position of the hop, less than the number of kept hops
+     * @return the ID of the node of the hop
+     */
+    private int hopAt(final int iHop) {
+        if (windowSize > 0) {
+            return hops[(start + iHop) % hops.length];
+        }
+        
+        PathLog aPathLog = this;
+        while (iHop < aPathLog.nPrefixHops) {
+            aPathLog = aPathLog.prefixLog;
+        }
+        
+        return aPathLog.hops[iHop - aPathLog.nPrefixHops];
+    }
+    
+    /**
+     * Checks if the walker hopped from a node in one of the kept hops.
+     * 
+     * @param nodeID
+     *            ID of the node
+     * @return true if the node is on the kept part of the path
+     */
+    public boolean contains(final int nodeID) {
+        if (windowSize > 0) {
+            for (int iHop = 0; iHop < size; iHop++) {
+                if (hops[(start + iHop) % hops.length] == nodeID) {
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        for (int iHop = 0; iHop < size - nPrefixHops; iHop++) {
+            if (hops[iHop] == nodeID) {
+                return true;
+            }
+        }
+        
+        return (prefixLog != null) && prefixLog.contains(nodeID);
+    }
+    
+    /**
+     * Gets the kept hops of the path, from the oldest to the last.
+     * 
+     * @return the node IDs of the kept hops
+     */
+    public int[] toArray() {
+        final int[] pathArray = new int[size];
+        copyHops(pathArray);
+        
+        return pathArray;
+    }
+    
+    /**
+     * Copies the kept hops of the path, from the oldest to the last, at the
+     * start of an array.
+     * 
+     * @param pathArray
+     *            the array, holding at least the kept hops
+     */
+    private void copyHops(final int[] pathArray) {
+        if (windowSize > 0) {
+            for (int iHop = 0; iHop < size; iHop++) {
+                pathArray[iHop] = hops[(start + iHop) % hops.length];
+            }
+            
+            return;
+        }
+        
+        if (prefixLog != null) {
+            prefixLog.copyHops(pathArray);
+        }
+        
+        System.arraycopy(hops, 0, pathArray, nPrefixHops, size - nPrefixHops);
+    }
+    
+    /**
+     * Reconstructs the path followed by the walker up to the node where it
+     * currently resides. If the path log is unbounded (or has not dropped any
+     * hop yet), the path starts at the source of the walker.
+     * 
+     * @param currentNodeID
+     *            ID of the node where the walker currently resides
+     * @return the node IDs of the kept hops, from the oldest to the last,
+     *         followed by the current node
+     */
+    public int[] reconstructPath(final int currentNodeID) {
+        final int[] pathArray = Arrays.copyOf(toArray(), size + 1);
+        pathArray[size] = currentNodeID;
+        
+        return pathArray;
+    }
+    
+    /**
+     * Empties the path log.
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+        nHops = 0;
+        prefixLog = null;
+        nPrefixHops = 0;
+    }
+    
+    /**
+     * Gets the number of hops kept by the path log.
+     * 
+     * @return the number of kept hops
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Getter for nHops.
+     * 
+     * @return the number of hops added since the path log was created or last
+     *         cleared, including the dropped ones
+     */
+    public int getnHops() {
+        return nHops;
+    }
+    
+    /**
+     * Getter for windowSize.
+     * 
+     * @return the windowSize, 0 if the whole path is kept
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+    
+    /**
+     * Checks if the path log drops its oldest hops.
+     * 
+     * @return true if the path log is bounded to a window of hops
+     */
+    public boolean isBounded() {
+        return windowSize > 0;
+    }
+    
+}
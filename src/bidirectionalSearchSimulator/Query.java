@@ -27,6 +27,21 @@ import java.util.Set;
  * a node may be marked as visited even if it does not necessarily propagate
  * the query.
  * 
+ * The sets of current and visited nodes are created when first needed. The
+ * sets of current nodes only hold the few nodes on which the query resides
+ * (see Search.createNodeSet), while the sets of visited nodes are taken from
+ * the node set pool of the network (see Search.createVisitedNodeSet), so that
+ * the queries of successive searches on the same network reuse them. The
+ * query also keeps a spare set of current nodes, handed out by
+ * getNextNodesSet, which the search fills during a propagation step and then
+ * makes the set of current nodes; the previous set of current nodes becomes
+ * the next spare set.
+ * 
+ * Random walk-based searches record the path of each walker in its path log,
+ * which is also created when first needed (see Search.createPathLog). The
+ * flooding-based searches record the previous hops of each current node in
+ * the map of previous hops instead.
+ * 
  * Missing from this class is the concept of time-to-live. As not all search
  * queries use a time-to-live, I decided to leave it up to the individual search
  * scheme to decide whether or not to implement it.
@@ -40,7 +55,9 @@ public class Query implements Serializable {
     private Node sourceNode;            // source node for each search instance
     private Set<Node> targetNodesSet;   // set of target nodes for each search instance
     private transient Set<Node> currentNodesSet;  // set of nodes where the search currently resides
+    private transient Set<Node> nextNodesSet;     // spare set that becomes the set of current nodes
     private transient Set<Node> visitedNodesSet;  // set of nodes visited during the search
+    private transient PathLog pathLog;  // path followed by the walker of the query
     private transient HashMap<Integer, ArrayList<Integer>> currentNodesPrevHopMap;  // a sort of
     
     // memory that can be used by the search strategy to maintain information regarding
@@ -61,12 +78,20 @@ public class Query implements Serializable {
         firstHop = true;
         
         targetNodesSet = new HashSet<Node>();
-        currentNodesSet = new HashSet<Node>();
         currentNodesPrevHopMap = new HashMap<Integer, ArrayList<Integer>>();
-        visitedNodesSet = new HashSet<Node>();
         
     }
     
+    /**
+     * Creates an empty set of current nodes, given by the search if the query
+     * belongs to one.
+     * 
+     * @return an empty set of nodes
+     */
+    private Set<Node> createNodeSet() {
+        return (search != null) ? search.createNodeSet() : new HashSet<Node>();
+    }
+    
     /**
      * Getter for queryID.
      * 
@@ -143,31 +168,87 @@ public class Query implements Serializable {
         this.currentNodesPrevHopMap = currentNodesPrevHopMap;
     }
     
+    /**
+     * Getter for pathLog.
+     * 
+     * @return the pathLog
+     */
+    public PathLog getPathLog() {
+        if (pathLog == null) {
+            pathLog = (search != null) ? search.createPathLog() : new PathLog();
+        }
+        
+        return pathLog;
+    }
+    
+    /**
+     * Setter for pathLog.
+     * 
+     * @param pathLog
+     *            the pathLog to set
+     */
+    public void setPathLog(final PathLog pathLog) {
+        this.pathLog = pathLog;
+    }
+    
     /**
      * Getter for currentNodesSet.
      * 
      * @return the currentNodesSet
      */
     public Set<Node> getCurrentNodesSet() {
+        if (currentNodesSet == null) {
+            currentNodesSet = createNodeSet();
+        }
+        
         return currentNodesSet;
     }
     
     /**
-     * Setter for currentNodesSet.
+     * Setter for currentNodesSet. If the new set is the one given by
+     * getNextNodesSet, the previous set of current nodes becomes the spare
+     * set.
      * 
      * @param currentNodesSet
      *            the currentNodesSet to set
      */
     public void setCurrentNodesSet(final Set<Node> currentNodesSet) {
+        if ((currentNodesSet == nextNodesSet) && (currentNodesSet != null)) {
+            nextNodesSet = this.currentNodesSet;
+        }
+        
         this.currentNodesSet = currentNodesSet;
     }
     
+    /**
+     * Gets an empty set to be filled with the nodes that receive the query
+     * during a propagation step, and then given to setCurrentNodesSet.
+     * 
+     * @return an empty set of nodes
+     */
+    public Set<Node> getNextNodesSet() {
+        if (nextNodesSet == null) {
+            nextNodesSet = createNodeSet();
+        }
+        else {
+            nextNodesSet.clear();
+        }
+        
+        return nextNodesSet;
+    }
+    
     /**
      * Getter for visitedNodesSet.
      * 
      * @return the visitedNodesSet
      */
     public Set<Node> getVisitedNodesSet() {
+        if (visitedNodesSet == null) {
+            visitedNodesSet =
+                    (search != null) ? search.createVisitedNodeSet()
+                            : new HashSet<Node>();
+        }
+        
         return visitedNodesSet;
     }
     
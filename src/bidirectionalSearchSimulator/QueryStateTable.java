@@ -0,0 +1,214 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+
+/**
+ * QueryStateTable is a class that stores the state that the search strategies
+ * keep for each of their queries (time-to-live, query group, deadlock flag,
+ * etc.) in one column per field, indexed by query ID. As query IDs are handed
+ * out in order (0, 1, 2, ...), reading or updating a field is a direct array
+ * access, without boxing the values or hashing the IDs.
+ * 
+ * The columns double in size whenever they are full, so queries spawned
+ * during the search (e.g. by replication or after a deadlock) are simply
+ * appended to the table.
+ */
+public class QueryStateTable {
+    
+    private static final int DEFAULT_CAPACITY = 4;
+    
+    private int nQueries = 0;           // number of queries in the table
+    private Query[] queries;            // the queries, indexed by query ID
+    private int[] ttls;                 // time-to-live value of each query
+    private int[] queryGroupIDs;        // query group of each query, -1 if the
+    // query does not belong to a group
+    private int[] flagsWalkerDeadlock;  // signals deadlock by the walker of
+    // each query (1 if in deadlock, 0 otherwise)
+    private double[][] firstHopDirections;  // unit vector connecting the
+    
+    // source node to its first hop for each query, null before the first hop
+    
+    /**
+     * Constructor. Creates an empty table.
+     */
+    public QueryStateTable() {
+        queries = new Query[DEFAULT_CAPACITY];
+        ttls = new int[DEFAULT_CAPACITY];
+        queryGroupIDs = new int[DEFAULT_CAPACITY];
+        flagsWalkerDeadlock = new int[DEFAULT_CAPACITY];
+        firstHopDirections = new double[DEFAULT_CAPACITY][];
+    }
+    
+    /**
+     * Adds a query to the table, with a time-to-live of 0, no query group and
+     * no deadlock.
+     * 
+     * @param aQuery
+     *            the query to add, whose ID must be the number of queries
+     *            already in the table
+     */
+    public void addQuery(final Query aQuery) {
+        if (aQuery.getQueryID() != nQueries) {
+            throw new IllegalArgumentException("Query " + aQuery.getQueryID() +
+                    " cannot be added to a table holding " + nQueries +
+                    " queries.");
+        }
+        
+        if (nQueries == queries.length) {
+            final int capacity = nQueries * 2;
+            queries = Arrays.copyOf(queries, capacity);
+            ttls = Arrays.copyOf(ttls, capacity);
+            queryGroupIDs = Arrays.copyOf(queryGroupIDs, capacity);
+            flagsWalkerDeadlock = Arrays.copyOf(flagsWalkerDeadlock, capacity);
+            firstHopDirections = Arrays.copyOf(firstHopDirections, capacity);
+        }
+        
+        queries[nQueries] = aQuery;
+        queryGroupIDs[nQueries] = -1;
+        nQueries++;
+    }
+    
+    /**
+     * Getter for nQueries.
+     * 
+     * @return the nQueries
+     */
+    public int getnQueries() {
+        return nQueries;
+    }
+    
+    /**
+     * Gets a query from its ID.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @return the query
+     */
+    public Query getQuery(final int queryID) {
+        return queries[queryID];
+    }
+    
+    /**
+     * Gets the time-to-live of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @return the time-to-live of the query
+     */
+    public int getTtl(final int queryID) {
+        return ttls[queryID];
+    }
+    
+    /**
+     * Sets the time-to-live of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @param ttl
+     *            the time-to-live to set
+     */
+    public void setTtl(final int queryID, final int ttl) {
+        ttls[queryID] = ttl;
+    }
+    
+    /**
+     * Decrements the time-to-live of a query by one.
+     * 
+     * @param queryID
+     *            ID of the query
+     */
+    public void decrementTtl(final int queryID) {
+        ttls[queryID]--;
+    }
+    
+    /**
+     * Counts the queries whose time-to-live has reached 0.
+     * 
+     * @return the number of queries with an expired time-to-live
+     */
+    public int countExpiredTtls() {
+        int nExpiredTtls = 0;
+        
+        for (int iQuery = 0; iQuery < nQueries; iQuery++) {
+            if (ttls[iQuery] == 0) {
+                nExpiredTtls++;
+            }
+        }
+        
+        return nExpiredTtls;
+    }
+    
+    /**
+     * Gets the query group of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @return the query group ID of the query, -1 if it has no group
+     */
+    public int getQueryGroupID(final int queryID) {
+        return queryGroupIDs[queryID];
+    }
+    
+    /**
+     * Sets the query group of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @param queryGroupID
+     *            the query group ID to set
+     */
+    public void setQueryGroupID(final int queryID, final int queryGroupID) {
+        queryGroupIDs[queryID] = queryGroupID;
+    }
+    
+    /**
+     * Gets the walker deadlock flag of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @return 1 if the walker of the query is in deadlock, 0 otherwise
+     */
+    public int getFlagWalkerDeadlock(final int queryID) {
+        return flagsWalkerDeadlock[queryID];
+    }
+    
+    /**
+     * Sets the walker deadlock flag of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @param flagWalkerDeadlock
+     *            1 if the walker of the query is in deadlock, 0 otherwise
+     */
+    public void setFlagWalkerDeadlock(final int queryID,
+            final int flagWalkerDeadlock) {
+        flagsWalkerDeadlock[queryID] = flagWalkerDeadlock;
+    }
+    
+    /**
+     * Gets the direction of the first hop of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @return the unit vector connecting the source node of the query to its
+     *         first hop, null before the first hop
+     */
+    public double[] getFirstHopDirection(final int queryID) {
+        return firstHopDirections[queryID];
+    }
+    
+    /**
+     * Sets the direction of the first hop of a query.
+     * 
+     * @param queryID
+     *            ID of the query
+     * @param firstHopDirection
+     *            the unit vector connecting the source node of the query to
+     *            its first hop
+     */
+    public void setFirstHopDirection(final int queryID,
+            final double[] firstHopDirection) {
+        firstHopDirections[queryID] = firstHopDirection;
+    }
+    
+}
@@ -1,6 +1,5 @@
 package bidirectionalSearchSimulator;
 
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -18,7 +17,8 @@ public class RandomGeometric extends Network {
     // probability of forming a link between two nodes
     
     /**
-     * Constructor.
+     * Constructor. The network is generated with its own randomly seeded
+     * generator.
      * 
      * @param pNetworkStructurer
      *            network structurer containing node information used by this
@@ -31,7 +31,28 @@ public class RandomGeometric extends Network {
      */
     public RandomGeometric(final NetworkStructurer pNetworkStructurer,
             final int pnNodes, final double pLinkProbability) {
-        super(pNetworkStructurer, pnNodes);
+        this(pNetworkStructurer, pnNodes, pLinkProbability,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnNodes
+     *            total number of nodes in the network
+     * @param pLinkProbability
+     *            probability (distance-based) that a link is generated between
+     *            two nodes
+     * @param pRandomNumberGenerator
+     *            source of randomness used to generate this network
+     */
+    public RandomGeometric(final NetworkStructurer pNetworkStructurer,
+            final int pnNodes, final double pLinkProbability,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pNetworkStructurer, pnNodes, pRandomNumberGenerator);
         linkProbability = pLinkProbability;
     }
     
@@ -42,11 +63,12 @@ public class RandomGeometric extends Network {
     public void generateNodes() {
         for (int iNode = 0; iNode < nNodes; iNode++) {
             /* Creates a node. */
-            networkStructurer.getNodeList().add(new Node(iNode));
+            networkStructurer.addNode(new Node(iNode));
             
             /* Generates and stores the node's location. */
-            networkStructurer.getNodeLocationMap().put(iNode,
-                    new double[] {Math.random(), Math.random()});
+            networkStructurer.setNodeLocation(iNode,
+                    randomNumberGenerator.nextDouble(),
+                    randomNumberGenerator.nextDouble());
         }
     }
     
@@ -54,35 +76,76 @@ public class RandomGeometric extends Network {
      * Generates the links for this network. Each link is generated
      * if the distance between the two nodes is less than or equal to the
      * probability linkProbability.
+     * 
+     * The nodes are first put in a spatial grid whose cells are at least
+     * linkProbability wide, so two nodes close enough to be linked are always
+     * in the same cell or in neighbouring cells. Each node then only has to be
+     * compared with the nodes of the 3x3 block of cells around it.
      */
     @Override
     public void generateLinks() {
-        List<Node> nodeList = networkStructurer.getNodeList();
-        final Iterator<Node> it1 = nodeList.iterator();
+        final List<Node> nodeList = networkStructurer.getNodeList();
+        final SpatialGrid spatialGrid =
+                networkStructurer.buildSpatialGrid(linkProbability);
+        final int nCellsPerSide = spatialGrid.getnCellsPerSide();
+        final int[] cellOffsets = spatialGrid.getCellOffsets();
+        final int[] cellNodes = spatialGrid.getCellNodes();
         
-        while (it1.hasNext()) {
-            Node node1 = it1.next();
-            Iterator<Node> it2 = nodeList.iterator();
-            
-            while (it2.hasNext()) {
-                Node node2 = it2.next();
+        /*
+         * Compares squared distances with the squared link probability, which
+         * avoids taking a square root for every pair of nodes.
+         */
+        final double squaredLinkProbability = linkProbability * linkProbability;
+        
+        for (int row = 0; row < nCellsPerSide; row++) {
+            for (int column = 0; column < nCellsPerSide; column++) {
+                final int cell = spatialGrid.findCell(column, row);
+                
+                final int firstNeighbourRow = Math.max(0, row - 1);
+                final int lastNeighbourRow = Math.min(nCellsPerSide - 1, row + 1);
+                final int firstNeighbourColumn = Math.max(0, column - 1);
+                final int lastNeighbourColumn =
+                        Math.min(nCellsPerSide - 1, column + 1);
                 
-                // Even though this method examines each pair of nodes twice
-                // (i.e. 'node A and node B' as well as 'node B and node A'),
-                // the distance between the two nodes remains constant between
-                // examinations and thus the link will be created upon the first
-                // examination if it's less than the link probability. Thus, no
-                // halving of the link probability is needed (see Erdos-Renyi).
-                //
-                // Also check that we aren't connecting a node to itself and
-                // that node1 isn't already connected to node2 (as node1 to
-                // node2 and node2 to node1 are the same link and should not
-                // be connected twice).
-                if (networkStructurer.calculateDistanceBetweenNodes(node1,
-                        node2) < linkProbability &&
-                        node1 != node2 && !node1.isConnectedTo(node2)) {
-                    new Link(node1.getNodeID(), node2.getNodeID(),
-                            networkStructurer);
+                for (int iPosition1 = cellOffsets[cell]; iPosition1 < cellOffsets[cell + 1];
+                        iPosition1++) {
+                    final int iNode1 = cellNodes[iPosition1];
+                    
+                    /* Compares node1 with the nodes of the 3x3 block of cells. */
+                    for (int neighbourRow = firstNeighbourRow; neighbourRow <= lastNeighbourRow;
+                            neighbourRow++) {
+                        for (int neighbourColumn = firstNeighbourColumn; neighbourColumn <= lastNeighbourColumn;
+                                neighbourColumn++) {
+                            final int neighbourCell =
+                                    spatialGrid.findCell(neighbourColumn,
+                                            neighbourRow);
+                            
+                            for (int iPosition2 = cellOffsets[neighbourCell]; iPosition2 < cellOffsets[neighbourCell + 1];
+                                    iPosition2++) {
+                                final int iNode2 = cellNodes[iPosition2];
+                                
+                                // Each pair of nodes is found twice (once
+                                // from each of the two nodes), so only the
+                                // pair with iNode1 < iNode2 is linked. This
+                                // also keeps a node from being linked to
+                                // itself and node1 from being linked to node2
+                                // twice. As a result, no halving of the link
+                                // probability is needed (see Erdos-Renyi).
+                                //
+                                // The position of a node in the node list is
+                                // also its node registry index, used to look
+                                // up its location.
+                                if ((iNode1 < iNode2) &&
+                                        (networkStructurer
+                                                .calculateSquaredDistance(
+                                                        iNode1, iNode2) < squaredLinkProbability)) {
+                                    new Link(nodeList.get(iNode1).getNodeID(),
+                                            nodeList.get(iNode2).getNodeID(),
+                                            networkStructurer);
+                                }
+                            }
+                        }
+                    }
                 }
             }
         }
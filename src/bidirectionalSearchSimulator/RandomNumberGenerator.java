@@ -0,0 +1,47 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * RandomNumberGenerator is an interface for the sources of randomness used by
+ * the network generators and the search strategies. Passing a generator to
+ * each network and search, instead of calling Math.random, makes simulations
+ * reproducible from a seed and lets simulations run in parallel without
+ * sharing a generator.
+ */
+public interface RandomNumberGenerator {
+    
+    /**
+     * Generates a uniformly distributed 64-bit value.
+     * 
+     * @return the next random long
+     */
+    public long nextLong();
+    
+    /**
+     * Generates a uniformly distributed value between 0 (inclusive) and 1
+     * (exclusive).
+     * 
+     * @return the next random double
+     */
+    public double nextDouble();
+    
+    /**
+     * Generates a uniformly distributed integer between 0 (inclusive) and a
+     * bound (exclusive), without the bias of scaling a double.
+     * 
+     * @param bound
+     *            the upper bound, which must be positive
+     * @return the next random integer below the bound
+     */
+    public int nextInt(int bound);
+    
+    /**
+     * Creates a new generator whose sequence is independent of this one. This
+     * generator advances, so splitting the same generator several times
+     * gives different generators, always in the same order for the same
+     * seed.
+     * 
+     * @return the new generator
+     */
+    public RandomNumberGenerator split();
+    
+}
@@ -1,8 +1,5 @@
 package bidirectionalSearchSimulator;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -20,17 +17,15 @@ import java.util.Set;
  * the same.
  * 
  * It is possible to have the random walk choose its next neighbour at random,
- * excluding the node that sent it the query, by modifying the code below. Look
- * for the do/while loop that that needs to be uncommented for this change to be
- * applied.
+ * excluding the node that sent it the query, by making the search
+ * non-backtracking (see Search.setFlagNonBacktracking).
  */
 public class RandomWalk extends Search {
     
     private static int nQueries = 1;  // number of queries to use in this search
-    private final HashMap<Integer, Integer> ttlMap;  // time-to-live values for each query
     
     /**
-     * Constructor.
+     * Constructor. The search uses its own randomly seeded generator.
      * 
      * @param pSearchCoordinator
      *            the search coordinator that created this instance of
@@ -44,16 +39,38 @@ public class RandomWalk extends Search {
      */
     public RandomWalk(final SearchCoordinator pSearchCoordinator,
             final NetworkStructurer pNetworkStructurer, final int pttl) {
-        super(pSearchCoordinator, pNetworkStructurer, nQueries);
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            RandomWalk
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public RandomWalk(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, nQueries,
+                pRandomNumberGenerator);
         
         /*
          * Sets the TTL for each query to the TTL specified in the control panel
          * by the user. This can be changed at a later date to permit varying
          * TTL values.
          */
-        ttlMap = new HashMap<Integer, Integer>();
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            ttlMap.put(iQuery, pttl);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            queryStateTable.setTtl(iQuery, pttl);
         }
         
     }
@@ -68,26 +85,23 @@ public class RandomWalk extends Search {
         // set of visited nodes.
         
         /* Does the following for each search query. */
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
             
-            currentNodesSetTemp = new HashSet<Node>();
+            currentNodesSetTemp = currentQuery.getNextNodesSet();
             
             /*
              * Checks to see if this is the first hop of the query. If so,
-             * initialize the previous hop structure.
+             * starts a new path.
              */
-            ArrayList<Integer> prevHopArrayList;
+            final PathLog pathLog = currentQuery.getPathLog();
             
             if (currentQuery.isFirstHop()) {
-                prevHopArrayList = new ArrayList<Integer>();
-                
-                currentQuery.getCurrentNodesPrevHopMap().put(-1,
-                        prevHopArrayList);
+                pathLog.clear();
             }
             
             /* Checks that the TTL for the current query has not expired. */
-            if (ttlMap.get(currentQuery.getQueryID()) > 0) {
+            if (queryStateTable.getTtl(currentQuery.getQueryID()) > 0) {
                 
                 /* Iterates over each node in the set of current nodes. */
                 final Iterator<Node> itCurrentNodes =
@@ -98,25 +112,17 @@ public class RandomWalk extends Search {
                     aCurrentNode = itCurrentNodes.next();
                     
                     /*
-                     * Picks a random neighbour of the current node.
-                     *
-                     * NOTE: To pick a random neighbour except for the
-                     * node that sent it the message, uncomment the do/while loop
-                     * in the code below. This essentially means that the ranom walk
-                     * has a memory of one hop.
+                     * Picks a random neighbour of the current node, excluding
+                     * the node that sent the query if the walk is
+                     * non-backtracking. This essentially means that the random
+                     * walk has a memory of one hop.
                      *
                      * An exception is made if the degree of the current node is one,
                      * in which case it is allowed to send the query back to the
                      * previous hop so as to avoid deadlock.
                      */
-                    Node aRandomNeighbour;
-                    
-//                do {
-                    aRandomNeighbour = aCurrentNode.pickRandomNeighbour();
-//                } while ((!currentQuery.getCurrentNodesPrevHopMap().get(-1)
-//                    .isEmpty()) &&
-//                    (currentQuery.getCurrentNodesPrevHopMap().get(-1).get(0) == aRandomNeighbour
-//                        .getNodeID()) && (aCurrentNode.degree() > 1));
+                    final Node aRandomNeighbour =
+                            pickNextHop(aCurrentNode, pathLog);
                     
                     /*
                      * Forwards the query (i.e. the selected neighbour becomes a
@@ -128,27 +134,13 @@ public class RandomWalk extends Search {
                     currentQuery.getVisitedNodesSet().add(aRandomNeighbour);
                     
                     /*
-                     * Stores previous hop information.
-                     *
-                     * As the implementation of "currentNodesPrevHopMap"
-                     * differs for each search type, the following search
-                     * uses the following:
-                     *
-                     * Only the key "-1" is used to loop up the list of node IDs
-                     * that make up the path from the current node right back to the
-                     * source. The reason for using "-1" is to not confuse the
-                     * implementation that flooding uses, which uses current node IDs
-                     * to look up previous hop information. Newly visited nodes are
-                     * added to the front of this list.
+                     * Stores previous hop information: the current node is
+                     * added at the end of the path of the walker.
                      */
-                    prevHopArrayList =
-                            currentQuery.getCurrentNodesPrevHopMap().get(-1);
-                    prevHopArrayList.add(0, aCurrentNode.getNodeID());
-                    currentQuery.getCurrentNodesPrevHopMap().put(-1,
-                            prevHopArrayList);
+                    pathLog.append(aCurrentNode.getNodeID());
                     
                     /* Decrements TTL. */
-                    ttlMap.put(iQuery, ttlMap.get(iQuery) - 1);
+                    queryStateTable.decrementTtl(iQuery);
                     
                     /*
                      * Increments the total number of messages send since the
@@ -176,13 +168,32 @@ public class RandomWalk extends Search {
          */
         nTotalTime++;
         
-        /* Updates the network panel and information display. */
-        searchCoordinator.getNetworkPanel().repaint();
-        searchCoordinator.getControlPanel().getInformationNumberOfTimeLabel()
-                .setText(Integer.toString(nTotalTime));
-        searchCoordinator.getControlPanel()
-                .getInformationNumberOfMessagesLabel().setText(
-                        Integer.toString(nTotalMessages));
+        /* Notifies the observers (e.g. the GUI) that a step was completed. */
+        notifyStepCompleted();
+    }
+    
+    /**
+     * Reveals if the queries of the search move the same way whatever the
+     * targets and the TTL of the search, which they do, as they only decide
+     * when the search ends.
+     * 
+     * @return true
+     */
+    @Override
+    public boolean isFirstPassageSearch() {
+        return true;
+    }
+    
+    /**
+     * Runs the walker with a random walk kernel, which moves it exactly as
+     * propagateQueries does, if no observer follows the search.
+     * 
+     * @return true if the search was run until it ended, false if it must be
+     *         run step by step
+     */
+    @Override
+    public boolean runToTermination() {
+        return runWalkKernel(0);
     }
     
     /**
@@ -196,8 +207,8 @@ public class RandomWalk extends Search {
         int expiredTTLQueryCounter = 0;  // keeps count of how many queries
         // have had their TTL expire
         
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
             
             /* Checks if any of the current nodes belong to the set of target nodes. */
             final Iterator<Node> itCurrentNodes =
@@ -208,38 +219,22 @@ public class RandomWalk extends Search {
                 aCurrentNode = itCurrentNodes.next();
                 
                 if (currentQuery.getTargetNodesSet().contains(aCurrentNode)) {
-                    searchCoordinator.getControlPanel().getResultLabel()
-                            .setText("SUCCESS! Found a target node.");
-                    
-                    searchResult = 1;
-                    
-                    return 1;
+                    return terminate(TerminationReason.TARGET_FOUND);
                 }
             }
             
             /* Checks if TTL has been reached for each query. */
-            if (ttlMap.get(iQuery) == 0) {
+            if (queryStateTable.getTtl(iQuery) == 0) {
                 expiredTTLQueryCounter++;
             }
         }
         
         /* Ends the search if the TTL for all the queries has expired. */
-        if (expiredTTLQueryCounter == searchQueriesMap.size()) {
-            searchCoordinator.getControlPanel().getResultLabel().setText(
-                    "FAILURE. TTL expired.");
-            
-            return 1;
+        if (expiredTTLQueryCounter == queryStateTable.getnQueries()) {
+            return terminate(TerminationReason.TTL_EXPIRED);
         }
         
         return 0;
     }
     
-    /**
-     * Getter for ttlMap.
-     * 
-     * @return the ttlMap
-     */
-    public HashMap<Integer, Integer> getTtlMap() {
-        return ttlMap;
-    }
 }
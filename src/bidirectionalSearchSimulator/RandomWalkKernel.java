@@ -0,0 +1,268 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Set;
+
+/**
+ * RandomWalkKernel is a class that runs the walkers of a random walk-based
+ * search (RandomWalk or BidirectionalSearchRW, weighted or not) until the
+ * search ends, in a single loop over the compact graph of the network.
+ * 
+ * The walkers move exactly as they do through propagateQueries: at each time
+ * step, each query whose TTL has not expired picks a random neighbour of its
+ * current node with the search's generator, in query order, so the kernel
+ * draws the same random numbers and ends the search at the same step, for the
+ * same reason and with the same number of messages and visited nodes. The
+ * difference is that the walkers are kept as node indices, the targets and the
+ * visited nodes are checked through their stamps and nothing is notified
+ * between steps, so a hop only costs a few array accesses. The kernel is
+ * therefore only used for searches that no observer (e.g. the GUI) follows.
+ * 
+ * Once the search has ended, the state of the queries (current node, visited
+ * nodes, path log, TTL) is written back, so the search looks as if it had
+ * been run step by step.
+ */
+public class RandomWalkKernel {
+    
+    private final CompactGraph compactGraph;  // network being searched
+    private int nSteps = 0;             // number of time steps run
+    private int nMessages = 0;          // number of messages passed during
+    
+    // the steps run by the kernel
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     */
+    public RandomWalkKernel(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+    }
+    
+    /**
+     * Runs the walkers of a search until a query reaches one of its targets,
+     * until two queries of different query groups meet (if the search is
+     * bidirectional) or until the TTL of every query has expired.
+     * 
+     * The kernel can only run searches in which each query has a single
+     * current node, held in a SparseNodeSet, and keeps its visited nodes in a
+     * StampedNodeSet of the network being searched. Other searches are left
+     * untouched.
+     * 
+     * @param queryStateTable
+     *            queries of the search, with their TTL and query group
+     * @param randomNumberGenerator
+     *            generator of the search, used to move the walkers
+     * @param flagQueriesMeet
+     *            1 if the search ends when a query reaches a node visited by
+     *            a query of another query group, 0 otherwise
+     * @param flagNonBacktracking
+     *            1 if a walker never goes back to the node it came from,
+     *            unless that node is the only neighbour, 0 otherwise
+     * @param neighbourAliasTable
+     *            weights by which a walker picks its next node, null to pick
+     *            it uniformly
+     * @return the reason for which the search ended, or null if the kernel
+     *         cannot run the search
+     */
+    public TerminationReason run(final QueryStateTable queryStateTable,
+            final RandomNumberGenerator randomNumberGenerator,
+            final int flagQueriesMeet, final int flagNonBacktracking,
+            final NeighbourAliasTable neighbourAliasTable) {
+        final int nWalkers = queryStateTable.getnQueries();
+        
+        if ((neighbourAliasTable != null) &&
+                (neighbourAliasTable.getCompactGraph() != compactGraph)) {
+            return null;
+        }
+        
+        /* Checks that the kernel can run the search. */
+        for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+            final Query aQuery = queryStateTable.getQuery(iWalker);
+            
+            if (!isStampedSet(aQuery.getVisitedNodesSet()) ||
+                    !isSparseSet(aQuery.getCurrentNodesSet()) ||
+                    (aQuery.getCurrentNodesSet().size() != 1)) {
+                return null;
+            }
+        }
+        
+        /* Loads the walkers. */
+        final int[] positions = new int[nWalkers];
+        final int[] ttls = new int[nWalkers];
+        final int[] queryGroupIDs = new int[nWalkers];
+        final int[][] targetIndices = new int[nWalkers][];
+        final StampedNodeSet[] visitedNodesSets = new StampedNodeSet[nWalkers];
+        final PathLog[] pathLogs = new PathLog[nWalkers];
+        final int[] lastHops = new int[nWalkers];
+        final int[] flagsMoved = new int[nWalkers];
+        
+        for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+            final Query aQuery = queryStateTable.getQuery(iWalker);
+            
+            positions[iWalker] =
+                    ((SparseNodeSet) aQuery.getCurrentNodesSet())
+                            .getMemberIndex(0);
+            ttls[iWalker] = queryStateTable.getTtl(iWalker);
+            queryGroupIDs[iWalker] = queryStateTable.getQueryGroupID(iWalker);
+            targetIndices[iWalker] =
+                    compactGraph.indicesOf(aQuery.getTargetNodesSet());
+            visitedNodesSets[iWalker] =
+                    (StampedNodeSet) aQuery.getVisitedNodesSet();
+            pathLogs[iWalker] = aQuery.getPathLog();
+            
+            if (aQuery.isFirstHop()) {
+                pathLogs[iWalker].clear();
+            }
+            
+            lastHops[iWalker] = pathLogs[iWalker].isEmpty() ? -1
+                    : compactGraph.indexOfNodeID(pathLogs[iWalker]
+                            .getLastHop());
+        }
+        
+        /* Moves the walkers one time step at a time. */
+        int flagTargetFound = 0;
+        int flagQueriesMet = 0;
+        int nExpiredTtls;
+        
+        do {
+            for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+                if (ttls[iWalker] > 0) {
+                    final int currentNode = positions[iWalker];
+                    
+                    /*
+                     * Picks a random neighbour of the current node, other than
+                     * the walker's last hop if the walk is non-backtracking,
+                     * or stays on it if it has no neighbours.
+                     */
+                    final int excludedNode =
+                            (flagNonBacktracking == 1) ? lastHops[iWalker] : -1;
+                    final int nextNode =
+                            (neighbourAliasTable != null) ? neighbourAliasTable
+                                    .pickNeighbourIndex(currentNode,
+                                            excludedNode,
+                                            randomNumberGenerator)
+                                    : compactGraph.pickRandomNeighbourIndex(
+                                            currentNode, excludedNode,
+                                            randomNumberGenerator);
+                    positions[iWalker] = nextNode;
+                    lastHops[iWalker] = currentNode;
+                    
+                    /* Checks if the neighbour is a target. */
+                    final int[] walkerTargetIndices = targetIndices[iWalker];
+                    for (int iTarget = 0; iTarget < walkerTargetIndices.length; iTarget++) {
+                        if (walkerTargetIndices[iTarget] == nextNode) {
+                            flagTargetFound = 1;
+                        }
+                    }
+                    
+                    /*
+                     * Checks if the neighbour was visited by a query of another
+                     * query group.
+                     */
+                    if (flagQueriesMeet == 1) {
+                        for (int iOtherWalker = 0; iOtherWalker < nWalkers; iOtherWalker++) {
+                            if ((queryGroupIDs[iOtherWalker] !=
+                                    queryGroupIDs[iWalker]) &&
+                                    visitedNodesSets[iOtherWalker]
+                                            .containsIndex(nextNode)) {
+                                flagQueriesMet = 1;
+                            }
+                        }
+                    }
+                    
+                    /* Marks the neighbour as visited and records the hop. */
+                    visitedNodesSets[iWalker].addIndex(nextNode);
+                    pathLogs[iWalker].append(compactGraph
+                            .getNodeID(currentNode));
+                    
+                    ttls[iWalker]--;
+                    nMessages++;
+                    flagsMoved[iWalker] = 1;
+                }
+            }
+            
+            nSteps++;
+            
+            /* Counts the queries whose TTL has expired. */
+            nExpiredTtls = 0;
+            for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+                if (ttls[iWalker] == 0) {
+                    nExpiredTtls++;
+                }
+            }
+        } while ((flagTargetFound == 0) && (flagQueriesMet == 0) &&
+                (nExpiredTtls < nWalkers));
+        
+        /* Writes the state of the walkers back into the queries. */
+        for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+            final Query aQuery = queryStateTable.getQuery(iWalker);
+            final SparseNodeSet currentNodesSet =
+                    (SparseNodeSet) aQuery.getCurrentNodesSet();
+            
+            currentNodesSet.clear();
+            currentNodesSet.addIndex(positions[iWalker]);
+            queryStateTable.setTtl(iWalker, ttls[iWalker]);
+            
+            if (flagsMoved[iWalker] == 1) {
+                aQuery.setFirstHop(false);
+            }
+        }
+        
+        /* Finding a target takes precedence, as in RendezvousDetector. */
+        if (flagTargetFound == 1) {
+            return TerminationReason.TARGET_FOUND;
+        }
+        
+        if (flagQueriesMet == 1) {
+            return TerminationReason.QUERIES_MET;
+        }
+        
+        return TerminationReason.TTL_EXPIRED;
+    }
+    
+    /**
+     * Checks if a set of nodes is a stamped set of the network being searched.
+     * 
+     * @param aNodeSet
+     *            the set to check
+     * @return true if the kernel can use the stamps of the set
+     */
+    private boolean isStampedSet(final Set<Node> aNodeSet) {
+        return (aNodeSet instanceof StampedNodeSet) &&
+                (((StampedNodeSet) aNodeSet).getCompactGraph() == compactGraph);
+    }
+    
+    /**
+     * Checks if a set of current nodes is a sparse set of the network being
+     * searched.
+     * 
+     * @param aNodeSet
+     *            the set to check
+     * @return true if the kernel can use the node indices of the set
+     */
+    private boolean isSparseSet(final Set<Node> aNodeSet) {
+        return (aNodeSet instanceof SparseNodeSet) &&
+                (((SparseNodeSet) aNodeSet).getCompactGraph() == compactGraph);
+    }
+    
+    /**
+     * Getter for nSteps.
+     * 
+     * @return the number of time steps run by the kernel
+     */
+    public int getnSteps() {
+        return nSteps;
+    }
+    
+    /**
+     * Getter for nMessages.
+     * 
+     * @return the number of messages passed during the steps run by the
+     *         kernel
+     */
+    public int getnMessages() {
+        return nMessages;
+    }
+    
+}
@@ -0,0 +1,215 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * RendezvousDetector is a class that detects, as the walkers of a search move,
+ * when a query reaches one of its targets or a node already visited by a query
+ * of another query group.
+ * 
+ * Each node of the network is stamped with the query group that visited it
+ * (or with SEVERAL_GROUPS once a second group has visited it), so checking
+ * whether a walker has met a query of another group only takes a lookup in an
+ * array when the walker arrives at a node, instead of intersecting the sets of
+ * nodes of every pair of queries at every step.
+ * 
+ * The group of a node only counts if the node was also stamped with the
+ * current epoch of the detector, like the nodes of a StampedNodeSet. Clearing
+ * the detector simply moves on to the next epoch, so a detector can be reused
+ * from one search to the next without touching the stamps of the nodes (see
+ * RendezvousDetectorPool).
+ */
+public class RendezvousDetector {
+    
+    private static final int NOT_VISITED = -1;
+    private static final int SEVERAL_GROUPS = -2;
+    
+    private final CompactGraph compactGraph;  // gives the index of each node
+    private final int[] visitingGroups;  // query group that visited each node,
+    // or SEVERAL_GROUPS, indexed by node index; only valid for the nodes
+    // stamped with the current epoch
+    private final int[] stamps;         // epoch at which each node was first
+    // visited, indexed by node index
+    private int epoch = 1;              // stamp of the nodes visited since the
+    // detector was last cleared
+    private int flagTargetFound = 0;    // raised when a query reaches one of
+    // its targets
+    private int flagQueriesMet = 0;     // raised when a query reaches a node
+    
+    // visited by a query of another query group
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     */
+    public RendezvousDetector(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        visitingGroups = new int[pCompactGraph.getnNodes()];
+        stamps = new int[pCompactGraph.getnNodes()];
+    }
+    
+    /**
+     * Forgets the visited nodes and the rendezvous found so far by moving on
+     * to the next epoch.
+     */
+    public void clear() {
+        epoch++;
+        
+        /* Resets the stamps when the epoch counter wraps around. */
+        if (epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        
+        flagTargetFound = 0;
+        flagQueriesMet = 0;
+    }
+    
+    /**
+     * Marks the nodes already visited by the queries of each query group (e.g.
+     * the sources, before the first step of the search).
+     * 
+     * @param queryStateTable
+     *            the queries of the search, with their query groups
+     */
+    public void markVisitedNodes(final QueryStateTable queryStateTable) {
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final int queryGroupID = queryStateTable.getQueryGroupID(iQuery);
+            
+            if (queryGroupID < 0) {
+                continue;
+            }
+            
+            final Iterator<Node> itVisitedNodes =
+                    queryStateTable.getQuery(iQuery).getVisitedNodesSet()
+                            .iterator();
+            
+            while (itVisitedNodes.hasNext()) {
+                markVisited(itVisitedNodes.next(), queryGroupID);
+            }
+        }
+    }
+    
+    /**
+     * Marks a node as visited by a query of a query group, raising the queries
+     * met flag if a query of another group visited it before.
+     * 
+     * @param aNode
+     *            the visited node
+     * @param queryGroupID
+     *            query group ID of the visiting query
+     */
+    public void markVisited(final Node aNode, final int queryGroupID) {
+        final int nodeIndex = compactGraph.indexOf(aNode);
+        
+        if (stamps[nodeIndex] != epoch) {
+            stamps[nodeIndex] = epoch;
+            visitingGroups[nodeIndex] = queryGroupID;
+        }
+        else if (visitingGroups[nodeIndex] != queryGroupID) {
+            visitingGroups[nodeIndex] = SEVERAL_GROUPS;
+            flagQueriesMet = 1;
+        }
+    }
+    
+    /**
+     * Records that a query has arrived at a node: marks the node as visited by
+     * the query's group and raises the target found flag if the node is one of
+     * the query's targets.
+     * 
+     * @param aQuery
+     *            the arriving query
+     * @param aNode
+     *            the node reached by the query
+     * @param queryGroupID
+     *            query group ID of the query
+     */
+    public void markArrival(final Query aQuery, final Node aNode,
+            final int queryGroupID) {
+        if (aQuery.getTargetNodesSet().contains(aNode)) {
+            flagTargetFound = 1;
+        }
+        
+        markVisited(aNode, queryGroupID);
+    }
+    
+    /**
+     * Checks whether a node was visited by a query of a query group other than
+     * the given one.
+     * 
+     * @param aNode
+     *            the node
+     * @param queryGroupID
+     *            the query group ID to exclude
+     * @return true if a query of another group visited the node
+     */
+    public boolean isVisitedByAnotherGroup(final Node aNode,
+            final int queryGroupID) {
+        final int visitingGroup = getVisitingGroup(compactGraph.indexOf(aNode));
+        
+        return (visitingGroup != NOT_VISITED) && (visitingGroup != queryGroupID);
+    }
+    
+    /**
+     * Gets the query group that visited a node.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @return the query group ID, SEVERAL_GROUPS if queries of several groups
+     *         visited the node, or NOT_VISITED
+     */
+    private int getVisitingGroup(final int nodeIndex) {
+        return (stamps[nodeIndex] == epoch) ? visitingGroups[nodeIndex]
+                : NOT_VISITED;
+    }
+    
+    /**
+     * Gets the reason for which the search should end, if a query found a
+     * target or met a query of another group. Finding a target takes
+     * precedence.
+     * 
+     * @return TARGET_FOUND or QUERIES_MET, or null if neither happened
+     */
+    public TerminationReason getRendezvous() {
+        if (flagTargetFound == 1) {
+            return TerminationReason.TARGET_FOUND;
+        }
+        
+        if (flagQueriesMet == 1) {
+            return TerminationReason.QUERIES_MET;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Getter for compactGraph.
+     * 
+     * @return the compactGraph
+     */
+    public CompactGraph getCompactGraph() {
+        return compactGraph;
+    }
+    
+    /**
+     * Getter for flagTargetFound.
+     * 
+     * @return the flagTargetFound
+     */
+    public int getFlagTargetFound() {
+        return flagTargetFound;
+    }
+    
+    /**
+     * Getter for flagQueriesMet.
+     * 
+     * @return the flagQueriesMet
+     */
+    public int getFlagQueriesMet() {
+        return flagQueriesMet;
+    }
+    
+}
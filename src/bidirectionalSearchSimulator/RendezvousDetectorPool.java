@@ -0,0 +1,86 @@
+package bidirectionalSearchSimulator;
+
+import java.util.ArrayDeque;
+
+/**
+ * RendezvousDetectorPool is a class that keeps the rendezvous detectors of a
+ * network that are no longer used, so that the next bidirectional searches run
+ * on the same network can reuse them instead of allocating new ones. Each
+ * RendezvousDetector holds a query group and a stamp per node of the network,
+ * so allocating one for every simulation would otherwise cost as much as the
+ * search itself on small TTLs (see NodeSetPool).
+ * 
+ * The pool is shared by all the searches run on the network, including the
+ * searches of a batch run in parallel, so taking and returning detectors is
+ * synchronized.
+ * 
+ * The free detectors of the pool hold at most MAX_FREE_ENTRIES per-node
+ * entries between them: a detector returned to a full pool is dropped.
+ */
+public class RendezvousDetectorPool {
+    
+    private static final int MAX_FREE_ENTRIES = 1 << 22;  // largest number of
+    // per-node entries held by the free detectors of the pool
+    
+    private final CompactGraph compactGraph;  // network whose nodes the
+    // detectors stamp
+    private final int maxFreeDetectors;  // largest number of free detectors
+    // kept
+    private final ArrayDeque<RendezvousDetector> freeDetectorsDeque;  //
+    
+    // detectors returned to the pool and ready to be reused
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network whose nodes the detectors stamp
+     */
+    public RendezvousDetectorPool(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        maxFreeDetectors =
+                Math.max(1, MAX_FREE_ENTRIES /
+                        Math.max(1, 2 * pCompactGraph.getnNodes()));
+        freeDetectorsDeque = new ArrayDeque<RendezvousDetector>();
+    }
+    
+    /**
+     * Takes a cleared detector from the pool, creating a new one if the pool
+     * is empty.
+     * 
+     * @return a detector with no visited nodes
+     */
+    public synchronized RendezvousDetector acquire() {
+        final RendezvousDetector aRendezvousDetector =
+                freeDetectorsDeque.pollFirst();
+        
+        return (aRendezvousDetector != null) ? aRendezvousDetector
+                : new RendezvousDetector(compactGraph);
+    }
+    
+    /**
+     * Returns a detector to the pool, unless the pool is full. The detector
+     * is cleared and must not be used by the caller afterwards.
+     * 
+     * @param aRendezvousDetector
+     *            the detector to return
+     */
+    public synchronized void release(
+            final RendezvousDetector aRendezvousDetector) {
+        aRendezvousDetector.clear();
+        
+        if (freeDetectorsDeque.size() < maxFreeDetectors) {
+            freeDetectorsDeque.addFirst(aRendezvousDetector);
+        }
+    }
+    
+    /**
+     * Gets the number of detectors waiting to be reused.
+     * 
+     * @return the number of free detectors
+     */
+    public synchronized int getnFreeDetectors() {
+        return freeDetectorsDeque.size();
+    }
+    
+}
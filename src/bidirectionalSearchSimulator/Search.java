@@ -1,7 +1,9 @@
 package bidirectionalSearchSimulator;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -13,25 +15,68 @@ import java.util.Set;
  * possible that the source and target(s) are not in connected parts of the
  * network. This is no different than no targets existing and puts into the
  * spotlight the importance of having good search termination conditions.
+ * 
+ * A search does not depend on the GUI: the search coordinator may be null, in
+ * which case nothing is displayed. Anything that wants to follow the progress
+ * of the search (such as the GUI) registers itself as a search observer.
  */
 public abstract class Search {
     
     protected SearchCoordinator searchCoordinator;
     protected NetworkStructurer networkStructurer;
+    protected CompactGraph compactGraph;  // compressed sparse row form of the
+    // links of the network, used to find the neighbours of a node
     protected int nQueries;  // default number of queries used by this search
-    protected HashMap<Integer, Query> searchQueriesMap;  // search queries
-    // belonging to this search, indexed by search query ID
+    protected RandomNumberGenerator randomNumberGenerator;  // source of
+    // randomness used to choose the source and target nodes and to move the
+    // queries
+    protected final QueryStateTable queryStateTable =
+            new QueryStateTable();  // search queries belonging to this
+    // search, indexed by search query ID, with the state the search keeps for
+    // each of them, including its query group. Queries are grouped
+    // based on integer values, with each group containing the set of queries belonging
+    // to that group. In a bidirectional search, for instance, there would be two
+    // "query groups," each group defined by their set of targets. E.g. query group 0
+    // would contain query 0 and query group 1 would contain query 1. Adding new
+    // queries to the search need to be added to a query group in order for their
+    // terminating conditions to be properly measured. E.g. If query 0 ends in deadlock
+    // and a new query is released as a successor to query 0, this query would need
+    // to be added to the query group that contained query 0, namely query group 0.
+    // All queries in the same group can be traced back to the same source node (it
+    // is possible that a query may replicate along the way, but the newly replicated
+    // query would still belong to the same query group).
     protected int nTotalMessages = 0; // total number messages (i.e. queries) passed during the search
     protected int nTotalTime = 0;     // total number of time steps required for the search to end
     protected int searchResult = 0;  // result of the search: a failure has a value of 0 while a
-    
     // success has a value of 1
+    protected TerminationReason terminationReason = null;  // reason for which
+    // the search ended, null while the search is still running
+    protected int pathWindowSize = 0;  // number of last hops kept by the path
+    // log of each query, 0 to keep the whole path
+    protected int flagNonBacktracking = 0;  // 1 if a query is never sent back
+    // to the node it came from, unless that node is the only neighbour, 0
+    // otherwise
+    protected NeighbourAliasTable neighbourAliasTable = null;  // weights by
+    // which a query picks the neighbour it is forwarded to, null to pick it
+    // uniformly
+    protected RendezvousDetector rendezvousDetector = null;  // detects when
+    // a query finds a target or meets a query of another query group, for
+    // the searches whose walkers report their arrivals to it; taken from the
+    // network's rendezvous detector pool, returned to it by releaseNodeSets
+    protected final List<SearchObserver> searchObserversList =
+            new ArrayList<SearchObserver>();  // observers notified of the
+    // progress of the search
+    protected final List<StampedNodeSet> nodeSetsList =
+            new ArrayList<StampedNodeSet>();  // node sets taken from the
+    
+    // network's node set pool, returned to it by releaseNodeSets
     
     /**
-     * Constructor.
+     * Constructor. The search uses its own randomly seeded generator.
      * 
      * @param pSearchCoordinator
-     *            search coordinator that coordinates this search
+     *            search coordinator that coordinates this search, may be null
+     *            if the search is run without the GUI
      * @param pNetworkStructurer
      *            network structurer containing node information used by this
      *            search
@@ -40,17 +85,95 @@ public abstract class Search {
      */
     public Search(final SearchCoordinator pSearchCoordinator,
             final NetworkStructurer pNetworkStructurer, final int pnQueries) {
+        this(pSearchCoordinator, pNetworkStructurer, pnQueries,
+                new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            search coordinator that coordinates this search, may be null
+     *            if the search is run without the GUI
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pnQueries
+     *            number of queries used in this search
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public Search(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pnQueries,
+            final RandomNumberGenerator pRandomNumberGenerator) {
         searchCoordinator = pSearchCoordinator;
         networkStructurer = pNetworkStructurer;
+        compactGraph = pNetworkStructurer.getCompactGraph();
         nQueries = pnQueries;
-        searchQueriesMap = new HashMap<Integer, Query>();
+        randomNumberGenerator = pRandomNumberGenerator;
         
         /* Generates individual search queries. */
         for (int iQuery = 0; iQuery < pnQueries; iQuery++) {
-            searchQueriesMap.put(iQuery, new Query(this, iQuery));
+            createQuery();
         }
     }
     
+    /**
+     * Creates a new query, with the next free query ID, and adds it to the
+     * query state table.
+     * 
+     * @return the new query
+     */
+    protected Query createQuery() {
+        final Query newQuery = new Query(this, queryStateTable.getnQueries());
+        queryStateTable.addQuery(newQuery);
+        
+        return newQuery;
+    }
+    
+    /**
+     * Adds a query to a query group.
+     * 
+     * @param aQuery
+     *            the query to add
+     * @param queryGroupID
+     *            the query group ID of the group to add it to
+     */
+    public void addQueryToGroup(final Query aQuery, final int queryGroupID) {
+        queryStateTable.setQueryGroupID(aQuery.getQueryID(), queryGroupID);
+    }
+    
+    /**
+     * Gets the query group ID of which a query belongs to.
+     * 
+     * @param aQuery
+     *            the query whose group is requested
+     * @return the query group ID of the query or -1 if the query does not have
+     *         a group
+     */
+    public int getQueryGroupID(final Query aQuery) {
+        return queryStateTable.getQueryGroupID(aQuery.getQueryID());
+    }
+    
+    /**
+     * Gets the rendezvous detector of this search. It is taken from the
+     * rendezvous detector pool of the network on first use (i.e. during the
+     * first propagation step, once the sources have been chosen or restored)
+     * and marks the nodes already visited at that point by the queries of
+     * each query group.
+     * 
+     * @return the rendezvousDetector
+     */
+    public RendezvousDetector getRendezvousDetector() {
+        if (rendezvousDetector == null) {
+            rendezvousDetector =
+                    compactGraph.getRendezvousDetectorPool().acquire();
+            rendezvousDetector.markVisitedNodes(queryStateTable);
+        }
+        
+        return rendezvousDetector;
+    }
+    
     /**
      * Chooses source and target nodes for each search query.
      */
@@ -61,23 +184,19 @@ public abstract class Search {
          */
         final int nTargets = 1;
         
-        for (int iQuery = 0; iQuery < searchQueriesMap.size(); iQuery++) {
-            final Query currentQuery = searchQueriesMap.get(iQuery);
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final Query currentQuery = queryStateTable.getQuery(iQuery);
             
             /* Generates source. */
             int randomNodeID =
-                    (int) Math.floor(Math.random() *
-                            networkStructurer.getNodeList().size());
+                    randomNumberGenerator.nextInt(networkStructurer
+                            .getNodeList().size());
             final Node sourceNode = networkStructurer.getNodeByID(randomNodeID);
             currentQuery.setSourceNode(sourceNode);
             
             /* Actions to take if a source has no neighbours. */
-            if (sourceNode.getLinksSet().size() == 0) {
-                final String noNeighboursQuery2String =
-                        "FAILURE. Source node for one of the queries has no neighbours.";
-                searchCoordinator.getControlPanel().getResultLabel().setText(
-                        "<html>" + noNeighboursQuery2String + "</html>");
-                searchCoordinator.setFlagSearchComplete(1);
+            if (compactGraph.degree(sourceNode) == 0) {
+                terminate(TerminationReason.SOURCE_HAS_NO_NEIGHBOURS);
                 
 //                double retryPercentage = 0.2;  // percentage of total nodes
 //                // in the network acting as the upper limit of nodes to test to
@@ -121,8 +240,8 @@ public abstract class Search {
                 Node targetNode;
                 do {
                     randomNodeID =
-                            (int) Math.floor(Math.random() *
-                                    networkStructurer.getNodeList().size());
+                            randomNumberGenerator.nextInt(networkStructurer
+                                    .getNodeList().size());
                 } while (randomNodeID == sourceNode.getNodeID());
                 
                 targetNode = networkStructurer.getNodeByID(randomNodeID);
@@ -137,14 +256,164 @@ public abstract class Search {
      * @return the number of nodes visited during the search
      */
     public int calculateNumberOfNodesVisited() {
-        Set<Node> combinedVisitedNodesSet = new HashSet<Node>();
+        final StampedNodeSet combinedVisitedNodesSet =
+                compactGraph.getNodeSetPool().acquire();
+        CopyOnWriteNodeSet combinedCopyOnWriteNodesSet = null;  // combines the
+        // copy-on-write sets a page at a time, as replicas share most pages
+        
+        for (int iQuery = 0; iQuery < getnVisitingQueries(); iQuery++) {
+            Query currentQuery = queryStateTable.getQuery(iQuery);
+            final Set<Node> visitedNodesSet = currentQuery.getVisitedNodesSet();
+            
+            if (visitedNodesSet instanceof CopyOnWriteNodeSet) {
+                if (combinedCopyOnWriteNodesSet == null) {
+                    combinedCopyOnWriteNodesSet =
+                            new CopyOnWriteNodeSet(compactGraph);
+                }
+                
+                combinedCopyOnWriteNodesSet.addAll(visitedNodesSet);
+            }
+            else {
+                combinedVisitedNodesSet.addAll(visitedNodesSet);
+            }
+        }
         
-        for (int iQuery = 0; iQuery < nQueries; iQuery++) {
-            Query currentQuery = searchQueriesMap.get(iQuery);
-            combinedVisitedNodesSet.addAll(currentQuery.getVisitedNodesSet());
+        if (combinedCopyOnWriteNodesSet != null) {
+            combinedVisitedNodesSet.addAll(combinedCopyOnWriteNodesSet);
         }
         
-        return combinedVisitedNodesSet.size();
+        final int nNodesVisited = combinedVisitedNodesSet.size();
+        compactGraph.getNodeSetPool().release(combinedVisitedNodesSet);
+        
+        return nNodesVisited;
+    }
+    
+    /**
+     * Gets the number of queries whose visited nodes are counted by
+     * calculateNumberOfNodesVisited, which are the queries the search started
+     * with unless a search overrides it.
+     * 
+     * @return the number of queries whose visited nodes are counted
+     */
+    protected int getnVisitingQueries() {
+        return nQueries;
+    }
+    
+    /**
+     * Creates an empty set of current nodes for the queries of this search.
+     * The nodes on which a query resides are few compared to the nodes of the
+     * network, so the set only takes memory for its members.
+     * 
+     * @return an empty set of nodes
+     */
+    public Set<Node> createNodeSet() {
+        return new SparseNodeSet(compactGraph);
+    }
+    
+    /**
+     * Creates an empty set of visited nodes for a query of this search. The
+     * searches that replicate their queries override this to give their
+     * queries sets that can be forked (see forkVisitedNodesSet).
+     * 
+     * @return an empty set of nodes
+     */
+    public Set<Node> createVisitedNodeSet() {
+        return acquireNodeSet();
+    }
+    
+    /**
+     * Takes an empty set of nodes from the node set pool of the network, for
+     * the sets that may come to hold a large part of the network. The set is
+     * given back to the pool by releaseNodeSets.
+     * 
+     * @return an empty set of nodes
+     */
+    protected StampedNodeSet acquireNodeSet() {
+        final StampedNodeSet aNodeSet = compactGraph.getNodeSetPool().acquire();
+        nodeSetsList.add(aNodeSet);
+        
+        return aNodeSet;
+    }
+    
+    /**
+     * Gets a set of visited nodes for a replica of a query, holding the nodes
+     * visited by the query so far. A copy-on-write set is forked, so that the
+     * query and its replica can go on visiting nodes independently; any other
+     * set is shared by the query and its replica.
+     * 
+     * @param aVisitedNodesSet
+     *            the set of visited nodes of the query being replicated
+     * @return the set of visited nodes of the replica
+     */
+    protected Set<Node> forkVisitedNodesSet(final Set<Node> aVisitedNodesSet) {
+        if (aVisitedNodesSet instanceof CopyOnWriteNodeSet) {
+            return ((CopyOnWriteNodeSet) aVisitedNodesSet).fork();
+        }
+        
+        return aVisitedNodesSet;
+    }
+    
+    /**
+     * Creates an empty path log for a query of this search, bounded to the
+     * path window size of the search.
+     * 
+     * @return an empty path log
+     */
+    public PathLog createPathLog() {
+        return new PathLog(pathWindowSize);
+    }
+    
+    /**
+     * Picks the node to which a query residing on a node is forwarded: a
+     * random neighbour of the node, other than the last hop of the query's
+     * path if the search is non-backtracking (see
+     * CompactGraph.pickRandomNeighbourIndex). The neighbour is picked in
+     * proportion to its weight in the neighbour alias table of the search, if
+     * it has one.
+     * 
+     * @param aCurrentNode
+     *            the node on which the query resides
+     * @param pathLog
+     *            path of the query
+     * @return the randomly chosen neighbour
+     */
+    protected Node pickNextHop(final Node aCurrentNode, final PathLog pathLog) {
+        if (neighbourAliasTable != null) {
+            return neighbourAliasTable.pickNeighbourExcept(aCurrentNode,
+                    ((flagNonBacktracking == 1) && !pathLog.isEmpty())
+                            ? pathLog.getLastHop() : -1,
+                    randomNumberGenerator);
+        }
+        
+        if ((flagNonBacktracking == 1) && !pathLog.isEmpty()) {
+            return compactGraph.pickRandomNeighbourExcept(aCurrentNode,
+                    pathLog.getLastHop(), randomNumberGenerator);
+        }
+        
+        return compactGraph.pickRandomNeighbour(aCurrentNode,
+                randomNumberGenerator);
+    }
+    
+    /**
+     * Gives the sets of nodes created by this search back to the node set pool
+     * of the network, and its rendezvous detector back to the rendezvous
+     * detector pool, so that the next search can reuse them. This must only
+     * be called once the search (including its display) is no longer needed,
+     * as the sets of current and visited nodes of the queries are emptied.
+     */
+    public void releaseNodeSets() {
+        for (int iNodeSet = 0; iNodeSet < nodeSetsList.size(); iNodeSet++) {
+            final StampedNodeSet aNodeSet = nodeSetsList.get(iNodeSet);
+            aNodeSet.getCompactGraph().getNodeSetPool().release(aNodeSet);
+        }
+        
+        nodeSetsList.clear();
+        
+        if (rendezvousDetector != null) {
+            rendezvousDetector.getCompactGraph().getRendezvousDetectorPool()
+                    .release(rendezvousDetector);
+            rendezvousDetector = null;
+        }
     }
     
     /**
@@ -162,6 +431,127 @@ public abstract class Search {
      */
     public abstract int checkTerminatingConditions();
     
+    /**
+     * Runs the search until one of its terminating conditions is reached in
+     * one go, instead of step by step, if the search has a faster way of doing
+     * so that gives the same result. Searches followed by observers (e.g. the
+     * GUI) are always run step by step.
+     * 
+     * @return true if the search was run until it ended, false if it must be
+     *         run step by step
+     */
+    public boolean runToTermination() {
+        return false;
+    }
+    
+    /**
+     * Runs the walkers of the search with a random walk kernel until the
+     * search ends, provided that no observer follows the search.
+     * 
+     * @param flagQueriesMeet
+     *            1 if the search ends when a query reaches a node visited by
+     *            a query of another query group, 0 otherwise
+     * @return true if the search was run until it ended, false if it must be
+     *         run step by step
+     */
+    protected boolean runWalkKernel(final int flagQueriesMeet) {
+        if (!searchObserversList.isEmpty() || (terminationReason != null)) {
+            return false;
+        }
+        
+        final RandomWalkKernel randomWalkKernel =
+                new RandomWalkKernel(compactGraph);
+        final TerminationReason reason =
+                randomWalkKernel.run(queryStateTable, randomNumberGenerator,
+                        flagQueriesMeet, flagNonBacktracking,
+                        neighbourAliasTable);
+        
+        if (reason == null) {
+            return false;
+        }
+        
+        nTotalTime += randomWalkKernel.getnSteps();
+        nTotalMessages += randomWalkKernel.getnMessages();
+        terminate(reason);
+        
+        return true;
+    }
+    
+    /**
+     * Reveals if the queries of the search move the same way whatever the
+     * targets and the TTL of the search, in which case the first passages of
+     * the queries at each node give the result of the search for any target
+     * and any smaller TTL (see FirstPassageRecorder).
+     * 
+     * @return true if the search can be answered from its first passages
+     */
+    public boolean isFirstPassageSearch() {
+        return false;
+    }
+    
+    /**
+     * Starts recording the first passages of the queries at each node. The
+     * targets of the search are handed over to the recorder, so the search
+     * runs until its TTL expires. As the recorder observes the search, the
+     * search is then run step by step.
+     * 
+     * @return the recorder, from which the results of the search are derived
+     *         once it has ended
+     */
+    public FirstPassageRecorder startFirstPassageRecording() {
+        if (!isFirstPassageSearch() || (nTotalTime > 0)) {
+            throw new IllegalStateException("The first passages of this " +
+                    "search cannot be recorded.");
+        }
+        
+        final FirstPassageRecorder firstPassageRecorder =
+                new FirstPassageRecorder(this);
+        addSearchObserver(firstPassageRecorder);
+        
+        return firstPassageRecorder;
+    }
+    
+    /**
+     * Adds an observer to be notified of the progress of the search.
+     * 
+     * @param aSearchObserver
+     *            the observer to add
+     */
+    public void addSearchObserver(final SearchObserver aSearchObserver) {
+        searchObserversList.add(aSearchObserver);
+    }
+    
+    /**
+     * Notifies the observers that the queries were propagated by one step.
+     */
+    protected void notifyStepCompleted() {
+        for (int iObserver = 0; iObserver < searchObserversList.size(); iObserver++) {
+            searchObserversList.get(iObserver).stepCompleted(this);
+        }
+    }
+    
+    /**
+     * Ends the search and notifies the observers of the reason why.
+     * 
+     * @param reason
+     *            the reason for which the search ended
+     * @return 1, so that terminating conditions can simply return the result
+     *         of this method
+     */
+    protected int terminate(final TerminationReason reason) {
+        terminationReason = reason;
+        
+        if (reason.isSuccess()) {
+            searchResult = 1;
+        }
+        
+        for (int iObserver = 0; iObserver < searchObserversList.size(); iObserver++) {
+            searchObserversList.get(iObserver).searchTerminated(this, reason);
+        }
+        
+        return 1;
+    }
+    
     /**
      * Getter for nQueries.
      * 
@@ -171,6 +561,15 @@ public abstract class Search {
         return nQueries;
     }
     
+    /**
+     * Getter for randomNumberGenerator.
+     * 
+     * @return the randomNumberGenerator
+     */
+    public RandomNumberGenerator getRandomNumberGenerator() {
+        return randomNumberGenerator;
+    }
+    
     /**
      * Getter for networkStructurer.
      * 
@@ -188,14 +587,83 @@ public abstract class Search {
      */
     public void setNetworkStructurer(final NetworkStructurer networkStructurer) {
         this.networkStructurer = networkStructurer;
+        this.compactGraph = networkStructurer.getCompactGraph();
     }
     
     /**
-     * Getter for searchQueriesMap.
+     * Getter for pathWindowSize.
      * 
-     * @return the searchQueriesMap
+     * @return the pathWindowSize
+     */
+    public int getPathWindowSize() {
+        return pathWindowSize;
+    }
+    
+    /**
+     * Setter for pathWindowSize. Only the path logs created afterwards are
+     * bounded to the new size.
+     * 
+     * @param pathWindowSize
+     *            the number of last hops kept by the path log of each query,
+     *            0 to keep the whole path
+     */
+    public void setPathWindowSize(final int pathWindowSize) {
+        this.pathWindowSize = pathWindowSize;
+    }
+    
+    /**
+     * Getter for flagNonBacktracking.
+     * 
+     * @return the flagNonBacktracking
+     */
+    public int getFlagNonBacktracking() {
+        return flagNonBacktracking;
+    }
+    
+    /**
+     * Getter for neighbourAliasTable.
+     * 
+     * @return the neighbourAliasTable
+     */
+    public NeighbourAliasTable getNeighbourAliasTable() {
+        return neighbourAliasTable;
+    }
+    
+    /**
+     * Setter for flagNonBacktracking.
+     * 
+     * @param flagNonBacktracking
+     *            1 if a query is never sent back to the node it came from,
+     *            unless that node is the only neighbour, 0 otherwise
+     */
+    public void setFlagNonBacktracking(final int flagNonBacktracking) {
+        this.flagNonBacktracking = flagNonBacktracking;
+    }
+    
+    /**
+     * Getter for queryStateTable.
+     * 
+     * @return the queryStateTable
+     */
+    public QueryStateTable getQueryStateTable() {
+        return queryStateTable;
+    }
+    
+    /**
+     * Gets the search queries belonging to this search, indexed by search
+     * query ID. The map is built from the query state table, so changing it
+     * does not change the queries of the search.
+     * 
+     * @return the search queries
      */
     public HashMap<Integer, Query> getSearchQueriesMap() {
+        final HashMap<Integer, Query> searchQueriesMap =
+                new HashMap<Integer, Query>();
+        
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            searchQueriesMap.put(iQuery, queryStateTable.getQuery(iQuery));
+        }
+        
         return searchQueriesMap;
     }
     
@@ -226,4 +694,42 @@ public abstract class Search {
         return searchResult;
     }
     
+    /**
+     * Gets the queries of this search by query group ID. The map is built
+     * from the query state table, so changing it does not change the groups
+     * of the queries.
+     * 
+     * @return the sets of queries, by query group ID
+     */
+    public HashMap<Integer, Set<Query>> getQueryGroupsMap() {
+        final HashMap<Integer, Set<Query>> queryGroupsMap =
+                new HashMap<Integer, Set<Query>>();
+        
+        for (int iQuery = 0; iQuery < queryStateTable.getnQueries(); iQuery++) {
+            final int queryGroupID = queryStateTable.getQueryGroupID(iQuery);
+            
+            if (queryGroupID >= 0) {
+                Set<Query> querySet = queryGroupsMap.get(queryGroupID);
+                
+                if (querySet == null) {
+                    querySet = new HashSet<Query>();
+                    queryGroupsMap.put(queryGroupID, querySet);
+                }
+                
+                querySet.add(queryStateTable.getQuery(iQuery));
+            }
+        }
+        
+        return queryGroupsMap;
+    }
+    
+    /**
+     * Getter for terminationReason.
+     * 
+     * @return the terminationReason
+     */
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+    
 }
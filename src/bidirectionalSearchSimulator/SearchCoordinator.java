@@ -13,9 +13,15 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -35,7 +41,7 @@ import org.apache.commons.math3.stat.descriptive.summary.Sum;
  * SearchCoordinator is a class that coordinates the bidirectional
  * search simulator. It reacts to events and delegates tasks to others.
  */
-public class SearchCoordinator {
+public class SearchCoordinator implements SearchObserver {
     
     private NetworkStructurer networkStructurer;
     private Network network;
@@ -65,6 +71,24 @@ public class SearchCoordinator {
      */
     private int flagSearchComplete = 0;
     
+    private long masterSeed = System.nanoTime();  // seed from which the random
+    // numbers of every network and search are derived
+    private RandomNumberGenerator randomNumberGenerator =
+            new Xoshiro256StarStar(masterSeed);  // generator of the networks
+    // and searches created from the GUI
+    private int nBatchThreads = Runtime.getRuntime().availableProcessors();  // number of
+    // simulations run at the same time in batch mode
+    private ForkJoinPool batchPool = null;  // threads running the batch simulations
+    private int flagUseBatchedWalkEngine = 1;  // 1 if the random walks of a
+    // batch run on a shared network are run in lockstep by batched walk
+    // engines, 0 if each simulation is run on its own
+    private int flagUseFloodTreeCache = 1;  // 1 if the floods of a batch run
+    // on a shared network are answered from the flood trees of their sources
+    // once a source has been flooded before, 0 if each flood is run
+    private PrintStream batchPrintStream = null;  // stream to which the batch
+    
+    // results are printed, opened the first time a batch is run
+    
     /**
      * Constructor.
      * 
@@ -166,6 +190,11 @@ public class SearchCoordinator {
      * while keeping the same network.
      */
     public void initializeSearch() {
+        /* Lets the new search reuse the node sets of the previous one. */
+        if (search != null) {
+            search.releaseNodeSets();
+        }
+        
         /* Generates a new instance of the search. */
         generateSearch();
         search.chooseSourceAndTargets();
@@ -206,48 +235,18 @@ public class SearchCoordinator {
      * while keeping the same network.
      */
     public void resetSearch() {
-        Node sourceNodeBackup;
-        final HashMap<Integer, Node> querySourceBackupMap =
-                new HashMap<Integer, Node>();
-        
-        Set<Node> targetNodesBackupSet;
-        final HashMap<Integer, Set<Node>> queryTargetsBackupMap =
-                new HashMap<Integer, Set<Node>>();
-        
-        final int nQueriesToBackup = search.getnQueries();
-        
-        // TODO Add a try/catch for the following backups in case the source
-        // or targets can't be accessed
-        
-        /* Copies the source and target nodes for each query. */
-        for (int iQuery = 0; iQuery < nQueriesToBackup; iQuery++) {
-            sourceNodeBackup =
-                    search.getSearchQueriesMap().get(iQuery).getSourceNode();
-            querySourceBackupMap.put(iQuery, sourceNodeBackup);
-            
-            targetNodesBackupSet =
-                    search.getSearchQueriesMap().get(iQuery)
-                            .getTargetNodesSet();
-            queryTargetsBackupMap.put(Integer.valueOf(iQuery),
-                    targetNodesBackupSet);
-        }
+        final Search previousSearch = search;
         
         /* Generates a new instance of the search. */
         generateSearch();
         
-        for (int iQuery = 0; iQuery < search.getSearchQueriesMap().size(); iQuery++) {
-            /* Restores the source nodes. */
-            search.searchQueriesMap.get(iQuery).setSourceNode(
-                    querySourceBackupMap.get(iQuery));
-            
-            /* Adds the source nodes to the set of current nodes. */
-            search.searchQueriesMap.get(iQuery).getCurrentNodesSet().add(
-                    querySourceBackupMap.get(iQuery));
-            
-            /* Restores the target nodes. */
-            search.searchQueriesMap.get(iQuery).setTargetNodesSet(
-                    queryTargetsBackupMap.get(iQuery));
-        }
+        copySourceAndTargets(previousSearch, search);
+        
+        /*
+         * Gives the node sets of the previous search back to the network, for
+         * the next search to reuse.
+         */
+        previousSearch.releaseNodeSets();
         
         /*
          * Checks if the search should be saved to a file.
@@ -280,34 +279,111 @@ public class SearchCoordinator {
         }
     }
     
+    /**
+     * Gives a new search the same source and target nodes as a previous
+     * search, so that the same search can be run again.
+     * 
+     * @param previousSearch
+     *            the search whose source and target nodes are copied
+     * @param newSearch
+     *            the search, not yet started, receiving the source and target
+     *            nodes
+     */
+    public void copySourceAndTargets(final Search previousSearch,
+            final Search newSearch) {
+        Node sourceNodeBackup;
+        final HashMap<Integer, Node> querySourceBackupMap =
+                new HashMap<Integer, Node>();
+        
+        Set<Node> targetNodesBackupSet;
+        final HashMap<Integer, Set<Node>> queryTargetsBackupMap =
+                new HashMap<Integer, Set<Node>>();
+        
+        final int nQueriesToBackup = previousSearch.getnQueries();
+        
+        // TODO Add a try/catch for the following backups in case the source
+        // or targets can't be accessed
+        
+        /* Copies the source and target nodes for each query. */
+        for (int iQuery = 0; iQuery < nQueriesToBackup; iQuery++) {
+            sourceNodeBackup =
+                    previousSearch.getQueryStateTable().getQuery(iQuery)
+                            .getSourceNode();
+            querySourceBackupMap.put(iQuery, sourceNodeBackup);
+            
+            targetNodesBackupSet =
+                    previousSearch.getQueryStateTable().getQuery(iQuery)
+                            .getTargetNodesSet();
+            queryTargetsBackupMap.put(Integer.valueOf(iQuery),
+                    targetNodesBackupSet);
+        }
+        
+        for (int iQuery = 0; iQuery < newSearch.getQueryStateTable().getnQueries(); iQuery++) {
+            /* Restores the source nodes. */
+            newSearch.getQueryStateTable().getQuery(iQuery).setSourceNode(
+                    querySourceBackupMap.get(iQuery));
+            
+            /* Adds the source nodes to the set of current nodes. */
+            newSearch.getQueryStateTable().getQuery(iQuery)
+                    .getCurrentNodesSet().add(querySourceBackupMap.get(iQuery));
+            
+            /*
+             * Restores the target nodes. Each search gets its own copy of the
+             * set so that searches run in parallel share nothing but the
+             * network.
+             */
+            newSearch.getQueryStateTable().getQuery(iQuery).setTargetNodesSet(
+                    new HashSet<Node>(queryTargetsBackupMap.get(iQuery)));
+        }
+    }
+    
     /**
      * Generates the network using the parameters inputed by the user.
      */
     public void generateNetwork() {
-        int nNodes = controlPanel.getInputednNodes();
-        networkStructurer = new NetworkStructurer(this, nNodes);
+        network = createNetwork(randomNumberGenerator.split());
+        networkStructurer = network.getNetworkStructurer();
+    }
+    
+    /**
+     * Creates a new network using the parameters inputed by the user. The
+     * network is independent of the one currently displayed, so several
+     * networks can be created at the same time in batch mode.
+     * 
+     * @param aRandomNumberGenerator
+     *            source of randomness used to generate the network
+     * @return the new network, whose nodes and links are only generated if
+     *         the network is not set to be restored from a file
+     */
+    public Network createNetwork(
+            final RandomNumberGenerator aRandomNumberGenerator) {
+        final int nNodes = controlPanel.getInputednNodes();
+        final NetworkStructurer newNetworkStructurer =
+                new NetworkStructurer(this, nNodes);
+        Network newNetwork = null;
         
         /* Erdos-Renyi graph. */
         if (controlPanel.getInputedNetworkType().equals(
                 controlPanel.getNetworkERGraphString())) {
-            network =
-                    new ErdosRenyi(networkStructurer, nNodes, controlPanel
-                            .getInputedLinkDensity());
+            newNetwork =
+                    new ErdosRenyi(newNetworkStructurer, nNodes, controlPanel
+                            .getInputedLinkDensity(), aRandomNumberGenerator);
         }
         /* Barbasi-Albert graph. */
         else if (controlPanel.getInputedNetworkType().equals(
                 controlPanel.getNetworkBAGraphString())) {
-            network =
-                    new BarabasiAlbert(networkStructurer, nNodes, controlPanel
+            newNetwork =
+                    new BarabasiAlbert(newNetworkStructurer, nNodes, controlPanel
                             .getInputedBAInitialNodes(), controlPanel
-                            .getInputedBALinksEachStep());
+                            .getInputedBALinksEachStep(),
+                            aRandomNumberGenerator);
         }
         /* Wireless sensor network. */
         else if (controlPanel.getInputedNetworkType().equals(
                 controlPanel.getNetworkRGGraphString())) {
-            network =
-                    new RandomGeometric(networkStructurer, nNodes, controlPanel
-                            .getInputedLinkDensity());
+            newNetwork =
+                    new RandomGeometric(newNetworkStructurer, nNodes, controlPanel
+                            .getInputedLinkDensity(), aRandomNumberGenerator);
         }
         
         /*
@@ -316,65 +392,167 @@ public class SearchCoordinator {
          */
         if (!controlPanel.getInputedInitialSearchState().equals(
                 controlPanel.getInitialSearchStateRestore())) {
-            network.generateNodes();
-            network.generateLinks();
+            newNetwork.generateNodes();
+            newNetwork.generateLinks();
             
             /*
              * Generates the Barabasi-Albert growth model.
              */
             if (controlPanel.getInputedNetworkType().equals(
                     controlPanel.getNetworkBAGraphString())) {
-                ((BarabasiAlbert) network).generateBAModel();
+                ((BarabasiAlbert) newNetwork).generateBAModel();
             }
+            
+            /* Builds the compact form of the links used by the searches. */
+            newNetworkStructurer.buildCompactGraph();
         }
+        
+        return newNetwork;
     }
     
     /**
-     * Generates the search scheme using the parameters inputed by the user.
+     * Generates the search scheme using the parameters inputed by the user and
+     * attaches the GUI to it.
      */
     public void generateSearch() {
+        search = createSearch(networkStructurer, randomNumberGenerator.split());
+        search.addSearchObserver(this);
+    }
+    
+    /**
+     * Creates a search using the search strategy and time-to-live inputed by
+     * the user. The search is not attached to the GUI.
+     * 
+     * @param aNetworkStructurer
+     *            network structurer containing the network to search
+     * @param aRandomNumberGenerator
+     *            source of randomness of the search
+     * @return the new search, null if the search strategy is unknown
+     */
+    public Search createSearch(final NetworkStructurer aNetworkStructurer,
+            final RandomNumberGenerator aRandomNumberGenerator) {
+        Search newSearch = null;
+        
         /* Flooding. */
         if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchFloodString())) {
-            search =
-                    new Flood(this, networkStructurer, controlPanel
-                            .getInputtedTTL());
+            newSearch =
+                    new Flood(this, aNetworkStructurer, controlPanel
+                            .getInputtedTTL(), aRandomNumberGenerator);
+        }
+        /* Expanding ring flooding. */
+        else if (controlPanel.getInputedSearch().equals(
+                controlPanel.getSearchExpandingRingFloodString())) {
+            newSearch =
+                    new ExpandingRingFlood(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            aRandomNumberGenerator);
         }
         /* Random walk. */
         else if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchRWString())) {
-            search =
-                    new RandomWalk(this, networkStructurer, controlPanel
-                            .getInputtedTTL());
+            newSearch =
+                    new RandomWalk(this, aNetworkStructurer, controlPanel
+                            .getInputtedTTL(), aRandomNumberGenerator);
+        }
+        /* Weighted random walk. */
+        else if (controlPanel.getInputedSearch().equals(
+                controlPanel.getSearchWeightedRWString())) {
+            newSearch =
+                    new WeightedRandomWalk(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            getNeighbourAliasTable(aNetworkStructurer),
+                            aRandomNumberGenerator);
         }
         /* Randomly replicated random walk. */
         else if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchRRRWString())) {
-            search =
-                    new RandomlyReplicatedRandomWalk(this, networkStructurer,
-                            controlPanel.getInputtedTTL());
+            newSearch =
+                    new RandomlyReplicatedRandomWalk(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            aRandomNumberGenerator);
+        }
+        /* K random walkers. */
+        else if (controlPanel.getInputedSearch().equals(
+                controlPanel.getSearchKRandomWalkersString())) {
+            newSearch =
+                    new KRandomWalkers(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            controlPanel.getInputednWalkers(),
+                            controlPanel.getInputedFlagAvoidVisitedNodes(),
+                            aRandomNumberGenerator);
         }
         /* Bidirectional random walk. */
         else if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchBidirectionalRWString())) {
-            search =
-                    new BidirectionalSearchRW(this, networkStructurer,
-                            controlPanel.getInputtedTTL());
+            newSearch =
+                    new BidirectionalSearchRW(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            aRandomNumberGenerator);
+        }
+        /* Bidirectional weighted random walk. */
+        else if (controlPanel.getInputedSearch().equals(
+                controlPanel.getSearchBidirectionalWeightedRWString())) {
+            newSearch =
+                    new BidirectionalSearchWeightedRW(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            getNeighbourAliasTable(aNetworkStructurer),
+                            aRandomNumberGenerator);
+        }
+        /* Bidirectional k random walkers. */
+        else if (controlPanel.getInputedSearch().equals(
+                controlPanel.getSearchBidirectionalKRandomWalkersString())) {
+            newSearch =
+                    new BidirectionalKRandomWalkers(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            controlPanel.getInputednWalkers(),
+                            controlPanel.getInputedFlagAvoidVisitedNodes(),
+                            aRandomNumberGenerator);
         }
         /* Bidirectional linear. */
         else if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchBidirectionalLinearString())) {
-            search =
-                    new BidirectionalSearchLinear(this, networkStructurer,
-                            controlPanel.getInputtedTTL());
+            newSearch =
+                    new BidirectionalSearchLinear(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            aRandomNumberGenerator);
         }
         /* Bidirectional hybrid. */
         else if (controlPanel.getInputedSearch().equals(
                 controlPanel.getSearchBidirectionalHybridString())) {
-            search =
-                    new BidirectionalSearchRRRW(this, networkStructurer,
-                            controlPanel.getInputtedTTL());
+            newSearch =
+                    new BidirectionalSearchRRRW(this, aNetworkStructurer,
+                            controlPanel.getInputtedTTL(),
+                            aRandomNumberGenerator);
+        }
+        
+        /* Random walks may be set to never send a query straight back. */
+        if ((newSearch != null) && isRandomWalkSearch()) {
+            newSearch.setFlagNonBacktracking(controlPanel
+                    .getInputedFlagNonBacktracking());
         }
+        
+        return newSearch;
+    }
+    
+    /**
+     * Gets the neighbour alias table of a network for the weighting inputed
+     * by the user. The table is built once per network and kept by its
+     * network structurer, so the searches of a batch share it.
+     * 
+     * @param aNetworkStructurer
+     *            network structurer containing the network to search
+     * @return the neighbour alias table
+     */
+    private NeighbourAliasTable getNeighbourAliasTable(
+            final NetworkStructurer aNetworkStructurer) {
+        if (controlPanel.getInputedWeighting().equals(
+                controlPanel.getWeightingLinkString())) {
+            return aNetworkStructurer.getLinkWeightAliasTable();
+        }
+        
+        return aNetworkStructurer.getDegreeBiasAliasTable(controlPanel
+                .getInputedDegreeExponent());
     }
     
     /**
@@ -418,6 +596,53 @@ public class SearchCoordinator {
         }
     }
     
+    /**
+     * Updates the network panel and information display after each step of
+     * the search. Nothing is displayed in batch mode.
+     * 
+     * @param aSearch
+     *            the search that completed a step
+     */
+    @Override
+    public void stepCompleted(final Search aSearch) {
+        if (controlPanel.getInputedSimulationType().equals(
+                controlPanel.getSimulationBatchString())) {
+            return;
+        }
+        
+        networkPanel.repaint();
+        controlPanel.getInformationNumberOfTimeLabel().setText(
+                Integer.toString(aSearch.getnTotalTime()));
+        controlPanel.getInformationNumberOfMessagesLabel().setText(
+                Integer.toString(aSearch.getnTotalMessages()));
+    }
+    
+    /**
+     * Displays the result of the search once it has ended. If the source of
+     * one of the queries has no neighbours, the search is also marked as
+     * complete so that it does not start.
+     * 
+     * @param aSearch
+     *            the search that ended
+     * @param reason
+     *            the reason for which the search ended
+     */
+    @Override
+    public void searchTerminated(final Search aSearch,
+            final TerminationReason reason) {
+        if (reason == TerminationReason.SOURCE_HAS_NO_NEIGHBOURS) {
+            flagSearchComplete = 1;
+        }
+        
+        if (controlPanel.getInputedSimulationType().equals(
+                controlPanel.getSimulationBatchString())) {
+            return;
+        }
+        
+        controlPanel.getResultLabel().setText(
+                "<html>" + reason.getResultText() + "</html>");
+    }
+    
     /**
      * Executes a batch search for each search strategy (instead of just the
      * search strategy specified in the control panel) using each of the network
@@ -433,6 +658,8 @@ public class SearchCoordinator {
         String inputedNetworkBackup = controlPanel.getInputedNetworkType(); // backs
         // up the inputed network before running the batch mode
         
+        final PrintStream out = getBatchPrintStream();
+        
         /* Executes the batch search for each network type. */
         for (int iNetworkType = 0; iNetworkType < controlPanel
                 .getNetworkParameterTypeList().length; iNetworkType++) {
@@ -476,24 +703,23 @@ public class SearchCoordinator {
                                     iNetworkInstance + iSearchCondition +
                                     ".ser";
                     
-                    System.out
-                            .println("====================================================");
-                    System.out.println(networkSettingsFilename + ", " +
+                    out.println("====================================================");
+                    out.println(networkSettingsFilename + ", " +
                             searchConditionsFilename);
-                    System.out
-                            .println("====================================================");
-                    System.out.println();
+                    out.println("====================================================");
+                    out.println();
                     
-                    doSearchBatchAllStrategies();
+                    doSearchBatchAllStrategies(controlPanel
+                            .getInputedBatchTtls());
                     
-                    System.out.println();
-                    System.out.println();
+                    out.println();
+                    out.println();
                 }
             }
             
         }
         
-        System.out.println("Finished.");
+        out.println("Finished.");
         
         controlPanel.setInputedNetworkType(inputedNetworkBackup); // restores the
         // initial inputed network type after the batch mode has finished
@@ -508,6 +734,19 @@ public class SearchCoordinator {
      * same TTL.
      */
     public void doSearchBatchAllStrategies() {
+        doSearchBatchAllStrategies(null);
+    }
+    
+    /**
+     * Executes a batch search for each search strategy and each of several
+     * TTLs using the same network type (see doSearchBatchForTtls). The
+     * control panel passes the TTLs entered for a batch of all searches.
+     * 
+     * @param ttls
+     *            the TTLs, or null to use the TTL set here for each strategy
+     *            (see doSearchBatchAllStrategies)
+     */
+    public void doSearchBatchAllStrategies(final int[] ttls) {
         String inputedSearchBackup = controlPanel.getInputedSearch(); // backs
         // up the inputed search type before running the batch mode
         
@@ -517,6 +756,11 @@ public class SearchCoordinator {
             controlPanel.setInputedSearch(controlPanel
                     .getSearchParametersAlgorithmList()[iSearchStrategy]);
             
+            if (ttls != null) {
+                doSearchBatchForTtls(ttls);
+                continue;
+            }
+            
             /* Flooding's TTL. */
             if (controlPanel.getInputedSearch().equals(
                     controlPanel.getSearchFloodString())) {
@@ -562,28 +806,16 @@ public class SearchCoordinator {
      * Executes the search in batch mode for running multiple
      * simulations automatically without outputting the network to the screen.
      * 
-     * Results are printed to a file.
+     * Results are printed to a file. Unless the search conditions are saved
+     * to a file after each simulation, the simulations are run in parallel
+     * (see runBatchSimulations).
      */
     public void doSearchBatch() {
-        final HashMap<Integer, int[]> batchResultsMap =
-                new HashMap<Integer, int[]>(); // stores results from the
-        // various simulations. Each simulation number is the key (e.g. the first
-        // simulation gets a key of 0, second simulation a key of 1, etc.) and
-        // the values are an array of the various parameters being measured
-        
         int nSimulations;  // number of
         // simulations to do for each set of network and search parameters
         
-        /* Send the printed system output to a file. */
-        File file = new File("bidirectionalSearchSimulator_output.txt");
-        FileOutputStream fis;
-        try {
-            fis = new FileOutputStream(file, true); // true allows append
-            PrintStream out = new PrintStream(fis);
-            System.setOut(out);
-        } catch (FileNotFoundException e) {
-            // TODO Auto-generated catch block
-        }
+        /* Sends the printed output to a file. */
+        final PrintStream out = getBatchPrintStream();
         
         /*
          * Used during my final simulation phase since I will be doing 100
@@ -599,89 +831,225 @@ public class SearchCoordinator {
         nSimulations = controlPanel.getInputedBatchNumberOfSimulations();
 //        }
         
-//        System.out
+        printBatchHeader(out);
+        
+        final SimulationResult[] simulationResults =
+                new SimulationResult[nSimulations];  // results of each
+        // simulation, indexed by simulation number
+        final int[] nLinksArray = new int[nSimulations];  // number of links
+        // in the network used by each simulation
+        
+        /*
+         * Saving the search conditions after each simulation only makes sense
+         * if the simulations are run one after the other.
+         */
+        if (controlPanel.getInputedInitialSearchState().equals(
+                controlPanel.getInitialSearchStateSave())) {
+            for (int iSimulationNumber = 0; iSimulationNumber < nSimulations; iSimulationNumber++) {
+                
+                /*
+                 * Each simulation is done on a new network using new search
+                 * conditions.
+                 *
+                 * NOTE: THIS IS THE METHOD TO CHOOSE WHEN RESTORING A NETWORK
+                 * AND ITS SEARCH INFORMATION.
+                 */
+                if (controlPanel
+                        .getInputedBatchSimulationType()
+                        .equals(controlPanel
+                                .getBatchSimulationDifferentNetworkDifferentSearchString())) {
+                    initializeNetworkAndSearch();
+                }
+                /*
+                 * Each simulation uses the same network but different search
+                 * conditions.
+                 */
+                else if (controlPanel
+                        .getInputedBatchSimulationType()
+                        .equals(controlPanel
+                                .getBatchSimulationSameNetworkDifferentSearchString())) {
+                    initializeSearch();
+                    
+                }
+                /*
+                 * Each simulation reuses both the same network and the same search
+                 * conditions.
+                 */
+                else if (controlPanel.getInputedBatchSimulationType().equals(
+                        controlPanel
+                                .getBatchSimulationSameNetworkSameSearchString())) {
+                    resetSearch();
+                    
+                }
+                
+                /* Stores results. */
+                simulationResults[iSimulationNumber] =
+                        new SimulationResult(search.getnTotalTime(),
+                                search.getnTotalMessages(),
+                                search.calculateNumberOfNodesVisited(),
+                                search.getTerminationReason());
+                nLinksArray[iSimulationNumber] =
+                        networkStructurer.calculateTotalNumberOfLinks();
+            }
+        }
+        else if (runBatchSimulations(simulationResults, nLinksArray) == 0) {
+            return;
+        }
+        
+        printBatchResults(out, simulationResults, nLinksArray);
+    }
+    
+    /**
+     * Executes the search in batch mode once for each of several TTLs, as
+     * doSearchBatch would if it were called for each TTL, printing the
+     * results for each TTL in turn.
+     * 
+     * Floods and random walks move the same way whatever their TTL, so each
+     * simulation is only run once, with the largest TTL, while its first
+     * passages are recorded (see FirstPassageRecorder). The results for each
+     * TTL are derived from the recording of each simulation as soon as it
+     * ends. Other searches, and batches that save the search conditions after
+     * each simulation, are run once for each TTL.
+     * 
+     * The recorder follows the search as an observer, so the recorded
+     * simulations are run step by step, without the search kernels, the
+     * batched walk engines or the flood tree cache. This pays off when there
+     * are several TTLs, as each simulation is only run once.
+     * 
+     * @param ttls
+     *            the TTLs
+     */
+    public void doSearchBatchForTtls(final int[] ttls) {
+        final int inputedTTLBackup = controlPanel.getInputtedTTL(); // backs
+        // up the inputed TTL before running the batch mode
+        
+        if (!isFirstPassageSearch() ||
+                controlPanel.getInputedInitialSearchState().equals(
+                        controlPanel.getInitialSearchStateSave())) {
+            for (int iTtl = 0; iTtl < ttls.length; iTtl++) {
+                controlPanel.setInputtedTTL(ttls[iTtl]);
+                doSearchBatch();
+            }
+        }
+        else {
+            int maxTtl = 0;
+            for (int iTtl = 0; iTtl < ttls.length; iTtl++) {
+                maxTtl = Math.max(maxTtl, ttls[iTtl]);
+            }
+            
+            final int nSimulations =
+                    controlPanel.getInputedBatchNumberOfSimulations();
+            final SimulationResult[] simulationResults =
+                    new SimulationResult[nSimulations];
+            final int[] nLinksArray = new int[nSimulations];
+            final SimulationResult[][] ttlSimulationResults =
+                    new SimulationResult[ttls.length][nSimulations];
+            
+            /* Records each simulation with the largest TTL. */
+            controlPanel.setInputtedTTL(maxTtl);
+            
+            if (runBatchSimulations(simulationResults, nLinksArray, ttls,
+                    ttlSimulationResults) == 1) {
+                final PrintStream out = getBatchPrintStream();
+                
+                /* Prints the results for each TTL. */
+                for (int iTtl = 0; iTtl < ttls.length; iTtl++) {
+                    controlPanel.setInputtedTTL(ttls[iTtl]);
+                    printBatchHeader(out);
+                    printBatchResults(out, ttlSimulationResults[iTtl],
+                            nLinksArray);
+                }
+            }
+        }
+        
+        controlPanel.setInputtedTTL(inputedTTLBackup); // restores the
+        // initial inputed TTL after the batch mode has finished
+    }
+    
+    /**
+     * Prints the network and search parameters of a batch, followed by the
+     * headings of the results.
+     * 
+     * @param out
+     *            the stream to which the batch results are printed
+     */
+    private void printBatchHeader(final PrintStream out) {
+//        out
 //            .println("Welcome to Bidirectional Search Simulator BATCH MODE");
-//        System.out
+//        out
 //            .println("====================================================");
-//        System.out.println("");
-        System.out.println("Network type: " +
-                controlPanel.getInputedNetworkType());
-        System.out.println("Network size: " + controlPanel.getInputednNodes());
+//        out.println("");
+        out.println("Network type: " + controlPanel.getInputedNetworkType());
+        out.println("Network size: " + controlPanel.getInputednNodes());
         if ((controlPanel.getInputedNetworkType().equals(controlPanel
                 .getNetworkERGraphString())) ||
                 (controlPanel.getInputedNetworkType().equals(controlPanel
                         .getNetworkRGGraphString()))) {
-            System.out.println("Link probability: " +
+            out.println("Link probability: " +
                     controlPanel.getInputedLinkDensity());
         }
         else if (controlPanel.getInputedNetworkType().equals(
                 controlPanel.getNetworkBAGraphString())) {
-            System.out.println("Initial nodes: " +
+            out.println("Initial nodes: " +
                     controlPanel.getInputedBAInitialNodes());
-            System.out.println("Links to add at each step: " +
+            out.println("Links to add at each step: " +
                     controlPanel.getInputedBALinksEachStep());
         }
-        System.out.println("Search method: " + controlPanel.getInputedSearch());
-        System.out.println("Time-to-live: " + controlPanel.getInputtedTTL());
-//      System.out.println("Simulation type: " +
+        out.println("Search method: " + controlPanel.getInputedSearch());
+        out.println("Time-to-live: " + controlPanel.getInputtedTTL());
+        if (isRandomWalkSearch()) {
+            out.println("Non-backtracking: " +
+                    ((controlPanel.getInputedFlagNonBacktracking() == 1) ? "yes"
+                            : "no"));
+        }
+        if (isWeightedWalkSearch()) {
+            out.println("Weighting: " + controlPanel.getInputedWeighting());
+            if (controlPanel.getInputedWeighting().equals(
+                    controlPanel.getWeightingDegreeString())) {
+                out.println("Degree exponent: " +
+                        controlPanel.getInputedDegreeExponent());
+            }
+        }
+        if (isKWalkerSearch()) {
+            out.println("Walkers: " + controlPanel.getInputednWalkers());
+            out.println("Avoid visited nodes: " +
+                    ((controlPanel.getInputedFlagAvoidVisitedNodes() == 1)
+                            ? "yes" : "no"));
+        }
+        out.println("Master seed: " + masterSeed);
+//      out.println("Simulation type: " +
 //            controlPanel.getInputedBatchSimulationType());
-        System.out.println("");
-        System.out
-                .println("Simulation      Time  Msgs Links Nodes Visited Success");
-        System.out
-                .println("============== ===== ===== ===== ============= =======");
+        out.println("");
+        out.println("Simulation      Time  Msgs Links Nodes Visited Success");
+        out.println("============== ===== ===== ===== ============= =======");
+    }
+    
+    /**
+     * Prints the results of each simulation of a batch, followed by a summary
+     * of the batch.
+     * 
+     * @param out
+     *            the stream to which the batch results are printed
+     * @param simulationResults
+     *            result of each simulation, indexed by simulation number
+     * @param nLinksArray
+     *            number of links in the network used by each simulation,
+     *            indexed by simulation number
+     */
+    private void printBatchResults(final PrintStream out,
+            final SimulationResult[] simulationResults,
+            final int[] nLinksArray) {
+        final int nSimulations = simulationResults.length;
         
+        /* Displays results. */
         for (int iSimulationNumber = 0; iSimulationNumber < nSimulations; iSimulationNumber++) {
-            
-            /*
-             * Each simulation is done on a new network using new search
-             * conditions.
-             *
-             * NOTE: THIS IS THE METHOD TO CHOOSE WHEN RESTORING A NETWORK
-             * AND ITS SEARCH INFORMATION.
-             */
-            if (controlPanel
-                    .getInputedBatchSimulationType()
-                    .equals(controlPanel
-                            .getBatchSimulationDifferentNetworkDifferentSearchString())) {
-                initializeNetworkAndSearch();
-            }
-            /*
-             * Each simulation uses the same network but different search
-             * conditions.
-             */
-            else if (controlPanel
-                    .getInputedBatchSimulationType()
-                    .equals(controlPanel
-                            .getBatchSimulationSameNetworkDifferentSearchString())) {
-                initializeSearch();
-                
-            }
-            /*
-             * Each simulation reuses both the same network and the same search
-             * conditions.
-             */
-            else if (controlPanel.getInputedBatchSimulationType().equals(
-                    controlPanel
-                            .getBatchSimulationSameNetworkSameSearchString())) {
-                resetSearch();
-                
-            }
-            
-            /* Stores results. */
-            final int[] resultsArray = new int[5];
-            resultsArray[0] = search.getnTotalTime();
-            resultsArray[1] = search.getnTotalMessages();
-            resultsArray[2] = networkStructurer.calculateTotalNumberOfLinks();
-            resultsArray[3] = search.calculateNumberOfNodesVisited();
-            resultsArray[4] = search.getSearchResult();
-            
-            batchResultsMap.put(iSimulationNumber, resultsArray);
-            
-            /* Displays results. */
-            System.out.format("Simulation %2d: %5d %5d %5d %13d %7d%n",
-                    iSimulationNumber, resultsArray[0], resultsArray[1],
-                    resultsArray[2], resultsArray[3], resultsArray[4]);
+            out.format("Simulation %2d: %5d %5d %5d %13d %7d%n",
+                    iSimulationNumber,
+                    simulationResults[iSimulationNumber].getnTotalTime(),
+                    simulationResults[iSimulationNumber].getnTotalMessages(),
+                    nLinksArray[iSimulationNumber],
+                    simulationResults[iSimulationNumber].getnNodesVisited(),
+                    simulationResults[iSimulationNumber].getSearchResult());
         }
         
         /* Generates summary. */
@@ -705,64 +1073,64 @@ public class SearchCoordinator {
          */
         for (int iSimulationNumber = 0; iSimulationNumber < nSimulations; iSimulationNumber++) {
             summaryResultsTimeArray[iSimulationNumber] =
-                    batchResultsMap.get(iSimulationNumber)[0];
+                    simulationResults[iSimulationNumber].getnTotalTime();
             summaryResultsMessagesArray[iSimulationNumber] =
-                    batchResultsMap.get(iSimulationNumber)[1];
+                    simulationResults[iSimulationNumber].getnTotalMessages();
             summaryResultsLinksArray[iSimulationNumber] =
-                    batchResultsMap.get(iSimulationNumber)[2];
+                    nLinksArray[iSimulationNumber];
             summaryResultsNodesVisitedArray[iSimulationNumber] =
-                    batchResultsMap.get(iSimulationNumber)[3];
+                    simulationResults[iSimulationNumber].getnNodesVisited();
             summaryResultsSuccessArray[iSimulationNumber] =
-                    batchResultsMap.get(iSimulationNumber)[4];
+                    simulationResults[iSimulationNumber].getSearchResult();
         }
         
-        System.out.println("");
-        System.out.println("Summary");
-        System.out.println("=======");
-        System.out.println("");
+        out.println("");
+        out.println("Summary");
+        out.println("=======");
+        out.println("");
         
-        System.out.print("Total time:           ");
-        System.out.format("AVG: %7.1f   ", mean
+        out.print("Total time:           ");
+        out.format("AVG: %7.1f   ", mean
                 .evaluate(summaryResultsTimeArray));
-        System.out.format("STDDEV: %7.1f   ", stddev
+        out.format("STDDEV: %7.1f   ", stddev
                 .evaluate(summaryResultsTimeArray));
-        System.out.format("MIN: %7.0f   ", min
+        out.format("MIN: %7.0f   ", min
                 .evaluate(summaryResultsTimeArray));
-        System.out
+        out
                 .format("MAX: %7.0f%n", max.evaluate(summaryResultsTimeArray));
         
-        System.out.print("Total messages:       ");
-        System.out.format("AVG: %7.1f   ", mean
+        out.print("Total messages:       ");
+        out.format("AVG: %7.1f   ", mean
                 .evaluate(summaryResultsMessagesArray));
-        System.out.format("STDDEV: %7.1f   ", stddev
+        out.format("STDDEV: %7.1f   ", stddev
                 .evaluate(summaryResultsMessagesArray));
-        System.out.format("MIN: %7.0f   ", min
+        out.format("MIN: %7.0f   ", min
                 .evaluate(summaryResultsMessagesArray));
-        System.out.format("MAX: %7.0f%n", max
+        out.format("MAX: %7.0f%n", max
                 .evaluate(summaryResultsMessagesArray));
         
-        System.out.print("Total links:          ");
-        System.out.format("AVG: %7.1f   ", mean
+        out.print("Total links:          ");
+        out.format("AVG: %7.1f   ", mean
                 .evaluate(summaryResultsLinksArray));
-        System.out.format("STDDEV: %7.1f   ", stddev
+        out.format("STDDEV: %7.1f   ", stddev
                 .evaluate(summaryResultsLinksArray));
-        System.out.format("MIN: %7.0f   ", min
+        out.format("MIN: %7.0f   ", min
                 .evaluate(summaryResultsLinksArray));
-        System.out.format("MAX: %7.0f%n", max
+        out.format("MAX: %7.0f%n", max
                 .evaluate(summaryResultsLinksArray));
         
-        System.out.print("Total nodes visited:  ");
-        System.out.format("AVG: %7.1f   ", mean
+        out.print("Total nodes visited:  ");
+        out.format("AVG: %7.1f   ", mean
                 .evaluate(summaryResultsNodesVisitedArray));
-        System.out.format("STDDEV: %7.1f   ", stddev
+        out.format("STDDEV: %7.1f   ", stddev
                 .evaluate(summaryResultsNodesVisitedArray));
-        System.out.format("MIN: %7.0f   ", min
+        out.format("MIN: %7.0f   ", min
                 .evaluate(summaryResultsNodesVisitedArray));
-        System.out.format("MAX: %7.0f%n", max
+        out.format("MAX: %7.0f%n", max
                 .evaluate(summaryResultsNodesVisitedArray));
         
-        System.out.print("Success rate:         ");
-        System.out
+        out.print("Success rate:         ");
+        out
                 .format("AVG: %7.1f%n",
                         (sum.evaluate(summaryResultsSuccessArray) / summaryResultsSuccessArray.length) * 100);
         
@@ -770,9 +1138,9 @@ public class SearchCoordinator {
          * Display the results in a format that allows me to copy and paste
          * directly into the report. 
          */
-        System.out.println("");
-        System.out.println("COPYPASTESTART");
-        System.out
+        out.println("");
+        out.println("COPYPASTESTART");
+        out
                 .format("%.1f %.1f %.1f %.1f %.1f %.1f %.1f%n",
                         mean.evaluate(summaryResultsTimeArray),
                         stddev.evaluate(summaryResultsTimeArray),
@@ -781,10 +1149,442 @@ public class SearchCoordinator {
                         mean.evaluate(summaryResultsNodesVisitedArray),
                         stddev.evaluate(summaryResultsNodesVisitedArray),
                         (sum.evaluate(summaryResultsSuccessArray) / summaryResultsSuccessArray.length) * 100);
-        System.out.println("COPYPASTEEND");
-        System.out.println("");
-        System.out.println("");
+        out.println("COPYPASTEEND");
+        out.println("");
+        out.println("");
+        out.flush();
+    }
+    
+    /**
+     * Runs the simulations of a batch in parallel, using the batch type
+     * inputed by the user (see runBatchSimulations below).
+     * 
+     * @param simulationResults
+     *            array receiving the result of each simulation, indexed by
+     *            simulation number
+     * @param nLinksArray
+     *            array receiving the number of links in the network used by
+     *            each simulation, indexed by simulation number
+     * @return 1 if the simulations were run, 0 if the network or search
+     *         conditions could not be restored from a file
+     */
+    public int runBatchSimulations(final SimulationResult[] simulationResults,
+            final int[] nLinksArray) {
+        return runBatchSimulations(simulationResults, nLinksArray, null, null);
+    }
+    
+    /**
+     * Runs the simulations of a batch in parallel, using the batch type
+     * inputed by the user. Each simulation has its own search and, if a new
+     * network is used for each simulation, its own network. Otherwise, all the
+     * simulations share the same network, which the searches only read. Each
+     * simulation writes its results in its own slot of the result arrays, so
+     * no locking is needed, and the results are in the same order as if the
+     * simulations had been run one after the other.
+     * 
+     * Random walks on a shared network are run in blocks of simulations by
+     * batched walk engines (see BatchedWalkEngine), and floods on a shared
+     * network from a source already flooded are answered from the tree of the
+     * source (see FloodTreeCache), which give the same results.
+     * 
+     * The searches are not attached to the GUI.
+     * 
+     * @param simulationResults
+     *            array receiving the result of each simulation, indexed by
+     *            simulation number
+     * @param nLinksArray
+     *            array receiving the number of links in the network used by
+     *            each simulation, indexed by simulation number
+     * @param recordedTtls
+     *            TTLs for which the result of each simulation is derived from
+     *            its first passages (see Search.startFirstPassageRecording),
+     *            or null if the first passages are not recorded. Recording
+     *            runs each simulation step by step, without the search
+     *            kernels, the batched walk engines or the flood tree cache.
+     * @param ttlSimulationResults
+     *            arrays receiving the result of each simulation for each
+     *            recorded TTL, indexed by TTL number and then by simulation
+     *            number, or null if the first passages are not recorded
+     * @return 1 if the simulations were run, 0 if the network or search
+     *         conditions could not be restored from a file
+     */
+    public int runBatchSimulations(final SimulationResult[] simulationResults,
+            final int[] nLinksArray, final int[] recordedTtls,
+            final SimulationResult[][] ttlSimulationResults) {
+        NetworkStructurer sharedNetworkStructurer = null;  // network used by
+        // every simulation, null if each simulation generates its own network
+        Search templateSearch = null;  // search whose source and target nodes
+        // are reused by every simulation
+        Query restoredQuery = null;  // search conditions restored from a file
+        
+        /*
+         * Each simulation is done on a new network using new search
+         * conditions, unless the network and search conditions are restored
+         * from a file, in which case every simulation uses the restored ones.
+         */
+        if (controlPanel.getInputedBatchSimulationType().equals(
+                controlPanel
+                        .getBatchSimulationDifferentNetworkDifferentSearchString())) {
+            if (controlPanel.getInputedInitialSearchState().equals(
+                    controlPanel.getInitialSearchStateRestore())) {
+                sharedNetworkStructurer =
+                        reloadNetworkFromFile(networkSettingsFilename);
+                restoredQuery =
+                        readSearchConditionsFromFile(searchConditionsFilename);
+                
+                if ((sharedNetworkStructurer == null) || (restoredQuery == null)) {
+                    return 0;
+                }
+            }
+        }
+        /*
+         * Each simulation uses the same network, with either different search
+         * conditions or the same search conditions as the current search.
+         */
+        else {
+            sharedNetworkStructurer = networkStructurer;
+            
+            if (controlPanel.getInputedBatchSimulationType().equals(
+                    controlPanel.getBatchSimulationSameNetworkSameSearchString())) {
+                templateSearch = search;
+            }
+        }
+        
+        /* Builds the shared compact graph before the simulations start. */
+        if (sharedNetworkStructurer != null) {
+            sharedNetworkStructurer.getCompactGraph();
+        }
+        
+        /*
+         * Gives each simulation its own stream of random numbers, derived from
+         * the master seed in simulation order, so that the results of the
+         * batch do not depend on the number of threads or on which simulation
+         * ends first.
+         */
+        final RandomNumberGenerator batchRandomNumberGenerator =
+                new Xoshiro256StarStar(masterSeed);
+        final RandomNumberGenerator[] simulationRandomNumberGenerators =
+                new RandomNumberGenerator[simulationResults.length];
+        
+        for (int iSimulationNumber = 0; iSimulationNumber < simulationResults.length; iSimulationNumber++) {
+            simulationRandomNumberGenerators[iSimulationNumber] =
+                    batchRandomNumberGenerator.split();
+        }
+        
+        final NetworkStructurer finalSharedNetworkStructurer =
+                sharedNetworkStructurer;
+        final Search finalTemplateSearch = templateSearch;
+        final Query finalRestoredQuery = restoredQuery;
+        final List<Callable<Void>> simulationTasksList =
+                new ArrayList<Callable<Void>>(simulationResults.length);
+        
+        /*
+         * Random walks on a shared network are run in lockstep by batched
+         * walk engines, each task running a block of simulations so that
+         * every thread gets some.
+         */
+        if ((sharedNetworkStructurer != null) &&
+                (flagUseBatchedWalkEngine == 1) && isBatchedWalkSearch() &&
+                (recordedTtls == null)) {
+            final int nSimulationsPerTask =
+                    Math.max(1, Math.min(BatchedWalkEngine.DEFAULT_N_LANES,
+                            (simulationResults.length + nBatchThreads - 1) /
+                                    nBatchThreads));
+            
+            for (int iFirstSimulationNumber = 0; iFirstSimulationNumber < simulationResults.length; iFirstSimulationNumber += nSimulationsPerTask) {
+                final int firstSimulationNumber = iFirstSimulationNumber;
+                final int endSimulationNumber =
+                        Math.min(simulationResults.length,
+                                firstSimulationNumber + nSimulationsPerTask);
+                
+                simulationTasksList.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final BatchedWalkEngine batchedWalkEngine =
+                                new BatchedWalkEngine(
+                                        finalSharedNetworkStructurer
+                                                .getCompactGraph());
+                        final int[] lanes =
+                                new int[endSimulationNumber -
+                                        firstSimulationNumber];
+                        
+                        /* Loads each simulation in a lane of the engine. */
+                        for (int iSimulationNumber = firstSimulationNumber; iSimulationNumber < endSimulationNumber; iSimulationNumber++) {
+                            final Search aSearch =
+                                    createBatchSearch(
+                                            finalSharedNetworkStructurer,
+                                            simulationRandomNumberGenerators[iSimulationNumber],
+                                            finalTemplateSearch,
+                                            finalRestoredQuery);
+                            
+                            if (batchedWalkEngine.canLoad(aSearch)) {
+                                lanes[iSimulationNumber -
+                                        firstSimulationNumber] =
+                                        batchedWalkEngine.load(aSearch);
+                            }
+                            else {
+                                lanes[iSimulationNumber -
+                                        firstSimulationNumber] = -1;
+                                simulationResults[iSimulationNumber] =
+                                        new SimulationEngine(aSearch, 0).run();
+                            }
+                            
+                            nLinksArray[iSimulationNumber] =
+                                    finalSharedNetworkStructurer
+                                            .calculateTotalNumberOfLinks();
+                            aSearch.releaseNodeSets();
+                        }
+                        
+                        batchedWalkEngine.run();
+                        
+                        for (int iSimulationNumber = firstSimulationNumber; iSimulationNumber < endSimulationNumber; iSimulationNumber++) {
+                            final int lane =
+                                    lanes[iSimulationNumber -
+                                            firstSimulationNumber];
+                            
+                            if (lane != -1) {
+                                simulationResults[iSimulationNumber] =
+                                        batchedWalkEngine.getResult(lane);
+                            }
+                        }
+                        
+                        return null;
+                    }
+                });
+            }
+        }
+        else {
+            for (int iSimulationNumber = 0; iSimulationNumber < simulationResults.length; iSimulationNumber++) {
+                final int simulationNumber = iSimulationNumber;
+                
+                simulationTasksList.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final RandomNumberGenerator aRandomNumberGenerator =
+                                simulationRandomNumberGenerators[simulationNumber];
+                        final NetworkStructurer aNetworkStructurer =
+                                (finalSharedNetworkStructurer != null) ? finalSharedNetworkStructurer
+                                        : createNetwork(aRandomNumberGenerator)
+                                                .getNetworkStructurer();
+                        final Search aSearch =
+                                createBatchSearch(aNetworkStructurer,
+                                        aRandomNumberGenerator,
+                                        finalTemplateSearch,
+                                        finalRestoredQuery);
+                        
+                        SimulationResult aSimulationResult = null;
+                        FirstPassageRecorder aFirstPassageRecorder = null;
+                        
+                        if (recordedTtls != null) {
+                            aFirstPassageRecorder =
+                                    aSearch.startFirstPassageRecording();
+                        }
+                        else if ((finalSharedNetworkStructurer != null) &&
+                                (flagUseFloodTreeCache == 1)) {
+                            aSimulationResult =
+                                    finalSharedNetworkStructurer
+                                            .getFloodTreeCache()
+                                            .getResult(aSearch);
+                        }
+                        
+                        simulationResults[simulationNumber] =
+                                (aSimulationResult != null) ? aSimulationResult
+                                        : new SimulationEngine(aSearch, 0)
+                                                .run();
+                        nLinksArray[simulationNumber] =
+                                aNetworkStructurer.calculateTotalNumberOfLinks();
+                        aSearch.releaseNodeSets();
+                        
+                        /*
+                         * Derives the result for each TTL right away, so the
+                         * recorder (and the network it refers to) can be
+                         * dropped with the search.
+                         */
+                        if (aFirstPassageRecorder != null) {
+                            for (int iTtl = 0; iTtl < recordedTtls.length; iTtl++) {
+                                ttlSimulationResults[iTtl][simulationNumber] =
+                                        aFirstPassageRecorder
+                                                .getResult(recordedTtls[iTtl]);
+                            }
+                        }
+                        
+                        return null;
+                    }
+                });
+            }
+        }
+        
+        /* Waits for every simulation to end, rethrowing any failure. */
+        final List<Future<Void>> simulationFuturesList =
+                getBatchPool().invokeAll(simulationTasksList);
+        
+        for (int iSimulationNumber = 0; iSimulationNumber < simulationFuturesList
+                .size(); iSimulationNumber++) {
+            try {
+                simulationFuturesList.get(iSimulationNumber).get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Simulation " +
+                        iSimulationNumber + " of the batch failed.",
+                        e.getCause());
+            }
+        }
+        
+        return 1;
+    }
+    
+    /**
+     * Creates the search of a batch simulation and sets its source and target
+     * nodes, which are copied from the template search or restored from a
+     * file if there is one, and chosen at random otherwise.
+     * 
+     * @param aNetworkStructurer
+     *            network structurer containing the network to search
+     * @param aRandomNumberGenerator
+     *            source of randomness of the search
+     * @param templateSearch
+     *            search whose source and target nodes are copied, may be null
+     * @param restoredQuery
+     *            search conditions restored from a file, may be null
+     * @return the new search
+     */
+    private Search createBatchSearch(final NetworkStructurer aNetworkStructurer,
+            final RandomNumberGenerator aRandomNumberGenerator,
+            final Search templateSearch, final Query restoredQuery) {
+        final Search aSearch =
+                createSearch(aNetworkStructurer, aRandomNumberGenerator);
+        
+        if (templateSearch != null) {
+            copySourceAndTargets(templateSearch, aSearch);
+        }
+        else if (restoredQuery != null) {
+            restoreSearchConditions(restoredQuery, aSearch);
+        }
+        else {
+            aSearch.chooseSourceAndTargets();
+        }
+        
+        return aSearch;
+    }
+    
+    /**
+     * Reveals if the search strategy inputed by the user can be run by a
+     * batched walk engine (random walk, bidirectional random walk, their
+     * weighted versions or randomly replicated random walk).
+     * 
+     * @return true if the searches can be run by a batched walk engine
+     */
+    private boolean isBatchedWalkSearch() {
+        final String inputedSearch = controlPanel.getInputedSearch();
+        
+        return inputedSearch.equals(controlPanel.getSearchRWString()) ||
+                inputedSearch.equals(controlPanel
+                        .getSearchBidirectionalRWString()) ||
+                inputedSearch.equals(controlPanel.getSearchRRRWString()) ||
+                isWeightedWalkSearch();
+    }
+    
+    /**
+     * Reveals if the search strategy inputed by the user is a weighted random
+     * walk (plain or bidirectional).
+     * 
+     * @return true if the search strategy is a weighted random walk
+     */
+    private boolean isWeightedWalkSearch() {
+        final String inputedSearch = controlPanel.getInputedSearch();
+        
+        return inputedSearch.equals(controlPanel.getSearchWeightedRWString()) ||
+                inputedSearch.equals(controlPanel
+                        .getSearchBidirectionalWeightedRWString());
+    }
+    
+    /**
+     * Reveals if the search strategy inputed by the user launches k walkers
+     * per query (plain or bidirectional).
+     * 
+     * @return true if the search strategy is a k random walkers search
+     */
+    private boolean isKWalkerSearch() {
+        final String inputedSearch = controlPanel.getInputedSearch();
+        
+        return inputedSearch.equals(controlPanel
+                .getSearchKRandomWalkersString()) ||
+                inputedSearch.equals(controlPanel
+                        .getSearchBidirectionalKRandomWalkersString());
+    }
+    
+    /**
+     * Reveals if the search strategy inputed by the user is a random walk
+     * (plain, randomly replicated, k walkers or bidirectional), which can be
+     * set to be non-backtracking.
+     * 
+     * @return true if the search strategy is a random walk
+     */
+    private boolean isRandomWalkSearch() {
+        final String inputedSearch = controlPanel.getInputedSearch();
+        
+        return isBatchedWalkSearch() || isKWalkerSearch() ||
+                inputedSearch.equals(controlPanel
+                        .getSearchBidirectionalHybridString());
+    }
+    
+    /**
+     * Reveals if the search strategy inputed by the user can be answered from
+     * the first passages of its queries (flooding or random walk, weighted or
+     * not).
+     * 
+     * @return true if the first passages of the searches can be recorded
+     */
+    private boolean isFirstPassageSearch() {
+        final String inputedSearch = controlPanel.getInputedSearch();
+        
+        return inputedSearch.equals(controlPanel.getSearchFloodString()) ||
+                inputedSearch.equals(controlPanel.getSearchRWString()) ||
+                inputedSearch.equals(controlPanel.getSearchWeightedRWString());
+    }
+    
+    /**
+     * Gets the pool of threads running the batch simulations, creating it
+     * first if it does not exist yet or if the number of threads changed.
+     * 
+     * @return the batchPool
+     */
+    private ForkJoinPool getBatchPool() {
+        if ((batchPool == null) || (batchPool.getParallelism() != nBatchThreads)) {
+            if (batchPool != null) {
+                batchPool.shutdown();
+            }
+            
+            batchPool = new ForkJoinPool(nBatchThreads);
+        }
+        
+        return batchPool;
+    }
+    
+    /**
+     * Gets the stream to which the batch results are printed, opening the
+     * output file first if it is not open yet. Results are appended to the
+     * file. If the file cannot be opened, results are printed to the standard
+     * output instead.
+     * 
+     * @return the batchPrintStream
+     */
+    private PrintStream getBatchPrintStream() {
+        if (batchPrintStream == null) {
+            final File file = new File("bidirectionalSearchSimulator_output.txt");
+            
+            try {
+                batchPrintStream =
+                        new PrintStream(new FileOutputStream(file, true)); // true
+                // allows append
+            } catch (final FileNotFoundException e) {
+                batchPrintStream = System.out;
+            }
+        }
         
+        return batchPrintStream;
     }
     
     /**
@@ -851,7 +1651,7 @@ public class SearchCoordinator {
             newFile.createNewFile();
             final FileOutputStream fileOut = new FileOutputStream(newFile);
             final ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(search.getSearchQueriesMap().get(0));
+            out.writeObject(search.getQueryStateTable().getQuery(0));
             out.close();
             fileOut.close();
             //System.out.println("saved search information to file");
@@ -869,6 +1669,22 @@ public class SearchCoordinator {
      * added anything to manage this.
      */
     public void reloadSearchFromFile(String seachConditionsFilename) {
+        final Query restoredQuery =
+                readSearchConditionsFromFile(seachConditionsFilename);
+        
+        if (restoredQuery != null) {
+            restoreSearchConditions(restoredQuery, search);
+        }
+    }
+    
+    /**
+     * Reads a search query saved to a file on the hard disk.
+     * 
+     * @param seachConditionsFilename
+     *            name of the file containing the search query
+     * @return the search query, null if it could not be read
+     */
+    public Query readSearchConditionsFromFile(String seachConditionsFilename) {
         Query restoredQuery = null;
         
         try {
@@ -887,112 +1703,122 @@ public class SearchCoordinator {
                     "Could not reload the search information. File not found",
                     "Bidirectional Search Simulator -- Warning",
                     JOptionPane.WARNING_MESSAGE);
-            return;
+            return null;
         } catch (final ClassNotFoundException c) {
             System.out
                     .println("Could not reload the search information. Class not found.");
             c.printStackTrace();
             
-            return;
+            return null;
         }
         
+        return restoredQuery;
+    }
+    
+    /**
+     * Restores the source and target nodes of a search from a search query
+     * read from a file. Keep in mind that the source and targets for query 0
+     * are inverted with those of query 1 (e.g. the source of query 0 becomes a
+     * target of query 1).
+     * 
+     * @param restoredQuery
+     *            the search query read from the file
+     * @param aSearch
+     *            the search, not yet started, whose source and target nodes
+     *            are restored
+     */
+    public void restoreSearchConditions(final Query restoredQuery,
+            final Search aSearch) {
+        final String currentSearchStrategy =
+                controlPanel.getInputedSearch();
+        
         /*
-         * Pulls out relevant information from the query and restores it. Keep
-         * in mind that the source and targets for query 0 are inverted with
-         * those of query 1 (e.g. the source of query 0 becomes a target of
-         * query 1).
+         * Both standard search strategies and bidirectional strategies
+         * have a query with ID 0.
          */
-        if (restoredQuery != null) {
-            final String currentSearchStrategy =
-                    controlPanel.getInputedSearch();
-            
-            /*
-             * Both standard search strategies and bidirectional strategies
-             * have a query with ID 0.
-             */
-            final Query query0 = search.getSearchQueriesMap().get(0);
-            
-            /* Restores the source node for query 0. */
-            query0.setSourceNode(restoredQuery.getSourceNode());
-            
-            /*
-             * Replaces the set of current nodes with a set containing the source
-             * node for query 0.
-             */
-            Set<Node> newCurrentNodesSet = new HashSet<Node>();
-            newCurrentNodesSet.add(restoredQuery.getSourceNode());
-            query0.setCurrentNodesSet(newCurrentNodesSet);
-            
-            /*
-             * Replaces the set of visited nodes with a set containing the source
-             * node for query 0.
-             */
-            Set<Node> newVisitedNodesSet = new HashSet<Node>();
-            newVisitedNodesSet.add(restoredQuery.getSourceNode());
-            query0.setVisitedNodesSet(newVisitedNodesSet);
-            
-            /* Restores the target node for query 0. */
-            query0.setTargetNodesSet(restoredQuery.getTargetNodesSet());
+        final Query query0 = aSearch.getQueryStateTable().getQuery(0);
+        
+        /* Restores the source node for query 0. */
+        query0.setSourceNode(restoredQuery.getSourceNode());
+        
+        /*
+         * Replaces the set of current nodes with a set containing the source
+         * node for query 0.
+         */
+        query0.getCurrentNodesSet().clear();
+        query0.getCurrentNodesSet().add(restoredQuery.getSourceNode());
+        
+        /*
+         * Replaces the set of visited nodes with a set containing the source
+         * node for query 0.
+         */
+        query0.getVisitedNodesSet().clear();
+        query0.getVisitedNodesSet().add(restoredQuery.getSourceNode());
+        
+        /* Restores the target node for query 0. */
+        query0.setTargetNodesSet(new HashSet<Node>(restoredQuery
+                .getTargetNodesSet()));
+        
+        /*
+         * Bidirectional strategies have an additional query (ID 1).
+         */
+        if ((currentSearchStrategy.equals(controlPanel
+                .getSearchBidirectionalRWString())) ||
+                (currentSearchStrategy.equals(controlPanel
+                        .getSearchBidirectionalWeightedRWString())) ||
+                (currentSearchStrategy.equals(controlPanel
+                        .getSearchBidirectionalKRandomWalkersString())) ||
+                (currentSearchStrategy.equals(controlPanel
+                        .getSearchBidirectionalLinearString())) ||
+                (currentSearchStrategy.equals(controlPanel
+                        .getSearchBidirectionalHybridString()))) {
+            final Query query1 = aSearch.getQueryStateTable().getQuery(1);
             
             /*
-             * Bidirectional strategies have an additional query (ID 1).
+             * Restores the source node for query 1, which is the target
+             * node of query 0.
              */
-            if ((currentSearchStrategy.equals(controlPanel
-                    .getSearchBidirectionalRWString())) ||
-                    (currentSearchStrategy.equals(controlPanel
-                            .getSearchBidirectionalLinearString())) ||
-                    (currentSearchStrategy.equals(controlPanel
-                            .getSearchBidirectionalHybridString()))) {
-                final Query query1 = search.getSearchQueriesMap().get(1);
+            if (restoredQuery.getTargetNodesSet().size() == 1) {
+                final Set<Node> oldTargetNodesSet =
+                        restoredQuery.getTargetNodesSet();
                 
-                /*
-                 * Restores the source node for query 1, which is the target
-                 * node of query 0.
-                 */
-                if (restoredQuery.getTargetNodesSet().size() == 1) {
-                    final Set<Node> oldTargetNodesSet =
-                            restoredQuery.getTargetNodesSet();
+                /* Iterates over each node in the set of query 0's target nodes. */
+                final Iterator<Node> itTargetNodes =
+                        oldTargetNodesSet.iterator();
+                
+                while (itTargetNodes.hasNext()) {
+                    final Node aTargetNode = itTargetNodes.next();
+                    query1.setSourceNode(aTargetNode);
                     
-                    /* Iterates over each node in the set of query 0's target nodes. */
-                    final Iterator<Node> itTargetNodes =
-                            oldTargetNodesSet.iterator();
+                    /*
+                     * Replaces the set of current nodes of query 1 with a
+                     * set containing its source node.
+                     */
+                    query1.getCurrentNodesSet().clear();
+                    query1.getCurrentNodesSet().add(aTargetNode);
                     
-                    while (itTargetNodes.hasNext()) {
-                        final Node aTargetNode = itTargetNodes.next();
-                        query1.setSourceNode(aTargetNode);
-                        
-                        /*
-                         * Replaces the set of current nodes of query 1 with a
-                         * set containing its source node.
-                         */
-                        newCurrentNodesSet = new HashSet<Node>();
-                        newCurrentNodesSet.add(aTargetNode);
-                        query1.setCurrentNodesSet(newCurrentNodesSet);
-                        
-                        /*
-                         * Replaces the set of visited nodes of query 1 with a 
-                         * set containing its source node.
-                         */
-                        newVisitedNodesSet = new HashSet<Node>();
-                        newVisitedNodesSet.add(aTargetNode);
-                        query0.setVisitedNodesSet(newVisitedNodesSet);
-                    }
-                }
-                else {
-                    System.out
-                            .println("Target nodes for query ID 1 could not"
-                                    + "be restored as there was more than one target. This"
-                                    + "method is not designed to handle multiple targets.");
+                    /*
+                     * Replaces the set of visited nodes of query 1 with a 
+                     * set containing its source node.
+                     */
+                    query0.getVisitedNodesSet().clear();
+                    query0.getVisitedNodesSet().add(aTargetNode);
                 }
-                
-                /*
-                 * Restores the target node for query 1, which is the source node
-                 * of query 0.
-                 */
-                final Set<Node> newTargetNodesSet = new HashSet<Node>();
-                newTargetNodesSet.add(restoredQuery.getSourceNode());
-                query1.setTargetNodesSet(newTargetNodesSet);
             }
+            else {
+                System.out
+                        .println("Target nodes for query ID 1 could not"
+                                + "be restored as there was more than one target. This"
+                                + "method is not designed to handle multiple targets.");
+            }
+            
+            /*
+             * Restores the target node for query 1, which is the source node
+             * of query 0.
+             */
+            final Set<Node> newTargetNodesSet = new HashSet<Node>();
+            newTargetNodesSet.add(restoredQuery.getSourceNode());
+            query1.setTargetNodesSet(newTargetNodesSet);
         }
     }
     
@@ -1079,6 +1905,84 @@ public class SearchCoordinator {
         this.flagSearchComplete = flagSearchComplete;
     }
     
+    /**
+     * Getter for masterSeed.
+     * 
+     * @return the masterSeed
+     */
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+    
+    /**
+     * Setter for masterSeed. Also restarts the generator of the networks and
+     * searches created from the GUI, so that they can be reproduced too.
+     * 
+     * @param masterSeed
+     *            the masterSeed to set
+     */
+    public void setMasterSeed(final long masterSeed) {
+        this.masterSeed = masterSeed;
+        randomNumberGenerator = new Xoshiro256StarStar(masterSeed);
+    }
+    
+    /**
+     * Getter for nBatchThreads.
+     * 
+     * @return the nBatchThreads
+     */
+    public int getnBatchThreads() {
+        return nBatchThreads;
+    }
+    
+    /**
+     * Setter for nBatchThreads.
+     * 
+     * @param nBatchThreads
+     *            the nBatchThreads to set
+     */
+    public void setnBatchThreads(final int nBatchThreads) {
+        this.nBatchThreads = nBatchThreads;
+    }
+    
+    /**
+     * Getter for flagUseBatchedWalkEngine.
+     * 
+     * @return the flagUseBatchedWalkEngine
+     */
+    public int getFlagUseBatchedWalkEngine() {
+        return flagUseBatchedWalkEngine;
+    }
+    
+    /**
+     * Setter for flagUseBatchedWalkEngine.
+     * 
+     * @param flagUseBatchedWalkEngine
+     *            the flagUseBatchedWalkEngine to set
+     */
+    public void setFlagUseBatchedWalkEngine(final int flagUseBatchedWalkEngine) {
+        this.flagUseBatchedWalkEngine = flagUseBatchedWalkEngine;
+    }
+    
+    /**
+     * Getter for flagUseFloodTreeCache.
+     * 
+     * @return the flagUseFloodTreeCache
+     */
+    public int getFlagUseFloodTreeCache() {
+        return flagUseFloodTreeCache;
+    }
+    
+    /**
+     * Setter for flagUseFloodTreeCache.
+     * 
+     * @param flagUseFloodTreeCache
+     *            the flagUseFloodTreeCache to set
+     */
+    public void setFlagUseFloodTreeCache(final int flagUseFloodTreeCache) {
+        this.flagUseFloodTreeCache = flagUseFloodTreeCache;
+    }
+    
     /**
      * Getter for networkSettingsFilename.
      * 
@@ -1167,6 +2071,11 @@ public class SearchCoordinator {
         SearchCoordinator searchCoordinator;
         searchCoordinator = new SearchCoordinator();
         
+        /* The master seed may be given as the first argument. */
+        if (args.length > 0) {
+            searchCoordinator.setMasterSeed(Long.parseLong(args[0]));
+        }
+        
         /* Creates the window frame. */
         final JFrame window = new JFrame("Bidirectional Search Simulator");
         
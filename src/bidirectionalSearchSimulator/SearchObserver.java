@@ -0,0 +1,28 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * SearchObserver is an interface for objects that follow the progress of a
+ * search, such as the GUI. A search runs the same way whether or not it has
+ * observers, so searches can be run without a display.
+ */
+public interface SearchObserver {
+    
+    /**
+     * Called after the search has propagated its queries by one step.
+     * 
+     * @param aSearch
+     *            the search that completed a step
+     */
+    public void stepCompleted(Search aSearch);
+    
+    /**
+     * Called when the search reaches one of its terminating conditions.
+     * 
+     * @param aSearch
+     *            the search that ended
+     * @param reason
+     *            the reason for which the search ended
+     */
+    public void searchTerminated(Search aSearch, TerminationReason reason);
+    
+}
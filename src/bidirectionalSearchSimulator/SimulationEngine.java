@@ -0,0 +1,124 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * SimulationEngine is a class that runs a single search without any GUI. The
+ * search it runs may be created with a null search coordinator, e.g.
+ * 
+ * new SimulationEngine(new RandomWalk(null, networkStructurer, ttl)).run()
+ * 
+ * which makes it possible to run simulations on machines with no display.
+ * Observers attached to the search (such as the search coordinator when the
+ * GUI is in use) are still notified of each step and of the end of the
+ * search.
+ */
+public class SimulationEngine {
+    
+    private final Search search;        // the search being run
+    private int flagSearchComplete = 0;  // a value of 0 means that the search
+    
+    // is not yet complete, while a value of 1 means that the search has completed
+    
+    /**
+     * Constructor. Chooses the source and target nodes of the search.
+     * 
+     * @param pSearch
+     *            the search to run
+     */
+    public SimulationEngine(final Search pSearch) {
+        this(pSearch, 1);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearch
+     *            the search to run
+     * @param flagChooseSourceAndTargets
+     *            1 if the source and target nodes of the search should be
+     *            chosen, 0 if they have already been set
+     */
+    public SimulationEngine(final Search pSearch,
+            final int flagChooseSourceAndTargets) {
+        search = pSearch;
+        
+        if (flagChooseSourceAndTargets == 1) {
+            search.chooseSourceAndTargets();
+        }
+        
+        /* A search whose source has no neighbours ends right away. */
+        if (search.getTerminationReason() != null) {
+            flagSearchComplete = 1;
+        }
+    }
+    
+    /**
+     * Propagates the search queries by one step and checks the terminating
+     * conditions of the search.
+     * 
+     * @return true if the search can continue, false if it has ended
+     */
+    public boolean step() {
+        if (flagSearchComplete == 1) {
+            return false;
+        }
+        
+        search.propagateQueries();
+        
+        if (search.checkTerminatingConditions() == 1) {
+            flagSearchComplete = 1;
+        }
+        
+        return flagSearchComplete == 0;
+    }
+    
+    /**
+     * Runs the search until one of its terminating conditions is reached. The
+     * search is run in one go if it can be (see Search.runToTermination), and
+     * step by step otherwise.
+     * 
+     * @return the result of the search
+     */
+    public SimulationResult run() {
+        if ((flagSearchComplete == 0) && search.runToTermination()) {
+            flagSearchComplete = 1;
+        }
+        
+        while (step()) {
+            // the search runs until it ends
+        }
+        
+        return getResult();
+    }
+    
+    /**
+     * Gets the result of the search as it currently stands.
+     * 
+     * @return the result of the search, with a null termination reason if the
+     *         search has not ended
+     */
+    public SimulationResult getResult() {
+        return new SimulationResult(search.getnTotalTime(),
+                search.getnTotalMessages(),
+                search.calculateNumberOfNodesVisited(),
+                search.getTerminationReason());
+    }
+    
+    /**
+     * Getter for search.
+     * 
+     * @return the search
+     */
+    public Search getSearch() {
+        return search;
+    }
+    
+    /**
+     * Getter for flagSearchComplete.
+     * 
+     * @return the flagSearchComplete
+     */
+    public int getFlagSearchComplete() {
+        return flagSearchComplete;
+    }
+    
+}
@@ -0,0 +1,97 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * SimulationResult is an immutable record of the outcome of a single search.
+ */
+public final class SimulationResult {
+    
+    private final int nTotalTime;       // number of time steps taken by the search
+    private final int nTotalMessages;   // number of messages passed during the search
+    private final int nNodesVisited;    // number of distinct nodes visited
+    private final TerminationReason terminationReason;  // reason for which
+    
+    // the search ended
+    
+    /**
+     * Constructor.
+     * 
+     * @param pnTotalTime
+     *            number of time steps taken by the search
+     * @param pnTotalMessages
+     *            number of messages passed during the search
+     * @param pnNodesVisited
+     *            number of distinct nodes visited during the search
+     * @param pTerminationReason
+     *            reason for which the search ended
+     */
+    public SimulationResult(final int pnTotalTime, final int pnTotalMessages,
+            final int pnNodesVisited, final TerminationReason pTerminationReason) {
+        nTotalTime = pnTotalTime;
+        nTotalMessages = pnTotalMessages;
+        nNodesVisited = pnNodesVisited;
+        terminationReason = pTerminationReason;
+    }
+    
+    /**
+     * Getter for nTotalTime.
+     * 
+     * @return the nTotalTime
+     */
+    public int getnTotalTime() {
+        return nTotalTime;
+    }
+    
+    /**
+     * Getter for nTotalMessages.
+     * 
+     * @return the nTotalMessages
+     */
+    public int getnTotalMessages() {
+        return nTotalMessages;
+    }
+    
+    /**
+     * Getter for nNodesVisited.
+     * 
+     * @return the nNodesVisited
+     */
+    public int getnNodesVisited() {
+        return nNodesVisited;
+    }
+    
+    /**
+     * Getter for terminationReason.
+     * 
+     * @return the terminationReason
+     */
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+    
+    /**
+     * Reveals if the search succeeded.
+     * 
+     * @return true if the search succeeded, false otherwise (including if the
+     *         search has not ended)
+     */
+    public boolean isSuccess() {
+        return (terminationReason != null) && terminationReason.isSuccess();
+    }
+    
+    /**
+     * Gets the result of the search in the form used by the batch mode: a
+     * failure has a value of 0 while a success has a value of 1.
+     * 
+     * @return 1 if the search succeeded, 0 otherwise
+     */
+    public int getSearchResult() {
+        return isSuccess() ? 1 : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "time=" + nTotalTime + ", messages=" + nTotalMessages +
+                ", visited=" + nNodesVisited + ", " + terminationReason;
+    }
+    
+}
@@ -0,0 +1,322 @@
+package bidirectionalSearchSimulator;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * SparseNodeSet is a class that models a small set of nodes of a network,
+ * such as the set of nodes on which a query currently resides, without
+ * hashing nodes or boxing their indices. Each node is identified by its
+ * compact graph index, and the set keeps the list of its members (in the
+ * order in which they were added).
+ * 
+ * Unlike a StampedNodeSet, the set takes memory in proportion to the number
+ * of its members rather than to the number of nodes of the network. A set of
+ * up to LINEAR_SCAN_SIZE members is searched by scanning its members; a
+ * larger set (e.g. the edge of a flood) also keeps an open addressing table
+ * of its members, twice as large as the list of members.
+ * 
+ * Nodes are compared by their node ID (through their compact graph index)
+ * rather than by instance, as in StampedNodeSet.
+ */
+public class SparseNodeSet extends AbstractSet<Node> {
+    
+    private static final int DEFAULT_CAPACITY = 4;
+    private static final int LINEAR_SCAN_SIZE = 8;  // largest number of
+    // members searched without the table
+    
+    private final CompactGraph compactGraph;  // gives the index of each node
+    private int[] members;              // node indices of the nodes in the set
+    private int size = 0;               // number of nodes in the set
+    private int[] slots = null;         // node index plus one of the member
+    // held by each slot of the table, 0 for an empty slot, null until the set
+    // outgrows a scan of its members
+    
+    /**
+     * Constructor. Creates an empty set.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network to which the nodes belong
+     */
+    public SparseNodeSet(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        members = new int[DEFAULT_CAPACITY];
+    }
+    
+    /**
+     * Adds a node to the set.
+     * 
+     * @param aNode
+     *            the node to add
+     * @return true if the node was not already in the set
+     */
+    @Override
+    public boolean add(final Node aNode) {
+        return addIndex(compactGraph.indexOf(aNode));
+    }
+    
+    /**
+     * Adds a node to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to add
+     * @return true if the node was not already in the set
+     */
+    public boolean addIndex(final int nodeIndex) {
+        if (containsIndex(nodeIndex)) {
+            return false;
+        }
+        
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+        }
+        
+        members[size++] = nodeIndex;
+        
+        if (slots != null) {
+            if (size * 2 > slots.length) {
+                rebuildSlots();
+            }
+            else {
+                insertSlot(nodeIndex);
+            }
+        }
+        else if (size > LINEAR_SCAN_SIZE) {
+            rebuildSlots();
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks if a node belongs to the set.
+     * 
+     * @param anObject
+     *            the node to look for
+     * @return true if the node is in the set
+     */
+    @Override
+    public boolean contains(final Object anObject) {
+        if (!(anObject instanceof Node)) {
+            return false;
+        }
+        
+        return containsIndex(compactGraph.indexOf((Node) anObject));
+    }
+    
+    /**
+     * Checks if a node belongs to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to look for, -1 for a node that is not
+     *            part of the network
+     * @return true if the node is in the set
+     */
+    public boolean containsIndex(final int nodeIndex) {
+        if (nodeIndex < 0) {
+            return false;
+        }
+        
+        if (slots == null) {
+            for (int iMember = 0; iMember < size; iMember++) {
+                if (members[iMember] == nodeIndex) {
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        final int mask = slots.length - 1;
+        int iSlot = hash(nodeIndex) & mask;
+        while (slots[iSlot] != 0) {
+            if (slots[iSlot] == nodeIndex + 1) {
+                return true;
+            }
+            
+            iSlot = (iSlot + 1) & mask;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Removes a node from the set. This takes time proportional to the size of
+     * the set, as the searches rarely remove nodes.
+     * 
+     * @param anObject
+     *            the node to remove
+     * @return true if the node was in the set
+     */
+    @Override
+    public boolean remove(final Object anObject) {
+        if (!contains(anObject)) {
+            return false;
+        }
+        
+        final int nodeIndex = compactGraph.indexOf((Node) anObject);
+        int iMember = 0;
+        while (members[iMember] != nodeIndex) {
+            iMember++;
+        }
+        
+        removeMember(iMember);
+        
+        return true;
+    }
+    
+    /**
+     * Empties the set. The set keeps its capacity, so that a set reused at
+     * each propagation step does not grow again.
+     */
+    @Override
+    public void clear() {
+        if ((slots != null) && (size > 0)) {
+            Arrays.fill(slots, 0);
+        }
+        
+        size = 0;
+    }
+    
+    /**
+     * Getter for size.
+     * 
+     * @return the number of nodes in the set
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Gets the compact graph index of a member of the set.
+     * 
+     * @param iMember
+     *            position of the member, between 0 and the size of the set
+     *            (exclusive), in the order in which the members were added
+     * @return the index of the node
+     */
+    public int getMemberIndex(final int iMember) {
+        return members[iMember];
+    }
+    
+    /**
+     * Getter for compactGraph.
+     * 
+     * @return the compactGraph
+     */
+    public CompactGraph getCompactGraph() {
+        return compactGraph;
+    }
+    
+    /**
+     * Iterates over the nodes of the set, in the order in which they were
+     * added.
+     * 
+     * @return an iterator over the nodes of the set
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private int nextMember = 0;
+            private int lastMember = -1;
+            
+            @Override
+            public boolean hasNext() {
+                return nextMember < size;
+            }
+            
+            @Override
+            public Node next() {
+                if (nextMember >= size) {
+                    throw new NoSuchElementException();
+                }
+                
+                lastMember = nextMember++;
+                
+                return compactGraph.getNode(members[lastMember]);
+            }
+            
+            @Override
+            public void remove() {
+                if (lastMember == -1) {
+                    throw new IllegalStateException();
+                }
+                
+                removeMember(lastMember);
+                nextMember = lastMember;
+                lastMember = -1;
+            }
+        };
+    }
+    
+    /**
+     * Spreads the bits of a node index over the slots of the table.
+     * 
+     * @param nodeIndex
+     *            index of a node
+     * @return the hash of the node index
+     */
+    private static int hash(final int nodeIndex) {
+        final int h = nodeIndex * 0x9E3779B9;
+        
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Puts a member in the first empty slot from its hash.
+     * 
+     * @param nodeIndex
+     *            index of the member
+     */
+    private void insertSlot(final int nodeIndex) {
+        final int mask = slots.length - 1;
+        int iSlot = hash(nodeIndex) & mask;
+        while (slots[iSlot] != 0) {
+            iSlot = (iSlot + 1) & mask;
+        }
+        
+        slots[iSlot] = nodeIndex + 1;
+    }
+    
+    /**
+     * Rebuilds the table from the list of members, with at least twice as
+     * many slots as members.
+     */
+    private void rebuildSlots() {
+        int nSlots = 2 * LINEAR_SCAN_SIZE;
+        while (nSlots < size * 2) {
+            nSlots *= 2;
+        }
+        
+        if ((slots == null) || (slots.length != nSlots)) {
+            slots = new int[nSlots];
+        }
+        else {
+            Arrays.fill(slots, 0);
+        }
+        
+        for (int iMember = 0; iMember < size; iMember++) {
+            insertSlot(members[iMember]);
+        }
+    }
+    
+    /**
+     * Removes a member from the set, keeping the other members in order.
+     * 
+     * @param iMember
+     *            position of the member to remove
+     */
+    private void removeMember(final int iMember) {
+        System.arraycopy(members, iMember + 1, members, iMember, size -
+                iMember - 1);
+        size--;
+        
+        if (slots != null) {
+            rebuildSlots();
+        }
+    }
+    
+}
@@ -0,0 +1,277 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Arrays;
+
+/**
+ * SpatialGrid is a class that indexes the locations of the nodes of a network
+ * with a uniform grid laid over the unit square. Each node is stored in the
+ * cell containing its location, so that finding the nodes close to a point
+ * only requires looking at the few cells around that point instead of at
+ * every node in the network.
+ * 
+ * The nodes of each cell are stored one cell after the other in a single
+ * array, in the same way as the neighbours of CompactGraph: the nodes of cell
+ * c are found between positions cellOffsets[c] (inclusive) and
+ * cellOffsets[c + 1] (exclusive), in increasing node index order.
+ */
+public class SpatialGrid {
+    
+    private final int nCellsPerSide;    // number of cells along each side of
+    // the unit square
+    private final double cellSize;      // width and height of each cell
+    private final int[] cellOffsets;    // start of the node list of each cell,
+    // with an extra entry at the end holding the total number of nodes
+    private final int[] cellNodes;      // node registry indices of the nodes
+    // of all the cells, one cell after the other
+    private final double[] xLocations;  // x location of each node, shared with
+    // the network structurer
+    private final double[] yLocations;  // y location of each node, shared with
+    
+    // the network structurer
+    
+    /**
+     * Constructor. Builds the grid over the locations of the nodes.
+     * 
+     * A cell size of at least the connection radius of a random geometric
+     * graph guarantees that two nodes within that radius of each other are
+     * always in the same or in neighbouring cells. The number of cells is
+     * capped at about four per node, which only makes the cells larger, so
+     * very small cell sizes do not waste memory on empty cells.
+     * 
+     * @param pxLocations
+     *            x location of each node, indexed by node registry index
+     * @param pyLocations
+     *            y location of each node, indexed by node registry index
+     * @param pnNodes
+     *            number of nodes to index
+     * @param pMinimumCellSize
+     *            smallest permitted width and height of a cell
+     */
+    public SpatialGrid(final double[] pxLocations, final double[] pyLocations,
+            final int pnNodes, final double pMinimumCellSize) {
+        xLocations = pxLocations;
+        yLocations = pyLocations;
+        
+        final int maxCellsPerSide =
+                Math.max(1, (int) Math.ceil(2 * Math.sqrt(pnNodes)));
+        
+        if (pMinimumCellSize > 0) {
+            nCellsPerSide =
+                    (int) Math.max(1, Math.min(maxCellsPerSide,
+                            Math.floor(1 / pMinimumCellSize)));
+        }
+        else {
+            nCellsPerSide = maxCellsPerSide;
+        }
+        
+        cellSize = 1.0 / nCellsPerSide;
+        
+        /* Counts the nodes of each cell to lay out the offsets. */
+        final int nCells = nCellsPerSide * nCellsPerSide;
+        final int[] nodeCells = new int[pnNodes];
+        cellOffsets = new int[nCells + 1];
+        
+        for (int iNode = 0; iNode < pnNodes; iNode++) {
+            nodeCells[iNode] =
+                    findCell(findColumn(xLocations[iNode]),
+                            findColumn(yLocations[iNode]));
+            cellOffsets[nodeCells[iNode] + 1]++;
+        }
+        
+        for (int iCell = 0; iCell < nCells; iCell++) {
+            cellOffsets[iCell + 1] += cellOffsets[iCell];
+        }
+        
+        /* Fills in the node list of each cell, in increasing node order. */
+        cellNodes = new int[pnNodes];
+        final int[] nextPositions = Arrays.copyOf(cellOffsets, nCells);
+        
+        for (int iNode = 0; iNode < pnNodes; iNode++) {
+            cellNodes[nextPositions[nodeCells[iNode]]++] = iNode;
+        }
+    }
+    
+    /**
+     * Finds the row or column of the grid containing a coordinate. Coordinates
+     * outside of the unit square are put in the closest row or column.
+     * 
+     * @param coordinate
+     *            x or y coordinate
+     * @return the column (for an x coordinate) or row (for a y coordinate)
+     */
+    public int findColumn(final double coordinate) {
+        final int column = (int) Math.floor(coordinate * nCellsPerSide);
+        
+        return Math.min(nCellsPerSide - 1, Math.max(0, column));
+    }
+    
+    /**
+     * Finds the index of a cell from its column and row.
+     * 
+     * @param column
+     *            column of the cell
+     * @param row
+     *            row of the cell
+     * @return the index of the cell
+     */
+    public int findCell(final int column, final int row) {
+        return (row * nCellsPerSide) + column;
+    }
+    
+    /**
+     * Finds the nodes whose distance to a point is less than a radius.
+     * 
+     * @param x
+     *            x coordinate of the point
+     * @param y
+     *            y coordinate of the point
+     * @param radius
+     *            the radius
+     * @return the node registry indices of the nodes found, in increasing
+     *         order within each cell
+     */
+    public int[] findNodesWithinRadius(final double x, final double y,
+            final double radius) {
+        final double squaredRadius = radius * radius;
+        int[] nodesFound = new int[16];
+        int nNodesFound = 0;
+        
+        /* Only the cells overlapping the square around the circle are checked. */
+        final int firstColumn = findColumn(x - radius);
+        final int lastColumn = findColumn(x + radius);
+        final int firstRow = findColumn(y - radius);
+        final int lastRow = findColumn(y + radius);
+        
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final int cell = findCell(column, row);
+                
+                for (int iPosition = cellOffsets[cell]; iPosition < cellOffsets[cell + 1];
+                        iPosition++) {
+                    final int nodeIndex = cellNodes[iPosition];
+                    final double dx = xLocations[nodeIndex] - x;
+                    final double dy = yLocations[nodeIndex] - y;
+                    
+                    if (((dx * dx) + (dy * dy)) < squaredRadius) {
+                        if (nNodesFound == nodesFound.length) {
+                            nodesFound =
+                                    Arrays.copyOf(nodesFound, nNodesFound * 2);
+                        }
+                        
+                        nodesFound[nNodesFound++] = nodeIndex;
+                    }
+                }
+            }
+        }
+        
+        return Arrays.copyOf(nodesFound, nNodesFound);
+    }
+    
+    /**
+     * Finds the node closest to a point. Rings of cells are checked around the
+     * cell containing the point, one ring at a time, until no unchecked cell
+     * can contain a closer node.
+     * 
+     * @param x
+     *            x coordinate of the point
+     * @param y
+     *            y coordinate of the point
+     * @return the node registry index of the closest node, -1 if the grid is
+     *         empty
+     */
+    public int findNearestNode(final double x, final double y) {
+        final int centreColumn = findColumn(x);
+        final int centreRow = findColumn(y);
+        
+        int nearestNode = -1;
+        double smallestSquaredDistance = Double.POSITIVE_INFINITY;
+        
+        for (int ring = 0; ring < nCellsPerSide; ring++) {
+            /*
+             * Any node in this ring or beyond is at least (ring - 1) cell
+             * widths away from the point, since the point can be anywhere in
+             * its own cell.
+             */
+            final double ringDistance = Math.max(0, ring - 1) * cellSize;
+            
+            if ((nearestNode != -1) &&
+                    ((ringDistance * ringDistance) > smallestSquaredDistance)) {
+                break;
+            }
+            
+            for (int row = centreRow - ring; row <= centreRow + ring; row++) {
+                if ((row < 0) || (row >= nCellsPerSide)) {
+                    continue;
+                }
+                
+                /* Only the first and last rows of a ring are full rows. */
+                final int columnStep =
+                        ((row == centreRow - ring) || (row == centreRow + ring)) ? 1
+                                : Math.max(1, 2 * ring);
+                
+                for (int column = centreColumn - ring; column <= centreColumn +
+                        ring; column += columnStep) {
+                    if ((column < 0) || (column >= nCellsPerSide)) {
+                        continue;
+                    }
+                    
+                    final int cell = findCell(column, row);
+                    
+                    for (int iPosition = cellOffsets[cell]; iPosition < cellOffsets[cell + 1];
+                            iPosition++) {
+                        final int nodeIndex = cellNodes[iPosition];
+                        final double dx = xLocations[nodeIndex] - x;
+                        final double dy = yLocations[nodeIndex] - y;
+                        final double squaredDistance = (dx * dx) + (dy * dy);
+                        
+                        if (squaredDistance < smallestSquaredDistance) {
+                            smallestSquaredDistance = squaredDistance;
+                            nearestNode = nodeIndex;
+                        }
+                    }
+                }
+            }
+        }
+        
+        return nearestNode;
+    }
+    
+    /**
+     * Getter for nCellsPerSide.
+     * 
+     * @return the nCellsPerSide
+     */
+    public int getnCellsPerSide() {
+        return nCellsPerSide;
+    }
+    
+    /**
+     * Getter for cellSize.
+     * 
+     * @return the cellSize
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+    
+    /**
+     * Getter for cellOffsets. The array is shared, not copied, and must not be
+     * modified.
+     * 
+     * @return the cellOffsets
+     */
+    public int[] getCellOffsets() {
+        return cellOffsets;
+    }
+    
+    /**
+     * Getter for cellNodes. The array is shared, not copied, and must not be
+     * modified.
+     * 
+     * @return the cellNodes
+     */
+    public int[] getCellNodes() {
+        return cellNodes;
+    }
+    
+}
@@ -0,0 +1,243 @@
+package bidirectionalSearchSimulator;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * StampedNodeSet is a class that models a set of nodes of a network without
+ * hashing or boxing. Each node is identified by its compact graph index, and
+ * the set keeps a stamp per node of the network together with the list of its
+ * members (in the order in which they were added).
+ * 
+ * A node belongs to the set if its stamp equals the current epoch of the set.
+ * Clearing the set simply moves on to the next epoch, so a set can be reused
+ * from one search to the next without touching the stamps of the nodes (see
+ * NodeSetPool). The stamps are only reset when the epoch counter wraps around.
+ * 
+ * Nodes are compared by their node ID (through their compact graph index)
+ * rather than by instance, so a node read back from a file matches the node
+ * of the network with the same ID.
+ */
+public class StampedNodeSet extends AbstractSet<Node> {
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private final CompactGraph compactGraph;  // gives the index of each node
+    private final int[] stamps;         // epoch at which each node was added,
+    // indexed by node index
+    private int epoch = 1;              // stamp of the nodes in the set
+    private int[] members;              // node indices of the nodes in the set
+    private int size = 0;               // number of nodes in the set
+    
+    /**
+     * Constructor. Creates an empty set.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network to which the nodes belong
+     */
+    public StampedNodeSet(final CompactGraph pCompactGraph) {
+        compactGraph = pCompactGraph;
+        stamps = new int[pCompactGraph.getnNodes()];
+        members = new int[DEFAULT_CAPACITY];
+    }
+    
+    /**
+     * Adds a node to the set.
+     * 
+     * @param aNode
+     *            the node to add
+     * @return true if the node was not already in the set
+     */
+    @Override
+    public boolean add(final Node aNode) {
+        return addIndex(compactGraph.indexOf(aNode));
+    }
+    
+    /**
+     * Adds a node to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to add
+     * @return true if the node was not already in the set
+     */
+    public boolean addIndex(final int nodeIndex) {
+        if (stamps[nodeIndex] == epoch) {
+            return false;
+        }
+        
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+        }
+        
+        stamps[nodeIndex] = epoch;
+        members[size++] = nodeIndex;
+        
+        return true;
+    }
+    
+    /**
+     * Checks if a node belongs to the set.
+     * 
+     * @param anObject
+     *            the node to look for
+     * @return true if the node is in the set
+     */
+    @Override
+    public boolean contains(final Object anObject) {
+        if (!(anObject instanceof Node)) {
+            return false;
+        }
+        
+        return containsIndex(compactGraph.indexOf((Node) anObject));
+    }
+    
+    /**
+     * Checks if a node belongs to the set by its compact graph index.
+     * 
+     * @param nodeIndex
+     *            index of the node to look for, -1 for a node that is not
+     *            part of the network
+     * @return true if the node is in the set
+     */
+    public boolean containsIndex(final int nodeIndex) {
+        return (nodeIndex >= 0) && (stamps[nodeIndex] == epoch);
+    }
+    
+    /**
+     * Removes a node from the set. This takes time proportional to the size of
+     * the set, as the searches rarely remove nodes.
+     * 
+     * @param anObject
+     *            the node to remove
+     * @return true if the node was in the set
+     */
+    @Override
+    public boolean remove(final Object anObject) {
+        if (!contains(anObject)) {
+            return false;
+        }
+        
+        removeMember(indexOfMember(compactGraph.indexOf((Node) anObject)));
+        
+        return true;
+    }
+    
+    /**
+     * Empties the set by moving on to the next epoch.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        epoch++;
+        
+        /* Resets the stamps when the epoch counter wraps around. */
+        if (epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+    
+    /**
+     * Getter for size.
+     * 
+     * @return the number of nodes in the set
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Gets the compact graph index of a member of the set.
+     * 
+     * @param iMember
+     *            position of the member, between 0 and the size of the set
+     *            (exclusive), in the order in which the members were added
+     * @return the index of the node
+     */
+    public int getMemberIndex(final int iMember) {
+        return members[iMember];
+    }
+    
+    /**
+     * Getter for compactGraph.
+     * 
+     * @return the compactGraph
+     */
+    public CompactGraph getCompactGraph() {
+        return compactGraph;
+    }
+    
+    /**
+     * Iterates over the nodes of the set, in the order in which they were
+     * added.
+     * 
+     * @return an iterator over the nodes of the set
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private int nextMember = 0;
+            private int lastMember = -1;
+            
+            @Override
+            public boolean hasNext() {
+                return nextMember < size;
+            }
+            
+            @Override
+            public Node next() {
+                if (nextMember >= size) {
+                    throw new NoSuchElementException();
+                }
+                
+                lastMember = nextMember++;
+                
+                return compactGraph.getNode(members[lastMember]);
+            }
+            
+            @Override
+            public void remove() {
+                if (lastMember == -1) {
+                    throw new IllegalStateException();
+                }
+                
+                removeMember(lastMember);
+                nextMember = lastMember;
+                lastMember = -1;
+            }
+        };
+    }
+    
+    /**
+     * Finds the position of a node in the list of members.
+     * 
+     * @param nodeIndex
+     *            index of a node in the set
+     * @return the position of the node in the list of members
+     */
+    private int indexOfMember(final int nodeIndex) {
+        int iMember = 0;
+        while (members[iMember] != nodeIndex) {
+            iMember++;
+        }
+        
+        return iMember;
+    }
+    
+    /**
+     * Removes a member from the set, keeping the other members in order.
+     * 
+     * @param iMember
+     *            position of the member to remove
+     */
+    private void removeMember(final int iMember) {
+        stamps[members[iMember]] = epoch - 1;
+        System.arraycopy(members, iMember + 1, members, iMember, size -
+                iMember - 1);
+        size--;
+    }
+    
+}
@@ -0,0 +1,52 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * TerminationReason lists the reasons for which a search can end. Each reason
+ * carries the text displayed in the result label of the control panel and
+ * whether it counts as a successful search.
+ */
+public enum TerminationReason {
+    
+    TARGET_FOUND("SUCCESS! Found a target node.", true),
+    QUERIES_MET("SUCCESS! The two queries have met.", true),
+    TTL_EXPIRED("FAILURE. TTL expired.", false),
+    ALL_QUERIES_DEADLOCKED("FAILURE. All queries ended in deadlock.", false),
+    SOURCE_HAS_NO_NEIGHBOURS(
+            "FAILURE. Source node for one of the queries has no neighbours.",
+            false);
+    
+    private final String resultText;    // text displayed in the result label
+    private final boolean success;      // reveals if the search succeeded
+    
+    /**
+     * Constructor.
+     * 
+     * @param pResultText
+     *            text displayed in the result label
+     * @param pSuccess
+     *            true if the search succeeded, false otherwise
+     */
+    private TerminationReason(final String pResultText, final boolean pSuccess) {
+        resultText = pResultText;
+        success = pSuccess;
+    }
+    
+    /**
+     * Getter for resultText.
+     * 
+     * @return the resultText
+     */
+    public String getResultText() {
+        return resultText;
+    }
+    
+    /**
+     * Getter for success.
+     * 
+     * @return the success
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+    
+}
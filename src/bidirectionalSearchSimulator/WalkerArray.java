@@ -0,0 +1,218 @@
+package bidirectionalSearchSimulator;
+
+import java.util.Set;
+
+/**
+ * WalkerArray is a class that keeps the walkers of a query that sends several
+ * walkers from its source (see KRandomWalkers and
+ * BidirectionalKRandomWalkers). Rather than giving each walker a query of its
+ * own, with its own sets of nodes, the walkers are stored as columns of
+ * primitive arrays (current node, last hop, TTL), indexed by walker number,
+ * so a query can launch a thousand walkers at little cost.
+ * 
+ * The walkers share the query: its set of current nodes holds the nodes on
+ * which they reside, and its set of visited nodes the nodes any of them
+ * visited, which the walkers may consult to steer away from each other's
+ * territory (see pickNextNode).
+ */
+public class WalkerArray {
+    
+    private final CompactGraph compactGraph;  // network being searched
+    private final int[] walkerNodes;    // node index where each walker resides
+    private final int[] walkerLastHops;  // node index of the node each walker
+    // came from, -1 before its first hop
+    private final int[] walkerTtls;     // time-to-live of each walker
+    private int nLiveWalkers = 0;       // number of walkers whose TTL has not
+    
+    // expired
+    
+    /**
+     * Constructor. The walkers are only placed on the network by launch.
+     * 
+     * @param pCompactGraph
+     *            compact graph of the network being searched
+     * @param pnWalkers
+     *            number of walkers, at least 1
+     */
+    public WalkerArray(final CompactGraph pCompactGraph, final int pnWalkers) {
+        if (pnWalkers < 1) {
+            throw new IllegalArgumentException("Invalid number of walkers: " +
+                    pnWalkers);
+        }
+        
+        compactGraph = pCompactGraph;
+        walkerNodes = new int[pnWalkers];
+        walkerLastHops = new int[pnWalkers];
+        walkerTtls = new int[pnWalkers];
+    }
+    
+    /**
+     * Places every walker on a source node and divides a TTL between them:
+     * each walker gets the same share, and the first walkers one more hop each
+     * until the whole TTL is given out. The walkers therefore send as many
+     * messages in total as a single walker with the same TTL.
+     * 
+     * @param sourceIndex
+     *            index of the source node
+     * @param ttl
+     *            time-to-live shared by the walkers
+     */
+    public void launch(final int sourceIndex, final int ttl) {
+        final int nWalkers = walkerNodes.length;
+        
+        nLiveWalkers = 0;
+        for (int iWalker = 0; iWalker < nWalkers; iWalker++) {
+            walkerNodes[iWalker] = sourceIndex;
+            walkerLastHops[iWalker] = -1;
+            walkerTtls[iWalker] = (ttl / nWalkers) +
+                    ((iWalker < (ttl % nWalkers)) ? 1 : 0);
+            
+            if (walkerTtls[iWalker] > 0) {
+                nLiveWalkers++;
+            }
+        }
+    }
+    
+    /**
+     * Picks the node to which a walker moves next: a random neighbour of its
+     * current node, other than the node it came from if the walk is
+     * non-backtracking (see CompactGraph.pickRandomNeighbourIndex).
+     * 
+     * If a set of nodes to avoid is given (e.g. the nodes visited by the
+     * walkers of the query), the walker picks a random neighbour outside the
+     * set if there is one, and only falls back on any neighbour when every
+     * neighbour is in the set. The node the walker came from is in the set as
+     * soon as the set holds the visited nodes, so such a walker never goes
+     * back while it has somewhere new to go.
+     * 
+     * @param iWalker
+     *            walker number
+     * @param randomNumberGenerator
+     *            generator used to pick the neighbour
+     * @param flagNonBacktracking
+     *            1 if the walker never goes back to the node it came from,
+     *            unless that node is its only neighbour, 0 otherwise
+     * @param avoidedNodesSet
+     *            nodes the walker avoids, null to avoid none
+     * @return the index of the node to which the walker moves
+     */
+    public int pickNextNode(final int iWalker,
+            final RandomNumberGenerator randomNumberGenerator,
+            final int flagNonBacktracking, final Set<Node> avoidedNodesSet) {
+        final int currentNode = walkerNodes[iWalker];
+        
+        if (avoidedNodesSet != null) {
+            final int degree = compactGraph.degree(currentNode);
+            
+            /* Counts the neighbours outside the set. */
+            int nNewNeighbours = 0;
+            for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+                if (!isAvoided(compactGraph.neighbour(currentNode, iNeighbour),
+                        avoidedNodesSet)) {
+                    nNewNeighbours++;
+                }
+            }
+            
+            /* Picks one of them at random. */
+            if (nNewNeighbours > 0) {
+                int iNewNeighbour =
+                        randomNumberGenerator.nextInt(nNewNeighbours);
+                
+                for (int iNeighbour = 0; iNeighbour < degree; iNeighbour++) {
+                    final int neighbourIndex =
+                            compactGraph.neighbour(currentNode, iNeighbour);
+                    
+                    if (!isAvoided(neighbourIndex, avoidedNodesSet) &&
+                            (iNewNeighbour-- == 0)) {
+                        return neighbourIndex;
+                    }
+                }
+            }
+        }
+        
+        return compactGraph.pickRandomNeighbourIndex(currentNode,
+                (flagNonBacktracking == 1) ? walkerLastHops[iWalker] : -1,
+                randomNumberGenerator);
+    }
+    
+    /**
+     * Checks if a node belongs to the set of nodes a walker avoids, through
+     * its stamp if the set is stamped.
+     * 
+     * @param nodeIndex
+     *            index of the node
+     * @param avoidedNodesSet
+     *            nodes the walker avoids
+     * @return true if the node is in the set
+     */
+    private boolean isAvoided(final int nodeIndex,
+            final Set<Node> avoidedNodesSet) {
+        if ((avoidedNodesSet instanceof StampedNodeSet) &&
+                (((StampedNodeSet) avoidedNodesSet).getCompactGraph() ==
+                compactGraph)) {
+            return ((StampedNodeSet) avoidedNodesSet).containsIndex(nodeIndex);
+        }
+        
+        return avoidedNodesSet.contains(compactGraph.getNode(nodeIndex));
+    }
+    
+    /**
+     * Moves a walker whose TTL has not expired to a node, using up one hop of
+     * its TTL.
+     * 
+     * @param iWalker
+     *            walker number
+     * @param nodeIndex
+     *            index of the node to which the walker moves
+     */
+    public void moveWalker(final int iWalker, final int nodeIndex) {
+        walkerLastHops[iWalker] = walkerNodes[iWalker];
+        walkerNodes[iWalker] = nodeIndex;
+        walkerTtls[iWalker]--;
+        
+        if (walkerTtls[iWalker] == 0) {
+            nLiveWalkers--;
+        }
+    }
+    
+    /**
+     * Gets the number of walkers.
+     * 
+     * @return the number of walkers
+     */
+    public int getnWalkers() {
+        return walkerNodes.length;
+    }
+    
+    /**
+     * Gets the node on which a walker resides.
+     * 
+     * @param iWalker
+     *            walker number
+     * @return the index of the node
+     */
+    public int getWalkerNode(final int iWalker) {
+        return walkerNodes[iWalker];
+    }
+    
+    /**
+     * Gets the time-to-live of a walker.
+     * 
+     * @param iWalker
+     *            walker number
+     * @return the number of hops the walker has left
+     */
+    public int getWalkerTtl(final int iWalker) {
+        return walkerTtls[iWalker];
+    }
+    
+    /**
+     * Getter for nLiveWalkers.
+     * 
+     * @return the number of walkers whose TTL has not expired
+     */
+    public int getnLiveWalkers() {
+        return nLiveWalkers;
+    }
+    
+}
@@ -0,0 +1,78 @@
+package bidirectionalSearchSimulator;
+
+/**
+ * WeightedRandomWalk is a class that models the algorithm of searching using
+ * a weighted random walk.
+ * 
+ * A weighted random walk propagates its query in the same manner as a regular
+ * RW, except that the query is forwarded to a neighbour chosen in proportion
+ * to a weight given to each neighbour instead of uniformly. The weights are
+ * given by a neighbour alias table of the network (see NeighbourAliasTable),
+ * such as the one favouring the neighbours of highest degree (see
+ * NetworkStructurer.getDegreeBiasAliasTable), which keeps the walker away from
+ * the low-degree periphery of scale-free networks, or the one following the
+ * weights of the links (see NetworkStructurer.getLinkWeightAliasTable).
+ * 
+ * As with RandomWalk, the walk can be made non-backtracking (see
+ * Search.setFlagNonBacktracking), in which case the node that sent the query
+ * is left out and the other neighbours keep their relative weights.
+ */
+public class WeightedRandomWalk extends RandomWalk {
+    
+    /**
+     * Constructor. The search uses its own randomly seeded generator.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            WeightedRandomWalk
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pNeighbourAliasTable
+     *            weights by which the query picks the neighbour it is
+     *            forwarded to, built on the compact graph of the network
+     */
+    public WeightedRandomWalk(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final NeighbourAliasTable pNeighbourAliasTable) {
+        this(pSearchCoordinator, pNetworkStructurer, pttl,
+                pNeighbourAliasTable, new Xoshiro256StarStar());
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pSearchCoordinator
+     *            the search coordinator that created this instance of
+     *            WeightedRandomWalk
+     * 
+     * @param pNetworkStructurer
+     *            network structurer containing node information used by this
+     *            search
+     * @param pttl
+     *            time-to-live value for each search query
+     * @param pNeighbourAliasTable
+     *            weights by which the query picks the neighbour it is
+     *            forwarded to, built on the compact graph of the network
+     * @param pRandomNumberGenerator
+     *            source of randomness of this search
+     */
+    public WeightedRandomWalk(final SearchCoordinator pSearchCoordinator,
+            final NetworkStructurer pNetworkStructurer, final int pttl,
+            final NeighbourAliasTable pNeighbourAliasTable,
+            final RandomNumberGenerator pRandomNumberGenerator) {
+        super(pSearchCoordinator, pNetworkStructurer, pttl,
+                pRandomNumberGenerator);
+        
+        if (pNeighbourAliasTable.getCompactGraph() != compactGraph) {
+            throw new IllegalArgumentException("The neighbour alias table " +
+                    "was not built for the network being searched.");
+        }
+        
+        neighbourAliasTable = pNeighbourAliasTable;
+    }
+    
+}
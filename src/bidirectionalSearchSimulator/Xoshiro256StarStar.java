@@ -0,0 +1,126 @@
+package bidirectionalSearchSimulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Xoshiro256StarStar is the default random number generator of the simulator,
+ * the xoshiro256** generator of Blackman and Vigna. It has a period of
+ * 2^256 - 1, passes the usual statistical tests and only needs a few shifts,
+ * rotations and multiplications per value, so each simulation can afford its
+ * own instance.
+ * 
+ * The 256 bits of state are filled in from a 64-bit seed with the SplitMix64
+ * generator, as recommended by the authors, so that similar seeds (e.g.
+ * consecutive ones) still give unrelated sequences.
+ */
+public class Xoshiro256StarStar implements RandomNumberGenerator {
+    
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong seedSequence = new AtomicLong(
+            System.nanoTime());  // source of seeds for unseeded generators
+    
+    private long state0;                // first 64 bits of the state
+    private long state1;                // second 64 bits of the state
+    private long state2;                // third 64 bits of the state
+    private long state3;                // fourth 64 bits of the state
+    
+    /**
+     * Constructor. The generator is given a seed different from that of any
+     * other unseeded generator, so its sequence is not reproducible.
+     */
+    public Xoshiro256StarStar() {
+        this(mixSeed(seedSequence.getAndAdd(GOLDEN_GAMMA)));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param seed
+     *            the seed; generators with the same seed give the same sequence
+     */
+    public Xoshiro256StarStar(final long seed) {
+        long splitMixState = seed;
+        
+        state0 = mixSeed(splitMixState += GOLDEN_GAMMA);
+        state1 = mixSeed(splitMixState += GOLDEN_GAMMA);
+        state2 = mixSeed(splitMixState += GOLDEN_GAMMA);
+        state3 = mixSeed(splitMixState += GOLDEN_GAMMA);
+    }
+    
+    @Override
+    public long nextLong() {
+        final long result = Long.rotateLeft(state1 * 5, 7) * 9;
+        final long t = state1 << 17;
+        
+        state2 ^= state0;
+        state3 ^= state1;
+        state1 ^= state2;
+        state0 ^= state3;
+        state2 ^= t;
+        state3 = Long.rotateLeft(state3, 45);
+        
+        return result;
+    }
+    
+    /**
+     * Uses the upper 53 bits of the next long, which fill the mantissa of a
+     * double exactly.
+     */
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * Uses Lemire's multiply-and-shift method: the upper 32 bits of a random
+     * 32-bit value multiplied by the bound are the result, and the few
+     * products that would make some results more likely than others are
+     * rejected. Most calls need no division at all.
+     */
+    @Override
+    public int nextInt(final int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("The bound must be positive: " +
+                    bound);
+        }
+        
+        long product = (nextLong() >>> 32) * bound;
+        long lowBits = product & 0xffffffffL;
+        
+        if (lowBits < bound) {
+            final long threshold = (0x100000000L - bound) % bound;
+            
+            while (lowBits < threshold) {
+                product = (nextLong() >>> 32) * bound;
+                lowBits = product & 0xffffffffL;
+            }
+        }
+        
+        return (int) (product >>> 32);
+    }
+    
+    /**
+     * Seeds the new generator with the next long of this one, which goes
+     * through SplitMix64 before filling in the new state.
+     */
+    @Override
+    public RandomNumberGenerator split() {
+        return new Xoshiro256StarStar(nextLong());
+    }
+    
+    /**
+     * Scrambles a 64-bit value (output function of the SplitMix64 generator).
+     * 
+     * @param value
+     *            the value to scramble
+     * @return the scrambled value
+     */
+    private static long mixSeed(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        
+        return z ^ (z >>> 31);
+    }
+    
+}
@@ -0,0 +1,897 @@
+package bidirectionalSearchSimulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * EngineConsistencyCheck is a program that checks that the engines that run
+ * searches without following each step give the same results as the searches
+ * run step by step. Each search is run from the same seed:
+ * 
+ * - step by step, with an observer attached so that no engine is used,
+ * 
+ * - by SimulationEngine.run, which uses the walk kernel (see
+ * RandomWalkKernel) or the flood kernel (see FloodKernel) when the search has
+ * one,
+ * 
+ * - in a lane of a batched walk engine (see BatchedWalkEngine), for the
+ * random walks it can load,
+ * 
+ * - from the flood tree cache of the network (see FloodTreeCache), for the
+ * floods,
+ * 
+ * - from the recording of a run with a larger TTL (see FirstPassageRecorder),
+ * for the searches whose first passages can be recorded. The recording is
+ * also asked for the result with another target, which is compared with a
+ * run given that target.
+ * 
+ * The random walks run step by step and by SimulationEngine.run give their
+ * node sets and rendezvous detectors back to the pools of the network, so the
+ * later seeds also check that reused ones start out empty.
+ * 
+ * The searches are run on small Erdos-Renyi and Barabasi-Albert networks
+ * generated from a fixed seed, with and without non-backtracking walks.
+ * 
+ * A flood is also run on a Barabasi-Albert network large enough for the time
+ * steps of the flood kernel to be split into chunks, step by step and with
+ * the kernel in fork-join pools of one and of several threads, which must all
+ * give the same result.
+ * 
+ * The Erdos-Renyi network is also copied with its nodes registered under
+ * sparse 64-bit external IDs and saved to and restored from a byte stream. The
+ * copy must resolve each external ID to its node, and the searches run on it
+ * must give the same results as on the original network.
+ * 
+ * The program prints each mismatch it finds and exits with a status of 1 if
+ * there is any, e.g.
+ * 
+ * java -cp bin bidirectionalSearchSimulator.EngineConsistencyCheck 50
+ * 
+ * where 50 is the number of seeds each search is run from (20 by default).
+ */
+public class EngineConsistencyCheck {
+    
+    private static final long NETWORK_SEED = 7;  // seed of the networks
+    private static final int N_NODES = 300;  // number of nodes of a network
+    private static final double ER_LINK_DENSITY = 0.015;  // link probability
+    // of the Erdos-Renyi network, low enough for some nodes to be isolated
+    private static final int BA_INITIAL_NODES = 5;  // initial nodes of the
+    // Barabasi-Albert network
+    private static final int BA_LINKS_EACH_STEP = 2;  // links added with each
+    // node of the Barabasi-Albert network
+    private static final int WALK_TTL = 400;  // TTL of the random walks
+    private static final int[] FLOOD_TTLS = {1, 2, 3, 5, 8, 40};  // TTLs of
+    // the floods
+    private static final int N_WALKERS = 4;  // walkers of the k random walkers
+    private static final int LARGE_N_NODES = 100000;  // number of nodes of
+    // the network whose flood time steps are split into chunks
+    private static final int[] LARGE_FLOOD_TTLS = {3, 40};  // TTLs of the
+    // floods on that network
+    private static final int LARGE_FLOOD_SEEDS = 5;  // largest number of
+    // seeds of the floods on that network, which are slow to run step by step
+    private static final int N_POOL_THREADS = 4;  // threads of the pool
+    // splitting the flood time steps into chunks
+    private static final int MAX_PRINTED_MISMATCHES = 20;
+    private static final long EXTERNAL_ID_STRIDE = 0x9e3779b97f4a7c15L;  //
+    // multiplier spreading the external IDs of the copied network over the
+    // 64-bit range
+    
+    private final int nSeeds;           // number of seeds of each search
+    private int nChecks = 0;            // number of results compared
+    private int nMismatches = 0;        // number of results that differ
+    
+    /**
+     * SearchFactory creates the searches of one search strategy.
+     */
+    private interface SearchFactory {
+        
+        /**
+         * Creates a search.
+         * 
+         * @param aNetworkStructurer
+         *            the network to search
+         * @param ttl
+         *            the TTL of the search
+         * @param aRandomNumberGenerator
+         *            source of randomness of the search
+         * @return the search
+         */
+        Search createSearch(NetworkStructurer aNetworkStructurer, int ttl,
+                RandomNumberGenerator aRandomNumberGenerator);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param pnSeeds
+     *            number of seeds each search is run from
+     */
+    public EngineConsistencyCheck(final int pnSeeds) {
+        nSeeds = pnSeeds;
+    }
+    
+    /**
+     * Runs the checks.
+     * 
+     * @param args
+     *            the number of seeds each search is run from (optional)
+     */
+    public static void main(final String[] args) {
+        final EngineConsistencyCheck engineConsistencyCheck =
+                new EngineConsistencyCheck((args.length > 0) ? Integer
+                        .parseInt(args[0]) : 20);
+        
+        engineConsistencyCheck.checkNetwork("Erdos-Renyi",
+                createErdosRenyiNetwork());
+        engineConsistencyCheck.checkNetwork("Barabasi-Albert",
+                createBarabasiAlbertNetwork());
+        engineConsistencyCheck.checkExternalIDs(createErdosRenyiNetwork());
+        engineConsistencyCheck.checkLargeFlood(
+                createBarabasiAlbertNetwork(LARGE_N_NODES));
+        
+        System.out.println(engineConsistencyCheck.nChecks +
+                " results compared, " + engineConsistencyCheck.nMismatches +
+                " mismatches");
+        System.exit((engineConsistencyCheck.nMismatches == 0) ? 0 : 1);
+    }
+    
+    /**
+     * Generates the Erdos-Renyi network of the checks.
+     * 
+     * @return the network
+     */
+    private static NetworkStructurer createErdosRenyiNetwork() {
+        final NetworkStructurer aNetworkStructurer =
+                new NetworkStructurer(null, N_NODES);
+        final ErdosRenyi anErdosRenyi =
+                new ErdosRenyi(aNetworkStructurer, N_NODES, ER_LINK_DENSITY,
+                        new Xoshiro256StarStar(NETWORK_SEED));
+        anErdosRenyi.generateNodes();
+        anErdosRenyi.generateLinks();
+        
+        return aNetworkStructurer;
+    }
+    
+    /**
+     * Generates the Barabasi-Albert network of the checks.
+     * 
+     * @return the network
+     */
+    private static NetworkStructurer createBarabasiAlbertNetwork() {
+        return createBarabasiAlbertNetwork(N_NODES);
+    }
+    
+    /**
+     * Generates a Barabasi-Albert network with a given number of nodes.
+     * 
+     * @param nNodes
+     *            number of nodes of the network
+     * @return the network
+     */
+    private static NetworkStructurer createBarabasiAlbertNetwork(
+            final int nNodes) {
+        final NetworkStructurer aNetworkStructurer =
+                new NetworkStructurer(null, nNodes);
+        final BarabasiAlbert aBarabasiAlbert =
+                new BarabasiAlbert(aNetworkStructurer, nNodes,
+                        BA_INITIAL_NODES, BA_LINKS_EACH_STEP,
+                        new Xoshiro256StarStar(NETWORK_SEED));
+        aBarabasiAlbert.generateNodes();
+        aBarabasiAlbert.generateLinks();
+        aBarabasiAlbert.generateBAModel();
+        
+        return aNetworkStructurer;
+    }
+    
+    /**
+     * Checks the floods on a network large enough for the time steps of the
+     * flood kernel to be split into chunks. Each flood is run step by step,
+     * and with the kernel in a pool of one thread (which never splits a time
+     * step) and in a pool of several threads.
+     * 
+     * @param aNetworkStructurer
+     *            the network
+     */
+    private void checkLargeFlood(final NetworkStructurer aNetworkStructurer) {
+        final ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        final ForkJoinPool multiThreadPool = new ForkJoinPool(N_POOL_THREADS);
+        
+        for (int seed = 0; seed < Math.min(nSeeds, LARGE_FLOOD_SEEDS); seed++) {
+            for (int iTtl = 0; iTtl < LARGE_FLOOD_TTLS.length; iTtl++) {
+                final int ttl = LARGE_FLOOD_TTLS[iTtl];
+                final String runName =
+                        "Large Barabasi-Albert, flooding, seed " + seed +
+                                ", TTL " + ttl;
+                
+                final Search stepSearch =
+                        new Flood(null, aNetworkStructurer, ttl,
+                                new Xoshiro256StarStar(seed));
+                stepSearch.addSearchObserver(createIdleObserver());
+                final SimulationResult stepResult =
+                        new SimulationEngine(stepSearch).run();
+                
+                compare(runName + ", kernel in 1 thread", stepResult,
+                        runInPool(singleThreadPool, new Flood(null,
+                                aNetworkStructurer, ttl,
+                                new Xoshiro256StarStar(seed))));
+                compare(runName + ", kernel in " + N_POOL_THREADS +
+                        " threads", stepResult, runInPool(multiThreadPool,
+                        new Flood(null, aNetworkStructurer, ttl,
+                                new Xoshiro256StarStar(seed))));
+            }
+        }
+        
+        singleThreadPool.shutdown();
+        multiThreadPool.shutdown();
+    }
+    
+    /**
+     * Runs a search from a task of a fork-join pool, so that its kernel runs
+     * the chunks of its time steps in that pool.
+     * 
+     * @param aForkJoinPool
+     *            the pool
+     * @param aSearch
+     *            the search
+     * @return the result of the search
+     */
+    private static SimulationResult runInPool(final ForkJoinPool aForkJoinPool,
+            final Search aSearch) {
+        try {
+            return aForkJoinPool.submit(new Callable<SimulationResult>() {
+                @Override
+                public SimulationResult call() {
+                    return new SimulationEngine(aSearch).run();
+                }
+            }).get();
+        }
+        catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (final ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Copies a network, registering each node under a sparse 64-bit external
+     * ID, and saves and restores the copy.
+     * 
+     * @param aNetworkStructurer
+     *            the network to copy
+     * @return the restored copy
+     */
+    private static NetworkStructurer copyWithExternalIDs(
+            final NetworkStructurer aNetworkStructurer) {
+        final List<Node> nodeList = aNetworkStructurer.getNodeList();
+        final NetworkStructurer copiedNetworkStructurer =
+                new NetworkStructurer(null, nodeList.size());
+        
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            final Node aNode = nodeList.get(iNode);
+            copiedNetworkStructurer.addNode(new Node(aNode.getNodeID()),
+                    (iNode + 1) * EXTERNAL_ID_STRIDE);
+            copiedNetworkStructurer.setNodeLocation(aNode.getNodeID(),
+                    aNetworkStructurer.getxLocation(aNode),
+                    aNetworkStructurer.getyLocation(aNode));
+        }
+        
+        /* Copies each link once, from the link set of its source node. */
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            final Node aNode = nodeList.get(iNode);
+            final Iterator<Link> itLinks = aNode.getLinksSet().iterator();
+            
+            while (itLinks.hasNext()) {
+                final Link aLink = itLinks.next();
+                
+                if (aLink.getSourceNodeID() == aNode.getNodeID()) {
+                    new Link(aLink.getSourceNodeID(),
+                            aLink.getDestinationNodeID(),
+                            copiedNetworkStructurer).setLinkType(aLink
+                            .getLinkType());
+                }
+            }
+        }
+        
+        try {
+            final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytesOut);
+            out.writeObject(copiedNetworkStructurer);
+            out.close();
+            
+            final ObjectInputStream in =
+                    new ObjectInputStream(new ByteArrayInputStream(bytesOut
+                            .toByteArray()));
+            final NetworkStructurer restoredNetworkStructurer =
+                    (NetworkStructurer) in.readObject();
+            in.close();
+            
+            return restoredNetworkStructurer;
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Checks a network whose nodes are registered under sparse external IDs.
+     * Its nodes must be found by external ID after being restored, and every
+     * search must give the same results as on the original network.
+     * 
+     * @param aNetworkStructurer
+     *            the original network
+     */
+    private void checkExternalIDs(final NetworkStructurer aNetworkStructurer) {
+        final String networkName = "Erdos-Renyi with external IDs";
+        final NetworkStructurer copiedNetworkStructurer =
+                copyWithExternalIDs(aNetworkStructurer);
+        final List<Node> nodeList = copiedNetworkStructurer.getNodeList();
+        
+        for (int iNode = 0; iNode < nodeList.size(); iNode++) {
+            final long externalID = (iNode + 1) * EXTERNAL_ID_STRIDE;
+            final Node aNode =
+                    copiedNetworkStructurer.getNodeByExternalID(externalID);
+            
+            compare(networkName + ", node with external ID " + externalID,
+                    nodeList.get(iNode),
+                    (aNode == null) ? "no node" : aNode);
+            compare(networkName + ", external ID of node " + iNode,
+                    externalID,
+                    copiedNetworkStructurer.getExternalID(nodeList.get(iNode)));
+        }
+        
+        final List<String> walkNames = new ArrayList<String>();
+        final List<SearchFactory> originalFactories =
+                new ArrayList<SearchFactory>();
+        final List<SearchFactory> copiedFactories =
+                new ArrayList<SearchFactory>();
+        addWalkFactories(walkNames, originalFactories, aNetworkStructurer);
+        addWalkFactories(new ArrayList<String>(), copiedFactories,
+                copiedNetworkStructurer);
+        
+        for (int iWalk = 0; iWalk < walkNames.size(); iWalk++) {
+            for (int seed = 0; seed < nSeeds; seed++) {
+                compare(networkName + ", " + walkNames.get(iWalk) +
+                        ", seed " + seed,
+                        new SimulationEngine(createSearch(
+                                originalFactories.get(iWalk),
+                                aNetworkStructurer, WALK_TTL, seed, 0)).run(),
+                        new SimulationEngine(createSearch(
+                                copiedFactories.get(iWalk),
+                                copiedNetworkStructurer, WALK_TTL, seed, 0))
+                                .run());
+            }
+        }
+        
+        checkNetwork(networkName, copiedNetworkStructurer);
+    }
+    
+    /**
+     * Runs the checks on a network. The links of the network are first given
+     * random weights, for the walks that follow the link weights.
+     * 
+     * @param networkName
+     *            name of the network, printed with the mismatches
+     * @param aNetworkStructurer
+     *            the network
+     */
+    private void checkNetwork(final String networkName,
+            final NetworkStructurer aNetworkStructurer) {
+        final RandomNumberGenerator weightGenerator =
+                new Xoshiro256StarStar(NETWORK_SEED);
+        
+        final Iterator<Node> itNodes =
+                aNetworkStructurer.getNodeList().iterator();
+        while (itNodes.hasNext()) {
+            final Iterator<Link> itLinks =
+                    itNodes.next().getLinksSet().iterator();
+            while (itLinks.hasNext()) {
+                itLinks.next().setWeight(
+                        0.1 + (5 * weightGenerator.nextDouble()));
+            }
+        }
+        
+        final List<String> walkNames = new ArrayList<String>();
+        final List<SearchFactory> walkFactories =
+                new ArrayList<SearchFactory>();
+        addWalkFactories(walkNames, walkFactories, aNetworkStructurer);
+        
+        for (int iWalk = 0; iWalk < walkNames.size(); iWalk++) {
+            for (int flagNonBacktracking = 0; flagNonBacktracking <= 1; flagNonBacktracking++) {
+                checkWalk(networkName + ", " + walkNames.get(iWalk) +
+                        ((flagNonBacktracking == 1) ? ", non-backtracking"
+                                : ""), aNetworkStructurer,
+                        walkFactories.get(iWalk), flagNonBacktracking);
+            }
+        }
+        
+        checkFlood(networkName + ", flooding", aNetworkStructurer,
+                new SearchFactory() {
+                    @Override
+                    public Search createSearch(
+                            final NetworkStructurer aNetworkStructurer,
+                            final int ttl,
+                            final RandomNumberGenerator aRandomNumberGenerator) {
+                        return new Flood(null, aNetworkStructurer, ttl,
+                                aRandomNumberGenerator);
+                    }
+                });
+        checkFlood(networkName + ", expanding ring flooding",
+                aNetworkStructurer, new SearchFactory() {
+                    @Override
+                    public Search createSearch(
+                            final NetworkStructurer aNetworkStructurer,
+                            final int ttl,
+                            final RandomNumberGenerator aRandomNumberGenerator) {
+                        return new ExpandingRingFlood(null, aNetworkStructurer,
+                                ttl, aRandomNumberGenerator);
+                    }
+                });
+    }
+    
+    /**
+     * Lists the random walk-based searches to check.
+     * 
+     * @param walkNames
+     *            list receiving the name of each search
+     * @param walkFactories
+     *            list receiving the factory of each search
+     * @param aNetworkStructurer
+     *            the network, which gives the alias tables of the weighted
+     *            walks
+     */
+    private static void addWalkFactories(final List<String> walkNames,
+            final List<SearchFactory> walkFactories,
+            final NetworkStructurer aNetworkStructurer) {
+        final NeighbourAliasTable[] neighbourAliasTables =
+                {aNetworkStructurer.getDegreeBiasAliasTable(1.0),
+                        aNetworkStructurer.getDegreeBiasAliasTable(-0.5),
+                        aNetworkStructurer.getLinkWeightAliasTable()};
+        
+        walkNames.add("random walk");
+        walkFactories.add(new SearchFactory() {
+            @Override
+            public Search createSearch(
+                    final NetworkStructurer aNetworkStructurer, final int ttl,
+                    final RandomNumberGenerator aRandomNumberGenerator) {
+                return new RandomWalk(null, aNetworkStructurer, ttl,
+                        aRandomNumberGenerator);
+            }
+        });
+        walkNames.add("bidirectional random walk");
+        walkFactories.add(new SearchFactory() {
+            @Override
+            public Search createSearch(
+                    final NetworkStructurer aNetworkStructurer, final int ttl,
+                    final RandomNumberGenerator aRandomNumberGenerator) {
+                return new BidirectionalSearchRW(null, aNetworkStructurer,
+                        ttl, aRandomNumberGenerator);
+            }
+        });
+        
+        for (int iTable = 0; iTable < neighbourAliasTables.length; iTable++) {
+            final NeighbourAliasTable aNeighbourAliasTable =
+                    neighbourAliasTables[iTable];
+            
+            walkNames.add("weighted random walk (" +
+                    aNeighbourAliasTable.getDescription() + ")");
+            walkFactories.add(new SearchFactory() {
+                @Override
+                public Search createSearch(
+                        final NetworkStructurer aNetworkStructurer,
+                        final int ttl,
+                        final RandomNumberGenerator aRandomNumberGenerator) {
+                    return new WeightedRandomWalk(null, aNetworkStructurer,
+                            ttl, aNeighbourAliasTable, aRandomNumberGenerator);
+                }
+            });
+            walkNames.add("bidirectional weighted random walk (" +
+                    aNeighbourAliasTable.getDescription() + ")");
+            walkFactories.add(new SearchFactory() {
+                @Override
+                public Search createSearch(
+                        final NetworkStructurer aNetworkStructurer,
+                        final int ttl,
+                        final RandomNumberGenerator aRandomNumberGenerator) {
+                    return new BidirectionalSearchWeightedRW(null,
+                            aNetworkStructurer, ttl, aNeighbourAliasTable,
+                            aRandomNumberGenerator);
+                }
+            });
+        }
+        
+        walkNames.add("randomly replicated random walk");
+        walkFactories.add(new SearchFactory() {
+            @Override
+            public Search createSearch(
+                    final NetworkStructurer aNetworkStructurer, final int ttl,
+                    final RandomNumberGenerator aRandomNumberGenerator) {
+                return new RandomlyReplicatedRandomWalk(null,
+                        aNetworkStructurer, ttl, aRandomNumberGenerator);
+            }
+        });
+        walkNames.add("bidirectional randomly replicated random walk");
+        walkFactories.add(new SearchFactory() {
+            @Override
+            public Search createSearch(
+                    final NetworkStructurer aNetworkStructurer, final int ttl,
+                    final RandomNumberGenerator aRandomNumberGenerator) {
+                return new BidirectionalSearchRRRW(null, aNetworkStructurer,
+                        ttl, aRandomNumberGenerator);
+            }
+        });
+        
+        for (int flagAvoidVisitedNodes = 0; flagAvoidVisitedNodes <= 1; flagAvoidVisitedNodes++) {
+            final int finalFlagAvoidVisitedNodes = flagAvoidVisitedNodes;
+            final String avoidance =
+                    (flagAvoidVisitedNodes == 1) ? ", avoiding visited nodes"
+                            : "";
+            
+            walkNames.add(N_WALKERS + " random walkers" + avoidance);
+            walkFactories.add(new SearchFactory() {
+                @Override
+                public Search createSearch(
+                        final NetworkStructurer aNetworkStructurer,
+                        final int ttl,
+                        final RandomNumberGenerator aRandomNumberGenerator) {
+                    return new KRandomWalkers(null, aNetworkStructurer, ttl,
+                            N_WALKERS, finalFlagAvoidVisitedNodes,
+                            aRandomNumberGenerator);
+                }
+            });
+            walkNames.add("bidirectional " + N_WALKERS + " random walkers" +
+                    avoidance);
+            walkFactories.add(new SearchFactory() {
+                @Override
+                public Search createSearch(
+                        final NetworkStructurer aNetworkStructurer,
+                        final int ttl,
+                        final RandomNumberGenerator aRandomNumberGenerator) {
+                    return new BidirectionalKRandomWalkers(null,
+                            aNetworkStructurer, ttl, N_WALKERS,
+                            finalFlagAvoidVisitedNodes, aRandomNumberGenerator);
+                }
+            });
+        }
+        
+        walkNames.add("bidirectional linear");
+        walkFactories.add(new SearchFactory() {
+            @Override
+            public Search createSearch(
+                    final NetworkStructurer aNetworkStructurer, final int ttl,
+                    final RandomNumberGenerator aRandomNumberGenerator) {
+                return new BidirectionalSearchLinear(null, aNetworkStructurer,
+                        ttl, aRandomNumberGenerator);
+            }
+        });
+    }
+    
+    /**
+     * Checks a random walk-based search. The searches of all the seeds are
+     * loaded together in the lanes of a batched walk engine, if it can load
+     * them.
+     * 
+     * @param searchName
+     *            name of the search, printed with the mismatches
+     * @param aNetworkStructurer
+     *            the network
+     * @param aSearchFactory
+     *            factory of the search
+     * @param flagNonBacktracking
+     *            1 if the walks are non-backtracking, 0 otherwise
+     */
+    private void checkWalk(final String searchName,
+            final NetworkStructurer aNetworkStructurer,
+            final SearchFactory aSearchFactory, final int flagNonBacktracking) {
+        final SimulationResult[] stepResults = new SimulationResult[nSeeds];
+        final BatchedWalkEngine aBatchedWalkEngine =
+                new BatchedWalkEngine(aNetworkStructurer.getCompactGraph());
+        final int[] lanes = new int[nSeeds];
+        
+        for (int seed = 0; seed < nSeeds; seed++) {
+            final String runName = searchName + ", seed " + seed;
+            
+            /* Runs the search step by step. */
+            final Search stepSearch =
+                    createSearch(aSearchFactory, aNetworkStructurer, WALK_TTL,
+                            seed, flagNonBacktracking);
+            stepSearch.addSearchObserver(createIdleObserver());
+            stepResults[seed] = new SimulationEngine(stepSearch).run();
+            
+            /* Runs the search with its kernel, if it has one. */
+            final Search kernelSearch =
+                    createSearch(aSearchFactory, aNetworkStructurer, WALK_TTL,
+                            seed, flagNonBacktracking);
+            compare(runName + ", kernel", stepResults[seed],
+                    new SimulationEngine(kernelSearch).run());
+            compare(runName + ", kernel generator",
+                    stepSearch.getRandomNumberGenerator().nextLong(),
+                    kernelSearch.getRandomNumberGenerator().nextLong());
+            
+            /*
+             * Gives the node sets and rendezvous detectors back to the pools
+             * of the network, so that the next seeds run on reused ones.
+             */
+            stepSearch.releaseNodeSets();
+            kernelSearch.releaseNodeSets();
+            
+            /* Loads the search into the batched walk engine. */
+            final Search laneSearch =
+                    createSearch(aSearchFactory, aNetworkStructurer, WALK_TTL,
+                            seed, flagNonBacktracking);
+            laneSearch.chooseSourceAndTargets();
+            lanes[seed] =
+                    aBatchedWalkEngine.canLoad(laneSearch) ? aBatchedWalkEngine
+                            .load(laneSearch) : -1;
+            
+            /* Derives the result from a recording with a larger TTL. */
+            final Search recordedSearch =
+                    createSearch(aSearchFactory, aNetworkStructurer,
+                            2 * WALK_TTL, seed, flagNonBacktracking);
+            
+            if (recordedSearch.isFirstPassageSearch()) {
+                recordedSearch.chooseSourceAndTargets();
+                final FirstPassageRecorder aFirstPassageRecorder =
+                        recordedSearch.startFirstPassageRecording();
+                new SimulationEngine(recordedSearch, 0).run();
+                compare(runName + ", first passages", stepResults[seed],
+                        aFirstPassageRecorder.getResult(WALK_TTL));
+                checkOtherTarget(runName, aNetworkStructurer, aSearchFactory,
+                        WALK_TTL, seed, flagNonBacktracking,
+                        aFirstPassageRecorder);
+            }
+        }
+        
+        aBatchedWalkEngine.run();
+        
+        for (int seed = 0; seed < nSeeds; seed++) {
+            if (lanes[seed] >= 0) {
+                compare(searchName + ", seed " + seed + ", batched lane",
+                        stepResults[seed],
+                        aBatchedWalkEngine.getResult(lanes[seed]));
+            }
+        }
+    }
+    
+    /**
+     * Checks a flooding-based search with several TTLs. The flood tree cache
+     * is shared by all the seeds and TTLs, so most of its results come from
+     * the trees it has kept.
+     * 
+     * @param searchName
+     *            name of the search, printed with the mismatches
+     * @param aNetworkStructurer
+     *            the network
+     * @param aSearchFactory
+     *            factory of the search
+     */
+    private void checkFlood(final String searchName,
+            final NetworkStructurer aNetworkStructurer,
+            final SearchFactory aSearchFactory) {
+        final FloodTreeCache aFloodTreeCache =
+                new FloodTreeCache(aNetworkStructurer.getCompactGraph());
+        final int maxTtl = FLOOD_TTLS[FLOOD_TTLS.length - 1];
+        
+        for (int seed = 0; seed < nSeeds; seed++) {
+            /* Records a run with the largest TTL, if the search can be. */
+            final Search recordedSearch =
+                    createSearch(aSearchFactory, aNetworkStructurer, maxTtl,
+                            seed, 0);
+            FirstPassageRecorder aFirstPassageRecorder = null;
+            
+            if (recordedSearch.isFirstPassageSearch()) {
+                recordedSearch.chooseSourceAndTargets();
+                aFirstPassageRecorder =
+                        recordedSearch.startFirstPassageRecording();
+                new SimulationEngine(recordedSearch, 0).run();
+            }
+            
+            for (int iTtl = 0; iTtl < FLOOD_TTLS.length; iTtl++) {
+                final int ttl = FLOOD_TTLS[iTtl];
+                final String runName =
+                        searchName + ", seed " + seed + ", TTL " + ttl;
+                
+                /* Runs the search step by step. */
+                final Search stepSearch =
+                        createSearch(aSearchFactory, aNetworkStructurer, ttl,
+                                seed, 0);
+                stepSearch.addSearchObserver(createIdleObserver());
+                final SimulationResult stepResult =
+                        new SimulationEngine(stepSearch).run();
+                
+                /* Runs the search with the flood kernel. */
+                compare(runName + ", kernel", stepResult,
+                        new SimulationEngine(createSearch(aSearchFactory,
+                                aNetworkStructurer, ttl, seed, 0)).run());
+                
+                /* Answers the search from the flood tree cache. */
+                final Search cachedSearch =
+                        createSearch(aSearchFactory, aNetworkStructurer, ttl,
+                                seed, 0);
+                cachedSearch.chooseSourceAndTargets();
+                final SimulationResult cachedResult =
+                        aFloodTreeCache.getResult(cachedSearch);
+                
+                if (cachedResult != null) {
+                    compare(runName + ", flood tree", stepResult, cachedResult);
+                }
+                
+                /* Derives the result from the recording. */
+                if (aFirstPassageRecorder != null) {
+                    compare(runName + ", first passages", stepResult,
+                            aFirstPassageRecorder.getResult(ttl));
+                    checkOtherTarget(runName, aNetworkStructurer,
+                            aSearchFactory, ttl, seed, 0,
+                            aFirstPassageRecorder);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks the result a recording gives for another target than the one the
+     * recorded search was given, against a run of the same search whose
+     * target is replaced by that node once the source is chosen.
+     * 
+     * @param runName
+     *            name of the run, printed with the mismatches
+     * @param aNetworkStructurer
+     *            the network
+     * @param aSearchFactory
+     *            factory of the search
+     * @param ttl
+     *            the TTL of the run
+     * @param seed
+     *            seed of the generator of the search
+     * @param flagNonBacktracking
+     *            1 if the walks of the search are non-backtracking
+     * @param aFirstPassageRecorder
+     *            the recording of the search with a larger TTL
+     */
+    private void checkOtherTarget(final String runName,
+            final NetworkStructurer aNetworkStructurer,
+            final SearchFactory aSearchFactory, final int ttl, final long seed,
+            final int flagNonBacktracking,
+            final FirstPassageRecorder aFirstPassageRecorder) {
+        final Search retargetedSearch =
+                createSearch(aSearchFactory, aNetworkStructurer, ttl, seed,
+                        flagNonBacktracking);
+        retargetedSearch.chooseSourceAndTargets();
+        
+        /* Picks a node that is neither a source nor a target of the search. */
+        final CompactGraph aCompactGraph = aNetworkStructurer.getCompactGraph();
+        final QueryStateTable aQueryStateTable =
+                retargetedSearch.getQueryStateTable();
+        int otherTargetIndex = (int) ((seed * 7919) % aCompactGraph.getnNodes());
+        
+        while (aFirstPassageRecorder.getTargetNodesSet().contains(
+                aCompactGraph.getNode(otherTargetIndex)) ||
+                isSourceNode(retargetedSearch,
+                        aCompactGraph.getNode(otherTargetIndex))) {
+            otherTargetIndex = (otherTargetIndex + 1) % aCompactGraph.getnNodes();
+        }
+        
+        final Node otherTarget = aCompactGraph.getNode(otherTargetIndex);
+        
+        for (int iQuery = 0; iQuery < aQueryStateTable.getnQueries(); iQuery++) {
+            final Set<Node> aTargetNodesSet =
+                    aQueryStateTable.getQuery(iQuery).getTargetNodesSet();
+            aTargetNodesSet.clear();
+            aTargetNodesSet.add(otherTarget);
+        }
+        
+        retargetedSearch.addSearchObserver(createIdleObserver());
+        compare(runName + ", first passages to node " +
+                otherTarget.getNodeID(),
+                new SimulationEngine(retargetedSearch, 0).run(),
+                aFirstPassageRecorder.getResult(
+                        Collections.singleton(otherTarget), ttl));
+    }
+    
+    /**
+     * Checks whether a node is the source of a query of a search.
+     * 
+     * @param aSearch
+     *            the search
+     * @param aNode
+     *            the node
+     * @return true if the node is the source of a query
+     */
+    private static boolean isSourceNode(final Search aSearch, final Node aNode) {
+        final QueryStateTable aQueryStateTable = aSearch.getQueryStateTable();
+        
+        for (int iQuery = 0; iQuery < aQueryStateTable.getnQueries(); iQuery++) {
+            if (aQueryStateTable.getQuery(iQuery).getSourceNode() == aNode) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Creates a search from a seed.
+     * 
+     * @param aSearchFactory
+     *            factory of the search
+     * @param aNetworkStructurer
+     *            the network
+     * @param ttl
+     *            the TTL of the search
+     * @param seed
+     *            seed of the generator of the search
+     * @param flagNonBacktracking
+     *            1 if the walks of the search are non-backtracking
+     * @return the search
+     */
+    private static Search createSearch(final SearchFactory aSearchFactory,
+            final NetworkStructurer aNetworkStructurer, final int ttl,
+            final long seed, final int flagNonBacktracking) {
+        final Search aSearch =
+                aSearchFactory.createSearch(aNetworkStructurer, ttl,
+                        new Xoshiro256StarStar(seed));
+        aSearch.setFlagNonBacktracking(flagNonBacktracking);
+        
+        return aSearch;
+    }
+    
+    /**
+     * Creates an observer that does nothing, which makes a search run step by
+     * step.
+     * 
+     * @return the observer
+     */
+    private static SearchObserver createIdleObserver() {
+        return new SearchObserver() {
+            @Override
+            public void stepCompleted(final Search aSearch) {
+                // the search is only followed so that it runs step by step
+            }
+            
+            @Override
+            public void searchTerminated(final Search aSearch,
+                    final TerminationReason reason) {
+                // the result is read from the simulation engine
+            }
+        };
+    }
+    
+    /**
+     * Compares a result with the expected one, printing it if it differs.
+     * 
+     * @param runName
+     *            name of the run, printed with the mismatch
+     * @param expected
+     *            the expected result
+     * @param actual
+     *            the result to check
+     */
+    private void compare(final String runName, final Object expected,
+            final Object actual) {
+        nChecks++;
+        
+        if (!expected.toString().equals(actual.toString())) {
+            nMismatches++;
+            
+            if (nMismatches <= MAX_PRINTED_MISMATCHES) {
+                System.out.println(runName + ": expected " + expected +
+                        ", got " + actual);
+            }
+        }
+    }
+    
+}